@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.analysis.LegHistogram;
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the dispatch modes of {@link EventsManagerImpl} by replaying a recorded events file
+ * to a typical set of analysis handlers. By default, the events of the equil scenario are used;
+ * other events and network files can be given with <code>-Dbenchmark.events=...</code> and
+ * <code>-Dbenchmark.network=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventsDispatchBenchmark {
+
+	@Param({"reflective", "generated"})
+	public EventsManagerImpl.DispatchMode dispatchMode;
+
+	private Event[] events;
+	private EventsManager eventsManager;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		String eventsFile = System.getProperty("benchmark.events");
+		String networkFile = System.getProperty("benchmark.network");
+
+		Network network = NetworkUtils.createNetwork();
+		if (networkFile == null) {
+			new MatsimNetworkReader(network).readURL(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		} else {
+			new MatsimNetworkReader(network).readFile(networkFile);
+		}
+
+		final List<Event> recorded = new ArrayList<>();
+		EventsManager recorder = EventsUtils.createEventsManager();
+		recorder.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				recorded.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		if (eventsFile == null) {
+			new MatsimEventsReader(recorder).readURL(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz"));
+		} else {
+			new MatsimEventsReader(recorder).readFile(eventsFile);
+		}
+		this.events = recorded.toArray(new Event[recorded.size()]);
+
+		this.eventsManager = new EventsManagerImpl(this.dispatchMode);
+		this.eventsManager.addHandler(new TravelTimeCalculator(network, new TravelTimeCalculatorConfigGroup()));
+		this.eventsManager.addHandler(new VolumesAnalyzer(3600, 30 * 3600, network));
+		this.eventsManager.addHandler(new LegHistogram(300));
+	}
+
+	/**
+	 * @return the number of replayed events; throughput in events per second is this number times the reported score.
+	 */
+	@Benchmark
+	public int replayEvents() {
+		for (Event event : this.events) {
+			this.eventsManager.processEvent(event);
+		}
+		return this.events.length;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares lookups by {@link Id} in a {@link HashMap} with lookups in an {@link IdMap} and an
+ * {@link IdSet}, and measures {@link Id#create(String, Class)} and {@link Id#equals(Object)}.
+ * Every benchmark method performs 100000 operations with ids drawn at random from
+ * <code>ids</code> ids of link-like keys ("1234_5").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IdBenchmark {
+
+	private static final int LOOKUPS = 100000;
+
+	@Param({"10000", "1000000"})
+	public int ids;
+
+	private Id<BenchmarkLink>[] lookupIds;
+	private String[] lookupKeys;
+	private Map<Id<BenchmarkLink>, Double> hashMap;
+	private IdMap<BenchmarkLink, Double> idMap;
+	private IdSet<BenchmarkLink> idSet;
+
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Trial)
+	public void setup() {
+		List<Id<BenchmarkLink>> allIds = new ArrayList<>(this.ids);
+		for (int i = 0; i < this.ids; i++) {
+			allIds.add(Id.create(i + "_" + (i % 7), BenchmarkLink.class));
+		}
+		this.hashMap = new HashMap<>();
+		this.idMap = new IdMap<>(BenchmarkLink.class);
+		this.idSet = new IdSet<>(BenchmarkLink.class);
+		for (Id<BenchmarkLink> id : allIds) {
+			this.hashMap.put(id, (double) id.index());
+			this.idMap.put(id, (double) id.index());
+			this.idSet.add(id);
+		}
+
+		Random random = new Random(4711);
+		this.lookupIds = new Id[LOOKUPS];
+		this.lookupKeys = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			this.lookupIds[i] = allIds.get(random.nextInt(this.ids));
+			// new strings, as they come from a file or an event
+			this.lookupKeys[i] = new String(this.lookupIds[i].toString().toCharArray());
+		}
+	}
+
+	@Benchmark
+	public double hashMapGet() {
+		double sum = 0;
+		for (Id<BenchmarkLink> id : this.lookupIds) {
+			sum += this.hashMap.get(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double idMapGet() {
+		double sum = 0;
+		for (Id<BenchmarkLink> id : this.lookupIds) {
+			sum += this.idMap.get(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double idMapGetByIndex() {
+		double sum = 0;
+		for (Id<BenchmarkLink> id : this.lookupIds) {
+			sum += this.idMap.get(id.index());
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int idSetContains() {
+		int count = 0;
+		for (Id<BenchmarkLink> id : this.lookupIds) {
+			if (this.idSet.contains(id)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int idEquals() {
+		int count = 0;
+		Id<BenchmarkLink> previous = this.lookupIds[0];
+		for (Id<BenchmarkLink> id : this.lookupIds) {
+			if (id.equals(previous)) {
+				count++;
+			}
+			previous = id;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public void create(Blackhole blackhole) {
+		for (String key : this.lookupKeys) {
+			blackhole.consume(Id.create(key, BenchmarkLink.class));
+		}
+	}
+
+	private static final class BenchmarkLink {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(IdBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,149 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.jdeqsim.JDEQSimConfigGroup;
+import org.matsim.core.mobsim.jdeqsim.JDEQSimulation;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the message queues of {@link JDEQSimulation} by running the simulation on the
+ * equil scenario with its 2000 persons, each of them copied <code>copies</code> times. Another
+ * config file can be given with <code>-Dbenchmark.config=...</code>; its population is copied in
+ * the same way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JDEQSimMessageQueueBenchmark {
+
+	@Param({"priorityQueue", "calendarQueue"})
+	public JDEQSimConfigGroup.MessageQueueType messageQueue;
+
+	@Param({"1", "50"})
+	public int copies;
+
+	private Scenario scenario;
+	private JDEQSimConfigGroup jdeqSimConfig;
+	private EventsManager eventsManager;
+	private EventCounter counter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		String configFile = System.getProperty("benchmark.config");
+
+		Config config;
+		if (configFile == null) {
+			config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+			config.plans().setInputFile("plans2000.xml.gz");
+		} else {
+			config = ConfigUtils.loadConfig(configFile);
+		}
+		this.scenario = ScenarioUtils.loadScenario(config);
+		copyPersons(this.scenario.getPopulation(), this.copies);
+
+		this.jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+		this.jdeqSimConfig.setMessageQueue(this.messageQueue);
+
+		this.counter = new EventCounter();
+		this.eventsManager = EventsUtils.createEventsManager();
+		this.eventsManager.addHandler(this.counter);
+	}
+
+	/**
+	 * @return the number of events of one simulation run; throughput in events per second is this number times the reported score.
+	 */
+	@Benchmark
+	public int runSimulation() {
+		this.counter.count = 0;
+		new JDEQSimulation(this.jdeqSimConfig, this.scenario, this.eventsManager).run();
+		return this.counter.count;
+	}
+
+	private static void copyPersons(Population population, int copies) {
+		PopulationFactory factory = population.getFactory();
+		List<Person> originals = new ArrayList<>(population.getPersons().values());
+		for (int i = 1; i < copies; i++) {
+			for (Person original : originals) {
+				Person copy = factory.createPerson(Id.createPersonId(original.getId() + "_" + i));
+				Plan plan = factory.createPlan();
+				PopulationUtils.copyFromTo(original.getSelectedPlan(), plan);
+				copy.addPlan(plan);
+				copy.setSelectedPlan(plan);
+				population.addPerson(copy);
+			}
+		}
+	}
+
+	private static class EventCounter implements BasicEventHandler {
+		int count = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JDEQSimMessageQueueBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
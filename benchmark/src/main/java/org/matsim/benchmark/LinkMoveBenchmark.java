@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.VehicleQueueImplementation;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how fast the QSim moves vehicles over the links, with the vehicle, buffer and hole queues of
+ * <code>QueueWithBuffer</code> selected by {@link org.matsim.core.config.groups.QSimConfigGroup#getVehicleQueueImplementation()}.
+ * Every invocation runs the QSim on the equil scenario with its 2000 persons, each of them copied <code>copies</code>
+ * times, so that the links are congested. Another config file can be given with <code>-Dbenchmark.config=...</code>;
+ * its population is copied in the same way. Run with <code>-prof gc</code> to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LinkMoveBenchmark {
+
+	@Param({"linkedList", "ringBuffer"})
+	public VehicleQueueImplementation implementation;
+
+	@Param({"1", "50"})
+	public int copies;
+
+	private Scenario scenario;
+	private EventsManager eventsManager;
+	private LinkEnterCounter counter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		String configFile = System.getProperty("benchmark.config");
+
+		Config config;
+		if (configFile == null) {
+			config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+			config.plans().setInputFile("plans2000.xml.gz");
+		} else {
+			config = ConfigUtils.loadConfig(configFile);
+		}
+		config.qsim().setVehicleQueueImplementation(this.implementation);
+		this.scenario = ScenarioUtils.loadScenario(config);
+		copyPersons(this.scenario.getPopulation(), this.copies);
+		PrepareForSimUtils.createDefaultPrepareForSim(this.scenario).run();
+
+		this.counter = new LinkEnterCounter();
+		this.eventsManager = EventsUtils.createEventsManager();
+		this.eventsManager.addHandler(this.counter);
+	}
+
+	/**
+	 * @return the number of link moves of one simulation run; link moves per second are this number times the reported score.
+	 */
+	@Benchmark
+	public int runSimulation() {
+		this.counter.count = 0;
+		new QSimBuilder(this.scenario.getConfig()) //
+			.useDefaults() //
+			.build(this.scenario, this.eventsManager) //
+			.run();
+		return this.counter.count;
+	}
+
+	private static void copyPersons(Population population, int copies) {
+		PopulationFactory factory = population.getFactory();
+		List<Person> originals = new ArrayList<>(population.getPersons().values());
+		for (int i = 1; i < copies; i++) {
+			for (Person original : originals) {
+				Person copy = factory.createPerson(Id.createPersonId(original.getId() + "_" + i));
+				Plan plan = factory.createPlan();
+				PopulationUtils.copyFromTo(original.getSelectedPlan(), plan);
+				copy.addPlan(plan);
+				copy.setSelectedPlan(plan);
+				population.addPerson(copy);
+			}
+		}
+	}
+
+	private static class LinkEnterCounter implements LinkEnterEventHandler {
+		int count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(LinkMoveBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,86 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Measures the heap footprint of the default and of the compact population (see
+ * {@link org.matsim.core.config.groups.PlansConfigGroup#isCompactPopulation()}) with
+ * {@link GraphLayout}. The population is the one of the equil scenario with its 2000 persons, each of
+ * them copied <code>copies</code> times (first argument, default 10). Ids, interned strings and other
+ * objects shared with the rest of the scenario are counted once, as they are reachable from both
+ * populations.
+ * <p>
+ * On JDK 9 and later, run with <code>-Djdk.attach.allowAttachSelf=true</code>.
+ */
+public class PopulationFootprint {
+
+	public static void main(String[] args) {
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		long defaultSize = measure(false, copies);
+		long compactSize = measure(true, copies);
+		System.out.println(String.format("default population: %,d bytes", defaultSize));
+		System.out.println(String.format("compact population: %,d bytes", compactSize));
+		System.out.println(String.format("ratio: %.2f", (double) defaultSize / compactSize));
+	}
+
+	private static long measure(boolean compact, int copies) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.plans().setCompactPopulation(compact);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		copyPersons(scenario.getPopulation(), copies);
+		GraphLayout layout = GraphLayout.parseInstance(scenario.getPopulation().getPersons().values().toArray());
+		System.out.println(layout.toFootprint());
+		return layout.totalSize();
+	}
+
+	private static void copyPersons(Population population, int copies) {
+		PopulationFactory factory = population.getFactory();
+		List<Person> originals = new ArrayList<>(population.getPersons().values());
+		for (int i = 1; i < copies; i++) {
+			for (Person original : originals) {
+				Person copy = factory.createPerson(Id.createPersonId(original.getId() + "_" + i));
+				Plan plan = factory.createPlan();
+				PopulationUtils.copyFromTo(original.getSelectedPlan(), plan);
+				copy.addPlan(plan);
+				copy.setSelectedPlan(plan);
+				population.addPerson(copy);
+			}
+		}
+	}
+
+}
@@ -20,11 +20,18 @@
 package org.matsim.contrib.accessibility;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -49,6 +56,8 @@ import org.matsim.facilities.ActivityFacility;
 public final class AccessibilityCalculator {
 	private static final Logger LOG = Logger.getLogger(AccessibilityCalculator.class);
 
+	private static final int ORIGIN_NODES_PER_THREAD_AND_BLOCK = 64;
+
 	private final ActivityFacilities measuringPoints;
 	private final Map<String, AccessibilityContributionCalculator> calculators = new LinkedHashMap<>();
 	// (test may depend on that this is a "Linked" Hash Map. kai, dec'16)
@@ -86,77 +95,170 @@ public final class AccessibilityCalculator {
 	public final void computeAccessibilities(Double departureTime, ActivityFacilities opportunities) {
 		AggregationObject[] aggregatedOpportunities = aggregateOpportunities(opportunities, network);
 
-		Map<String,Double> expSums = new HashMap<>();
-		for (String mode : calculators.keySet()) {
-			expSums.put(mode, 0.);
-		}
-
 		// Condense measuring points (origins) that have the same nearest node on the network
 		Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins = aggregateMeasurePointsWithSameNearestNode();
+		List<Id<Node>> originNodeIds = new ArrayList<>(aggregatedOrigins.keySet());
+
+		List<Map<String, AccessibilityContributionCalculator>> calculatorsPerThread = createCalculatorsPerThread();
+		final int numberOfThreads = calculatorsPerThread.size();
+		ExecutorService executor = null;
+		if (numberOfThreads > 1) {
+			LOG.info("Computing accessibilities on " + numberOfThreads + " threads.");
+			executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "AccessibilityCalculator");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
 
 		LOG.info("Iterating over all aggregated measuring points...");
 		ProgressBar progressBar = new ProgressBar(aggregatedOrigins.size());
-		
-		// Go through all nodes (keys) that have a measuring point (origin) assigned
-		for (Id<Node> nodeId : aggregatedOrigins.keySet()) {
-			progressBar.update();
 
-			Node fromNode = network.getNodes().get(nodeId);
+		// The origin nodes are processed in blocks. Within a block, the accessibilities are computed in parallel; afterwards,
+		// they are handed to the listeners in the original order so that the output does not depend on the number of threads.
+		final int blockSize = numberOfThreads * ORIGIN_NODES_PER_THREAD_AND_BLOCK;
+		try {
+			for (int blockStart = 0; blockStart < originNodeIds.size(); blockStart += blockSize) {
+				final int start = blockStart;
+				final int end = Math.min(blockStart + blockSize, originNodeIds.size());
+				final List<List<Map<String, Double>>> blockAccessibilities = new ArrayList<>(Collections.nCopies(end - start, null));
 
-			for (AccessibilityContributionCalculator calculator : calculators.values()) {
-				Gbl.assertNotNull(calculator);
-				calculator.notifyNewOriginNode(fromNode, departureTime);
+				List<Callable<Void>> tasks = new ArrayList<>(numberOfThreads);
+				for (int thread = 0; thread < numberOfThreads; thread++) {
+					final int threadIndex = thread;
+					final Map<String, AccessibilityContributionCalculator> threadCalculators = calculatorsPerThread.get(thread);
+					tasks.add(() -> {
+						for (int i = start + threadIndex; i < end; i += numberOfThreads) {
+							Id<Node> nodeId = originNodeIds.get(i);
+							blockAccessibilities.set(i - start, computeAccessibilitiesOfOriginNode(nodeId, aggregatedOrigins.get(nodeId),
+									aggregatedOpportunities, threadCalculators, departureTime));
+						}
+						return null;
+					});
+				}
+				runTasks(executor, tasks);
+
+				for (int i = start; i < end; i++) {
+					progressBar.update();
+					List<ActivityFacility> origins = aggregatedOrigins.get(originNodeIds.get(i));
+					List<Map<String, Double>> accessibilities = blockAccessibilities.get(i - start);
+					for (int j = 0; j < origins.size(); j++) {
+						for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+							zoneDataExchangeInterface.setFacilityAccessibilities(origins.get(j), departureTime, accessibilities.get(j));
+						}
+					}
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
 			}
+		}
+		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
+			zoneDataExchangeInterface.finish();
+		}
+	}
 
-			// Get list with measuring points that are assigned to "fromNode"
-			// Go through all measuring points assigned to current node
-			for (ActivityFacility origin : aggregatedOrigins.get(nodeId)) {
-				assert(origin.getCoord() != null);
+	private List<Map<String, Double>> computeAccessibilitiesOfOriginNode(Id<Node> nodeId, List<ActivityFacility> origins,
+			AggregationObject[] aggregatedOpportunities, Map<String, AccessibilityContributionCalculator> calculators, Double departureTime) {
+		Node fromNode = network.getNodes().get(nodeId);
 
-				for (String key : expSums.keySet()) { // Is it really necessary to reset here?
-					expSums.put(key, 0.);
-				}
-				
-				// Gbl.assertIf(aggregatedOpportunities.length > 0);
-				// yyyyyy a test fails when this line is made active; cannot say why an execution path where there are now opportunities can make sense for a test.  kai, mar'17
-				
-				// Go through all aggregated facilities (i.e. network nodes to which at least one facility is assigned)
-				for (final AggregationObject aggregatedFacility : aggregatedOpportunities) {
-					// Go through all calculators
-					for (String mode : calculators.keySet()) {
-						final double expVhk = calculators.get(mode).computeContributionOfOpportunity(origin, aggregatedFacility, departureTime);
-						expSums.put(mode, expSums.get(mode) + expVhk);
-					}
+		for (AccessibilityContributionCalculator calculator : calculators.values()) {
+			Gbl.assertNotNull(calculator);
+			calculator.notifyNewOriginNode(fromNode, departureTime);
+		}
+
+		String[] modes = calculators.keySet().toArray(new String[calculators.size()]);
+		AccessibilityContributionCalculator[] modeCalculators = calculators.values().toArray(new AccessibilityContributionCalculator[calculators.size()]);
+		double[] expSums = new double[modes.length];
+
+		List<Map<String, Double>> result = new ArrayList<>(origins.size());
+
+		// Go through all measuring points assigned to current node
+		for (ActivityFacility origin : origins) {
+			assert(origin.getCoord() != null);
+
+			Arrays.fill(expSums, 0.);
+
+			// Gbl.assertIf(aggregatedOpportunities.length > 0);
+			// yyyyyy a test fails when this line is made active; cannot say why an execution path where there are now opportunities can make sense for a test.  kai, mar'17
+
+			// Go through all aggregated facilities (i.e. network nodes to which at least one facility is assigned)
+			for (final AggregationObject aggregatedFacility : aggregatedOpportunities) {
+				// Go through all calculators
+				for (int m = 0; m < modes.length; m++) {
+					expSums[m] += modeCalculators[m].computeContributionOfOpportunity(origin, aggregatedFacility, departureTime);
 				}
-				// What does the aggregation of the starting locations save if we do the just ended loop for all starting
-				// points separately anyways? Answer: The trees need to be computed only once. (But one could save more.) kai, feb'14
-
-				// aggregated value
-				Map<String, Double> accessibilities  = new LinkedHashMap<>();
-
-				for (String mode : calculators.keySet()) {
-					if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.logSum) {
-						accessibilities.put(mode, (1/this.cnScoringGroup.getBrainExpBeta()) * Math.log(expSums.get(mode)));
-					} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.rawSum) {
-						// this was used by IVT within SustainCity. Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
-						// The above comment is from the time when the switch "isUsingRawSumsWithoutLn" was a "special case". I think the question is
-						// now resolved as "rawSum" has become one of the "AccessibilityMeasureType" options aiming to provide a means to use
-						// other potentially useful measure types. dz, july'17
-						accessibilities.put(mode, expSums.get(mode));
-					} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.gravity) {
-						throw new IllegalArgumentException("This accessibility measure is not yet implemented.");
-					} else {
-						throw new IllegalArgumentException("No valid accessibility measure type chosen.");
-					}
+			}
+			// What does the aggregation of the starting locations save if we do the just ended loop for all starting
+			// points separately anyways? Answer: The trees need to be computed only once. (But one could save more.) kai, feb'14
+
+			// aggregated value
+			Map<String, Double> accessibilities  = new LinkedHashMap<>();
+
+			for (int m = 0; m < modes.length; m++) {
+				if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.logSum) {
+					accessibilities.put(modes[m], (1/this.cnScoringGroup.getBrainExpBeta()) * Math.log(expSums[m]));
+				} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.rawSum) {
+					// this was used by IVT within SustainCity. Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
+					// The above comment is from the time when the switch "isUsingRawSumsWithoutLn" was a "special case". I think the question is
+					// now resolved as "rawSum" has become one of the "AccessibilityMeasureType" options aiming to provide a means to use
+					// other potentially useful measure types. dz, july'17
+					accessibilities.put(modes[m], expSums[m]);
+				} else if (acg.getAccessibilityMeasureType() == AccessibilityMeasureType.gravity) {
+					throw new IllegalArgumentException("This accessibility measure is not yet implemented.");
+				} else {
+					throw new IllegalArgumentException("No valid accessibility measure type chosen.");
 				}
-				
-				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
+			}
+			result.add(accessibilities);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns one set of calculators per thread; the first one is the original set. Falls back to a single thread if
+	 * one of the calculators cannot be duplicated.
+	 */
+	private List<Map<String, AccessibilityContributionCalculator>> createCalculatorsPerThread() {
+		List<Map<String, AccessibilityContributionCalculator>> calculatorsPerThread = new ArrayList<>();
+		calculatorsPerThread.add(this.calculators);
+		for (int thread = 1; thread < acg.getNumberOfThreads(); thread++) {
+			Map<String, AccessibilityContributionCalculator> copies = new LinkedHashMap<>();
+			for (Map.Entry<String, AccessibilityContributionCalculator> entry : this.calculators.entrySet()) {
+				AccessibilityContributionCalculator copy = entry.getValue().duplicate();
+				if (copy == null) {
+					LOG.warn("The accessibility contribution calculator for mode " + entry.getKey() + " cannot be duplicated. "
+							+ "Computing accessibilities on a single thread.");
+					return Collections.singletonList(this.calculators);
 				}
+				copies.put(entry.getKey(), copy);
 			}
+			calculatorsPerThread.add(copies);
 		}
-		for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
-			zoneDataExchangeInterface.finish();
+		return calculatorsPerThread;
+	}
+
+	private static void runTasks(ExecutorService executor, List<Callable<Void>> tasks) {
+		try {
+			if (executor == null) {
+				for (Callable<Void> task : tasks) {
+					task.call();
+				}
+			} else {
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
 		}
 	}
 	
@@ -102,6 +102,9 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public static final String TIME_OF_DAY = "timeOfDay";
 	private Double timeOfDay = 8.*3600;
 
+	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private int numberOfThreads = 1;
+
 	public AccessibilityConfigGroup() {
 		super(GROUP_NAME);
 		isComputingMode.add(Modes4Accessibility.freespeed);
@@ -113,6 +116,9 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 		
 		map.put(TIME_OF_DAY, "time of day at which trips for accessibility computations are assumed to start");
 		
+		map.put(NUMBER_OF_THREADS, "number of threads over which the measuring points are distributed. Every thread computes its own "
+				+ "least-cost path trees, so only modes whose contribution calculators can be duplicated are computed in parallel.");
+		
 		map.put(ACCESSIBILITY_DESTINATION_SAMPLING_RATE, "if only a sample of destinations should be used " +
 				"(reduces accuracy -- not recommended except when necessary for computational speed reasons)");
 		
@@ -198,6 +204,17 @@ public final class AccessibilityConfigGroup extends ReflectiveConfigGroup{
 	public void setTimeOfDay(Double timeOfDay) {
 		this.timeOfDay = timeOfDay;
 	}
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return this.numberOfThreads;
+	}
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1, but was " + numberOfThreads + ".");
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
 	
 	@StringGetter(ACCESSIBILITY_DESTINATION_SAMPLING_RATE)
 	public Double getAccessibilityDestinationSamplingRate(){
@@ -42,4 +42,15 @@ public interface AccessibilityContributionCalculator {
 	double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime);
 	// yyyy I am somewhat sceptic if we tryly need both "fromNode" (above) and origin.
 	// yyyy And I am quite confident that we do not need the departure time twice.
+
+	/**
+	 * Creates an independent copy of this calculator (in particular with its own least-cost path tree), which can be used
+	 * on another thread at the same time as this one.
+	 *
+	 * @return the copy, or <code>null</code> if the calculator cannot be used on several threads; the accessibilities are
+	 *         then computed on a single thread.
+	 */
+	default AccessibilityContributionCalculator duplicate() {
+		return null;
+	}
 }
\ No newline at end of file
@@ -45,6 +45,8 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 	private final LeastCostPathTree lcptTravelDistance = new LeastCostPathTree(new FreeSpeedTravelTime(), new LinkLengthTravelDisutility());
 
 	private final Network network;
+	private final String mode;
+	private final Config config;
 	
 	private double logitScaleParameter;
 	
@@ -59,9 +61,15 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 
 	private Node fromNode = null;
 
+	// the nearest link only depends on the origin, but the contribution is computed for every opportunity of that origin
+	private ActivityFacility lastOrigin = null;
+	private Distances distances = null;
+
 
 	public ConstantSpeedAccessibilityExpContributionCalculator(final String mode, Config config, Network network) {
 		this.network = network;
+		this.mode = mode;
+		this.config = config;
 		final PlanCalcScoreConfigGroup planCalcScoreConfigGroup = config.planCalcScore() ;
 
 		if (planCalcScoreConfigGroup.getOrCreateModeParams(mode).getMonetaryDistanceRate() != 0.) {
@@ -86,9 +94,17 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 	}
 
 	
+	@Override
+	public AccessibilityContributionCalculator duplicate() {
+		// the link quad tree is built lazily; do that here, before the copies query the shared network concurrently
+		NetworkUtils.getNearestLinkExactly(network, network.getNodes().values().iterator().next().getCoord());
+		return new ConstantSpeedAccessibilityExpContributionCalculator(mode, config, network);
+	}
+
 	@Override
 	public void notifyNewOriginNode(Node fromNode, Double departureTime) {
 		this.fromNode = fromNode;
+		this.lastOrigin = null;
 		this.lcptTravelDistance.calculate(network, fromNode, departureTime);
 	}
 
@@ -96,10 +112,13 @@ public final class ConstantSpeedAccessibilityExpContributionCalculator implement
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime) {
 		// TODO departure time is not used, dz, apr'17
-		Link nearestLinkToOrigin = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
+		if (origin != lastOrigin) {
+			Link nearestLinkToOrigin = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
 
-		// Captures the distance between the origin via the link to the node:
-		Distances distances = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLinkToOrigin, fromNode);
+			// Captures the distance between the origin via the link to the node:
+			distances = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLinkToOrigin, fromNode);
+			lastOrigin = origin;
+		}
 
 		// TODO: extract this walk part?
 		// In the state found before modularization (june 15), this was anyway not consistent accross modes
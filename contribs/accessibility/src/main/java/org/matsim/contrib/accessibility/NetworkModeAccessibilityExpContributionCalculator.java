@@ -42,6 +42,8 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 
 	private final Network network;
 	private final TravelTime travelTime;
+	private final TravelDisutilityFactory travelDisutilityFactory;
+	private final Scenario scenario;
 
 	private final double betaWalkTT;
 	private final double betaWalkTD;
@@ -50,10 +52,17 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	private Node fromNode = null;
 	private final LeastCostPathTreeExtended lcpt;
 
+	// the nearest link only depends on the origin, but the contribution is computed for every opportunity of that origin
+	private ActivityFacility lastOrigin = null;
+	private Link nearestLink = null;
+	private Distances distance = null;
+
 	
 	public NetworkModeAccessibilityExpContributionCalculator(final TravelTime travelTime,
 			final TravelDisutilityFactory travelDisutilityFactory, final Scenario scenario,	final Network network) {		
 		this.network = network;
+		this.travelDisutilityFactory = travelDisutilityFactory;
+		this.scenario = scenario;
 
 		final PlanCalcScoreConfigGroup planCalcScoreConfigGroup = scenario.getConfig().planCalcScore();
 		this.scheme = (RoadPricingScheme) scenario.getScenarioElement( RoadPricingScheme.ELEMENT_NAME );
@@ -83,9 +92,20 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	}
 
 
+	/**
+	 * The travel time is shared with the copy, the travel disutility and the least-cost path tree are created anew.
+	 */
+	@Override
+	public AccessibilityContributionCalculator duplicate() {
+		// the link quad tree is built lazily; do that here, before the copies query the shared network concurrently
+		NetworkUtils.getNearestLinkExactly(network, network.getNodes().values().iterator().next().getCoord());
+		return new NetworkModeAccessibilityExpContributionCalculator(travelTime, travelDisutilityFactory, scenario, network);
+	}
+
 	@Override
 	public void notifyNewOriginNode(Node fromNode, Double departureTime) {
 		this.fromNode = fromNode;
+		this.lastOrigin = null;
 		this.lcpt.calculateExtended(network, fromNode, departureTime);
 	}
 	
@@ -95,10 +115,13 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 
 //		System.out.println("oring = " + origin.getCoord().getX() + "   " + origin.getCoord().getY());
 //		System.out.println("destnode = " + destination.getNearestNode().getCoord().getX() + "   " + destination.getNearestNode().getCoord().getY());
-		Link nearestLink = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
+		if (origin != lastOrigin) {
+			nearestLink = NetworkUtils.getNearestLinkExactly(network, origin.getCoord());
 
-		// === (1) ORIGIN to LINK to NODE (captures the distance (as walk time) between the origin via the link to the node):
-		Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
+			// === (1) ORIGIN to LINK to NODE (captures the distance (as walk time) between the origin via the link to the node):
+			distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
+			lastOrigin = origin;
+		}
 		
 		// TODO: extract this walk part?
 		// In the state found before modularization (june 15), this was anyway not consistent accross modes
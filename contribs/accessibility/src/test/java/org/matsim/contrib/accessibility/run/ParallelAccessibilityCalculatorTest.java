@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelAccessibilityCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.accessibility.run;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.contrib.accessibility.AccessibilityCalculator;
+import org.matsim.contrib.accessibility.AccessibilityConfigGroup;
+import org.matsim.contrib.accessibility.ConstantSpeedAccessibilityExpContributionCalculator;
+import org.matsim.contrib.accessibility.NetworkModeAccessibilityExpContributionCalculator;
+import org.matsim.contrib.accessibility.gis.GridUtils;
+import org.matsim.contrib.accessibility.interfaces.FacilityDataExchangeInterface;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesImpl;
+import org.matsim.facilities.ActivityFacility;
+
+/**
+ * Checks that computing the accessibilities on several threads yields exactly the results of the sequential computation,
+ * delivered in the same order.
+ */
+public class ParallelAccessibilityCalculatorTest {
+
+	@Test
+	public void testSameResultsAsSequentialComputation() {
+		Map<Id<ActivityFacility>, Map<String, Double>> sequential = computeAccessibilities(1);
+		Map<Id<ActivityFacility>, Map<String, Double>> parallel = computeAccessibilities(3);
+
+		Assert.assertFalse(sequential.isEmpty());
+		Assert.assertEquals(sequential.size(), parallel.size());
+		// same order of measuring points and same values
+		Assert.assertArrayEquals(sequential.keySet().toArray(), parallel.keySet().toArray());
+		for (Id<ActivityFacility> measuringPointId : sequential.keySet()) {
+			Assert.assertEquals(sequential.get(measuringPointId), parallel.get(measuringPointId));
+		}
+	}
+
+	private static Map<Id<ActivityFacility>, Map<String, Double>> computeAccessibilities(int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		AccessibilityConfigGroup acg = ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.class);
+		acg.setNumberOfThreads(numberOfThreads);
+
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(config);
+		scenario.setNetwork(TinyAccessibilityTest.createLessSymmetricTestNetwork());
+
+		final ActivityFacilities opportunities = new ActivityFacilitiesImpl("opportunities");
+		opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(Id.create("1", ActivityFacility.class), new Coord(200, 0)));
+		opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(Id.create("2", ActivityFacility.class), new Coord(200, 200)));
+		opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(Id.create("3", ActivityFacility.class), new Coord(40, 110)));
+
+		ActivityFacilities measuringPoints = GridUtils.createGridLayerByGridSizeByBoundingBoxV2(0., 0., 200., 200., 10);
+
+		AccessibilityCalculator accessibilityCalculator = new AccessibilityCalculator(scenario, measuringPoints, scenario.getNetwork());
+		accessibilityCalculator.putAccessibilityContributionCalculator(TransportMode.walk,
+				new ConstantSpeedAccessibilityExpContributionCalculator(TransportMode.walk, config, scenario.getNetwork()));
+		accessibilityCalculator.putAccessibilityContributionCalculator(TransportMode.car,
+				new NetworkModeAccessibilityExpContributionCalculator(new FreeSpeedTravelTime(),
+						new OnlyTimeDependentTravelDisutilityFactory(), scenario, scenario.getNetwork()));
+
+		final Map<Id<ActivityFacility>, Map<String, Double>> results = new LinkedHashMap<>();
+		accessibilityCalculator.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, Map<String, Double> accessibilities) {
+				results.put(measurePoint.getId(), accessibilities);
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+		accessibilityCalculator.computeAccessibilities(8. * 3600., opportunities);
+		return results;
+	}
+}
@@ -150,16 +150,7 @@ public class ColdEmissionAnalysisModule {
 		} else {
 			
 			if(this.ecg.isUsingVehicleTypeIdAsVehicleDescription() ) {
-				if(vehicle.getType().getDescription()==null) { // emission specification is in vehicle type id
-					vehicle.getType().setDescription(EmissionSpecificationMarker.BEGIN_EMISSIONS
-							+vehicle.getType().getId().toString()+ EmissionSpecificationMarker.END_EMISSIONS);
-				} else if( vehicle.getType().getDescription().contains(EmissionSpecificationMarker.BEGIN_EMISSIONS.toString()) ) {
-					// emission specification is in vehicle type id and in vehicle description too.
-				} else {
-					String vehicleDescription = vehicle.getType().getDescription() + EmissionSpecificationMarker.BEGIN_EMISSIONS
-							+ vehicle.getType().getId().toString()+ EmissionSpecificationMarker.END_EMISSIONS;
-					vehicle.getType().setDescription(vehicleDescription);
-				}
+				EmissionUtils.addVehicleTypeIdToDescription(vehicle.getType());
 			}
 
 			String vehicleDescription = vehicle.getType().getDescription();
@@ -22,7 +22,6 @@ package org.matsim.contrib.emissions;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
-import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.emissions.ColdEmissionAnalysisModule.ColdEmissionAnalysisModuleParameter;
 import org.matsim.contrib.emissions.WarmEmissionAnalysisModule.WarmEmissionAnalysisModuleParameter;
 import org.matsim.contrib.emissions.roadTypeMapping.HbefaRoadTypeMapping;
@@ -160,21 +159,41 @@ public class EmissionModule {
 	private void createEmissionHandler() {
 		logger.info("entering createEmissionHandler");
 		
-		Network network = scenario.getNetwork() ;
-
 		loadRoadTypeMappings();
 
+		warmEmissionHandler = createWarmEmissionHandler(eventsManager);
+		coldEmissionHandler = createColdEmissionHandler(eventsManager);
+		logger.info("leaving createEmissionHandler");
+	}
+
+	/**
+	 * Creates a further warm emission handler based on the lookup tables of this module, but with its own per-vehicle state.
+	 * The handler adds itself to the given events manager and throws its emission events there.
+	 */
+	WarmEmissionHandler createWarmEmissionHandler(EventsManager emissionEventsManager) {
 		WarmEmissionAnalysisModuleParameter parameterObject =
 				new WarmEmissionAnalysisModuleParameter(avgHbefaWarmTable, detailedHbefaWarmTable, hbefaRoadTrafficSpeeds, warmPollutants,
 				emissionConfigGroup);
+		return new WarmEmissionHandler(vehicles, scenario.getNetwork(), parameterObject, emissionEventsManager, emissionConfigGroup
+				.getEmissionEfficiencyFactor());
+	}
+
+	/**
+	 * @see #createWarmEmissionHandler(EventsManager)
+	 */
+	ColdEmissionHandler createColdEmissionHandler(EventsManager emissionEventsManager) {
 		ColdEmissionAnalysisModuleParameter parameterObject2 = new ColdEmissionAnalysisModuleParameter(avgHbefaColdTable, detailedHbefaColdTable, coldPollutants,
 				emissionConfigGroup);
-
-		warmEmissionHandler = new WarmEmissionHandler(vehicles,	network, parameterObject, eventsManager, emissionConfigGroup
-				.getEmissionEfficiencyFactor());
-		coldEmissionHandler = new ColdEmissionHandler(vehicles, network, parameterObject2, eventsManager, emissionConfigGroup
+		return new ColdEmissionHandler(vehicles, scenario.getNetwork(), parameterObject2, emissionEventsManager, emissionConfigGroup
 				.getEmissionEfficiencyFactor());
-		logger.info("leaving createEmissionHandler");
+	}
+
+	Vehicles getVehicles() {
+		return vehicles;
+	}
+
+	EmissionsConfigGroup getEmissionConfigGroup() {
+		return emissionConfigGroup;
 	}
 
 	private void loadRoadTypeMappings() {
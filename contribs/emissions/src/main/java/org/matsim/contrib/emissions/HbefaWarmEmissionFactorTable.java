@@ -0,0 +1,240 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaWarmEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.contrib.emissions.types.HbefaRoadVehicleCategoryKey;
+import org.matsim.contrib.emissions.types.HbefaTrafficSituation;
+import org.matsim.contrib.emissions.types.HbefaVehicleAttributes;
+import org.matsim.contrib.emissions.types.HbefaVehicleCategory;
+import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactor;
+import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorKey;
+
+/**
+ * Compiled form of the HBEFA warm emission factor tables. Vehicle classes (category plus vehicle attributes), road types,
+ * traffic situations and pollutants are resolved to dense indices once, so that looking up an emission factor during the
+ * simulation is a few array accesses instead of building a {@link HbefaWarmEmissionFactorKey} and hashing its string
+ * representation for every pollutant of every link leave event.
+ * <p>
+ * Missing entries are stored as {@link Double#NaN}.
+ */
+final class HbefaWarmEmissionFactorTable {
+
+	static final int NO_INDEX = -1;
+
+	private static final int NUMBER_OF_TRAFFIC_SITUATIONS = HbefaTrafficSituation.values().length;
+	private static final int NUMBER_OF_VEHICLE_CATEGORIES = HbefaVehicleCategory.values().length;
+
+	private final String[] pollutants;
+	private final Map<String, Integer> pollutantIndices = new HashMap<>();
+	private final Map<String, Integer> roadTypeIndices = new HashMap<>();
+	private final Map<HbefaVehicleCategory, Map<HbefaVehicleAttributes, Integer>> vehicleClassIndices = new EnumMap<>(HbefaVehicleCategory.class);
+	private int numberOfVehicleClasses = 0;
+
+	private final Factors avgFactors;
+	private final Factors detailedFactors;
+
+	/** [(vehicleCategory * numberOfRoadTypes + roadType) * numberOfTrafficSituations + trafficSituation] */
+	private final double[] speeds;
+
+	HbefaWarmEmissionFactorTable(
+			Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable,
+			Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable,
+			Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds,
+			Set<String> warmPollutants) {
+
+		this.pollutants = warmPollutants.toArray(new String[0]);
+		for (int i = 0; i < this.pollutants.length; i++) {
+			this.pollutantIndices.put(this.pollutants[i], i);
+		}
+
+		// first pass: assign the indices, so that the arrays can be sized
+		registerKeys(avgHbefaWarmTable);
+		registerKeys(detailedHbefaWarmTable);
+		if (hbefaRoadTrafficSpeeds != null) {
+			for (HbefaRoadVehicleCategoryKey key : hbefaRoadTrafficSpeeds.keySet()) {
+				getOrAddRoadTypeIndex(key.getHbefaRoadCategory());
+			}
+		}
+
+		// second pass: fill the arrays
+		this.avgFactors = avgHbefaWarmTable == null ? null : new Factors(avgHbefaWarmTable);
+		this.detailedFactors = detailedHbefaWarmTable == null ? null : new Factors(detailedHbefaWarmTable);
+
+		this.speeds = new double[NUMBER_OF_VEHICLE_CATEGORIES * getNumberOfRoadTypes() * NUMBER_OF_TRAFFIC_SITUATIONS];
+		Arrays.fill(this.speeds, Double.NaN);
+		if (hbefaRoadTrafficSpeeds != null) {
+			for (Map.Entry<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> entry : hbefaRoadTrafficSpeeds.entrySet()) {
+				HbefaVehicleCategory category = entry.getKey().getHbefaVehicleCategory();
+				if (category == null || entry.getValue() == null) continue;
+				int roadType = this.roadTypeIndices.get(entry.getKey().getHbefaRoadCategory());
+				for (Map.Entry<HbefaTrafficSituation, Double> speed : entry.getValue().entrySet()) {
+					if (speed.getKey() == null || speed.getValue() == null) continue;
+					this.speeds[speedIndex(category.ordinal(), roadType, speed.getKey().ordinal())] = speed.getValue();
+				}
+			}
+		}
+	}
+
+	private void registerKeys(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table) {
+		if (table == null) return;
+		for (HbefaWarmEmissionFactorKey key : table.keySet()) {
+			getOrAddRoadTypeIndex(key.getHbefaRoadCategory());
+			if (key.getHbefaVehicleCategory() != null) {
+				getOrAddVehicleClassIndex(key.getHbefaVehicleCategory(), key.getHbefaVehicleAttributes());
+			}
+		}
+	}
+
+	private int getOrAddRoadTypeIndex(String roadType) {
+		Integer index = this.roadTypeIndices.get(roadType);
+		if (index == null) {
+			index = this.roadTypeIndices.size();
+			this.roadTypeIndices.put(roadType, index);
+		}
+		return index;
+	}
+
+	private void getOrAddVehicleClassIndex(HbefaVehicleCategory category, HbefaVehicleAttributes attributes) {
+		Map<HbefaVehicleAttributes, Integer> classes = this.vehicleClassIndices.computeIfAbsent(category, c -> new HashMap<>());
+		if (!classes.containsKey(attributes)) {
+			classes.put(attributes, this.numberOfVehicleClasses++);
+		}
+	}
+
+	String[] getPollutants() {
+		return this.pollutants;
+	}
+
+	int getNumberOfPollutants() {
+		return this.pollutants.length;
+	}
+
+	int getNumberOfRoadTypes() {
+		return this.roadTypeIndices.size();
+	}
+
+	boolean hasDetailedFactors() {
+		return this.detailedFactors != null;
+	}
+
+	/**
+	 * @return the index of the road type, or {@link #NO_INDEX} if it appears in none of the tables
+	 */
+	int getRoadTypeIndex(String roadType) {
+		Integer index = this.roadTypeIndices.get(roadType);
+		return index == null ? NO_INDEX : index;
+	}
+
+	/**
+	 * @return the index of the vehicle class, or {@link #NO_INDEX} if it appears in none of the tables
+	 */
+	int getVehicleClassIndex(HbefaVehicleCategory category, HbefaVehicleAttributes attributes) {
+		Map<HbefaVehicleAttributes, Integer> classes = this.vehicleClassIndices.get(category);
+		if (classes == null) return NO_INDEX;
+		Integer index = classes.get(attributes);
+		return index == null ? NO_INDEX : index;
+	}
+
+	/**
+	 * @return the speed of the traffic situation in km/h, or {@link Double#NaN} if it is not specified
+	 */
+	double getSpeed(HbefaVehicleCategory category, int roadType, HbefaTrafficSituation trafficSituation) {
+		if (roadType == NO_INDEX) return Double.NaN;
+		return this.speeds[speedIndex(category.ordinal(), roadType, trafficSituation.ordinal())];
+	}
+
+	/**
+	 * @return the emission factor in g/km from the average table, or {@link Double#NaN} if there is no such entry
+	 */
+	double getAverageFactor(int vehicleClass, int roadType, HbefaTrafficSituation trafficSituation, int pollutant) {
+		return this.avgFactors == null ? Double.NaN : this.avgFactors.get(vehicleClass, roadType, trafficSituation, pollutant);
+	}
+
+	/**
+	 * @return the emission factor in g/km from the detailed table, or {@link Double#NaN} if there is no such entry
+	 */
+	double getDetailedFactor(int vehicleClass, int roadType, HbefaTrafficSituation trafficSituation, int pollutant) {
+		return this.detailedFactors == null ? Double.NaN : this.detailedFactors.get(vehicleClass, roadType, trafficSituation, pollutant);
+	}
+
+	private int speedIndex(int category, int roadType, int trafficSituation) {
+		return (category * getNumberOfRoadTypes() + roadType) * NUMBER_OF_TRAFFIC_SITUATIONS + trafficSituation;
+	}
+
+	/**
+	 * The factors of one HBEFA table. Only (vehicle class, road type) combinations which appear in the table get a row,
+	 * since detailed tables are usually sparse in that respect.
+	 */
+	private final class Factors {
+		/** [vehicleClass * numberOfRoadTypes + roadType] -> row, or {@link #NO_INDEX} */
+		private final int[] rows;
+		/** [(row * numberOfTrafficSituations + trafficSituation) * numberOfPollutants + pollutant] */
+		private final double[] values;
+
+		Factors(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table) {
+			int numberOfRoadTypes = getNumberOfRoadTypes();
+			int numberOfPollutants = getNumberOfPollutants();
+			this.rows = new int[numberOfVehicleClasses * numberOfRoadTypes];
+			Arrays.fill(this.rows, NO_INDEX);
+
+			int numberOfRows = 0;
+			for (HbefaWarmEmissionFactorKey key : table.keySet()) {
+				if (!isUsable(key)) continue;
+				int cell = getVehicleClassIndex(key.getHbefaVehicleCategory(), key.getHbefaVehicleAttributes()) * numberOfRoadTypes
+						+ getRoadTypeIndex(key.getHbefaRoadCategory());
+				if (this.rows[cell] == NO_INDEX) {
+					this.rows[cell] = numberOfRows++;
+				}
+			}
+
+			this.values = new double[numberOfRows * NUMBER_OF_TRAFFIC_SITUATIONS * numberOfPollutants];
+			Arrays.fill(this.values, Double.NaN);
+			for (Map.Entry<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> entry : table.entrySet()) {
+				HbefaWarmEmissionFactorKey key = entry.getKey();
+				if (!isUsable(key) || entry.getValue() == null) continue;
+				int row = this.rows[getVehicleClassIndex(key.getHbefaVehicleCategory(), key.getHbefaVehicleAttributes()) * numberOfRoadTypes
+						+ getRoadTypeIndex(key.getHbefaRoadCategory())];
+				int pollutant = pollutantIndices.get(key.getHbefaComponent());
+				this.values[(row * NUMBER_OF_TRAFFIC_SITUATIONS + key.getHbefaTrafficSituation().ordinal()) * numberOfPollutants + pollutant]
+						= entry.getValue().getWarmEmissionFactor();
+			}
+		}
+
+		/** Entries for pollutants which are not analyzed are not needed. */
+		private boolean isUsable(HbefaWarmEmissionFactorKey key) {
+			return key.getHbefaVehicleCategory() != null && key.getHbefaTrafficSituation() != null
+					&& pollutantIndices.containsKey(key.getHbefaComponent());
+		}
+
+		double get(int vehicleClass, int roadType, HbefaTrafficSituation trafficSituation, int pollutant) {
+			if (vehicleClass == NO_INDEX || roadType == NO_INDEX) return Double.NaN;
+			int row = this.rows[vehicleClass * getNumberOfRoadTypes() + roadType];
+			if (row == NO_INDEX) return Double.NaN;
+			return this.values[(row * NUMBER_OF_TRAFFIC_SITUATIONS + trafficSituation.ordinal()) * getNumberOfPollutants() + pollutant];
+		}
+	}
+}
@@ -0,0 +1,395 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelOfflineEmissionCalculation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.emissions.events.ColdEmissionEvent;
+import org.matsim.contrib.emissions.events.ColdEmissionEventHandler;
+import org.matsim.contrib.emissions.events.WarmEmissionEvent;
+import org.matsim.contrib.emissions.events.WarmEmissionEventHandler;
+import org.matsim.contrib.emissions.utils.EmissionUtils;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+
+/**
+ * Calculates warm and cold emissions from an events file on several threads.
+ * <p>
+ * One thread reads the events file and partitions the relevant events by vehicle into chunks, so that all events of a
+ * vehicle are handled, in file order, by the same worker. Every worker has its own {@link WarmEmissionHandler} and
+ * {@link ColdEmissionHandler}, so the per-vehicle state of the handlers stays local to the worker. The emission events of
+ * the workers are merged by time (ties are broken by worker, i.e. the result only depends on the number of threads) and
+ * written to one events file; in addition, the emissions are summed up per link.
+ * <p>
+ * The events file is expected to be sorted by time, as it is when written by the mobsim.
+ */
+public final class ParallelOfflineEmissionCalculation {
+	private static final Logger log = Logger.getLogger(ParallelOfflineEmissionCalculation.class);
+
+	/** Number of events which are handed to a worker at once. */
+	private static final int CHUNK_SIZE = 4096;
+	/** Number of chunks which may be queued per worker, bounds the memory footprint. */
+	private static final int QUEUE_CAPACITY = 4;
+
+	private final EmissionModule emissionModule;
+	private final int numberOfThreads;
+
+	private final Map<Id<Link>, Map<String, Double>> linkEmissions = new TreeMap<>();
+	private long numberOfEmissionEvents = 0;
+
+	/**
+	 * Uses the number of threads of the global config group.
+	 */
+	public ParallelOfflineEmissionCalculation(Scenario scenario) {
+		this(scenario, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	public ParallelOfflineEmissionCalculation(Scenario scenario, int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new RuntimeException("At least one thread is needed for the emission calculation, but " + numberOfThreads + " were given. Aborting...");
+		}
+		this.numberOfThreads = numberOfThreads;
+		// the module is only used for its lookup tables; every worker gets its own handlers
+		this.emissionModule = new EmissionModule(scenario, EventsUtils.createEventsManager());
+
+		// the emission specification is added to the vehicle type descriptions when a vehicle is seen for the first time;
+		// do that here, since the vehicle types are shared between the workers
+		if (this.emissionModule.getEmissionConfigGroup().isUsingVehicleTypeIdAsVehicleDescription()) {
+			for (VehicleType vehicleType : this.emissionModule.getVehicles().getVehicleTypes().values()) {
+				EmissionUtils.addVehicleTypeIdToDescription(vehicleType);
+			}
+		}
+	}
+
+	/**
+	 * @param emissionEventsFile the file to write the emission events to, or <code>null</code>
+	 * @param linkEmissionsFile the file to write the emissions per link to, or <code>null</code>
+	 */
+	public void run(String eventsFile, String emissionEventsFile, String linkEmissionsFile) {
+		log.info("calculating emissions of " + eventsFile + " on " + this.numberOfThreads + " threads...");
+		this.linkEmissions.clear();
+		this.numberOfEmissionEvents = 0;
+
+		List<Worker> workers = new ArrayList<>();
+		for (int i = 0; i < this.numberOfThreads; i++) {
+			workers.add(new Worker());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads + 1, runnable -> {
+			Thread thread = new Thread(runnable, "emissions");
+			thread.setDaemon(true);
+			return thread;
+		});
+		EventWriterXML emissionEventWriter = emissionEventsFile == null ? null : new EventWriterXML(emissionEventsFile);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			futures.add(executor.submit(() -> {
+				read(eventsFile, workers);
+				return null;
+			}));
+			for (Worker worker : workers) {
+				futures.add(executor.submit(worker));
+			}
+			merge(workers, futures, emissionEventWriter);
+		} finally {
+			executor.shutdownNow();
+			if (emissionEventWriter != null) {
+				emissionEventWriter.closeFile();
+			}
+		}
+
+		for (Worker worker : workers) {
+			for (Map.Entry<Id<Link>, Map<String, Double>> entry : worker.linkEmissions.entrySet()) {
+				Map<String, Double> emissions = this.linkEmissions.computeIfAbsent(entry.getKey(), k -> new TreeMap<>());
+				entry.getValue().forEach((pollutant, value) -> emissions.merge(pollutant, value, Double::sum));
+			}
+		}
+		if (linkEmissionsFile != null) {
+			writeLinkEmissions(linkEmissionsFile);
+		}
+		log.info("calculated " + this.numberOfEmissionEvents + " emission events on " + this.linkEmissions.size() + " links.");
+	}
+
+	/**
+	 * @return the emissions of the last {@link #run(String, String, String)}, summed up per link and pollutant
+	 */
+	public Map<Id<Link>, Map<String, Double>> getLinkEmissions() {
+		return Collections.unmodifiableMap(this.linkEmissions);
+	}
+
+	public long getNumberOfEmissionEvents() {
+		return this.numberOfEmissionEvents;
+	}
+
+	private void read(String eventsFile, List<Worker> workers) {
+		EventsManager events = EventsUtils.createEventsManager();
+		Partitioner partitioner = new Partitioner(workers);
+		events.addHandler(partitioner);
+		new MatsimEventsReader(events).readFile(eventsFile);
+		partitioner.flush(Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Takes one output chunk from every worker per round and writes all emission events which are earlier than the time of the
+	 * round; later ones might still be preceded by emission events of the next round.
+	 */
+	private void merge(List<Worker> workers, List<Future<?>> futures, EventWriterXML emissionEventWriter) {
+		List<ArrayDeque<Event>> pending = new ArrayList<>();
+		for (int i = 0; i < workers.size(); i++) {
+			pending.add(new ArrayDeque<>());
+		}
+		double roundTime;
+		do {
+			roundTime = Double.NaN;
+			for (int i = 0; i < workers.size(); i++) {
+				Chunk chunk = take(workers.get(i).output, futures);
+				pending.get(i).addAll(chunk.events);
+				roundTime = chunk.time;
+			}
+			while (true) {
+				int next = -1;
+				double nextTime = roundTime;
+				for (int i = 0; i < pending.size(); i++) {
+					Event head = pending.get(i).peek();
+					if (head != null && head.getTime() < nextTime) {
+						next = i;
+						nextTime = head.getTime();
+					}
+				}
+				if (next < 0) {
+					break;
+				}
+				Event event = pending.get(next).poll();
+				this.numberOfEmissionEvents++;
+				if (emissionEventWriter != null) {
+					emissionEventWriter.handleEvent(event);
+				}
+			}
+		} while (roundTime != Double.POSITIVE_INFINITY);
+	}
+
+	private static Chunk take(BlockingQueue<Chunk> queue, List<Future<?>> futures) {
+		try {
+			Chunk chunk;
+			while ((chunk = queue.poll(1, TimeUnit.SECONDS)) == null) {
+				// a failed reader or worker would otherwise leave us waiting forever
+				for (Future<?> future : futures) {
+					if (future.isDone()) {
+						future.get();
+					}
+				}
+			}
+			return chunk;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void writeLinkEmissions(String filename) {
+		SortedSet<String> pollutants = new TreeSet<>();
+		for (Map<String, Double> emissions : this.linkEmissions.values()) {
+			pollutants.addAll(emissions.keySet());
+		}
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("linkId");
+			for (String pollutant : pollutants) {
+				writer.write("\t" + pollutant + "[g]");
+			}
+			writer.newLine();
+			for (Map.Entry<Id<Link>, Map<String, Double>> entry : this.linkEmissions.entrySet()) {
+				writer.write(entry.getKey().toString());
+				for (String pollutant : pollutants) {
+					writer.write("\t" + entry.getValue().getOrDefault(pollutant, 0.0));
+				}
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * A part of the events of some vehicles, or of the emission events resulting from them. All events which follow in the
+	 * events file are not earlier than <code>time</code>; it is {@link Double#POSITIVE_INFINITY} for the last chunk.
+	 */
+	private static final class Chunk {
+		final List<Event> events;
+		final double time;
+
+		Chunk(List<Event> events, double time) {
+			this.events = events;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * Collects the events relevant for the emission handlers per worker. Once enough events are buffered, every worker gets a
+	 * chunk (possibly an empty one), so that the rounds of all workers end at the same time.
+	 */
+	private static final class Partitioner implements LinkEnterEventHandler, LinkLeaveEventHandler,
+			VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler {
+
+		private final List<Worker> workers;
+		private final List<List<Event>> buffers = new ArrayList<>();
+		private int bufferedEvents = 0;
+
+		Partitioner(List<Worker> workers) {
+			this.workers = workers;
+			for (int i = 0; i < workers.size(); i++) {
+				this.buffers.add(new ArrayList<>());
+			}
+		}
+
+		private void add(Id<Vehicle> vehicleId, Event event) {
+			this.buffers.get(Math.floorMod(vehicleId.hashCode(), this.buffers.size())).add(event);
+			this.bufferedEvents++;
+			if (this.bufferedEvents >= CHUNK_SIZE * this.buffers.size()) {
+				flush(event.getTime());
+			}
+		}
+
+		void flush(double time) {
+			try {
+				for (int i = 0; i < this.workers.size(); i++) {
+					this.workers.get(i).input.put(new Chunk(this.buffers.get(i), time));
+					this.buffers.set(i, new ArrayList<>());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			this.bufferedEvents = 0;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			add(event.getVehicleId(), event);
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			add(event.getVehicleId(), event);
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			add(event.getVehicleId(), event);
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			add(event.getVehicleId(), event);
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+	private final class Worker implements Callable<Void>, WarmEmissionEventHandler, ColdEmissionEventHandler {
+		private final BlockingQueue<Chunk> input = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		private final BlockingQueue<Chunk> output = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		private final Map<Id<Link>, Map<String, Double>> linkEmissions = new HashMap<>();
+		private final EventsManager events = EventsUtils.createEventsManager();
+		private List<Event> emissionEvents;
+
+		Worker() {
+			// the handlers add themselves to the events manager and throw their emission events there
+			emissionModule.createWarmEmissionHandler(this.events);
+			emissionModule.createColdEmissionHandler(this.events);
+			this.events.addHandler(this);
+		}
+
+		@Override
+		public Void call() throws InterruptedException {
+			Chunk chunk;
+			do {
+				chunk = this.input.take();
+				this.emissionEvents = new ArrayList<>();
+				for (Event event : chunk.events) {
+					this.events.processEvent(event);
+				}
+				this.output.put(new Chunk(this.emissionEvents, chunk.time));
+			} while (chunk.time != Double.POSITIVE_INFINITY);
+			return null;
+		}
+
+		@Override
+		public void handleEvent(WarmEmissionEvent event) {
+			this.emissionEvents.add(event);
+			addLinkEmissions(event.getLinkId(), event.getWarmEmissions());
+		}
+
+		@Override
+		public void handleEvent(ColdEmissionEvent event) {
+			this.emissionEvents.add(event);
+			addLinkEmissions(event.getLinkId(), event.getColdEmissions());
+		}
+
+		private void addLinkEmissions(Id<Link> linkId, Map<String, Double> emissions) {
+			Map<String, Double> sums = this.linkEmissions.computeIfAbsent(linkId, k -> new HashMap<>());
+			emissions.forEach((pollutant, value) -> sums.merge(pollutant, value, Double::sum));
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+}
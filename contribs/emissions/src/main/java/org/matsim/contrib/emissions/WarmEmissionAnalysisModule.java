@@ -21,11 +21,10 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -51,10 +50,9 @@ import static org.matsim.contrib.emissions.types.HbefaTrafficSituation.*;
 public class WarmEmissionAnalysisModule {
 	private static final Logger logger = Logger.getLogger(WarmEmissionAnalysisModule.class);
 
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor>  avgHbefaWarmTable;
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
-	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds;
-	private final Set<String> warmPollutants;
+	private final HbefaWarmEmissionFactorTable factorTable;
+	private final Map<String, VehicleClass> vehicleClasses = new HashMap<>();
+	private final double[] warmEmissions;
 
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
@@ -119,10 +117,9 @@ public class WarmEmissionAnalysisModule {
 			logger.error("Event manager not set. Please check the configuration of your scenario. Aborting..." );
 			System.exit(0);
 		}
-		this.avgHbefaWarmTable = parameterObject.avgHbefaWarmTable;
-		this.detailedHbefaWarmTable = parameterObject.detailedHbefaWarmTable;
-		this.hbefaRoadTrafficSpeeds = parameterObject.hbefaRoadTrafficSpeeds;
-		this.warmPollutants = parameterObject.warmPollutants;
+		this.factorTable = new HbefaWarmEmissionFactorTable(parameterObject.avgHbefaWarmTable, parameterObject.detailedHbefaWarmTable,
+				parameterObject.hbefaRoadTrafficSpeeds, parameterObject.warmPollutants);
+		this.warmEmissions = new double[this.factorTable.getNumberOfPollutants()];
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 		this.ecg = parameterObject.ecg;
@@ -150,25 +147,44 @@ public class WarmEmissionAnalysisModule {
 		this.eventsManager.processEvent(warmEmissionEvent);
 	}
 
+	/**
+	 * Calculates the warm emissions of the vehicle on the link and throws the corresponding {@link WarmEmissionEvent}. In contrast
+	 * to {@link #checkVehicleInfoAndCalculateWarmEmissions(Vehicle, Link, double)}, no intermediate maps are created.
+	 */
+	public void calculateWarmEmissionsAndThrowEvent(double leaveTime, Id<Link> linkId, Vehicle vehicle, Link link, double travelTime) {
+		checkVehicleInfoAndCalculateWarmEmissions(vehicle, link, travelTime, this.warmEmissions);
+		Event warmEmissionEvent = new WarmEmissionEvent(leaveTime, linkId, vehicle.getId(), this.factorTable.getPollutants(), this.warmEmissions);
+		this.eventsManager.processEvent(warmEmissionEvent);
+	}
+
 	public Map<String, Double> checkVehicleInfoAndCalculateWarmEmissions(
 			Vehicle vehicle,
 			Link link,
 			double travelTime) {
 
+		checkVehicleInfoAndCalculateWarmEmissions(vehicle, link, travelTime, this.warmEmissions);
+
+		String[] pollutants = this.factorTable.getPollutants();
+		Map<String, Double> warmEmissions = new HashMap<>();
+		for (int i = 0; i < pollutants.length; i++) {
+			warmEmissions.put(pollutants[i], this.warmEmissions[i]);
+		}
+		return warmEmissions;
+	}
+
+	/**
+	 * @param warmEmissions is filled with the emissions of the warm pollutants, in the order of {@link #getWarmPollutants()}
+	 */
+	public void checkVehicleInfoAndCalculateWarmEmissions(
+			Vehicle vehicle,
+			Link link,
+			double travelTime,
+			double[] warmEmissions) {
+
 		if(this.ecg.isUsingVehicleTypeIdAsVehicleDescription() ) {
-			if(vehicle.getType().getDescription()==null) { // emission specification is in vehicle type id
-				vehicle.getType().setDescription(EmissionSpecificationMarker.BEGIN_EMISSIONS
-						+vehicle.getType().getId().toString()+ EmissionSpecificationMarker.END_EMISSIONS);
-			} else if( vehicle.getType().getDescription().contains(EmissionSpecificationMarker.BEGIN_EMISSIONS.toString()) ) {
-				// emission specification is in vehicle type id and in vehicle description too.
-			} else {
-				String vehicleDescription = vehicle.getType().getDescription() + EmissionSpecificationMarker.BEGIN_EMISSIONS
-						+ vehicle.getType().getId().toString()+ EmissionSpecificationMarker.END_EMISSIONS;
-				vehicle.getType().setDescription(vehicleDescription);
-			}
+			EmissionUtils.addVehicleTypeIdToDescription(vehicle.getType());
 		}
 
-		Map<String, Double> warmEmissions = new HashMap<>();
 		if(vehicle == null ||
 				(vehicle.getType() == null && vehicle.getType().getDescription() == null) // if both are null together; no vehicle type information.
 				) {
@@ -179,8 +195,12 @@ public class WarmEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
+		VehicleClass vehicleClass = this.vehicleClasses.get(vehicleDescription);
+		if (vehicleClass == null) {
+			vehicleClass = new VehicleClass(convertVehicleTypeId2VehicleInformationTuple(vehicleDescription));
+			this.vehicleClasses.put(vehicleDescription, vehicleClass);
+		}
+		if (vehicleClass.category == null){
 			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
 					"Please make sure that requirements for emission vehicles in " + 
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
@@ -190,64 +210,38 @@ public class WarmEmissionAnalysisModule {
 		double linkLength = link.getLength();
 		String roadType = EmissionUtils.getHbefaRoadType(link);
 
-		warmEmissions = calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformationTuple);
+		calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleClass, warmEmissions);
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			warmEmissions = rescaleWarmEmissions(warmEmissions);
+			rescaleWarmEmissions(warmEmissions);
 		}
-		return warmEmissions;
 	}
 	
-	private Map<String, Double> rescaleWarmEmissions(Map<String, Double> warmEmissions) {
-		Map<String, Double> rescaledWarmEmissions = new HashMap<>();
-		
-		for(String wp : warmEmissions.keySet()){
-			Double orgValue = warmEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledWarmEmissions.put(wp, rescaledValue);
+	private void rescaleWarmEmissions(double[] warmEmissions) {
+		for (int i = 0; i < this.factorTable.getNumberOfPollutants(); i++) {
+			warmEmissions[i] = emissionEfficiencyFactor * warmEmissions[i];
 		}
-		return rescaledWarmEmissions;
 	}
 
-	private Map<String, Double> calculateWarmEmissions(
+	private void calculateWarmEmissions(
 			Id<Vehicle> vehicleId,
 			double travelTime,
 			String roadType,
 			double freeVelocity,
 			double linkLength,
-			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			VehicleClass vehicleClass,
+			double[] warmEmissionsOfEvent) {
 
-		Map<String, Double> warmEmissionsOfEvent = new HashMap<>();
+		int numberOfPollutants = this.factorTable.getNumberOfPollutants();
 
-		final String hbefaRoadTypeName ;
-			hbefaRoadTypeName = roadType;
-
-		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
-
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			efkey.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-		} else if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.MOTORCYCLE)) {
-			efkey.setHbefaVehicleCategory(HbefaVehicleCategory.MOTORCYCLE);
-		} else if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
-			for (String warmPollutant : warmPollutants) {
-				warmEmissionsOfEvent.put( warmPollutant, 0.0 );
-			}
-			return warmEmissionsOfEvent;
-		} else {
-			efkey.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+		if(vehicleClass.category == HbefaVehicleCategory.ZERO_EMISSION_VEHICLE) {
+			Arrays.fill(warmEmissionsOfEvent, 0, numberOfPollutants, 0.0);
+			return;
 		}
 
-		efkey.setHbefaRoadCategory(hbefaRoadTypeName);
+		int roadTypeIndex = this.factorTable.getRoadTypeIndex(roadType);
 
-		if(this.detailedHbefaWarmTable != null){ // check if detailed emission factors file is set in config
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			efkey.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-		}
-		
 		double linkLength_km = linkLength / 1000;
 		double travelTime_h = travelTime / 3600;
 		double freeFlowSpeed_kmh = freeVelocity * 3.6;
@@ -267,60 +261,65 @@ public class WarmEmissionAnalysisModule {
 			}
 		}
 
-		HbefaTrafficSituation trafficSituation = getTrafficSituation(efkey, averageSpeed_kmh, freeFlowSpeed_kmh);
-		efkey.setHbefaTrafficSituation(trafficSituation);
+		HbefaTrafficSituation trafficSituation = getTrafficSituation(vehicleClass, roadType, roadTypeIndex, averageSpeed_kmh);
 
-		for (String warmPollutant : warmPollutants) {
+		// without a detailed table, the average vehicle is looked up right away
+		int detailedVehicleClass = this.factorTable.hasDetailedFactors() ? vehicleClass.vehicleClass : vehicleClass.averageVehicleClass;
+		for (int i = 0; i < numberOfPollutants; i++) {
 			double generatedEmissions;
 
-			efkey.setHbefaComponent(warmPollutant);
-
 			//TODO: opportunity for refactor of logic here jm oct '18
 			//The logic has changed here, now it will fall back to aggregate factors per traffic scenario, instead of if any scenarios are missing.
-			if(this.detailedHbefaWarmTable != null && this.detailedHbefaWarmTable.get(efkey) != null){
-					ef_gpkm = this.detailedHbefaWarmTable.get(efkey).getWarmEmissionFactor();
-
-			} else {
+			ef_gpkm = this.factorTable.getDetailedFactor(detailedVehicleClass, roadTypeIndex, trafficSituation, i);
+			if (Double.isNaN(ef_gpkm)) {
 				vehAttributesNotSpecifiedCnt++;
-				efkey.setHbefaVehicleAttributes(new HbefaVehicleAttributes()); //want to check for average vehicle
-				ef_gpkm = this.avgHbefaWarmTable.get(efkey).getWarmEmissionFactor();
+				detailedVehicleClass = vehicleClass.averageVehicleClass; //want to check for average vehicle
+				ef_gpkm = this.factorTable.getAverageFactor(vehicleClass.averageVehicleClass, roadTypeIndex, trafficSituation, i);
+				if (Double.isNaN(ef_gpkm)) {
+					throw new RuntimeException("No average warm emission factor found for " + vehicleClass.category + "; "
+							+ this.factorTable.getPollutants()[i] + "; " + roadType + "; " + trafficSituation + ". Aborting...");
+				}
 
 				int maxWarnCnt = 3;
-				if(this.detailedHbefaWarmTable != null && vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
+				if(this.factorTable.hasDetailedFactors() && vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
 					logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " +
-							"`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+							"`" + vehicleClass.attributes + "'. Using fleet average values instead.");
 					if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
 				}
 			}
 
 			generatedEmissions = linkLength_km * ef_gpkm;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissionsOfEvent[i] = generatedEmissions;
 		}
 		incrementCounters(trafficSituation, linkLength_km);
 //		vehicleIdSet.add(personId);
-		return warmEmissionsOfEvent;
 	}
 
 	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
-	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorKey efkey, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
-		//TODO: should this be generated only once much earlier?
-		HbefaRoadVehicleCategoryKey roadTrafficKey = new HbefaRoadVehicleCategoryKey(efkey);
-		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(roadTrafficKey);
-
-		if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
+	private HbefaTrafficSituation getTrafficSituation(VehicleClass vehicleClass, String roadType, int roadTypeIndex, double averageSpeed_kmh) {
+		double freeFlowSpeed = this.factorTable.getSpeed(vehicleClass.category, roadTypeIndex, FREEFLOW);
+
+		if (Double.isNaN(freeFlowSpeed)) {
+			HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+			efkey.setHbefaVehicleCategory(vehicleClass.category);
+			efkey.setHbefaRoadCategory(roadType);
+			if (this.factorTable.hasDetailedFactors()) {
+				efkey.setHbefaVehicleAttributes(vehicleClass.attributes);
+			}
 			throw new RuntimeException("At least the FREEFLOW condition must be specifed for all emission factor keys. " +
 					"It was not found for " + efkey);
 		}
 
+		// comparisons with NaN (i.e. unspecified traffic situations) are always false
 		HbefaTrafficSituation trafficSituation  = FREEFLOW;
-		if (trafficSpeeds.containsKey(HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(HEAVY)) {
+		if (averageSpeed_kmh <= this.factorTable.getSpeed(vehicleClass.category, roadTypeIndex, HEAVY)) {
 			trafficSituation = HEAVY;
 		}
-		if (trafficSpeeds.containsKey(SATURATED) && averageSpeed_kmh <= trafficSpeeds.get(SATURATED)) {
+		if (averageSpeed_kmh <= this.factorTable.getSpeed(vehicleClass.category, roadTypeIndex, SATURATED)) {
 			trafficSituation = SATURATED;
 		}
-		if (trafficSpeeds.containsKey(STOPANDGO) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO)) {
-			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+		if (averageSpeed_kmh <= this.factorTable.getSpeed(vehicleClass.category, roadTypeIndex, STOPANDGO)) {
+			if (averageSpeed_kmh != freeFlowSpeed) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 				trafficSituation = STOPANDGO;
 			}
 		}
@@ -383,6 +382,30 @@ public class WarmEmissionAnalysisModule {
 		return vehicleInformationTuple;
 	}
 
+	/**
+	 * The parsed emission specification of a vehicle description, resolved to the indices of the compiled factor table.
+	 * Cached per description since parsing it for every link leave event is expensive.
+	 */
+	private final class VehicleClass {
+		private final HbefaVehicleCategory category;
+		private final HbefaVehicleAttributes attributes;
+		private final int vehicleClass;
+		private final int averageVehicleClass;
+
+		VehicleClass(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			HbefaVehicleCategory parsedCategory = vehicleInformationTuple.getFirst();
+			if (parsedCategory == null || parsedCategory == HbefaVehicleCategory.HEAVY_GOODS_VEHICLE
+					|| parsedCategory == HbefaVehicleCategory.MOTORCYCLE || parsedCategory == HbefaVehicleCategory.ZERO_EMISSION_VEHICLE) {
+				this.category = parsedCategory;
+			} else {
+				this.category = HbefaVehicleCategory.PASSENGER_CAR;
+			}
+			this.attributes = vehicleInformationTuple.getSecond();
+			this.vehicleClass = factorTable.getVehicleClassIndex(this.category, this.attributes);
+			this.averageVehicleClass = factorTable.getVehicleClassIndex(this.category, new HbefaVehicleAttributes());
+		}
+	}
+
 	public int getFreeFlowOccurences() {
 		return freeFlowCounter;
 	}
@@ -432,8 +455,16 @@ public class WarmEmissionAnalysisModule {
 		return getSaturatedKmCounter() + getHeavyFlowKmCounter();
 	}
   	
+	/**
+	 * @return the warm pollutants, in the order in which their emissions are written by
+	 * {@link #checkVehicleInfoAndCalculateWarmEmissions(Vehicle, Link, double, double[])}
+	 */
+	public String[] getWarmPollutants() {
+		return this.factorTable.getPollutants().clone();
+	}
+
 	public EmissionsConfigGroup getEcg() {
 		return ecg;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
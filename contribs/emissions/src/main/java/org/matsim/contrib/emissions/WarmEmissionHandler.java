@@ -203,12 +203,7 @@ public class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEven
 			} else {
 				Vehicle vehicle = this.emissionVehicles.getVehicles().get(vehicleId);
 
-			Map<String, Double> warmEmissions = warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(
-					vehicle,
-					link,
-					travelTime);
-
-				warmEmissionAnalysisModule.throwWarmEmissionEvent(leaveTime, linkId, vehicleId, warmEmissions);
+				warmEmissionAnalysisModule.calculateWarmEmissionsAndThrowEvent(leaveTime, linkId, vehicle, link, travelTime);
 			}
 		}
 	}
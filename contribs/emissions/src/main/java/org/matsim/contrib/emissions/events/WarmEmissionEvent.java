@@ -24,6 +24,7 @@ import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -38,13 +39,31 @@ public class WarmEmissionEvent extends Event {
     public final static String ATTRIBUTE_VEHICLE_ID = "vehicleId";
     private final Id<Link> linkId;
 	private final Id<Vehicle> vehicleId;
-	private final Map<String, Double> warmEmissions;
+	private Map<String, Double> warmEmissions;
+	private final String[] pollutants;
+	private final double[] values;
 	
 	public WarmEmissionEvent(double time, Id<Link> linkId, Id<Vehicle> vehicleId, Map<String, Double> warmEmissions) {
         super(time);
         this.linkId = linkId;
 		this.vehicleId = vehicleId;
 		this.warmEmissions = warmEmissions;
+		this.pollutants = null;
+		this.values = null;
+	}
+
+	/**
+	 * Creates the event from the primitive emission values, as computed by the {@link org.matsim.contrib.emissions.WarmEmissionAnalysisModule}.
+	 * The values are copied, so the caller may reuse its array; the pollutants array is shared and must not be modified.
+	 * The map returned by {@link #getWarmEmissions()} is only created when it is asked for.
+	 */
+	public WarmEmissionEvent(double time, Id<Link> linkId, Id<Vehicle> vehicleId, String[] pollutants, double[] values) {
+		super(time);
+		this.linkId = linkId;
+		this.vehicleId = vehicleId;
+		this.pollutants = pollutants;
+		this.values = new double[pollutants.length];
+		System.arraycopy(values, 0, this.values, 0, pollutants.length);
 	}
 
 	public Id<Link> getLinkId() {
@@ -56,6 +75,13 @@ public class WarmEmissionEvent extends Event {
 	}
 	
 	public Map<String, Double> getWarmEmissions() {
+		if (warmEmissions == null && pollutants != null) {
+			Map<String, Double> map = new LinkedHashMap<>();
+			for (int i = 0; i < pollutants.length; i++) {
+				map.put(pollutants[i], values[i]);
+			}
+			warmEmissions = map;
+		}
 		return warmEmissions;
 	}
 
@@ -64,6 +90,12 @@ public class WarmEmissionEvent extends Event {
 		Map<String, String> attributes = super.getAttributes();
 		attributes.put(ATTRIBUTE_LINK_ID, this.linkId.toString());
 		attributes.put(ATTRIBUTE_VEHICLE_ID, this.vehicleId.toString());
+		if (warmEmissions == null && pollutants != null) {
+			for (int i = 0; i < pollutants.length; i++) {
+				attributes.put(pollutants[i], Double.toString(values[i]));
+			}
+			return attributes;
+		}
 		for(Entry<String, Double> entry : warmEmissions.entrySet()){
 			String pollutant = entry.getKey();
 			Double value = entry.getValue();
@@ -41,7 +41,7 @@ public class HbefaWarmEmissionFactorKey {
         this.hbefaVehicleAttributes = key.hbefaVehicleAttributes;
     }
 
-    HbefaVehicleCategory getHbefaVehicleCategory() {
+    public HbefaVehicleCategory getHbefaVehicleCategory() {
 		return this.hbefaVehicleCategory;
 	}
 
@@ -49,7 +49,7 @@ public class HbefaWarmEmissionFactorKey {
 		this.hbefaVehicleCategory = hbefaVehicleCategory;
 	}
 
-	String getHbefaComponent(){
+	public String getHbefaComponent(){
 		return this.hbefaComponent;
 	}
 	
@@ -57,7 +57,7 @@ public class HbefaWarmEmissionFactorKey {
 		this.hbefaComponent = warmPollutant;
 	}
 
-	String getHbefaRoadCategory() {
+	public String getHbefaRoadCategory() {
 		return this.hbefaRoadCategory;
 	}
 
@@ -73,7 +73,7 @@ public class HbefaWarmEmissionFactorKey {
 		this.hbefaTrafficSituation = hbefaTrafficSituation;
 	}
 
-	HbefaVehicleAttributes getHbefaVehicleAttributes(){
+	public HbefaVehicleAttributes getHbefaVehicleAttributes(){
 		return this.hbefaVehicleAttributes;
 	}
 	
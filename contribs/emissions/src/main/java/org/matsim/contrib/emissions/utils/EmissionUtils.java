@@ -62,6 +62,23 @@ public class EmissionUtils {
 		return (String) link.getAttributes().getAttribute(HBEFA_ROAD_TYPE);
 	}
 
+	/**
+	 * Puts the vehicle type id as emission specification into the description of the vehicle type, unless the description
+	 * already contains one. See {@link EmissionsConfigGroup#isUsingVehicleTypeIdAsVehicleDescription()}.
+	 */
+	public static void addVehicleTypeIdToDescription(VehicleType vehicleType) {
+		if(vehicleType.getDescription()==null) { // emission specification is in vehicle type id
+			vehicleType.setDescription(EmissionSpecificationMarker.BEGIN_EMISSIONS
+					+vehicleType.getId().toString()+ EmissionSpecificationMarker.END_EMISSIONS);
+		} else if( vehicleType.getDescription().contains(EmissionSpecificationMarker.BEGIN_EMISSIONS.toString()) ) {
+			// emission specification is in vehicle type id and in vehicle description too.
+		} else {
+			String vehicleDescription = vehicleType.getDescription() + EmissionSpecificationMarker.BEGIN_EMISSIONS
+					+ vehicleType.getId().toString()+ EmissionSpecificationMarker.END_EMISSIONS;
+			vehicleType.setDescription(vehicleDescription);
+		}
+	}
+
 	public static Map<String, Double> sumUpEmissions(Map<String, Double> warmEmissions, Map<String, Double> coldEmissions) {
 
 		Map<String, Double> pollutant2sumOfEmissions =
@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelOfflineEmissionCalculationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.emissions.events.ColdEmissionEvent;
+import org.matsim.contrib.emissions.events.ColdEmissionEventHandler;
+import org.matsim.contrib.emissions.events.WarmEmissionEvent;
+import org.matsim.contrib.emissions.events.WarmEmissionEventHandler;
+import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelOfflineEmissionCalculationTest {
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final String configFile = "./test/input/org/matsim/contrib/emissions/config_detailed.xml";
+	private static final String eventsFile = "./test/input/org/matsim/contrib/emissions/5.events.xml.gz";
+
+	@Test
+	public final void testSameEmissionsAsSequentialCalculation() {
+		Config config = ConfigUtils.loadConfig(configFile, new EmissionsConfigGroup());
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		// reference: the emission module on a single thread, as in RunDetailedEmissionToolOfflineExample
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EmissionModule emissionModule = new EmissionModule(scenario, eventsManager);
+		LinkEmissionsCollector reference = new LinkEmissionsCollector();
+		emissionModule.getEmissionEventsManager().addHandler(reference);
+		new MatsimEventsReader(eventsManager).readFile(eventsFile);
+		Assert.assertTrue(reference.numberOfEmissionEvents > 0);
+
+		for (int numberOfThreads : new int[]{1, 3}) {
+			String emissionEventsFile = utils.getOutputDirectory() + numberOfThreads + ".emission.events.xml.gz";
+			ParallelOfflineEmissionCalculation calculation = new ParallelOfflineEmissionCalculation(scenario, numberOfThreads);
+			calculation.run(eventsFile, emissionEventsFile, utils.getOutputDirectory() + numberOfThreads + ".linkEmissions.txt");
+
+			Assert.assertEquals(reference.numberOfEmissionEvents, calculation.getNumberOfEmissionEvents());
+			Assert.assertEquals(reference.linkEmissions.keySet(), calculation.getLinkEmissions().keySet());
+			for (Map.Entry<Id<Link>, Map<String, Double>> entry : reference.linkEmissions.entrySet()) {
+				Map<String, Double> emissions = calculation.getLinkEmissions().get(entry.getKey());
+				Assert.assertEquals(entry.getValue().keySet(), emissions.keySet());
+				for (Map.Entry<String, Double> pollutant : entry.getValue().entrySet()) {
+					Assert.assertEquals("emissions of " + pollutant.getKey() + " on link " + entry.getKey(),
+							pollutant.getValue(), emissions.get(pollutant.getKey()),
+							MatsimTestUtils.EPSILON * Math.max(1., Math.abs(pollutant.getValue())));
+				}
+			}
+
+			// the merged emission events file is sorted by time and complete
+			EventsManager written = EventsUtils.createEventsManager();
+			TimeOrderChecker checker = new TimeOrderChecker();
+			written.addHandler(checker);
+			new MatsimEventsReader(written).readFile(emissionEventsFile);
+			Assert.assertEquals(reference.numberOfEmissionEvents, checker.numberOfEvents);
+			Assert.assertTrue("emission events are not sorted by time", checker.sorted);
+		}
+	}
+
+	private static class LinkEmissionsCollector implements WarmEmissionEventHandler, ColdEmissionEventHandler {
+		private final Map<Id<Link>, Map<String, Double>> linkEmissions = new HashMap<>();
+		private long numberOfEmissionEvents = 0;
+
+		@Override
+		public void handleEvent(WarmEmissionEvent event) {
+			add(event.getLinkId(), event.getWarmEmissions());
+		}
+
+		@Override
+		public void handleEvent(ColdEmissionEvent event) {
+			add(event.getLinkId(), event.getColdEmissions());
+		}
+
+		private void add(Id<Link> linkId, Map<String, Double> emissions) {
+			numberOfEmissionEvents++;
+			Map<String, Double> sums = linkEmissions.computeIfAbsent(linkId, k -> new HashMap<>());
+			emissions.forEach((pollutant, value) -> sums.merge(pollutant, value, Double::sum));
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+	private static class TimeOrderChecker implements BasicEventHandler {
+		private long numberOfEvents = 0;
+		private double lastTime = Double.NEGATIVE_INFINITY;
+		private boolean sorted = true;
+
+		@Override
+		public void handleEvent(Event event) {
+			numberOfEvents++;
+			sorted &= event.getTime() >= lastTime;
+			lastTime = event.getTime();
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+}
@@ -100,6 +100,7 @@ public class TestWarmEmissionAnalysisModule {
 	
 	// emission factors for tables - no dublicates!
     private final Double detailedPetrolFactorFf = .1;
+    private final Double detailedPetrolFactorSg = .01;
     private final Double detailedZeroFactorFf  =  .0011;
     private final Double detailedSgffFactorFf =   .000011;
 	private final Double detailedSgffFactorSg = 	.0000011;
@@ -205,6 +206,61 @@ public class TestWarmEmissionAnalysisModule {
 		HandlerToTestEmissionAnalysisModules.reset(); warmEmissions.clear();
 	}
 
+	@Test
+	public void testCalculateWarmEmissionsAndThrowEvent(){
+		//-- set up tables, event handler, parameters, module
+		setUp();
+
+		double linkLength = 200.;
+		Link mockLink = createMockLink("link 1", linkLength, petrolSpeedFf / 3.6);
+		double ffTravelTime = linkLength/petrolSpeedFf*3.6;
+		double sgTravelTime = linkLength/petrolSpeedSg*3.6;
+
+		// case 1 - data in both tables -> use detailed
+		Vehicle petrolVehicle = createVehicle("veh 1", petrolTechnology, petrolSizeClass, petrolConcept);
+		assertWarmEmissions(petrolVehicle, mockLink, ffTravelTime, detailedPetrolFactorFf*linkLength/1000.);
+		assertWarmEmissions(petrolVehicle, mockLink, sgTravelTime, detailedPetrolFactorSg*linkLength/1000.);
+
+		// case 2 - free flow entry in both tables, stop go entry in average table -> use average for stop go
+		Vehicle pcVehicle = createVehicle("veh 2", pcTechnology, pcSizeClass, pcConcept);
+		assertWarmEmissions(pcVehicle, mockLink, ffTravelTime, detailedPcFactorFf*linkLength/1000.);
+		assertWarmEmissions(pcVehicle, mockLink, sgTravelTime, avgPcFactorSg*linkLength/1000.);
+
+		// case 4 - no entry in the detailed table -> fall back to average
+		Vehicle lpgVehicle = createVehicle("veh 4", lpgTechnology, lpgSizeClass, lpgConcept);
+		assertWarmEmissions(lpgVehicle, mockLink, ffTravelTime, avgPcFactorFf*linkLength/1000.);
+		assertWarmEmissions(lpgVehicle, mockLink, sgTravelTime, avgPcFactorSg*linkLength/1000.);
+	}
+
+	/**
+	 * Checks that the map based and the array based calculation as well as the thrown event give the expected warm
+	 * emissions for every pollutant.
+	 */
+	private void assertWarmEmissions(Vehicle vehicle, Link link, double travelTime, double expectedEmissions) {
+		String[] warmPollutants = weam.getWarmPollutants();
+		Assert.assertEquals(numberOfWarmPollutants, warmPollutants.length);
+
+		warmEmissions = weam.checkVehicleInfoAndCalculateWarmEmissions(vehicle, link, travelTime);
+		double[] warmEmissionValues = new double[warmPollutants.length];
+		weam.checkVehicleInfoAndCalculateWarmEmissions(vehicle, link, travelTime, warmEmissionValues);
+		for (int i = 0; i < warmPollutants.length; i++) {
+			Assert.assertEquals(warmPollutants[i], expectedEmissions, warmEmissions.get(warmPollutants[i]), MatsimTestUtils.EPSILON);
+			Assert.assertEquals(warmPollutants[i], expectedEmissions, warmEmissionValues[i], MatsimTestUtils.EPSILON);
+		}
+		warmEmissions.clear();
+
+		HandlerToTestEmissionAnalysisModules.reset();
+		weam.calculateWarmEmissionsAndThrowEvent(leaveTime, link.getId(), vehicle, link, travelTime);
+		Assert.assertEquals(numberOfWarmPollutants*expectedEmissions, HandlerToTestEmissionAnalysisModules.getSum(), MatsimTestUtils.EPSILON);
+		HandlerToTestEmissionAnalysisModules.reset();
+	}
+
+	private Vehicle createVehicle(String vehicleId, String technology, String sizeClass, String concept) {
+		VehiclesFactory vehFac = VehicleUtils.getFactory();
+		Id<VehicleType> vehicleTypeId = Id.create(passengercar + ";" + technology + ";" + sizeClass + ";" + concept, VehicleType.class);
+		return vehFac.createVehicle(Id.create(vehicleId, Vehicle.class), vehFac.createVehicleType(vehicleTypeId));
+	}
+
 	@Test
 	public void testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent2(){
 		//-- set up tables, event handler, parameters, module
@@ -866,7 +922,6 @@ public class TestWarmEmissionAnalysisModule {
 		vehAtt.setHbefaEmConcept(petrolConcept);
 		
 		detWarmFactor = new HbefaWarmEmissionFactor();
-        double detailedPetrolFactorSg = .01;
         detWarmFactor.setWarmEmissionFactor(detailedPetrolFactorSg);
 		detWarmFactor.setSpeed(petrolSpeedSg);
 
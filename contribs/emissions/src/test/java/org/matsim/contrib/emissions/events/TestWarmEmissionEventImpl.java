@@ -75,6 +75,27 @@ public class TestWarmEmissionEventImpl {
 		Assert.assertEquals("the SO2 value of this warm emission event was "+ Double.parseDouble(weg.get("SO2"))+ "but should have been "+ so, Double.parseDouble(weg.get("SO2")), so, MatsimTestUtils.EPSILON);
 	}
 
+	@Test
+	public final void testGetAttributesForPrimitiveEmissions(){
+		String[] warmPollutants = {"CO", "FC", "SO2"};
+		double[] values = {co, fc, so};
+		WarmEmissionEvent we = new WarmEmissionEvent(0.0, linkId, vehicleId, warmPollutants, values);
+		// the event must not be affected if the caller reuses its array
+		values[0] = -1.;
+
+		Map<String, String> weg = we.getAttributes();
+		Assert.assertEquals(co, Double.parseDouble(weg.get("CO")), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(fc, Double.parseDouble(weg.get("FC")), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(so, Double.parseDouble(weg.get("SO2")), MatsimTestUtils.EPSILON);
+		Assert.assertNull(weg.get("NOx"));
+
+		Map<String, Double> warmEmissions = we.getWarmEmissions();
+		Assert.assertEquals(3, warmEmissions.size());
+		Assert.assertEquals(co, warmEmissions.get("CO"), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(fc, warmEmissions.get("FC"), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(so, warmEmissions.get("SO2"), MatsimTestUtils.EPSILON);
+	}
+
 	private void setWarmEmissions(Map<String, Double> warmEmissionsMap) {
 
 		warmEmissionsMap.put("CO", co);
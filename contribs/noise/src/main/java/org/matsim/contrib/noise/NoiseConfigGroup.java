@@ -81,6 +81,8 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	private static final String BUS_ID_IDENTIFIER = "busIdIdentifier";
 	private static final String NOISE_TOLL_FACTOR = "noiseTollFactor";
 	private static final String NOISE_ALLOCATION_APPROACH = "noiseAllocationApproach";
+	private static final String NUMBER_OF_THREADS_RECEIVER_POINTS = "numberOfThreadsReceiverPoints";
+	private static final String RECEIVER_POINT_LINK_INDEX_FILE = "receiverPointLinkIndexFile";
 	public static final String RECEIVER_POINT_GAP_CMT = "horizontal and vertical distance between receiver points in x-/y-coordinate units";
 	public static final String WRITE_OUTPUT_ITERATION_CMT = "Specifies how often the noise-specific output is written out.";
 	
@@ -128,6 +130,9 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 	
 	private double noiseTollFactor = 1.0;
 	
+	private int numberOfThreadsReceiverPoints = 1;
+	private String receiverPointLinkIndexFile = null;
+	
 	// ########################################################################################################
 	
 	@Override
@@ -176,6 +181,12 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 		comments.put(BUS_ID_IDENTIFIER, "Specifies the public transit vehicle ID identifiers. Buses are treated as HGV, other public transit vehicles are neglected." ) ;
 
 		comments.put(NOISE_TOLL_FACTOR, "To be used for sensitivity analysis. Default: 1.0 (= the parameter has no effect)" ) ;
+		
+		comments.put(NUMBER_OF_THREADS_RECEIVER_POINTS, "Number of threads used to compute the relevant links of the receiver points and, in each time bin, the noise immissions, affected agent units and damages of the receiver points. "
+				+ "The results do not depend on the number of threads. Default: 1 (= sequential computation)" ) ;
+		comments.put(RECEIVER_POINT_LINK_INDEX_FILE, "A binary file to store the relevant links and correction terms of the receiver points. "
+				+ "If the file exists and was computed for the same network, receiver points and relevant radius, the relevant links are read from the file. "
+				+ "Otherwise they are computed and written to the file. Default: null (= always compute the relevant links)" ) ;
 
 		return comments;
 	}
@@ -213,6 +224,10 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 
 	private void checkNoiseParametersForConsistency(Config config) {
 		
+		if (this.numberOfThreadsReceiverPoints < 1) {
+			throw new RuntimeException("The number of threads for the receiver point computation is " + this.numberOfThreadsReceiverPoints + ". It has to be at least 1. Aborting...");
+		}
+		
 		if (this.internalizeNoiseDamages) {
 			
 			// required for internalization
@@ -722,6 +737,28 @@ public final class NoiseConfigGroup extends ReflectiveConfigGroup {
 		this.computeAvgNoiseCostPerLinkAndTime = computeAvgNoiseCostPerLinkAndTime;
 	}
 
+	@StringGetter(NUMBER_OF_THREADS_RECEIVER_POINTS)
+	public int getNumberOfThreadsReceiverPoints() {
+		return numberOfThreadsReceiverPoints;
+	}
+
+	@StringSetter(NUMBER_OF_THREADS_RECEIVER_POINTS)
+	public void setNumberOfThreadsReceiverPoints(int numberOfThreadsReceiverPoints) {
+		log.info("setting the number of threads for the receiver point computation to " + numberOfThreadsReceiverPoints);
+		this.numberOfThreadsReceiverPoints = numberOfThreadsReceiverPoints;
+	}
+
+	@StringGetter(RECEIVER_POINT_LINK_INDEX_FILE)
+	public String getReceiverPointLinkIndexFile() {
+		return receiverPointLinkIndexFile;
+	}
+
+	@StringSetter(RECEIVER_POINT_LINK_INDEX_FILE)
+	public void setReceiverPointLinkIndexFile(String receiverPointLinkIndexFile) {
+		log.info("setting the receiver point link index file to " + receiverPointLinkIndexFile);
+		this.receiverPointLinkIndexFile = receiverPointLinkIndexFile;
+	}
+
 	public URL getTunnelLinkIDsFileURL(URL context) {
 		return ConfigGroup.getInputFileURL(context, this.getTunnelLinkIdFile());
 	}
@@ -23,13 +23,21 @@
 package org.matsim.contrib.noise.data;
 
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -56,6 +64,7 @@ import java.util.*;
 public class NoiseContext {
 	
 	private static final Logger log = Logger.getLogger(NoiseContext.class);
+	private static final int RELEVANT_LINK_INFO_CHUNK_SIZE = 256;
 			
 	private final Scenario scenario;
 	private final NoiseConfigGroup noiseParams;
@@ -169,55 +178,174 @@ public class NoiseContext {
 
 	private void setRelevantLinkInfo() {
 
-		Counter cnt = new Counter("set relevant link-info # ");
 		// go through all rp's and throw them away. We need noise-rps from here on.
-		ConcurrentLinkedQueue<ReceiverPoint> rps = new ConcurrentLinkedQueue<>(this.grid.getAndClearReceiverPoints().values());
-		ReceiverPoint rp = null;
-		while((rp = rps.poll()) != null){
-			
+		List<ReceiverPoint> rps = new ArrayList<>(this.grid.getAndClearReceiverPoints().values());
+		// a stable order, so that an index file can be reused
+		rps.sort(Comparator.comparing(rp -> rp.getId().toString()));
+		
+		List<Link> links = new ArrayList<>(scenario.getNetwork().getLinks().values());
+		@SuppressWarnings("unchecked")
+		Id<Link>[] linkIds = new Id[links.size()];
+		Map<Id<Link>, Integer> linkId2index = new HashMap<>();
+		for (int i = 0; i < linkIds.length; i++) {
+			linkIds[i] = links.get(i).getId();
+			linkId2index.put(linkIds[i], i);
+		}
+		
+		long fingerprint = ReceiverPointLinkIndex.computeFingerprint(links, rps, noiseParams.getRelevantRadius());
+		String indexFile = noiseParams.getReceiverPointLinkIndexFile();
+		boolean useIndexFile = indexFile != null && !indexFile.isEmpty();
+		
+		ReceiverPointLinkIndex index = null;
+		if (useIndexFile && new File(indexFile).exists()) {
+			index = ReceiverPointLinkIndex.read(indexFile, linkIds, fingerprint);
+			if (index == null) {
+				log.warn("The receiver point link index file " + indexFile + " cannot be used, e.g. because it was computed for a different network, receiver point grid or relevant radius. Recomputing the index...");
+			} else {
+				log.info("Read the relevant links of " + index.getNumberOfReceiverPoints() + " receiver points from " + indexFile + ".");
+			}
+		}
+		
+		if (index == null) {
+			index = buildReceiverPointLinkIndex(rps, linkIds, linkId2index, fingerprint);
+			if (useIndexFile) {
+				log.info("Writing the receiver point link index to " + indexFile + "...");
+				index.write(indexFile);
+			}
+		}
+		
+		for (int r = 0; r < rps.size(); r++) {
+			ReceiverPoint rp = rps.get(r);
 			NoiseReceiverPoint nrp = new NoiseReceiverPoint(rp.getId(), rp.getCoord());
-
-			// get the zone grid cell around the receiver point
-			Set<Id<Link>> potentialLinks = new HashSet<>();
-			Tuple<Integer,Integer>[] zoneTuples = getZoneTuplesForLinks(nrp.getCoord());
-			for(Tuple<Integer, Integer> key: zoneTuples) {
-				List<Id<Link>> links = zoneTuple2listOfLinkIds.get(key);
-				if(links != null) {
-					potentialLinks.addAll(links);
-				}
+			
+			int start = index.getRowStart(r);
+			int size = index.getRowEnd(r) - start;
+			@SuppressWarnings("unchecked")
+			Id<Link>[] relevantLinkIds = new Id[size];
+			double[] distanceCorrections = new double[size];
+			double[] angleCorrections = new double[size];
+			for (int i = 0; i < size; i++) {
+				relevantLinkIds[i] = index.getLinkId(start + i);
+				distanceCorrections[i] = index.getDistanceCorrection(start + i);
+				angleCorrections[i] = index.getAngleCorrection(start + i);
 			}
-
-			// go through these potential relevant link Ids
-			Set<Id<Link>> relevantLinkIds = new HashSet<>();
-			for (Id<Link> linkId : potentialLinks){
-				if (!(relevantLinkIds.contains(linkId))) {
-					Link candidateLink = scenario.getNetwork().getLinks().get(linkId);
-					//maybe replace the disctance-calculation to remove dupolicated code. Not absolute sure, since tests are failing, when method is replaced.
-					//double distance = CoordUtils.distancePointLinesegment(candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), nrp.getCoord());
-					double distance = calcDistance(nrp, candidateLink);
-					
-					if (distance < noiseParams.getRelevantRadius()){
-						
-						relevantLinkIds.add(linkId);
-						// wouldn't it be good to check distance < minDistance here? DR20180215
-						if (distance == 0) {
-							double minimumDistance = 5.;
-							distance = minimumDistance;
-							log.warn("Distance between " + linkId + " and " + rp.getId() + " is 0. The calculation of the correction term Ds requires a distance > 0. Therefore, setting the distance to a minimum value of " + minimumDistance + ".");
-						}
-						double correctionTermDs = NoiseEquations.calculateDistanceCorrection(distance);
-						double correctionTermAngle = calculateAngleImmissionCorrection(nrp.getCoord(), scenario.getNetwork().getLinks().get(linkId));
-						
-						nrp.setLinkId2distanceCorrection(linkId, correctionTermDs);
-						nrp.setLinkId2angleCorrection(linkId, correctionTermAngle);
+			nrp.setRelevantLinks(relevantLinkIds, distanceCorrections, angleCorrections);
+			
+			this.noiseReceiverPoints.put(nrp.getId(), nrp);
+		}
+	}
+	
+	/*
+	 * Computes the relevant links of all receiver points in parallel. Each receiver point is independent of the others; the rows are
+	 * concatenated in receiver point order afterwards. 
+	 */
+	private ReceiverPointLinkIndex buildReceiverPointLinkIndex(final List<ReceiverPoint> rps, final Id<Link>[] linkIds, final Map<Id<Link>, Integer> linkId2index, long fingerprint) {
+		
+		final Counter cnt = new Counter("set relevant link-info # ");
+		final int[][] rowLinkIndices = new int[rps.size()][];
+		final double[][] rowDistanceCorrections = new double[rps.size()][];
+		final double[][] rowAngleCorrections = new double[rps.size()][];
+		
+		final int numberOfThreads = Math.max(1, noiseParams.getNumberOfThreadsReceiverPoints());
+		final AtomicInteger nextRow = new AtomicInteger(0);
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			tasks.add(() -> {
+				int start;
+				while ((start = nextRow.getAndAdd(RELEVANT_LINK_INFO_CHUNK_SIZE)) < rps.size()) {
+					int end = Math.min(start + RELEVANT_LINK_INFO_CHUNK_SIZE, rps.size());
+					for (int r = start; r < end; r++) {
+						computeRelevantLinks(rps.get(r), linkIds, linkId2index, r, rowLinkIndices, rowDistanceCorrections, rowAngleCorrections);
+						cnt.incCounter();
 					}
 				}
+				return null;
+			});
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
 			}
-			
-			this.noiseReceiverPoints.put(nrp.getId(), nrp);
-			cnt.incCounter();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
 		}
 		cnt.printCounter();
+		
+		int[] rowOffsets = new int[rps.size() + 1];
+		for (int r = 0; r < rps.size(); r++) {
+			rowOffsets[r + 1] = rowOffsets[r] + rowLinkIndices[r].length;
+		}
+		int numberOfEntries = rowOffsets[rps.size()];
+		int[] linkIndices = new int[numberOfEntries];
+		double[] distanceCorrections = new double[numberOfEntries];
+		double[] angleCorrections = new double[numberOfEntries];
+		for (int r = 0; r < rps.size(); r++) {
+			System.arraycopy(rowLinkIndices[r], 0, linkIndices, rowOffsets[r], rowLinkIndices[r].length);
+			System.arraycopy(rowDistanceCorrections[r], 0, distanceCorrections, rowOffsets[r], rowLinkIndices[r].length);
+			System.arraycopy(rowAngleCorrections[r], 0, angleCorrections, rowOffsets[r], rowLinkIndices[r].length);
+		}
+		return new ReceiverPointLinkIndex(fingerprint, linkIds, rowOffsets, linkIndices, distanceCorrections, angleCorrections);
+	}
+	
+	private void computeRelevantLinks(ReceiverPoint rp, Id<Link>[] linkIds, Map<Id<Link>, Integer> linkId2index, int row,
+			int[][] rowLinkIndices, double[][] rowDistanceCorrections, double[][] rowAngleCorrections) {
+		
+		// get the zone grid cell around the receiver point
+		Set<Id<Link>> potentialLinks = new HashSet<>();
+		Tuple<Integer,Integer>[] zoneTuples = getZoneTuplesForLinks(rp.getCoord());
+		for(Tuple<Integer, Integer> key: zoneTuples) {
+			List<Id<Link>> links = zoneTuple2listOfLinkIds.get(key);
+			if(links != null) {
+				potentialLinks.addAll(links);
+			}
+		}
+		
+		// go through these potential relevant links in link index order
+		int[] candidates = new int[potentialLinks.size()];
+		int n = 0;
+		for (Id<Link> linkId : potentialLinks) {
+			candidates[n++] = linkId2index.get(linkId);
+		}
+		Arrays.sort(candidates);
+		
+		int[] relevantLinks = new int[candidates.length];
+		double[] distanceCorrections = new double[candidates.length];
+		double[] angleCorrections = new double[candidates.length];
+		int size = 0;
+		for (int candidate : candidates) {
+			Link candidateLink = scenario.getNetwork().getLinks().get(linkIds[candidate]);
+			//maybe replace the disctance-calculation to remove dupolicated code. Not absolute sure, since tests are failing, when method is replaced.
+			//double distance = CoordUtils.distancePointLinesegment(candidateLink.getFromNode().getCoord(), candidateLink.getToNode().getCoord(), rp.getCoord());
+			double distance = calcDistance(rp, candidateLink);
+			
+			if (distance < noiseParams.getRelevantRadius()){
+				
+				// wouldn't it be good to check distance < minDistance here? DR20180215
+				if (distance == 0) {
+					double minimumDistance = 5.;
+					distance = minimumDistance;
+					log.warn("Distance between " + candidateLink.getId() + " and " + rp.getId() + " is 0. The calculation of the correction term Ds requires a distance > 0. Therefore, setting the distance to a minimum value of " + minimumDistance + ".");
+				}
+				relevantLinks[size] = candidate;
+				distanceCorrections[size] = NoiseEquations.calculateDistanceCorrection(distance);
+				angleCorrections[size] = calculateAngleImmissionCorrection(rp.getCoord(), candidateLink);
+				size++;
+			}
+		}
+		
+		rowLinkIndices[row] = Arrays.copyOf(relevantLinks, size);
+		rowDistanceCorrections[row] = Arrays.copyOf(distanceCorrections, size);
+		rowAngleCorrections[row] = Arrays.copyOf(angleCorrections, size);
 	}
 	
 	/**
@@ -225,7 +353,7 @@ public class NoiseContext {
 	 * @param candidateLink
 	 * @return
 	 */
-	private double calcDistance(NoiseReceiverPoint nrp, Link candidateLink) {
+	private double calcDistance(ReceiverPoint nrp, Link candidateLink) {
 		double pointCoordX = nrp.getCoord().getX();
 		double pointCoordY = nrp.getCoord().getY();
 		double fromCoordX = candidateLink.getFromNode().getCoord().getX();
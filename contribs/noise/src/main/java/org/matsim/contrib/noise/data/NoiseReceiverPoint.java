@@ -23,8 +23,10 @@
 package org.matsim.contrib.noise.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,9 +50,12 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 
 	private Map<Id<Person>, List<PersonActivityInfo>> personId2actInfos = null;//new HashMap<>(0);
 	
-	// initialization
-	private Map<Id<Link>, Double> linkId2distanceCorrection = null;//new HashMap<>(0);
-	private Map<Id<Link>, Double> linkId2angleCorrection = null;//new HashMap<>(0);
+	// initialization: the relevant links and their correction terms, entry i of each array belongs to the same link
+	private static final Id<?>[] NO_LINKS = new Id<?>[0];
+	private static final double[] NO_CORRECTIONS = new double[0];
+	private Id<Link>[] relevantLinkIds = noLinks();
+	private double[] distanceCorrections = NO_CORRECTIONS;
+	private double[] angleCorrections = NO_CORRECTIONS;
 			
 	// time-specific information
 	private double finalImmission = 0.;
@@ -77,32 +82,88 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		infos.add(info);
 	}
 	
+	/**
+	 * @return a copy of the distance corrections of the relevant links, in the order of {@link #getRelevantLinkIds()}
+	 */
 	public Map<Id<Link>, Double> getLinkId2distanceCorrection() {
-		if(linkId2distanceCorrection == null) {
-			linkId2distanceCorrection = new HashMap<>();
-		}
-		return Collections.unmodifiableMap(linkId2distanceCorrection);
+		return toMap(distanceCorrections);
 	}
 
 	public void setLinkId2distanceCorrection(Id<Link> linkId,  Double distanceCorrection) {
-		if(linkId2distanceCorrection == null) {
-			linkId2distanceCorrection = new HashMap<>();
-		}
-		this.linkId2distanceCorrection.put(linkId, distanceCorrection);
+		this.distanceCorrections[getOrAddLink(linkId)] = distanceCorrection;
 	}
 
+	/**
+	 * @return a copy of the angle corrections of the relevant links, in the order of {@link #getRelevantLinkIds()}
+	 */
 	public Map<Id<Link>, Double> getLinkId2angleCorrection() {
-		if(linkId2angleCorrection== null) {
-			linkId2angleCorrection = new HashMap<>();
-		}
-		return Collections.unmodifiableMap(linkId2angleCorrection);
+		return toMap(angleCorrections);
 	}
 
 	public void setLinkId2angleCorrection(Id<Link> linkId, Double angleCorrection) {
-		if(linkId2angleCorrection== null) {
-			linkId2angleCorrection = new HashMap<>();
+		this.angleCorrections[getOrAddLink(linkId)] = angleCorrection;
+	}
+	
+	/**
+	 * Sets all relevant links of this receiver point at once. The arrays are taken over, not copied.
+	 */
+	public void setRelevantLinks(Id<Link>[] linkIds, double[] distanceCorrections, double[] angleCorrections) {
+		if (linkIds.length != distanceCorrections.length || linkIds.length != angleCorrections.length) {
+			throw new IllegalArgumentException("The number of links and correction terms differ for receiver point " + getId());
 		}
-		this.linkId2angleCorrection.put(linkId, angleCorrection);
+		this.relevantLinkIds = linkIds;
+		this.distanceCorrections = distanceCorrections;
+		this.angleCorrections = angleCorrections;
+	}
+
+	/**
+	 * @return the Ids of the links relevant for this receiver point.
+	 * Entry <code>i</code> corresponds to entry <code>i</code> of {@link #getDistanceCorrections()} and {@link #getAngleCorrections()}.
+	 * The returned array must not be modified.
+	 */
+	public Id<Link>[] getRelevantLinkIds() {
+		return relevantLinkIds;
+	}
+
+	/**
+	 * @return the distance corrections of the links returned by {@link #getRelevantLinkIds()}. The returned array must not be modified.
+	 */
+	public double[] getDistanceCorrections() {
+		return distanceCorrections;
+	}
+
+	/**
+	 * @return the angle corrections of the links returned by {@link #getRelevantLinkIds()}. The returned array must not be modified.
+	 */
+	public double[] getAngleCorrections() {
+		return angleCorrections;
+	}
+	
+	private Map<Id<Link>, Double> toMap(double[] corrections) {
+		Map<Id<Link>, Double> linkId2correction = new LinkedHashMap<>();
+		for (int i = 0; i < relevantLinkIds.length; i++) {
+			linkId2correction.put(relevantLinkIds[i], corrections[i]);
+		}
+		return Collections.unmodifiableMap(linkId2correction);
+	}
+	
+	private int getOrAddLink(Id<Link> linkId) {
+		for (int i = 0; i < relevantLinkIds.length; i++) {
+			if (relevantLinkIds[i].equals(linkId)) {
+				return i;
+			}
+		}
+		int n = relevantLinkIds.length;
+		this.relevantLinkIds = Arrays.copyOf(relevantLinkIds, n + 1);
+		this.relevantLinkIds[n] = linkId;
+		this.distanceCorrections = Arrays.copyOf(distanceCorrections, n + 1);
+		this.angleCorrections = Arrays.copyOf(angleCorrections, n + 1);
+		return n;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Id<Link>[] noLinks() {
+		return (Id<Link>[]) NO_LINKS;
 	}
 
 	public double getFinalImmission() {
@@ -141,8 +202,8 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 	@Override
 	public String toString() {
 		return "NoiseReceiverPoint [personId2actInfos=" + personId2actInfos
-				+ ", linkId2distanceCorrection=" + linkId2distanceCorrection
-				+ ", linkId2angleCorrection=" + linkId2angleCorrection
+				+ ", linkId2distanceCorrection=" + getLinkId2distanceCorrection()
+				+ ", linkId2angleCorrection=" + getLinkId2angleCorrection()
 //				+ ", linkId2IsolatedImmission=" + linkId2IsolatedImmission
 //				+ ", linkId2IsolatedImmissionPlusOneCar=" + linkId2IsolatedImmissionPlusOneCar
 //				+ ", linkId2IsolatedImmissionPlusOneHGV=" + linkId2IsolatedImmissionPlusOneHGV 
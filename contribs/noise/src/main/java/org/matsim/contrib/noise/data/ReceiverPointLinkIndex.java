@@ -0,0 +1,245 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2014 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * A compact sparse index from receiver points to their relevant links, stored in compressed sparse row (CSR) format.
+ * <p>
+ * Row <code>r</code> belongs to the <code>r</code>-th receiver point of the list the index was built for and covers the entries
+ * <code>getRowStart(r)</code> (inclusive) to <code>getRowEnd(r)</code> (exclusive). Each entry refers to a link by its position in
+ * the link array of the index and holds the distance and angle correction terms of this link for the receiver point.
+ * <p>
+ * The index can be written to and read from a binary file. A fingerprint of the network, the receiver points and the relevant radius
+ * is stored together with the index, so that an index file is only reused for the input it was computed for.
+ * 
+ * @see NoiseContext
+ */
+public final class ReceiverPointLinkIndex {
+	
+	private static final Logger log = Logger.getLogger(ReceiverPointLinkIndex.class);
+	
+	private static final int MAGIC = 0x4e524c49; // "NRLI"
+	private static final int VERSION = 1;
+	
+	private final long fingerprint;
+	private final Id<Link>[] links;
+	private final int[] rowOffsets;
+	private final int[] linkIndices;
+	private final double[] distanceCorrections;
+	private final double[] angleCorrections;
+	
+	ReceiverPointLinkIndex(long fingerprint, Id<Link>[] links, int[] rowOffsets, int[] linkIndices, double[] distanceCorrections, double[] angleCorrections) {
+		if (rowOffsets.length == 0 || rowOffsets[rowOffsets.length - 1] != linkIndices.length
+				|| distanceCorrections.length != linkIndices.length || angleCorrections.length != linkIndices.length) {
+			throw new IllegalArgumentException("Inconsistent receiver point link index.");
+		}
+		this.fingerprint = fingerprint;
+		this.links = links;
+		this.rowOffsets = rowOffsets;
+		this.linkIndices = linkIndices;
+		this.distanceCorrections = distanceCorrections;
+		this.angleCorrections = angleCorrections;
+	}
+	
+	public long getFingerprint() {
+		return fingerprint;
+	}
+	
+	public int getNumberOfReceiverPoints() {
+		return rowOffsets.length - 1;
+	}
+	
+	public int getNumberOfEntries() {
+		return linkIndices.length;
+	}
+	
+	public int getRowStart(int receiverPoint) {
+		return rowOffsets[receiverPoint];
+	}
+	
+	public int getRowEnd(int receiverPoint) {
+		return rowOffsets[receiverPoint + 1];
+	}
+	
+	public Id<Link> getLinkId(int entry) {
+		return links[linkIndices[entry]];
+	}
+	
+	public int getLinkIndex(int entry) {
+		return linkIndices[entry];
+	}
+	
+	public double getDistanceCorrection(int entry) {
+		return distanceCorrections[entry];
+	}
+	
+	public double getAngleCorrection(int entry) {
+		return angleCorrections[entry];
+	}
+	
+	/**
+	 * Computes the fingerprint of the input an index depends on. The order of the links and of the receiver points matters.
+	 */
+	public static long computeFingerprint(List<? extends Link> links, List<? extends ReceiverPoint> receiverPoints, double relevantRadius) {
+		long hash = 0xcbf29ce484222325L;
+		hash = mix(hash, Double.doubleToLongBits(relevantRadius));
+		hash = mix(hash, links.size());
+		for (Link link : links) {
+			hash = mix(hash, link.getId().toString().hashCode());
+			hash = mix(hash, link.getFromNode().getCoord());
+			hash = mix(hash, link.getToNode().getCoord());
+			hash = mix(hash, Double.doubleToLongBits(link.getLength()));
+		}
+		hash = mix(hash, receiverPoints.size());
+		for (ReceiverPoint rp : receiverPoints) {
+			hash = mix(hash, rp.getId().toString().hashCode());
+			hash = mix(hash, rp.getCoord());
+		}
+		return hash;
+	}
+	
+	private static long mix(long hash, Coord coord) {
+		hash = mix(hash, Double.doubleToLongBits(coord.getX()));
+		return mix(hash, Double.doubleToLongBits(coord.getY()));
+	}
+	
+	private static long mix(long hash, long value) {
+		hash ^= value;
+		hash *= 0x100000001b3L;
+		return hash ^ (hash >>> 29);
+	}
+	
+	/**
+	 * Writes the index to a binary file. The link Ids are not written; they are given by the network when the file is read again.
+	 * <p>
+	 * The index is written to a temporary file first, which then replaces the file, so that a run which is aborted while writing
+	 * never leaves a partial index file behind. If the file cannot be written, a warning is logged.
+	 */
+	public void write(String filename) {
+		File file = new File(filename);
+		// keep the file name at the end, so that the compression is still derived from its extension
+		File tmpFile = new File(file.getAbsoluteFile().getParentFile(), "." + UUID.randomUUID() + "." + file.getName());
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(tmpFile.getPath())))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(fingerprint);
+				out.writeInt(links.length);
+				out.writeInt(getNumberOfReceiverPoints());
+				out.writeInt(getNumberOfEntries());
+				for (int offset : rowOffsets) {
+					out.writeInt(offset);
+				}
+				for (int i = 0; i < linkIndices.length; i++) {
+					out.writeInt(linkIndices[i]);
+					out.writeDouble(distanceCorrections[i]);
+					out.writeDouble(angleCorrections[i]);
+				}
+			}
+			try {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | UncheckedIOException e) {
+			log.warn("Could not write the receiver point link index to " + filename + ".", e);
+			tmpFile.delete();
+		}
+	}
+	
+	/**
+	 * Reads an index from a binary file written by {@link #write(String)}.
+	 * 
+	 * @param links the links in the order the index was built for
+	 * @param expectedFingerprint the fingerprint of the current input, see {@link #computeFingerprint(List, List, double)}
+	 * @return the index, or <code>null</code> if the file was written for a different input or cannot be read, e.g. because it
+	 * is truncated or not an index file at all; a warning is logged in the latter case
+	 */
+	public static ReceiverPointLinkIndex read(String filename, Id<Link>[] links, long expectedFingerprint) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(filename)))) {
+			if (in.readInt() != MAGIC) {
+				log.warn(filename + " is not a receiver point link index file, ignoring it.");
+				return null;
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				return null;
+			}
+			long fingerprint = in.readLong();
+			int numberOfLinks = in.readInt();
+			if (fingerprint != expectedFingerprint || numberOfLinks != links.length) {
+				return null;
+			}
+			int numberOfReceiverPoints = in.readInt();
+			int numberOfEntries = in.readInt();
+			if (numberOfReceiverPoints < 0 || numberOfEntries < 0) {
+				log.warn("The receiver point link index file " + filename + " is corrupt, ignoring it.");
+				return null;
+			}
+			int[] rowOffsets = new int[numberOfReceiverPoints + 1];
+			boolean validOffsets = true;
+			for (int i = 0; i < rowOffsets.length; i++) {
+				rowOffsets[i] = in.readInt();
+				validOffsets &= rowOffsets[i] >= (i == 0 ? 0 : rowOffsets[i - 1]);
+			}
+			if (!validOffsets || rowOffsets[0] != 0 || rowOffsets[numberOfReceiverPoints] != numberOfEntries) {
+				log.warn("The receiver point link index file " + filename + " is corrupt, ignoring it.");
+				return null;
+			}
+			int[] linkIndices = new int[numberOfEntries];
+			double[] distanceCorrections = new double[numberOfEntries];
+			double[] angleCorrections = new double[numberOfEntries];
+			for (int i = 0; i < numberOfEntries; i++) {
+				linkIndices[i] = in.readInt();
+				if (linkIndices[i] < 0 || linkIndices[i] >= links.length) {
+					log.warn("The receiver point link index file " + filename + " is corrupt, ignoring it.");
+					return null;
+				}
+				distanceCorrections[i] = in.readDouble();
+				angleCorrections[i] = in.readDouble();
+			}
+			return new ReceiverPointLinkIndex(fingerprint, links, rowOffsets, linkIndices, distanceCorrections, angleCorrections);
+		} catch (IOException | UncheckedIOException e) {
+			log.warn("Could not read the receiver point link index file " + filename + ", ignoring it.", e);
+			return null;
+		}
+	}
+	
+}
@@ -93,6 +93,30 @@ public class NoiseEquations {
 		return resultingNoiseImmission;
 	}
 	
+	/**
+	 * Same as {@link #calculateResultingNoiseImmission(Collection)} for the first <code>size</code> entries of a primitive array,
+	 * summed up in array order.
+	 */
+	public static double calculateResultingNoiseImmission (double[] noiseImmissions, int size){
+		
+		double resultingNoiseImmission = 0.;
+		
+		if (size > 0) {
+			double sumTmp = 0.;
+			for (int i = 0; i < size; i++) {
+				double noiseImmission = noiseImmissions[i];
+				if (noiseImmission > 0.) {
+					sumTmp = sumTmp + (Math.pow(10, (0.1 * noiseImmission)));
+				}
+			}
+			resultingNoiseImmission = 10 * Math.log10(sumTmp);
+			if (resultingNoiseImmission < 0) {
+				resultingNoiseImmission = 0.;
+			}
+		}
+		return resultingNoiseImmission;
+	}
+	
 	public static double calculateLCar(double vCar) {
 		
 		double lCar = 27.7 + (10 * Math.log10(1.0 + Math.pow(0.02 * vCar, 3.0)));
@@ -1,15 +1,15 @@
 package org.matsim.contrib.noise.handler;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.apache.log4j.Logger;
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
 
 /**
  * A class which holds some information needed for noise-computation during a timestep
+ * <p>
+ * All values are stored in primitive arrays; entry <code>i</code> belongs to link <code>i</code> of
+ * {@link org.matsim.contrib.noise.data.NoiseReceiverPoint#getRelevantLinkIds()}. Instances are reused
+ * from one receiver point to the next, so only the first {@link #size()} entries are valid.
  * 
  * @author droeder / Senozon Deutschland GmbH
  *
@@ -19,41 +19,70 @@ final class NoiseReceiverPointImmision {
 	@SuppressWarnings("unused")
 	private static final Logger log = Logger.getLogger(NoiseReceiverPointImmision.class);
 	
-	private Map<Id<Link>, Double> linkId2IsolatedImmission = new HashMap<>(0);
-	private Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneCar = new HashMap<>(0);
-	private Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneHGV = new HashMap<>(0); 
+	private int size = 0;
+	
+	private double[] isolatedImmission = new double[0];
+	private double[] isolatedImmissionPlusOneCar = new double[0];
+	private double[] isolatedImmissionPlusOneHGV = new double[0];
+	
+	// link-based cost contributions of the receiver point
+	private double[] costShare = new double[0];
+	private double[] marginalDamageCostCar = new double[0];
+	private double[] marginalDamageCostHGV = new double[0];
 
 	NoiseReceiverPointImmision() {
 
 	}
-
-	public Map<Id<Link>, Double> getLinkId2IsolatedImmission() {
-		return Collections.unmodifiableMap(linkId2IsolatedImmission);
+	
+	/**
+	 * Prepares this instance for a receiver point with <code>size</code> relevant links and sets all values to 0.
+	 */
+	void reset(int size) {
+		if (this.isolatedImmission.length < size) {
+			this.isolatedImmission = new double[size];
+			this.isolatedImmissionPlusOneCar = new double[size];
+			this.isolatedImmissionPlusOneHGV = new double[size];
+			this.costShare = new double[size];
+			this.marginalDamageCostCar = new double[size];
+			this.marginalDamageCostHGV = new double[size];
+		} else {
+			Arrays.fill(this.isolatedImmission, 0, size, 0.);
+			Arrays.fill(this.isolatedImmissionPlusOneCar, 0, size, 0.);
+			Arrays.fill(this.isolatedImmissionPlusOneHGV, 0, size, 0.);
+			Arrays.fill(this.costShare, 0, size, 0.);
+			Arrays.fill(this.marginalDamageCostCar, 0, size, 0.);
+			Arrays.fill(this.marginalDamageCostHGV, 0, size, 0.);
+		}
+		this.size = size;
+	}
+	
+	int size() {
+		return size;
 	}
 
-	public void setLinkId2IsolatedImmission(Id<Link> linkId, Double isolatedImmission) {
-		this.linkId2IsolatedImmission.put(linkId, isolatedImmission);
+	double[] getIsolatedImmission() {
+		return isolatedImmission;
 	}
-	
-	public Map<Id<Link>, Double> getLinkId2IsolatedImmissionPlusOneCar() {
-		return Collections.unmodifiableMap(linkId2IsolatedImmissionPlusOneCar);
+
+	double[] getIsolatedImmissionPlusOneCar() {
+		return isolatedImmissionPlusOneCar;
 	}
 
-	public void setLinkId2IsolatedImmissionPlusOneCar(
-			Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneCar) {
-		this.linkId2IsolatedImmissionPlusOneCar = linkId2IsolatedImmissionPlusOneCar;
+	double[] getIsolatedImmissionPlusOneHGV() {
+		return isolatedImmissionPlusOneHGV;
 	}
 
-	public Map<Id<Link>, Double> getLinkId2IsolatedImmissionPlusOneHGV() {
-		return Collections.unmodifiableMap(linkId2IsolatedImmissionPlusOneHGV);
+	double[] getCostShare() {
+		return costShare;
 	}
 
-	public void setLinkId2IsolatedImmissionPlusOneHGV(
-			Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneHGV) {
-		this.linkId2IsolatedImmissionPlusOneHGV = linkId2IsolatedImmissionPlusOneHGV;
+	double[] getMarginalDamageCostCar() {
+		return marginalDamageCostCar;
 	}
 
+	double[] getMarginalDamageCostHGV() {
+		return marginalDamageCostHGV;
+	}
 
 	////////////////////////////////////////////////////////////////////////////////
 }
-
@@ -28,6 +28,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -67,6 +73,7 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 
 	private static final Logger log = Logger.getLogger(NoiseTimeTracker.class);
 	private static final boolean printLog = false;
+	private static final int RECEIVER_POINTS_PER_THREAD_AND_BLOCK = 1024;
 	
 	@Inject
 	private NoiseContext noiseContext;
@@ -85,10 +92,14 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 	
 	private boolean useCompression = false ;
 	
+	private NoiseReceiverPointImmision[] immissionBuffers = new NoiseReceiverPointImmision[0];
+	private ExecutorService executor = null;
+	private int executorThreads = 0;
+	
 	private int cWarn1 = 0;
 	private int cWarn2 = 0;
-	private int cWarn3 = 0;
-	private int cWarn4 = 0;
+	private final AtomicInteger cWarn3 = new AtomicInteger(0);
+	private final AtomicInteger cWarn4 = new AtomicInteger(0);
 
 	@Override
 	public void handleEvent(TransitDriverStartsEvent event) {
@@ -221,19 +232,7 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 		if (printLog) log.info("Calculating the number of affected agent units...");
 		if (printLog) log.info("Calculating noise damage costs...");
 
-		for(NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			NoiseReceiverPointImmision immisions = calculateNoiseImmission(rp);
-			if (this.noiseContext.getNoiseParams().isComputePopulationUnits()) {
-				calculateAffectedAgentUnits(rp);
-				if (this.noiseContext.getNoiseParams().isComputeNoiseDamages()) {
-					calculateDamagePerReceiverPoint(rp);
-				}
-				if (this.noiseContext.getNoiseParams().isComputeCausingAgents()) {
-					computeAverageDamageCost(rp, immisions);
-					calculateMarginalDamageCost(rp, immisions);
-				}
-			}
-		}
+		computeReceiverPoints();
 		calculateCostsPerVehiclePerLinkPerTimeInterval();
 		
 		finishNoiseDamageCosts();
@@ -252,6 +251,129 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 	
 		
 			
+	}
+
+	/*
+	 * Immissions, affected agent units and damages per receiver point.
+	 * 
+	 * The receiver points are processed in blocks. Within a block, the receiver points are independent of each other and 
+	 * are computed in parallel (if more than one thread is configured), each one writing into its own immission buffer.
+	 * Afterwards, the link-based cost contributions of the block are added to the noise links sequentially and in receiver point
+	 * order. The results are hence identical to a sequential computation, regardless of the number of threads.
+	 */
+	private void computeReceiverPoints() {
+		final List<NoiseReceiverPoint> receiverPoints = new ArrayList<>(this.noiseContext.getReceiverPoints().values());
+		final NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
+		final int numberOfThreads = Math.max(1, Math.min(noiseParams.getNumberOfThreadsReceiverPoints(), receiverPoints.size()));
+		final int blockSize = numberOfThreads * RECEIVER_POINTS_PER_THREAD_AND_BLOCK;
+		
+		ensureImmissionBuffers(Math.min(blockSize, receiverPoints.size()));
+		
+		for (int blockStart = 0; blockStart < receiverPoints.size(); blockStart += blockSize) {
+			final int blockEnd = Math.min(blockStart + blockSize, receiverPoints.size());
+			
+			if (numberOfThreads == 1) {
+				computeReceiverPoints(receiverPoints, blockStart, blockEnd, blockStart);
+			} else {
+				computeReceiverPointsInParallel(receiverPoints, blockStart, blockEnd, numberOfThreads);
+			}
+			
+			if (noiseParams.isComputePopulationUnits() && noiseParams.isComputeCausingAgents()) {
+				for (int i = blockStart; i < blockEnd; i++) {
+					NoiseReceiverPoint rp = receiverPoints.get(i);
+					NoiseReceiverPointImmision immisions = this.immissionBuffers[i - blockStart];
+					addCostSharesToNoiseLinks(rp, immisions);
+					addMarginalDamageCostsToNoiseLinks(rp, immisions);
+				}
+			}
+		}
+	}
+	
+	private void computeReceiverPointsInParallel(final List<NoiseReceiverPoint> receiverPoints, int blockStart, int blockEnd, int numberOfThreads) {
+		ExecutorService executorService = getExecutor(numberOfThreads);
+		List<Callable<Void>> tasks = new ArrayList<>(numberOfThreads);
+		int sliceSize = (blockEnd - blockStart + numberOfThreads - 1) / numberOfThreads;
+		for (int sliceStart = blockStart; sliceStart < blockEnd; sliceStart += sliceSize) {
+			final int from = sliceStart;
+			final int to = Math.min(sliceStart + sliceSize, blockEnd);
+			final int bufferOffset = blockStart;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					computeReceiverPoints(receiverPoints, from, to, bufferOffset);
+					return null;
+				}
+			});
+		}
+		
+		try {
+			for (Future<Void> future : executorService.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/*
+	 * Computes the receiver points [from, to) without touching any shared state except the receiver points themselves.
+	 */
+	private void computeReceiverPoints(List<NoiseReceiverPoint> receiverPoints, int from, int to, int bufferOffset) {
+		NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
+		for (int i = from; i < to; i++) {
+			NoiseReceiverPoint rp = receiverPoints.get(i);
+			NoiseReceiverPointImmision immisions = this.immissionBuffers[i - bufferOffset];
+			calculateNoiseImmission(rp, immisions);
+			if (noiseParams.isComputePopulationUnits()) {
+				calculateAffectedAgentUnits(rp);
+				if (noiseParams.isComputeNoiseDamages()) {
+					calculateDamagePerReceiverPoint(rp);
+				}
+				if (noiseParams.isComputeCausingAgents()) {
+					calculateCostSharesPerLinkPerTimeInterval(rp, immisions);
+					calculateMarginalDamageCost(rp, immisions);
+				}
+			}
+		}
+	}
+	
+	private void ensureImmissionBuffers(int size) {
+		if (this.immissionBuffers.length < size) {
+			NoiseReceiverPointImmision[] buffers = new NoiseReceiverPointImmision[size];
+			System.arraycopy(this.immissionBuffers, 0, buffers, 0, this.immissionBuffers.length);
+			for (int i = this.immissionBuffers.length; i < size; i++) {
+				buffers[i] = new NoiseReceiverPointImmision();
+			}
+			this.immissionBuffers = buffers;
+		}
+	}
+	
+	private ExecutorService getExecutor(int numberOfThreads) {
+		if (this.executor == null || this.executorThreads != numberOfThreads) {
+			shutdownExecutor();
+			final AtomicInteger threadCounter = new AtomicInteger(0);
+			this.executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "NoiseReceiverPoints." + threadCounter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.executorThreads = numberOfThreads;
+		}
+		return this.executor;
+	}
+	
+	private void shutdownExecutor() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+			this.executorThreads = 0;
+		}
 	}
 		
 	private boolean writeOutput() {
@@ -429,51 +551,42 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 	/*
 	 * Noise allocation approach: AverageCost
 	 */
-	private void computeAverageDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
-		calculateCostSharesPerLinkPerTimeInterval(rp, immisions);
-//		calculateCostsPerVehiclePerLinkPerTimeInterval();
+	private void calculateCostSharesPerLinkPerTimeInterval(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
+		
+		if (rp.getDamageCosts() != 0.) {
+			double[] isolatedImmission = immisions.getIsolatedImmission();
+			double[] costShare = immisions.getCostShare();
+			for (int i = 0; i < immisions.size(); i++) {
+				
+				double noiseImmission = isolatedImmission[i];
+				double costs = 0.;
+					
+				if (!(noiseImmission == 0.)) {
+					double share = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
+					costs = share * rp.getDamageCosts();	
+				}
+				costShare[i] = costs;
+			}
+		}
 	}
 
 	/*
 	 * Noise allocation approach: AverageCost
 	 */
-	private void calculateCostSharesPerLinkPerTimeInterval(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
-		
-		Map<Id<Link>, Double> linkId2costShare = new HashMap<Id<Link>, Double>();
-
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-										
-							
-			if (rp.getDamageCosts() != 0.) {
-				for (Id<Link> linkId : immisions.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmission = immisions.getLinkId2IsolatedImmission().get(linkId);
-					double costs = 0.;
-						
-					if (!(noiseImmission == 0.)) {
-						double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
-						costs = costShare * rp.getDamageCosts();	
-					}
-					linkId2costShare.put(linkId, costs);
-				}
-			}
-			
-//		}
+	private void addCostSharesToNoiseLinks(NoiseReceiverPoint rp, NoiseReceiverPointImmision immisions) {
 		
 		// summing up the link-based costs
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getDamageCosts() != 0.) {
-				
-				for (Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-					NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId); 
-					if ( noiseLink != null) {
-						double sum = noiseLink.getDamageCost() + linkId2costShare.get(linkId);
-						noiseLink.setDamageCost(sum);
-					}		
-				}
+		if (rp.getDamageCosts() != 0.) {
+			Id<Link>[] linkIds = rp.getRelevantLinkIds();
+			double[] costShare = immisions.getCostShare();
+			for (int i = 0; i < immisions.size(); i++) {
+				NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkIds[i]); 
+				if ( noiseLink != null) {
+					double sum = noiseLink.getDamageCost() + costShare[i];
+					noiseLink.setDamageCost(sum);
+				}		
 			}
-//		}
+		}
 	}
 
 	/*
@@ -567,60 +680,80 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 	 * Noise allocation approach: MarginalCost
 	 */
 	private void calculateMarginalDamageCost(NoiseReceiverPoint rp, NoiseReceiverPointImmision immision) {
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
 
-			if (rp.getAffectedAgentUnits() != 0.) {
-				for (Id<Link> thisLink : immision.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), immision.getLinkId2IsolatedImmission().get(thisLink), immision.getLinkId2IsolatedImmissionPlusOneCar().get(thisLink));
-					double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), immision.getLinkId2IsolatedImmission().get(thisLink), immision.getLinkId2IsolatedImmissionPlusOneHGV().get(thisLink));
-					
-					double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostCarThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
-							marginalDamageCostCarThisLink = 0.;
-						} else {
-							if (cWarn3 == 0) {
-								log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
-								log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
-								log.warn("Setting the marginal damage cost per car to 0.");
-								log.warn("This message is only given once.");
-								cWarn3++;
-							}
-							
-							marginalDamageCostCarThisLink = 0.;
+		if (rp.getAffectedAgentUnits() != 0.) {
+			Id<Link>[] linkIds = rp.getRelevantLinkIds();
+			double[] isolatedImmission = immision.getIsolatedImmission();
+			double[] isolatedImmissionPlusOneCar = immision.getIsolatedImmissionPlusOneCar();
+			double[] isolatedImmissionPlusOneHGV = immision.getIsolatedImmissionPlusOneHGV();
+			double[] marginalDamageCostCar = immision.getMarginalDamageCostCar();
+			double[] marginalDamageCostHGV = immision.getMarginalDamageCostHGV();
+			
+			for (int i = 0; i < immision.size(); i++) {
+				Id<Link> thisLink = linkIds[i];
+									
+				double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), isolatedImmission[i], isolatedImmissionPlusOneCar[i]);
+				double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), isolatedImmission[i], isolatedImmissionPlusOneHGV[i]);
+				
+				double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+				double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+				
+				if (marginalDamageCostCarThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
+						marginalDamageCostCarThisLink = 0.;
+					} else {
+						if (cWarn3.compareAndSet(0, 1)) {
+							log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
+							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
+							log.warn("Setting the marginal damage cost per car to 0.");
+							log.warn("This message is only given once.");
 						}
+						
+						marginalDamageCostCarThisLink = 0.;
 					}
-					
-					double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostHGVThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
-							marginalDamageCostHGVThisLink = 0.;
-						} else {
-							if (cWarn4 == 0) {
-								log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
-								log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
-								log.warn("Setting the marginal damage cost per HGV to 0.");
-								log.warn("This message is only given once.");
-								cWarn4++;
-							}
-							
-							marginalDamageCostHGVThisLink = 0.;
+				}
+				
+				double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+				double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+				
+				if (marginalDamageCostHGVThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
+						marginalDamageCostHGVThisLink = 0.;
+					} else {
+						if (cWarn4.compareAndSet(0, 1)) {
+							log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
+							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
+							log.warn("Setting the marginal damage cost per HGV to 0.");
+							log.warn("This message is only given once.");
 						}
+						
+						marginalDamageCostHGVThisLink = 0.;
 					}
-					NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(thisLink);
-					double marginalDamageCostCarSum = noiseLink.getMarginalDamageCostPerCar() + marginalDamageCostCarThisLink;
-					noiseLink.setMarginalDamageCostPerCar(marginalDamageCostCarSum);
-					
-					double marginalDamageCostHGVSum = noiseLink.getMarginalDamageCostPerHgv() + marginalDamageCostHGVThisLink;
-					noiseLink.setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
-				}			
-			}	
-//		}
+				}
+				marginalDamageCostCar[i] = marginalDamageCostCarThisLink;
+				marginalDamageCostHGV[i] = marginalDamageCostHGVThisLink;
+			}			
+		}	
+	}
+
+	/*
+	 * Noise allocation approach: MarginalCost
+	 */
+	private void addMarginalDamageCostsToNoiseLinks(NoiseReceiverPoint rp, NoiseReceiverPointImmision immision) {
+		
+		if (rp.getAffectedAgentUnits() != 0.) {
+			Id<Link>[] linkIds = rp.getRelevantLinkIds();
+			double[] marginalDamageCostCar = immision.getMarginalDamageCostCar();
+			double[] marginalDamageCostHGV = immision.getMarginalDamageCostHGV();
+			for (int i = 0; i < immision.size(); i++) {
+				NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkIds[i]);
+				double marginalDamageCostCarSum = noiseLink.getMarginalDamageCostPerCar() + marginalDamageCostCar[i];
+				noiseLink.setMarginalDamageCostPerCar(marginalDamageCostCarSum);
+				
+				double marginalDamageCostHGVSum = noiseLink.getMarginalDamageCostPerHgv() + marginalDamageCostHGV[i];
+				noiseLink.setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
+			}
+		}
 	}
 
 	private void throwNoiseEventsCaused() {
@@ -695,82 +828,74 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 	/*
 	 * Immission
 	 */
-	private NoiseReceiverPointImmision calculateNoiseImmission(NoiseReceiverPoint rp) {
+	private void calculateNoiseImmission(NoiseReceiverPoint rp, NoiseReceiverPointImmision immision) {
 		NoiseConfigGroup noiseParams = this.noiseContext.getNoiseParams();
-		NoiseReceiverPointImmision immision = new NoiseReceiverPointImmision();
 		
-//		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-					
-//			Map<Id<Link>, Double> linkId2isolatedImmission = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>();
+		Id<Link>[] linkIds = rp.getRelevantLinkIds();
+		double[] distanceCorrections = rp.getDistanceCorrections();
+		double[] angleCorrections = rp.getAngleCorrections();
+		
+		immision.reset(linkIds.length);
+		double[] isolatedImmission = immision.getIsolatedImmission();
+		double[] isolatedImmissionPlusOneCar = immision.getIsolatedImmissionPlusOneCar();
+		double[] isolatedImmissionPlusOneHGV = immision.getIsolatedImmissionPlusOneHGV();
+		
+		for (int i = 0; i < linkIds.length; i++) {
+			Id<Link> linkId = linkIds[i];
+			double distanceCorrection = distanceCorrections[i];
+			double angleCorrection = angleCorrections[i];
 			
-			for(Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-				double distanceCorrection = rp.getLinkId2distanceCorrection().get(linkId);
-				double angleCorrection = rp.getLinkId2angleCorrection().get(linkId);
-				
-				if (noiseParams.getTunnelLinkIDsSet().contains(linkId)) {
-					immision.setLinkId2IsolatedImmission(linkId, 0.);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, 0.);
-								 			
-			 	} else {
-				
-			 		double noiseImmission = 0.;
-			 		double noiseImmissionPlusOneCar = 0.;
-			 		double noiseImmissionPlusOneHGV = 0.;
-			 		NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId);
-			 		if (noiseLink != null) {
-						if (!(noiseLink.getEmission() == 0.)) {
-							noiseImmission = noiseLink.getEmission()
-									+ distanceCorrection + angleCorrection;
-							
-							if (noiseImmission < 0.) {
-								noiseImmission = 0.;
-							}
-						}
+			if (noiseParams.getTunnelLinkIDsSet().contains(linkId)) {
+				// the isolated immissions remain 0.
+							 			
+		 	} else {
+			
+		 		double noiseImmission = 0.;
+		 		double noiseImmissionPlusOneCar = 0.;
+		 		double noiseImmissionPlusOneHGV = 0.;
+		 		NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId);
+		 		if (noiseLink != null) {
+					if (!(noiseLink.getEmission() == 0.)) {
+						noiseImmission = noiseLink.getEmission()
+								+ distanceCorrection + angleCorrection;
 						
-						if (!(noiseLink.getEmissionPlusOneCar() == 0.)) {
-							noiseImmissionPlusOneCar = noiseLink.getEmissionPlusOneCar()
-									+ distanceCorrection + angleCorrection;
-							
-							if (noiseImmissionPlusOneCar < 0.) {
-								noiseImmissionPlusOneCar = 0.;
-							}
+						if (noiseImmission < 0.) {
+							noiseImmission = 0.;
 						}
+					}
+					
+					if (!(noiseLink.getEmissionPlusOneCar() == 0.)) {
+						noiseImmissionPlusOneCar = noiseLink.getEmissionPlusOneCar()
+								+ distanceCorrection + angleCorrection;
 						
-						if (!(noiseLink.getEmissionPlusOneHGV() == 0.)) {
-							noiseImmissionPlusOneHGV = noiseLink.getEmissionPlusOneHGV()
-									+ distanceCorrection + angleCorrection;
-							
-							if (noiseImmissionPlusOneHGV < 0.) {
-								noiseImmissionPlusOneHGV = 0.;
-							}
+						if (noiseImmissionPlusOneCar < 0.) {
+							noiseImmissionPlusOneCar = 0.;
 						}
-
 					}
-			 		
-			 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
-						throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
+					
+					if (!(noiseLink.getEmissionPlusOneHGV() == 0.)) {
+						noiseImmissionPlusOneHGV = noiseLink.getEmissionPlusOneHGV()
+								+ distanceCorrection + angleCorrection;
+						
+						if (noiseImmissionPlusOneHGV < 0.) {
+							noiseImmissionPlusOneHGV = 0.;
+						}
 					}
-			 		
-			 		immision.setLinkId2IsolatedImmission(linkId, noiseImmission);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, noiseImmissionPlusOneCar);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, noiseImmissionPlusOneHGV);
-			 	}
-			}
-			
-			double finalNoiseImmission = 0.;
-			Map<Id<Link>, Double> linkId2isolatedImmission = immision.getLinkId2IsolatedImmission();
-			if (linkId2isolatedImmission != null && !linkId2isolatedImmission.isEmpty()) {
-				finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(linkId2isolatedImmission.values());
-			}
-			
-			rp.setFinalImmission(finalNoiseImmission);
-			immision.setLinkId2IsolatedImmissionPlusOneCar(linkId2isolatedImmissionPlusOneCar);
-			immision.setLinkId2IsolatedImmissionPlusOneHGV(linkId2isolatedImmissionPlusOneHGV);
-			return immision;
-//		}
+
+				}
+		 		
+		 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
+					throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
+				}
+		 		
+		 		isolatedImmission[i] = noiseImmission;
+		 		isolatedImmissionPlusOneCar[i] = noiseImmissionPlusOneCar;
+		 		isolatedImmissionPlusOneHGV[i] = noiseImmissionPlusOneHGV;
+		 	}
+		}
+		
+		double finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(isolatedImmission, immision.size());
+		rp.setFinalImmission(finalNoiseImmission);
 	}
 	
 	/*
@@ -918,8 +1043,13 @@ public class NoiseTimeTracker implements PersonEntersVehicleEventHandler, LinkEn
 
 	public void computeFinalTimeIntervals() {
 
-		while (this.noiseContext.getCurrentTimeBinEndTime() <= Math.max(24. * 3600., this.noiseContext.getScenario().getConfig().qsim().getEndTime())) {
-			processTimeBin();			
+		try {
+			while (this.noiseContext.getCurrentTimeBinEndTime() <= Math.max(24. * 3600., this.noiseContext.getScenario().getConfig().qsim().getEndTime())) {
+				processTimeBin();			
+			}
+		} finally {
+			// the iteration is done; the threads are started again by the first time bin of the next one
+			shutdownExecutor();
 		}
 	}
 	
@@ -24,7 +24,11 @@ package org.matsim.contrib.noise;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -138,6 +142,58 @@ public class NoiseIT {
 		Assert.assertEquals("wrong immission angle correction for receiver point 8 and link0", immissionCorrection4, noiseContext.getReceiverPoints().get(Id.create("8", ReceiverPoint.class)).getLinkId2angleCorrection().get(Id.create("link0", Link.class)), MatsimTestUtils.EPSILON);
 	}
 	
+	// tests that the relevant links read from a receiver point link index file are the same as the computed ones
+	@Test
+	public final void test1WithIndexFile() throws IOException {
+		
+		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config1.xml";
+		Scenario scenario = ScenarioUtils.loadScenario(ConfigUtils.loadConfig(configFile, new NoiseConfigGroup()));
+		
+		NoiseConfigGroup noiseParameters = (NoiseConfigGroup) scenario.getConfig().getModule("noise");
+		noiseParameters.setReceiverPointGap(250.);
+		noiseParameters.setScaleFactor(1.);
+		noiseParameters.setConsideredActivitiesForDamageCalculationArray(new String[] {"home", "work"});
+		noiseParameters.setNumberOfThreadsReceiverPoints(2);
+		
+		String indexFile = testUtils.getOutputDirectory() + "receiverPointLinkIndex.bin";
+		noiseParameters.setReceiverPointLinkIndexFile(indexFile);
+		
+		NoiseContext computed = new NoiseContext(scenario);
+		Assert.assertTrue("index file not written", new java.io.File(indexFile).exists());
+		NoiseContext read = new NoiseContext(scenario);
+		
+		assertSameRelevantLinks(computed, read);
+		Assert.assertEquals("wrong relevant link for receiver point Id '15'", 3, read.getReceiverPoints().get(Id.create("15", ReceiverPoint.class)).getRelevantLinkIds().length);
+		
+		// a different relevant radius invalidates the index file
+		noiseParameters.setRelevantRadius(100.);
+		NoiseContext recomputed = new NoiseContext(scenario);
+		noiseParameters.setReceiverPointLinkIndexFile(null);
+		NoiseContext withoutIndexFile = new NoiseContext(scenario);
+		assertSameRelevantLinks(withoutIndexFile, recomputed);
+		
+		// truncated or foreign index files are ignored, and replaced by a recomputed index
+		noiseParameters.setReceiverPointLinkIndexFile(indexFile);
+		Path indexPath = Paths.get(indexFile);
+		byte[] bytes = Files.readAllBytes(indexPath);
+		Files.write(indexPath, Arrays.copyOf(bytes, bytes.length / 2));
+		assertSameRelevantLinks(withoutIndexFile, new NoiseContext(scenario));
+		Files.write(indexPath, "not an index".getBytes());
+		assertSameRelevantLinks(withoutIndexFile, new NoiseContext(scenario));
+		// the replaced file can be read again
+		assertSameRelevantLinks(withoutIndexFile, new NoiseContext(scenario));
+	}
+	
+	private static void assertSameRelevantLinks(NoiseContext expected, NoiseContext actual) {
+		Assert.assertEquals("wrong number of receiver points", expected.getReceiverPoints().size(), actual.getReceiverPoints().size());
+		for (NoiseReceiverPoint rp : expected.getReceiverPoints().values()) {
+			NoiseReceiverPoint rpActual = actual.getReceiverPoints().get(rp.getId());
+			Assert.assertArrayEquals("wrong relevant links for receiver point " + rp.getId(), rp.getRelevantLinkIds(), rpActual.getRelevantLinkIds());
+			Assert.assertArrayEquals("wrong distance corrections for receiver point " + rp.getId(), rp.getDistanceCorrections(), rpActual.getDistanceCorrections(), 0.);
+			Assert.assertArrayEquals("wrong angle corrections for receiver point " + rp.getId(), rp.getAngleCorrections(), rpActual.getAngleCorrections(), 0.);
+		}
+	}
+	
 	// tests the noise emissions, immissions, considered agent units, damages (receiver points), damages (per link), damages (per vehicle) based on the generated *.csv output
 	// tests the noise events applying the average cost allocation approach
 	@Test
@@ -1025,6 +1081,64 @@ public class NoiseIT {
 		
 	 }
 	
+	// same setup as 2b, comparing the sequential and the parallel receiver point computation
+	@Test
+	public final void test2bParallel(){
+		
+		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
+		Config runConfig = ConfigUtils.loadConfig( configFile ) ;
+		runConfig.controler().setOutputDirectory(testUtils.getOutputDirectory());
+		runConfig.plansCalcRoute().setInsertingAccessEgressWalk(false);
+		
+		Controler controler = new Controler(runConfig);
+		controler.getConfig().controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists );
+		controler.run();
+		
+		String runDirectory = controler.getConfig().controler().getOutputDirectory() + "/";
+		
+		NoiseOfflineCalculation sequential = runOfflineNoiseCalculation(runDirectory, controler.getConfig().controler().getLastIteration(), 1);
+		NoiseOfflineCalculation parallel = runOfflineNoiseCalculation(runDirectory, controler.getConfig().controler().getLastIteration(), 3);
+		
+		List<NoiseEventCaused> causedSequential = sequential.getTimeTracker().getNoiseEventsCaused();
+		List<NoiseEventCaused> causedParallel = parallel.getTimeTracker().getNoiseEventsCaused();
+		Assert.assertFalse("No event found to be tested.", causedSequential.isEmpty());
+		Assert.assertEquals("Wrong number of caused noise events.", causedSequential.size(), causedParallel.size());
+		for (int i = 0; i < causedSequential.size(); i++) {
+			Assert.assertEquals("Different caused noise events.", causedSequential.get(i).getAttributes(), causedParallel.get(i).getAttributes());
+		}
+		
+		List<NoiseEventAffected> affectedSequential = sequential.getTimeTracker().getNoiseEventsAffected();
+		List<NoiseEventAffected> affectedParallel = parallel.getTimeTracker().getNoiseEventsAffected();
+		Assert.assertFalse("No event found to be tested.", affectedSequential.isEmpty());
+		Assert.assertEquals("Wrong number of affected noise events.", affectedSequential.size(), affectedParallel.size());
+		for (int i = 0; i < affectedSequential.size(); i++) {
+			Assert.assertEquals("Different affected noise events.", affectedSequential.get(i).getAttributes(), affectedParallel.get(i).getAttributes());
+		}
+		
+		Assert.assertEquals("Different total caused noise cost.", sequential.getTimeTracker().getTotalCausedNoiseCost(), parallel.getTimeTracker().getTotalCausedNoiseCost(), 0.);
+		Assert.assertEquals("Different total affected noise cost.", sequential.getTimeTracker().getTotalAffectedNoiseCost(), parallel.getTimeTracker().getTotalAffectedNoiseCost(), 0.);
+	}
+	
+	private static NoiseOfflineCalculation runOfflineNoiseCalculation(String runDirectory, int lastIteration, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig(new NoiseConfigGroup());
+		config.network().setInputFile(runDirectory + "output_network.xml.gz");
+		config.plans().setInputFile(runDirectory + "output_plans.xml.gz");
+		config.controler().setOutputDirectory(runDirectory);
+		config.controler().setLastIteration(lastIteration);
+		
+		NoiseConfigGroup noiseParameters = (NoiseConfigGroup) config.getModule("noise");
+		noiseParameters.setReceiverPointGap(100.);
+		noiseParameters.setConsideredActivitiesForDamageCalculationArray(new String[] {"home", "work"});
+		noiseParameters.setScaleFactor(1.);
+		noiseParameters.setNoiseAllocationApproach(NoiseAllocationApproach.MarginalCost);
+		noiseParameters.setNumberOfThreadsReceiverPoints(numberOfThreads);
+		
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		NoiseOfflineCalculation noiseCalculation = new NoiseOfflineCalculation(scenario, runDirectory);
+		noiseCalculation.run();
+		return noiseCalculation;
+	}
+	
 	// same test as 2a, but using the actual speed level
 	@Test
 	public final void test2c(){
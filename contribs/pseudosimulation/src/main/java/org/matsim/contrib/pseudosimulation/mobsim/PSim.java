@@ -3,13 +3,18 @@
  */
 package org.matsim.contrib.pseudosimulation.mobsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -36,7 +41,6 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.contrib.pseudosimulation.mobsim.transitperformance.TransitEmulator;
-import org.matsim.contrib.pseudosimulation.util.CollectionUtils;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.ConfigUtils;
@@ -70,11 +74,24 @@ public class PSim implements Mobsim {
 
     private final static double MIN_LEG_DURATION = 0.0;
 
-    private final SimThread[] threads;
+    /*
+     * the plans are simulated in batches of at least this size, and about this many batches per thread
+     */
+    private final static int MIN_BATCH_SIZE = 16;
+
+    private final static int BATCHES_PER_THREAD = 8;
+
+    /*
+     * the length of the time windows in which the events are passed on, in seconds
+     */
+    private final static double EVENTS_WINDOW = 900;
+
+    private final static Comparator<Event> EVENT_TIME_COMPARATOR = Comparator.comparingDouble(Event::getTime);
+
+    private final int numThreads;
     private final double beelineDistanceFactor;
 //    private TransitPerformance transitPerformance;
 //    private boolean isUseTransit;
-    AtomicInteger numThreads;
 
     private final double walkSpeed;
 
@@ -95,11 +112,7 @@ public class PSim implements Mobsim {
         this.scenario = sc;
         this.endTime = sc.getConfig().qsim().getEndTime();
         this.eventManager = eventsManager;
-        int numThreads = Integer.parseInt(sc.getConfig().getParam("global", "numberOfThreads"));
-        threads = new SimThread[numThreads];
-        for (int i = 0; i < numThreads; i++)
-            threads[i] = new SimThread();
-
+        this.numThreads = Math.max(1, Integer.parseInt(sc.getConfig().getParam("global", "numberOfThreads")));
 
         PlansCalcRouteConfigGroup pcrConfig = sc.getConfig().plansCalcRoute();
         this.beelineDistanceFactor = pcrConfig.getModeRoutingParams().get( TransportMode.walk ).getBeelineDistanceFactor();
@@ -140,106 +153,259 @@ public class PSim implements Mobsim {
 
         Logger.getLogger(this.getClass()).error("Executing " + plans.size() + " plans in pseudosimulation.");
 
-        Network network = scenario.getNetwork();
-
-		/*
-         * split collection in approx even segments
-		 */
-        int n = Math.min(plans.size(), threads.length);
-        List<Plan>[] segments = CollectionUtils.split(plans, n);
-		/*
-		 * submit tasks
-		 */
-        numThreads = new AtomicInteger(threads.length);
-        for (int i = 0; i < segments.length; i++) {
-            threads[i].init(segments[i], network, eventManager);
-            new Thread(threads[i]).start();
+        List<PlanState> states = new ArrayList<>(plans.size());
+        for (Plan plan : plans) {
+            states.add(new PlanState(plan));
+        }
+        if (states.isEmpty()) {
+            return;
         }
 		/*
-		 * wait for threads
+		 * cut the plans into batches, several per thread, so that threads which are done early
+		 * take over batches of the others. The events do not depend on which thread
+		 * simulates which batch.
 		 */
-        while (numThreads.get() > 0) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        int batchSize = Math.max(MIN_BATCH_SIZE, states.size() / (numThreads * BATCHES_PER_THREAD));
+        int numBatches = (states.size() + batchSize - 1) / batchSize;
+        @SuppressWarnings("unchecked")
+        List<Event>[] eventBuffers = new List[numBatches];
+        for (int i = 0; i < numBatches; i++) {
+            eventBuffers[i] = new ArrayList<>();
+        }
+        double[] nextEventTimes = new double[numBatches];
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(numThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("PSim_Thread_" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        try {
+			/*
+			 * simulate all plans up to the end of a window, and pass the events of the window on before
+			 * simulating the next one, so that only the events of one window are kept
+			 */
+            double windowEnd = EVENTS_WINDOW;
+            while (true) {
+                // returns when all batches are simulated up to the end of the window
+                forkJoinPool.invoke(new SimBatchesTask(states, eventBuffers, nextEventTimes, windowEnd, 0, numBatches, batchSize));
+                processEvents(eventBuffers);
+
+                double nextEventTime = Double.POSITIVE_INFINITY;
+                for (double time : nextEventTimes) {
+                    nextEventTime = Math.min(nextEventTime, time);
+                }
+                if (nextEventTime == Double.POSITIVE_INFINITY) {
+                    break;
+                }
+                // skip windows without events
+                windowEnd = Math.max(windowEnd, nextEventTime) + EVENTS_WINDOW;
             }
+        } finally {
+            forkJoinPool.shutdown();
         }
     }
 
-    public class SimThread implements Runnable {
+    /**
+     * Passes the events of all batches to the events manager, ordered by time, then by batch, and
+     * empties the buffers.
+     */
+    private void processEvents(final List<Event>[] eventBuffers) {
+        final int[] positions = new int[eventBuffers.length];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, eventBuffers.length), (b1, b2) -> {
+            int c = Double.compare(eventBuffers[b1].get(positions[b1]).getTime(), eventBuffers[b2].get(positions[b2]).getTime());
+            return c != 0 ? c : Integer.compare(b1, b2);
+        });
+        for (int i = 0; i < eventBuffers.length; i++) {
+            if (!eventBuffers[i].isEmpty()) {
+                heads.add(i);
+            }
+        }
+        while (!heads.isEmpty()) {
+            int batch = heads.poll();
+            List<Event> buffer = eventBuffers[batch];
+            eventManager.processEvent(buffer.get(positions[batch]));
+            if (++positions[batch] < buffer.size()) {
+                heads.add(batch);
+            } else {
+                buffer.clear();
+            }
+        }
+    }
 
-        private Collection<Plan> threadPlans;
+    private class SimBatchesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<PlanState> states;
+        private final List<Event>[] eventBuffers;
+        private final double[] nextEventTimes;
+        private final double windowEnd;
+        private final int fromBatch;
+        private final int toBatch;
+        private final int batchSize;
+
+        SimBatchesTask(List<PlanState> states, List<Event>[] eventBuffers, double[] nextEventTimes, double windowEnd,
+                int fromBatch, int toBatch, int batchSize) {
+            this.states = states;
+            this.eventBuffers = eventBuffers;
+            this.nextEventTimes = nextEventTimes;
+            this.windowEnd = windowEnd;
+            this.fromBatch = fromBatch;
+            this.toBatch = toBatch;
+            this.batchSize = batchSize;
+        }
 
-        private EventsManager eventManager;
+        @Override
+        protected void compute() {
+            if (this.toBatch - this.fromBatch > 1) {
+                int middle = (this.fromBatch + this.toBatch) >>> 1;
+                invokeAll(new SimBatchesTask(this.states, this.eventBuffers, this.nextEventTimes, this.windowEnd, this.fromBatch, middle, this.batchSize),
+                        new SimBatchesTask(this.states, this.eventBuffers, this.nextEventTimes, this.windowEnd, middle, this.toBatch, this.batchSize));
+                return;
+            }
+            int from = this.fromBatch * this.batchSize;
+            int to = Math.min(from + this.batchSize, this.states.size());
+            List<Event> buffer = this.eventBuffers[this.fromBatch];
+            PlanSimulator simulator = new PlanSimulator(scenario.getNetwork(), buffer);
+            double nextEventTime = Double.POSITIVE_INFINITY;
+            for (PlanState state : this.states.subList(from, to)) {
+                simulator.simulate(state, this.windowEnd);
+                nextEventTime = Math.min(nextEventTime, state.getNextEventTime());
+            }
+            // stable, so events of the same time stay in the order of the plans
+            buffer.sort(EVENT_TIME_COMPARATOR);
+            this.nextEventTimes[this.fromBatch] = nextEventTime;
+        }
+    }
 
-        private Network network;
+    /**
+     * How far a plan is simulated: the events which are simulated, but not yet passed on, and the next
+     * activity to simulate together with the leg before it.
+     */
+    private class PlanState {
 
-        public void init(Collection<Plan> plans, Network network, EventsManager eventManager) {
-            this.threadPlans = plans;
+        private final Plan plan;
+        private final Queue<Event> eventQueue = new LinkedList<>();
+        private int idx = 0;
+        private double prevEndTime = 0;
+        private boolean done = false;
+
+        PlanState(Plan plan) {
+            this.plan = plan;
+        }
+
+        /**
+         * @return the earliest time of an event which is not yet passed on, a lower bound if the next activity
+         *         is not yet simulated, {@link Double#POSITIVE_INFINITY} if there is none
+         */
+        double getNextEventTime() {
+            Event event = this.eventQueue.peek();
+            if (event != null) {
+                // an event after the end time is replaced by a stuck event
+                return Math.min(event.getTime(), endTime);
+            }
+            if (this.done || this.idx >= this.plan.getPlanElements().size()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return Math.min(this.prevEndTime, endTime);
+        }
+    }
+
+    /**
+     * Simulates plans and collects their events in a buffer of the calling thread.
+     */
+    private class PlanSimulator {
+
+        private final Network network;
+
+        private final List<Event> eventBuffer;
+
+        PlanSimulator(Network network, List<Event> eventBuffer) {
             this.network = network;
-            this.eventManager = eventManager;
+            this.eventBuffer = eventBuffer;
         }
 
-        @Override
-        public void run() {
-            PLANS:
-            for (Plan plan : threadPlans) {
-                Queue<Event> eventQueue = new LinkedList<>();
-                Id personId = plan.getPerson().getId();
-                List<PlanElement> elements = plan.getPlanElements();
-
-                double prevEndTime = 0;
-                LEGS:
-                for (int idx = 0; idx < elements.size(); idx += 2) {
-                    Activity act = (Activity) elements.get(idx);
-					/*
-					 * Make sure that the activity does not end before the
-					 * previous activity.
-					 */
-                    double actEndTime = Math.max(prevEndTime + MIN_ACT_DURATION, act.getEndTime());
-
-                    if (idx > 0) {
-						/*
-						 * If this is not the first activity, then there must
-						 * exist a leg before.
-						 */
-
-                        Leg prevLeg = (Leg) elements.get(idx - 1);
-                        Activity prevAct = (Activity) elements.get(idx - 2);
-                        double travelTime = 0.0;
-                        if (prevLeg.getMode().equals(TransportMode.car)) {
-                            try {
-                                eventQueue.add(new PersonEntersVehicleEvent(prevEndTime, personId, personId));
-                                eventQueue.add(new VehicleEntersTrafficEvent(prevEndTime,personId, prevLeg.getRoute().getStartLinkId(),personId, TransportMode.car,1.0));
-                                NetworkRoute croute = (NetworkRoute) prevLeg.getRoute();
-
-                                travelTime = calcRouteTravelTime(croute, prevEndTime, carLinkTravelTimes, network, eventQueue, personId);
-                                eventQueue.add(new VehicleLeavesTrafficEvent(prevEndTime + travelTime,personId, prevLeg.getRoute().getEndLinkId(),personId, TransportMode.car,1.0));
-                                eventQueue.add(new PersonLeavesVehicleEvent(prevEndTime + travelTime, personId, personId));
-                            } catch (NullPointerException ne) {
-                                Logger.getLogger(this.getClass()).error("No route for car leg. Continuing with next leg");
-                                continue;
-                            }
-                        } else if (prevLeg.getMode().equals(TransportMode.transit_walk)) {
-                            TransitWalkTimeAndDistance tnd = new TransitWalkTimeAndDistance(act.getCoord(), prevAct.getCoord());
-                            travelTime = tnd.time;
-                            eventQueue.add(new TeleportationArrivalEvent(prevEndTime + tnd.time, personId, tnd.distance));
+        /**
+         * Simulates the plan until its next event is at or after the end of the window, and adds the events
+         * before it to the buffer.
+         */
+        void simulate(PlanState state, double windowEnd) {
+            while (state.getNextEventTime() < windowEnd) {
+                Event event = state.eventQueue.peek();
+                if (event == null) {
+                    if (!step(state)) {
+                        state.done = true;
+                    }
+                } else if (event.getTime() > endTime) {
+                    eventBuffer.add(new PersonStuckEvent(endTime, state.plan.getPerson().getId(), null, null));
+                    state.eventQueue.clear();
+                    state.done = true;
+                } else {
+                    eventBuffer.add(state.eventQueue.poll());
+                }
+            }
+        }
+
+        /**
+         * Simulates the next activity of the plan and the leg before it, and adds their events to its queue.
+         *
+         * @return <code>false</code> if the rest of the plan cannot be simulated
+         */
+        private boolean step(PlanState state) {
+            Queue<Event> eventQueue = state.eventQueue;
+            Id personId = state.plan.getPerson().getId();
+            List<PlanElement> elements = state.plan.getPlanElements();
+            int idx = state.idx;
+            double prevEndTime = state.prevEndTime;
+
+            Activity act = (Activity) elements.get(idx);
+			/*
+			 * Make sure that the activity does not end before the
+			 * previous activity.
+			 */
+            double actEndTime = Math.max(prevEndTime + MIN_ACT_DURATION, act.getEndTime());
+
+            if (idx > 0) {
+				/*
+				 * If this is not the first activity, then there must
+				 * exist a leg before.
+				 */
+
+                Leg prevLeg = (Leg) elements.get(idx - 1);
+                Activity prevAct = (Activity) elements.get(idx - 2);
+                double travelTime = 0.0;
+                if (prevLeg.getMode().equals(TransportMode.car)) {
+                    try {
+                        eventQueue.add(new PersonEntersVehicleEvent(prevEndTime, personId, personId));
+                        eventQueue.add(new VehicleEntersTrafficEvent(prevEndTime,personId, prevLeg.getRoute().getStartLinkId(),personId, TransportMode.car,1.0));
+                        NetworkRoute croute = (NetworkRoute) prevLeg.getRoute();
+
+                        travelTime = calcRouteTravelTime(croute, prevEndTime, carLinkTravelTimes, network, eventQueue, personId);
+                        eventQueue.add(new VehicleLeavesTrafficEvent(prevEndTime + travelTime,personId, prevLeg.getRoute().getEndLinkId(),personId, TransportMode.car,1.0));
+                        eventQueue.add(new PersonLeavesVehicleEvent(prevEndTime + travelTime, personId, personId));
+                    } catch (NullPointerException ne) {
+                        Logger.getLogger(this.getClass()).error("No route for car leg. Continuing with next leg");
+                        state.idx = idx + 2;
+                        return true;
+                    }
+                } else if (prevLeg.getMode().equals(TransportMode.transit_walk)) {
+                    TransitWalkTimeAndDistance tnd = new TransitWalkTimeAndDistance(act.getCoord(), prevAct.getCoord());
+                    travelTime = tnd.time;
+                    eventQueue.add(new TeleportationArrivalEvent(prevEndTime + tnd.time, personId, tnd.distance));
 //                        } else if (prevLeg.getMode().equals(TransportMode.pt)) {
-                        } else if (transitModes.contains(prevLeg.getMode())) {
-                        	TransitEmulator.Trip trip = transitEmulator.findTrip(prevLeg, prevEndTime);
-                        	if (trip != null) {
+                } else if (transitModes.contains(prevLeg.getMode())) {
+                	TransitEmulator.Trip trip = transitEmulator.findTrip(prevLeg, prevEndTime);
+                	if (trip != null) {
 //                        	if (isUseTransit) {                            	
-                            	
+                    	
 //                        		Id dummyVehicleId = Id.create("dummy", TransitVehicle.class);
-                        		Id<Vehicle> vehicleId = trip.vehicleId();
-                        		if (vehicleId == null) {
-                        			vehicleId = Id.create("dummy", Vehicle.class);
-                        		}
-                                eventQueue.add(new PersonEntersVehicleEvent(trip.accessTime_s(), personId, vehicleId)); // dummyVehicleId));
-                                eventQueue.add(new PersonLeavesVehicleEvent(trip.egressTime_s(), personId, vehicleId)); // dummyVehicleId));
-                                travelTime = trip.egressTime_s() - prevEndTime;
-                            	
+                		Id<Vehicle> vehicleId = trip.vehicleId();
+                		if (vehicleId == null) {
+                			vehicleId = Id.create("dummy", Vehicle.class);
+                		}
+                        eventQueue.add(new PersonEntersVehicleEvent(trip.accessTime_s(), personId, vehicleId)); // dummyVehicleId));
+                        eventQueue.add(new PersonLeavesVehicleEvent(trip.egressTime_s(), personId, vehicleId)); // dummyVehicleId));
+                        travelTime = trip.egressTime_s() - prevEndTime;
+                    	
 //                                ExperimentalTransitRoute route = (ExperimentalTransitRoute) prevLeg.getRoute();
 //                                Id accessStopId = route.getAccessStopId();
 //                                Id egressStopId = route.getEgressStopId();
@@ -258,75 +424,67 @@ public class PSim implements Mobsim {
 //                                    travelTime += routeTravelTime.getSecond();
 //                                    eventQueue.add(new PersonLeavesVehicleEvent(prevEndTime + travelTime, personId, dummyVehicleId));
 //                                }                                
-                                
-                            }
-                        } else {
-                            try {
-                                Route route = prevLeg.getRoute();
-                                travelTime = route.getTravelTime();
-                                eventQueue.add(new TeleportationArrivalEvent(prevEndTime + travelTime, personId, 
-                                		route.getDistance()
-                                		// Double.NaN
-                                		));
-                            } catch (NullPointerException e) {
-                                Logger.getLogger(this.getClass()).error("No route for this leg. Continuing with next leg");
-                                continue;
-                            }
-                        }
-
-                        travelTime = Math.max(MIN_LEG_DURATION, travelTime);
-                        double arrivalTime = travelTime + prevEndTime;
-
-						/*
-						 * Make sure that the activity does not end before the
-						 * agent arrives.
-						 */
-                        actEndTime = Math.max(arrivalTime + MIN_ACT_DURATION, actEndTime);
-						/*
-						 * If act end time is not specified...
-						 */
-                        if (Double.isInfinite(actEndTime)) {
-                            // if(transitPerformance!=null){
-                            if (transitEmulator != null) {
-                                //this guy is stuck, will be caught in events handling outside the loop
-                                break;
-                            }else
-                                throw new RuntimeException("I think this is discuraged.");
-                        }
-						/*
-						 * Send arrival and activity start events.
-						 */
-                        PersonArrivalEvent arrivalEvent = new PersonArrivalEvent(arrivalTime, personId, act.getLinkId(), prevLeg.getMode());
-                        eventQueue.add(arrivalEvent);
-                        ActivityStartEvent startEvent = new ActivityStartEvent(arrivalTime, personId, act.getLinkId(), act.getFacilityId(), act.getType());
-                        eventQueue.add(startEvent);
+                        
                     }
-
-                    if (idx < elements.size() - 1) {
-						/*
-						 * This is not the last activity, send activity end and
-						 * departure events.
-						 */
-                        Leg nextLeg = (Leg) elements.get(idx + 1);
-                        ActivityEndEvent endEvent = new ActivityEndEvent(actEndTime, personId, act.getLinkId(), act.getFacilityId(), act.getType());
-                        eventQueue.add(endEvent);
-                        PersonDepartureEvent departureEvent = new PersonDepartureEvent(actEndTime, personId, act.getLinkId(), nextLeg.getMode());
-
-                        eventQueue.add(departureEvent);
+                } else {
+                    try {
+                        Route route = prevLeg.getRoute();
+                        travelTime = route.getTravelTime();
+                        eventQueue.add(new TeleportationArrivalEvent(prevEndTime + travelTime, personId, 
+                        		route.getDistance()
+                        		// Double.NaN
+                        		));
+                    } catch (NullPointerException e) {
+                        Logger.getLogger(this.getClass()).error("No route for this leg. Continuing with next leg");
+                        state.idx = idx + 2;
+                        return true;
                     }
-
-                    prevEndTime = actEndTime;
                 }
-                for (Event event : eventQueue) {
-                    if (event.getTime() > endTime) {
-                        eventManager.processEvent(new PersonStuckEvent(endTime, personId, null, null));
-                        break;
-                    }
-                    eventManager.processEvent(event);
+
+                travelTime = Math.max(MIN_LEG_DURATION, travelTime);
+                double arrivalTime = travelTime + prevEndTime;
+
+				/*
+				 * Make sure that the activity does not end before the
+				 * agent arrives.
+				 */
+                actEndTime = Math.max(arrivalTime + MIN_ACT_DURATION, actEndTime);
+				/*
+				 * If act end time is not specified...
+				 */
+                if (Double.isInfinite(actEndTime)) {
+                    // if(transitPerformance!=null){
+                    if (transitEmulator != null) {
+                        //this guy is stuck, will be caught in events handling outside the loop
+                        return false;
+                    }else
+                        throw new RuntimeException("I think this is discuraged.");
                 }
+				/*
+				 * Send arrival and activity start events.
+				 */
+                PersonArrivalEvent arrivalEvent = new PersonArrivalEvent(arrivalTime, personId, act.getLinkId(), prevLeg.getMode());
+                eventQueue.add(arrivalEvent);
+                ActivityStartEvent startEvent = new ActivityStartEvent(arrivalTime, personId, act.getLinkId(), act.getFacilityId(), act.getType());
+                eventQueue.add(startEvent);
+            }
+
+            if (idx < elements.size() - 1) {
+				/*
+				 * This is not the last activity, send activity end and
+				 * departure events.
+				 */
+                Leg nextLeg = (Leg) elements.get(idx + 1);
+                ActivityEndEvent endEvent = new ActivityEndEvent(actEndTime, personId, act.getLinkId(), act.getFacilityId(), act.getType());
+                eventQueue.add(endEvent);
+                PersonDepartureEvent departureEvent = new PersonDepartureEvent(actEndTime, personId, act.getLinkId(), nextLeg.getMode());
+
+                eventQueue.add(departureEvent);
             }
 
-            numThreads.decrementAndGet();
+            state.prevEndTime = actEndTime;
+            state.idx = idx + 2;
+            return true;
         }
 
 //        private double findTransitTravelTime(ExperimentalTransitRoute route, double prevEndTime) {
@@ -0,0 +1,87 @@
+package org.matsim.contrib.pseudosimulation.mobsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+public class PSimTest {
+
+	@Test
+	public void testEventsInTimeOrder() {
+		List<Event> events = runPSim(4);
+		Assert.assertFalse(events.isEmpty());
+		for (int i = 1; i < events.size(); i++) {
+			Assert.assertTrue("event " + i + " is before its predecessor", events.get(i - 1).getTime() <= events.get(i).getTime());
+		}
+		// the events span several windows
+		Assert.assertTrue(events.get(events.size() - 1).getTime() - events.get(0).getTime() > 3600);
+	}
+
+	@Test
+	public void testSameEventsAsSingleThread() {
+		List<Event> expected = runPSim(1);
+		for (int threads : new int[] {2, 4}) {
+			List<Event> events = runPSim(threads);
+			Assert.assertEquals(expected.size(), events.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals("event " + i + " with " + threads + " threads", expected.get(i).toString(), events.get(i).toString());
+			}
+		}
+	}
+
+	/**
+	 * Runs the selected plans of the equil scenario, each of them copied ten times.
+	 */
+	private static List<Event> runPSim(int threads) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.global().setNumberOfThreads(threads);
+		config.qsim().setEndTime(30 * 3600);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		List<Plan> plans = new ArrayList<>();
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			for (int i = 0; i < 10; i++) {
+				Person copy = factory.createPerson(Id.createPersonId(person.getId() + "_" + i));
+				Plan plan = factory.createPlan();
+				PopulationUtils.copyFromTo(person.getSelectedPlan(), plan);
+				copy.addPlan(plan);
+				plans.add(plan);
+			}
+		}
+
+		List<Event> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		new PSim(scenario, eventsManager, plans, new FreeSpeedTravelTime()).run();
+		return events;
+	}
+
+}
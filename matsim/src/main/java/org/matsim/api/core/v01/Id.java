@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,11 +37,20 @@ import org.matsim.vehicles.Vehicle;
  * Note that Ids should not contain any whitespace characters (spaces, tabs, newlines, ...), 
  * as this may lead to problems when Ids are written to file and read back in.
  * 
+ * Ids are cached per type, so there is only one Id object per type and key. Every Id also
+ * has an {@link #index()}, which numbers the Ids of one type densely in the order of their
+ * creation; {@link IdMap} and {@link IdSet} use it to store Ids in arrays instead of hash tables.
+ * 
  *  @author mrieser / Senozon AG
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static ClassValue<IdCache> cache = new ClassValue<IdCache>() {
+		@Override
+		protected IdCache computeValue(Class<?> type) {
+			return new IdCache(type);
+		}
+	};
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -58,21 +68,54 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
+		IdCache idCache = cache.get(type);
+		Id<?> id = idCache.ids.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			id = idCache.add(key);
 		}
 		
 		return (Id<T>) id;
 	}
 	
+	/**
+	 * @return the Id of the given type with the given index
+	 * 
+	 * @throws IndexOutOfBoundsException if there is no such Id (yet)
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (index >= idCache.size) {
+			throw new IndexOutOfBoundsException("there are only " + idCache.size + " ids of type " + type.getName() + ", but index " + index + " was requested");
+		}
+		return (Id<T>) idCache.byIndex[index];
+	}
+	
+	/**
+	 * @return the number of Ids of the given type created so far, i.e. one more than the largest index
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		return cache.get(type).size;
+	}
+	
+	/**
+	 * @return the index of the Id of the given type with the same key as the given Id, or <code>-1</code> if there is none
+	 */
+	/*package*/ static int getIndex(final Id<?> id, final Class<?> type) {
+		if (id.getType() == type) {
+			return id.index();
+		}
+		Id<?> other = cache.get(type).ids.get(id.toString());
+		return other == null ? -1 : other.index();
+	}
+	
+	/**
+	 * @return the position of this Id among all Ids of the same type, starting at <code>0</code>
+	 */
+	public abstract int index();
+	
+	/*package*/ abstract Class<?> getType();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -80,6 +123,9 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 */
 	@Override
 	public int compareTo(Id<T> o) throws IllegalArgumentException {
+		if (this == o) {
+			return 0;
+		}
 		int res = this.toString().compareTo(o.toString());
 //		if (res == 0) {   // FIXME temporary relax the check until the Id migration has taken place
 //			if (equals(o)) {
@@ -92,8 +138,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	
 	@Override
 	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof Id) {
-			return this.compareTo((Id) obj) == 0;
+			Id<?> other = (Id<?>) obj;
+			if (other.getType() == this.getType()) {
+				// there is only one Id per type and key
+				return false;
+			}
+			return this.toString().equals(other.toString());
 		}
 		return false;
 //		return this == obj; // FIXME temporary relax the check until the Id migration has taken place
@@ -113,9 +167,23 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final Class<?> type;
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final Class<?> type, final int index) {
 			this.id = id;
+			this.type = type;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
+		}
+
+		@Override
+		Class<?> getType() {
+			return this.type;
 		}
 
 		@Override
@@ -129,6 +197,37 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 	
+	/**
+	 * The Ids of one type, by key and by index. Ids are only added, never removed.
+	 */
+	private static final class IdCache {
+
+		private final Class<?> type;
+		private final Map<String, Id<?>> ids = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] byIndex = new Id<?>[16];
+		private volatile int size = 0;
+
+		IdCache(final Class<?> type) {
+			this.type = type;
+		}
+
+		synchronized Id<?> add(final String key) {
+			Id<?> id = this.ids.get(key);
+			if (id == null) {
+				int index = this.size;
+				if (index == this.byIndex.length) {
+					this.byIndex = Arrays.copyOf(this.byIndex, index * 2);
+				}
+				id = new IdImpl<Object>(key, this.type, index);
+				this.byIndex[index] = id;
+				// the size is written last, so readers which see the new size also see the id
+				this.size = index + 1;
+				this.ids.put(key, id);
+			}
+			return id;
+		}
+	}
+	
 	public static <T> String writeId( Id<T> id ) {
 		if ( id==null ) {
 			return "null" ;
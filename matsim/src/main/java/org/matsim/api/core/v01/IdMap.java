@@ -0,0 +1,270 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with {@link Id}s of one type as keys, backed by an array indexed by {@link Id#index()}.
+ * Lookups are plain array accesses instead of hash table probes, and the entries are iterated in
+ * the order of the indices, i.e. in the order in which the Ids were created.
+ * <p>
+ * The map needs memory in proportion to the number of Ids of its type, not to its own size, so it
+ * is best suited for keys which cover a large part of all Ids of their type, e.g. all links of the
+ * network. <code>null</code> values are not supported.
+ *
+ * @param <T> the type of the Ids
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private final Class<T> type;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+	private EntrySet entrySet = null;
+
+	public IdMap(final Class<T> type) {
+		this(type, Id.getNumberOfIds(type));
+	}
+
+	public IdMap(final Class<T> type, final int initialCapacity) {
+		this.type = type;
+		this.data = new Object[Math.max(initialCapacity, 16)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return get(key) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		return index >= 0 && index < this.data.length ? (V) this.data[index] : null;
+	}
+
+	/**
+	 * @return the value of the Id with the given index, or <code>null</code> if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final int index) {
+		return index < this.data.length ? (V) this.data[index] : null;
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		if (value == null) {
+			throw new NullPointerException("null values are not supported, use remove() instead");
+		}
+		int index = indexOf(key);
+		if (index < 0) {
+			// as with a hash map, an id of another type but with the same key must be found again
+			index = Id.create(key.toString(), this.type).index();
+		}
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, this.data.length * 2));
+		}
+		@SuppressWarnings("unchecked")
+		V old = (V) this.data[index];
+		this.data[index] = value;
+		if (old == null) {
+			this.size++;
+			this.modCount++;
+		}
+		return old;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? removeAt(index) : null;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+		return this.entrySet;
+	}
+
+	private int indexOf(final Object key) {
+		if (key instanceof Id) {
+			return Id.getIndex((Id<?>) key, this.type);
+		}
+		return -1;
+	}
+
+	private V removeAt(final int index) {
+		if (index >= this.data.length) {
+			return null;
+		}
+		@SuppressWarnings("unchecked")
+		V old = (V) this.data[index];
+		if (old != null) {
+			this.data[index] = null;
+			this.size--;
+			this.modCount++;
+		}
+		return old;
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<Id<T>, V>> {
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Map.Entry<Id<T>, V>> iterator() {
+			return new EntryIterator();
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+
+		private int expectedModCount = IdMap.this.modCount;
+		private int next = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			do {
+				this.next++;
+			} while (this.next < IdMap.this.data.length && IdMap.this.data[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			return new Entry(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(this.current);
+			this.current = -1;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private final class Entry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+
+		Entry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return Id.get(this.index, IdMap.this.type);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue() {
+			return (V) IdMap.this.data[this.index];
+		}
+
+		@Override
+		public V setValue(final V value) {
+			if (value == null) {
+				throw new NullPointerException("null values are not supported");
+			}
+			V old = getValue();
+			IdMap.this.data[this.index] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ getValue().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
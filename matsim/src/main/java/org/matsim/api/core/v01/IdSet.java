@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link Id}s of one type, backed by a bit set indexed by {@link Id#index()}. The Ids
+ * are iterated in the order in which they were created.
+ *
+ * @param <T> the type of the Ids
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> type;
+	private final BitSet bits;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> type) {
+		this(type, Id.getNumberOfIds(type));
+	}
+
+	public IdSet(final Class<T> type, final int initialCapacity) {
+		this.type = type;
+		this.bits = new BitSet(Math.max(initialCapacity, 64));
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && this.bits.get(index);
+	}
+
+	/**
+	 * @return whether the set contains the Id with the given index
+	 */
+	public boolean contains(final int index) {
+		return this.bits.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = indexOf(id);
+		if (index < 0) {
+			// as with a hash set, an id of another type but with the same key must be found again
+			index = Id.create(id.toString(), this.type).index();
+		}
+		if (this.bits.get(index)) {
+			return false;
+		}
+		this.bits.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && removeAt(index);
+	}
+
+	@Override
+	public void clear() {
+		this.bits.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+			private int expectedModCount = IdSet.this.modCount;
+			private int next = IdSet.this.bits.nextSetBit(0);
+			private int current = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = IdSet.this.bits.nextSetBit(this.current + 1);
+				return Id.get(this.current, IdSet.this.type);
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0) {
+					throw new IllegalStateException();
+				}
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				removeAt(this.current);
+				this.current = -1;
+				this.expectedModCount = IdSet.this.modCount;
+			}
+		};
+	}
+
+	private int indexOf(final Object o) {
+		if (o instanceof Id) {
+			return Id.getIndex((Id<?>) o, this.type);
+		}
+		return -1;
+	}
+
+	private boolean removeAt(final int index) {
+		if (!this.bits.get(index)) {
+			return false;
+		}
+		this.bits.clear(index);
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+}
@@ -112,7 +112,7 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 	}
 
 
-	private static void checkTravelTimeCalculationRoutingConfiguration(final Config config){
+	/*package*/ static void checkTravelTimeCalculationRoutingConfiguration(final Config config){
 		if (config.controler().isLinkToLinkRoutingEnabled() &&
 				!config.travelTimeCalculator().isCalculateLinkToLinkTravelTimes()){
 			throw new IllegalStateException("LinkToLinkRouting is activated in config and" +
@@ -143,6 +143,13 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 				config.controler().getRoutingAlgorithmType() != RoutingAlgorithmType.Dijkstra ) {
 			log.warn("We don't know if non-Dijkstra routing works together with LinkToLink routing.");
 		}
+
+		if ( config.controler().getRoutingAlgorithmType() == RoutingAlgorithmType.ContractionHierarchies &&
+				config.plansCalcRoute().getRoutingRandomness() != 0. ) {
+			// the hierarchy is customized with link costs computed without a person, which the randomizing travel disutility refuses
+			throw new IllegalStateException("Routing with contraction hierarchies requires plansCalcRoute.routingRandomness = 0, but it is " +
+					config.plansCalcRoute().getRoutingRandomness() + ".");
+		}
 		
 	}
 
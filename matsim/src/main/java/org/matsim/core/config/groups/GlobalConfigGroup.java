@@ -40,10 +40,14 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String REPLANNING_PLAN_DISTRIBUTION = "replanningPlanDistribution";
+
+	public static enum PlanDistribution { roundRobin, workQueue }
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private PlanDistribution replanningPlanDistribution = PlanDistribution.roundRobin;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -51,6 +55,11 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(REPLANNING_PLAN_DISTRIBUTION, "How multi-threaded replanning modules distribute the plans to their threads.  "
+				+ PlanDistribution.roundRobin + ": every thread gets a fixed share of the plans in advance; results are reproducible.  "
+				+ PlanDistribution.workQueue + ": threads take the next plan from a common queue, most expensive plans first, as soon as they are idle.  "
+				+ "This keeps all threads busy until the end, but which plan algorithm instance handles a plan depends on timing, "
+				+ "so runs with randomized modules (e.g. mode choice) are no longer reproducible.") ;
 		return map ;
 	}
 
@@ -84,6 +93,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 	
+	@StringGetter( REPLANNING_PLAN_DISTRIBUTION )
+	public PlanDistribution getReplanningPlanDistribution() {
+		return this.replanningPlanDistribution;
+	}
+	@StringSetter( REPLANNING_PLAN_DISTRIBUTION )
+	public void setReplanningPlanDistribution(final PlanDistribution replanningPlanDistribution) {
+		this.replanningPlanDistribution = replanningPlanDistribution;
+	}
+
 	private static final String INSITING_ON_DEPRECATED_CONFIG_VERSION = "insistingOnDeprecatedConfigVersion" ;
 	@StringGetter( INSITING_ON_DEPRECATED_CONFIG_VERSION )
 	public final boolean isInsistingOnDeprecatedConfigVersion() { return this.insistingOnDeprecatedConfigVersion ; }
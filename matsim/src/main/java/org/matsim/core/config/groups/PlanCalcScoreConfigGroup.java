@@ -65,6 +65,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_SHARDS = "numberOfScoringShards";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney";
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch";
@@ -396,6 +398,10 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 				"[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money).");
 		map.put(WRITE_EXPERIENCED_PLANS,
 				"write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_SHARDS,
+				"number of partitions the persons are split into for scoring.  Each partition receives the events as a separate event handler "
+						+ "and keeps its own experienced activities and legs, so with parallel event handling the partitions are scored concurrently. "
+						+ "Only useful together with parallelEventHandling.numberOfThreads > 1.  Default: 1, i.e. no partitioning.");
 
 		return map;
 	}
@@ -748,6 +754,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfScoringShards() {
+		return delegate.getNumberOfScoringShards();
+	}
+
+	public void setNumberOfScoringShards(int numberOfScoringShards) {
+		delegate.setNumberOfScoringShards(numberOfScoringShards);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		if (getScoringParameters(null) != null)
 			return getScoringParameters(null).getMarginalUtlOfWaiting_utils_hr();
@@ -1509,6 +1523,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringShards = 1;
+
 		private Double fractionOfIterationsToStartScoreMSA = null;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1582,5 +1598,19 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter(NUMBER_OF_SCORING_SHARDS)
+		public int getNumberOfScoringShards() {
+			return numberOfScoringShards;
+		}
+
+		@StringSetter(NUMBER_OF_SCORING_SHARDS)
+		public void setNumberOfScoringShards(int numberOfScoringShards) {
+			testForLocked();
+			if (numberOfScoringShards < 1) {
+				throw new IllegalArgumentException("numberOfScoringShards must be at least 1, but was " + numberOfScoringShards);
+			}
+			this.numberOfScoringShards = numberOfScoringShards;
+		}
+
 	}
 }
\ No newline at end of file
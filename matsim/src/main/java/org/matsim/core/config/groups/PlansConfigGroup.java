@@ -34,6 +34,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String LinkIndexNetworkRoute = "LinkIndexNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -67,7 +68,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.LinkIndexNetworkRoute + ".");
 		comments.put(
 				INPUT_PERSON_ATTRIBUTES_FILE,
 				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -87,6 +89,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(COMPACT_POPULATION, "If true, persons, plans, activities and legs are stored in a more compact form, " +
+				"which needs about 30% less memory for large populations. Network routes then store link indices, if " +
+				NETWORK_ROUTE_TYPE + " is " + NetworkRouteType.LinkNetworkRoute + ". default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -177,6 +183,17 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	private static final String COMPACT_POPULATION = "compactPopulation";
+	private boolean compactPopulation = false;
+	@StringGetter(COMPACT_POPULATION)
+	public boolean isCompactPopulation() {
+		return this.compactPopulation;
+	}
+	@StringSetter(COMPACT_POPULATION)
+	public void setCompactPopulation(final boolean compactPopulation) {
+		this.compactPopulation = compactPopulation;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -120,10 +120,19 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private LinkDynamics linkDynamics = LinkDynamics.FIFO ;
 	private static final String LINK_DYNAMICS = "linkDynamics" ;
 
+	public static enum VehicleQueueImplementation { linkedList, ringBuffer }
+	private VehicleQueueImplementation vehicleQueueImplementation = VehicleQueueImplementation.linkedList ;
+	private static final String VEHICLE_QUEUE_IMPLEMENTATION = "vehicleQueueImplementation" ;
+
 	// ---
 	private double nodeOffset = 0;
 	private float linkWidth = 30;
 	private boolean usingThreadpool = true;
+	private boolean usingWorkStealing = false;
+
+	private static final String NETSIM_PARTITIONING = "netsimPartitioning";
+	public static enum NetsimPartitioning { roundRobin, spaceFillingCurve, loadBalanced }
+	private NetsimPartitioning netsimPartitioning = NetsimPartitioning.roundRobin;
 
 	public static final String LINK_WIDTH = "linkWidth";
 
@@ -261,9 +270,19 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 			}
 			map.put(LINK_DYNAMICS, "default: FIFO; options:" + stb ) ;
 		}
+		map.put(VEHICLE_QUEUE_IMPLEMENTATION, "Data structure for the vehicles on a link, in its buffer, and for the holes. "
+				+ VehicleQueueImplementation.linkedList + " (default) allocates an element for every vehicle entering a queue; "
+				+ VehicleQueueImplementation.ringBuffer + " uses growable arrays instead, which reduces garbage collection with many vehicles. "
+				+ "Both result in the same simulation.") ;
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(USING_WORK_STEALING, "if true, the active nodes and links of all threads of the QNetsimEngine are split into chunks that idle threads "
+				+ "can take over within the same time step. Overrides " + USING_THREADPOOL + ". Default is false.") ;
+		map.put(NETSIM_PARTITIONING, "How the nodes and links of the network are distributed among the threads of the QNetsimEngine. "
+				+ NetsimPartitioning.roundRobin + ": one after the other (default); "
+				+ NetsimPartitioning.spaceFillingCurve + ": spatially contiguous pieces with similar numbers of links; "
+				+ NetsimPartitioning.loadBalanced + ": spatially contiguous pieces with similar activity in the previous iteration.") ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -498,6 +517,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.linkDynamics = linkDynamics ;
 	}
 
+	@StringGetter(VEHICLE_QUEUE_IMPLEMENTATION)
+	public VehicleQueueImplementation getVehicleQueueImplementation() {
+		return this.vehicleQueueImplementation ;
+	}
+
+	@StringSetter(VEHICLE_QUEUE_IMPLEMENTATION)
+	public void setVehicleQueueImplementation(VehicleQueueImplementation vehicleQueueImplementation) {
+		this.vehicleQueueImplementation = vehicleQueueImplementation ;
+	}
+
 	@StringGetter(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID)
 	public boolean getUsePersonIdForMissingVehicleId() {
 		return usePersonIdForMissingVehicleId;
@@ -528,6 +557,25 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	private static final String USING_WORK_STEALING = "usingWorkStealing" ;
+	@StringGetter(USING_WORK_STEALING)
+	public boolean isUsingWorkStealing() {
+		return this.usingWorkStealing ;
+	}
+	@StringSetter(USING_WORK_STEALING)
+	public void setUsingWorkStealing( boolean val ) {
+		this.usingWorkStealing = val ;
+	}
+
+	@StringGetter(NETSIM_PARTITIONING)
+	public NetsimPartitioning getNetsimPartitioning() {
+		return this.netsimPartitioning ;
+	}
+	@StringSetter(NETSIM_PARTITIONING)
+	public void setNetsimPartitioning( NetsimPartitioning val ) {
+		this.netsimPartitioning = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -46,6 +46,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String ANALYZEDMODES = "analyzedModes";
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
+	private static final String NUMBER_OF_SHARDS = "numberOfShards";
 
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
@@ -59,6 +60,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private String analyzedModes = TransportMode.car;
 	private boolean filterModes = false;
 	private boolean separateModes = false;
+	private int numberOfShards = 1;
 
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
@@ -80,6 +82,9 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		map.put(FILTERMODES, "If true, link travel times from legs performed on modes not included in the 'analyzedModes' parameter are ignored.");
 		map.put(SEPARATEMODES, "If true, link travel times are measured and calculated separately for each mode in analyzedModes; other modes are ignored even if " +
 						FILTERMODES + "=false." ) ;
+		map.put(NUMBER_OF_SHARDS, "If larger than 1, the links are split into this number of parts whose travel times are collected by independent " +
+				"event handlers, which can then run in different threads of the parallel event handling. The travel times are merged after each mobsim. " +
+				"Only available for link travel times with the 'optimistic' aggregator and without " + SEPARATEMODES + ". Default is 1.");
 
 		// === 
 		StringBuilder str = new StringBuilder();
@@ -205,4 +210,14 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		this.separateModes = separateModes;
 	}
 
+	@StringGetter(NUMBER_OF_SHARDS)
+	public int getNumberOfShards() {
+		return this.numberOfShards;
+	}
+
+	@StringSetter(NUMBER_OF_SHARDS)
+	public void setNumberOfShards(int numberOfShards) {
+		this.numberOfShards = numberOfShards;
+	}
+
 }
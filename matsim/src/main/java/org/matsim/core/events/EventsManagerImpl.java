@@ -20,6 +20,11 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -77,6 +82,11 @@ import org.matsim.core.events.handler.EventHandler;
  * up execution!</li>
  * </ol>
  *
+ * With the default {@link DispatchMode#generated}, a small class calling the handler method directly is
+ * generated for every handler method when the handler is added, so neither callHandlerFast() nor
+ * reflection is needed while events are processed. Handler methods for which no such class can be
+ * generated (e.g. because the handler interface is not public) are still called by reflection.
+ *
  * @author dstrippgen
  * @author mrieser
  */
@@ -84,14 +94,34 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
+	/**
+	 * Defines how the handleEvent methods of the registered handlers are called.
+	 */
+	public enum DispatchMode {
+		/** uses callHandlerFast() for the standard events and reflection for all others */
+		reflective,
+		/** uses classes generated when handlers are added, calling the handler methods without reflection */
+		generated
+	}
+
+	/**
+	 * Calls the handleEvent-method of one handler interface, see {@link #createCaller(Method)}.
+	 */
+	@FunctionalInterface
+	private interface HandlerCaller {
+		void call(EventHandler handler, Event event);
+	}
+
 	static private class HandlerData {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
 		protected Method method;
-		protected HandlerData(final Class<?> eventklass, final Method method) {
+		protected HandlerCaller caller;
+		protected HandlerData(final Class<?> eventklass, final Method method, final HandlerCaller caller) {
 			this.eventklass = eventklass;
 			this.method = method;
+			this.caller = caller;
 		}
 		protected void removeHandler(final EventHandler handler) {
 			this.handlerList.remove(handler);
@@ -102,14 +132,18 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final HandlerCaller caller;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method, final HandlerCaller caller) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.caller = caller;
 		}
 	}
 
+	private final DispatchMode dispatchMode;
+
 	private final List<HandlerData> handlerData = new ArrayList<HandlerData>();
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
@@ -117,6 +151,14 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(DispatchMode.generated);
+	}
+
+	public EventsManagerImpl(final DispatchMode dispatchMode) {
+		this.dispatchMode = dispatchMode;
+	}
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -207,7 +249,8 @@ public final class EventsManagerImpl implements EventsManager {
 					log.info("    > " + eventClass.getName());
 					HandlerData dat = findHandler(eventClass);
 					if (dat == null) {
-						dat = new HandlerData(eventClass, method);
+						HandlerCaller caller = this.dispatchMode == DispatchMode.generated ? createCaller(method) : null;
+						dat = new HandlerData(eventClass, method, caller);
 						this.handlerData.add(dat);
 					}
 					dat.handlerList.add(handler);
@@ -216,9 +259,42 @@ public final class EventsManagerImpl implements EventsManager {
 		}
 	}
 
+	/**
+	 * Generates a class implementing {@link HandlerCaller} that casts the handler and the event and calls the
+	 * given method directly. In contrast to calling the method by reflection, the JIT can inline such calls.
+	 *
+	 * @return the caller, or <code>null</code> if no caller can be generated for the method.
+	 */
+	private static HandlerCaller createCaller(final Method method) {
+		Class<?> eventClass = method.getParameterTypes()[0];
+		if (!EventHandler.class.isAssignableFrom(method.getDeclaringClass()) || !Event.class.isAssignableFrom(eventClass)) {
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "call",
+					MethodType.methodType(HandlerCaller.class),
+					MethodType.methodType(void.class, EventHandler.class, Event.class),
+					target, target.type());
+			return (HandlerCaller) site.getTarget().invokeExact();
+		} catch (Throwable e) {
+			log.info("    cannot generate caller for " + method + ", using reflection instead: " + e.getMessage());
+			return null;
+		}
+	}
+
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
+				if (info.caller != null) {
+					try {
+						info.caller.call(info.eventHandler, event);
+					} catch (RuntimeException e) {
+						throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+					}
+					continue;
+				}
 				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
 					continue;
 				}
@@ -246,7 +322,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, dat.method, dat.caller));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -256,7 +332,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, dat.method, dat.caller));
 				}
 			}
 		}
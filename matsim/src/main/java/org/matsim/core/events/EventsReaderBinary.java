@@ -0,0 +1,472 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}. Events of the standard types are created
+ * directly from their binary fields, with one {@link Id} lookup per distinct id and file. All other events
+ * are created by the same code that is used for xml events files, including events created by
+ * {@link EventsReaderXMLv1.CustomEventMapper}s.
+ *
+ * @see EventWriterBinary
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private static final String CDATA = "CDATA";
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 delegate;
+	private final AttributesImpl atts = new AttributesImpl();
+	private final List<String> dictionary = new ArrayList<>();
+	private final IdCache<Person> personIds = new IdCache<>(Person.class);
+	private final IdCache<Link> linkIds = new IdCache<>(Link.class);
+	private final IdCache<Vehicle> vehicleIds = new IdCache<>(Vehicle.class);
+	private final IdCache<ActivityFacility> facilityIds = new IdCache<>(ActivityFacility.class);
+	private final IdCache<TransitStopFacility> stopIds = new IdCache<>(TransitStopFacility.class);
+	private final IdCache<TransitLine> lineIds = new IdCache<>(TransitLine.class);
+	private final IdCache<TransitRoute> routeIds = new IdCache<>(TransitRoute.class);
+	private final IdCache<Departure> departureIds = new IdCache<>(Departure.class);
+	private final IdCache<?>[] idCaches = {this.personIds, this.linkIds, this.vehicleIds, this.facilityIds,
+			this.stopIds, this.lineIds, this.routeIds, this.departureIds};
+	private final Column types = new Column();
+	private final Column times = new Column();
+	private final Column refs = new Column();
+	private final Column doubles = new Column();
+	private final Column literals = new Column();
+	private final Column[] columns = {this.types, this.times, this.refs, this.doubles, this.literals};
+	private final byte[] buffer = new byte[4];
+	private InputStream in;
+	private long lastTime = 0;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, EventsReaderXMLv1.CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		parse(IOUtils.getInputStream(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		parse(IOUtils.getInputStream(url));
+	}
+
+	/**
+	 * Reads all events from the given stream and closes it afterwards.
+	 */
+	public void parse(final InputStream stream) {
+		this.dictionary.clear();
+		for (IdCache<?> cache : this.idCaches) {
+			cache.clear();
+		}
+		this.lastTime = 0;
+		this.in = new LZ4BlockInputStream(stream);
+		try {
+			if (readInt() != EventWriterBinary.MAGIC) {
+				throw new IllegalArgumentException("The stream does not contain binary MATSim events.");
+			}
+			int version = readInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version of binary events: " + version);
+			}
+			long count;
+			while ((count = readVarLong()) != 0) {
+				for (Column column : this.columns) {
+					column.read(this, (int) readVarLong());
+				}
+				for (long i = 0; i < count; i++) {
+					readEvent();
+				}
+			}
+			this.in.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.in = null;
+		}
+	}
+
+	private void readEvent() {
+		double time = readTime();
+		int type = (int) this.types.readVarLong();
+		switch (type) {
+		case EventWriterBinary.TYPE_CUSTOM:
+			readCustomEvent(time);
+			return;
+		case EventWriterBinary.TYPE_ACTIVITY_END: {
+			Id<Person> personId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			Id<ActivityFacility> facilityId = readId(this.facilityIds);
+			this.events.processEvent(new ActivityEndEvent(time, personId, linkId, facilityId, readString()));
+			return;
+		}
+		case EventWriterBinary.TYPE_ACTIVITY_START: {
+			Id<Person> personId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			Id<ActivityFacility> facilityId = readId(this.facilityIds);
+			this.events.processEvent(new ActivityStartEvent(time, personId, linkId, facilityId, readString()));
+			return;
+		}
+		case EventWriterBinary.TYPE_LINK_ENTER: {
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			this.events.processEvent(new LinkEnterEvent(time, vehicleId, readId(this.linkIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_LINK_LEAVE: {
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			this.events.processEvent(new LinkLeaveEvent(time, vehicleId, readId(this.linkIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_PERSON_ARRIVAL: {
+			Id<Person> personId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			this.events.processEvent(new PersonArrivalEvent(time, personId, linkId, readMode()));
+			return;
+		}
+		case EventWriterBinary.TYPE_PERSON_DEPARTURE: {
+			Id<Person> personId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			this.events.processEvent(new PersonDepartureEvent(time, personId, linkId, readMode()));
+			return;
+		}
+		case EventWriterBinary.TYPE_PERSON_ENTERS_VEHICLE: {
+			Id<Person> personId = readId(this.personIds);
+			this.events.processEvent(new PersonEntersVehicleEvent(time, personId, readId(this.vehicleIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_PERSON_LEAVES_VEHICLE: {
+			Id<Person> personId = readId(this.personIds);
+			this.events.processEvent(new PersonLeavesVehicleEvent(time, personId, readId(this.vehicleIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_VEHICLE_ENTERS_TRAFFIC: {
+			Id<Person> driverId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			String networkMode = readString();
+			this.events.processEvent(new VehicleEntersTrafficEvent(time, driverId, linkId, vehicleId, networkMode, this.doubles.readDouble()));
+			return;
+		}
+		case EventWriterBinary.TYPE_VEHICLE_LEAVES_TRAFFIC: {
+			Id<Person> driverId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			String networkMode = readString();
+			this.events.processEvent(new VehicleLeavesTrafficEvent(time, driverId, linkId, vehicleId, networkMode, this.doubles.readDouble()));
+			return;
+		}
+		case EventWriterBinary.TYPE_PERSON_STUCK: {
+			Id<Person> personId = readId(this.personIds);
+			Id<Link> linkId = readId(this.linkIds);
+			this.events.processEvent(new PersonStuckEvent(time, personId, linkId, readMode()));
+			return;
+		}
+		case EventWriterBinary.TYPE_VEHICLE_ABORTS: {
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			this.events.processEvent(new VehicleAbortsEvent(time, vehicleId, readId(this.linkIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_PERSON_MONEY: {
+			Id<Person> personId = readId(this.personIds);
+			this.events.processEvent(new PersonMoneyEvent(time, personId, this.doubles.readDouble()));
+			return;
+		}
+		case EventWriterBinary.TYPE_TELEPORTATION_ARRIVAL: {
+			Id<Person> personId = readId(this.personIds);
+			this.events.processEvent(new TeleportationArrivalEvent(time, personId, this.doubles.readDouble()));
+			return;
+		}
+		case EventWriterBinary.TYPE_VEHICLE_ARRIVES_AT_FACILITY: {
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			Id<TransitStopFacility> stopId = readId(this.stopIds);
+			this.events.processEvent(new VehicleArrivesAtFacilityEvent(time, vehicleId, stopId, this.doubles.readDouble()));
+			return;
+		}
+		case EventWriterBinary.TYPE_VEHICLE_DEPARTS_AT_FACILITY: {
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			Id<TransitStopFacility> stopId = readId(this.stopIds);
+			this.events.processEvent(new VehicleDepartsAtFacilityEvent(time, vehicleId, stopId, this.doubles.readDouble()));
+			return;
+		}
+		case EventWriterBinary.TYPE_TRANSIT_DRIVER_STARTS: {
+			Id<Person> driverId = readId(this.personIds);
+			Id<Vehicle> vehicleId = readId(this.vehicleIds);
+			Id<TransitLine> lineId = readId(this.lineIds);
+			Id<TransitRoute> routeId = readId(this.routeIds);
+			this.events.processEvent(new TransitDriverStartsEvent(time, driverId, vehicleId, lineId, routeId, readId(this.departureIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_BOARDING_DENIED: {
+			Id<Person> personId = readId(this.personIds);
+			this.events.processEvent(new BoardingDeniedEvent(time, personId, readId(this.vehicleIds)));
+			return;
+		}
+		case EventWriterBinary.TYPE_AGENT_WAITING_FOR_PT: {
+			Id<Person> personId = readId(this.personIds);
+			Id<TransitStopFacility> waitStopId = readId(this.stopIds);
+			this.events.processEvent(new AgentWaitingForPtEvent(time, personId, waitStopId, readId(this.stopIds)));
+			return;
+		}
+		default:
+			throw new IllegalArgumentException("Unknown event type code " + type + " in binary events.");
+		}
+	}
+
+	private void readCustomEvent(final double time) {
+		this.atts.clear();
+		addAttribute(Event.ATTRIBUTE_TIME, Double.toString(time));
+		addAttribute(Event.ATTRIBUTE_TYPE, readString());
+		int attributesCount = (int) this.refs.readVarLong();
+		for (int i = 0; i < attributesCount; i++) {
+			String key = readString();
+			addAttribute(key, readString());
+		}
+		this.delegate.startTag(EventsReaderXMLv1.EVENT, this.atts, null);
+	}
+
+	private void addAttribute(final String key, final String value) {
+		this.atts.addAttribute("", key, key, CDATA, value);
+	}
+
+	private double readTime() {
+		long code = this.times.readVarLong();
+		if ((code & 1) == 0) {
+			long zigzag = code >>> 1;
+			long delta = (zigzag >>> 1) ^ -(zigzag & 1);
+			this.lastTime += delta;
+			return this.lastTime;
+		}
+		return this.times.readDouble();
+	}
+
+	/**
+	 * Leg modes are interned, like {@link EventsReaderXMLv1} does.
+	 */
+	private String readMode() {
+		String mode = readString();
+		return mode == null ? null : mode.intern();
+	}
+
+	private String readString() {
+		long ref = this.refs.readVarLong();
+		if (ref == EventWriterBinary.STRING_NULL) {
+			return null;
+		}
+		if (ref >= EventWriterBinary.STRING_DICTIONARY_OFFSET) {
+			return this.dictionary.get((int) (ref - EventWriterBinary.STRING_DICTIONARY_OFFSET));
+		}
+		String value = this.literals.readString();
+		if (ref == EventWriterBinary.STRING_NEW) {
+			this.dictionary.add(value);
+		}
+		return value;
+	}
+
+	private <T> Id<T> readId(final IdCache<T> cache) {
+		long ref = this.refs.readVarLong();
+		if (ref == EventWriterBinary.STRING_NULL) {
+			return null;
+		}
+		if (ref >= EventWriterBinary.STRING_DICTIONARY_OFFSET) {
+			int index = (int) (ref - EventWriterBinary.STRING_DICTIONARY_OFFSET);
+			return cache.get(index, this.dictionary);
+		}
+		String value = this.literals.readString();
+		if (ref == EventWriterBinary.STRING_NEW) {
+			this.dictionary.add(value);
+			return cache.get(this.dictionary.size() - 1, this.dictionary);
+		}
+		return Id.create(value, cache.type);
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			int b = this.in.read();
+			if (b < 0) {
+				throw new EOFException("Unexpected end of binary events stream.");
+			}
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+			shift += 7;
+		}
+	}
+
+	private int readInt() throws IOException {
+		readFully(this.buffer, 4);
+		return ((this.buffer[0] & 0xff) << 24) | ((this.buffer[1] & 0xff) << 16)
+				| ((this.buffer[2] & 0xff) << 8) | (this.buffer[3] & 0xff);
+	}
+
+	private void readFully(final byte[] bytes, final int length) throws IOException {
+		int offset = 0;
+		while (offset < length) {
+			int read = this.in.read(bytes, offset, length - offset);
+			if (read < 0) {
+				throw new EOFException("Unexpected end of binary events stream.");
+			}
+			offset += read;
+		}
+	}
+
+	/**
+	 * The ids of one type by dictionary index, so that every id is only created once per file.
+	 */
+	private static final class IdCache<T> {
+
+		private final Class<T> type;
+		private Id<T>[] ids;
+
+		IdCache(final Class<T> type) {
+			this.type = type;
+			clear();
+		}
+
+		@SuppressWarnings("unchecked")
+		void clear() {
+			this.ids = new Id[256];
+		}
+
+		Id<T> get(final int index, final List<String> dictionary) {
+			if (index >= this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, Math.max(index + 1, 2 * this.ids.length));
+			}
+			Id<T> id = this.ids[index];
+			if (id == null) {
+				id = Id.create(dictionary.get(index), this.type);
+				this.ids[index] = id;
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * The bytes of one column of the current block, with the position of the next value.
+	 */
+	private static final class Column {
+
+		private byte[] data = new byte[1024];
+		private int size = 0;
+		private int pos = 0;
+
+		void read(final EventsReaderBinary reader, final int length) throws IOException {
+			if (this.data.length < length) {
+				this.data = new byte[Math.max(length, 2 * this.data.length)];
+			}
+			reader.readFully(this.data, length);
+			this.size = length;
+			this.pos = 0;
+		}
+
+		long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			while (true) {
+				if (this.pos >= this.size) {
+					throw new UncheckedIOException(new EOFException("Unexpected end of a column in binary events."));
+				}
+				int b = this.data[this.pos++];
+				value |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+				shift += 7;
+			}
+		}
+
+		double readDouble() {
+			if (this.pos + 8 > this.size) {
+				throw new UncheckedIOException(new EOFException("Unexpected end of a column in binary events."));
+			}
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits = (bits << 8) | (this.data[this.pos++] & 0xff);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		String readString() {
+			int length = (int) readVarLong();
+			if (this.pos + length > this.size) {
+				throw new UncheckedIOException(new EOFException("Unexpected end of a column in binary events."));
+			}
+			String value = new String(this.data, this.pos, length, StandardCharsets.UTF_8);
+			this.pos += length;
+			return value;
+		}
+	}
+
+}
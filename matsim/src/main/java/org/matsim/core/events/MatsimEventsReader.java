@@ -34,13 +34,15 @@ import org.xml.sax.SAXException;
 
 /**
  * A reader for events-files of MATSim. This reader recognizes the format of the events-file and uses
- * the correct reader for the specific events-version, without manual setting.
+ * the correct reader for the specific events-version, without manual setting. Files ending with
+ * <code>.bin</code> are read as binary events, see {@link EventsReaderBinary}.
  *
  * @author mrieser
  */
 public final class MatsimEventsReader implements MatsimReader {
 
 	private final static Logger log = Logger.getLogger(MatsimEventsReader.class);
+	private final static String BINARY_EXTENSION = ".bin";
 	private final EventsManager events;
 
 	/**
@@ -62,6 +64,8 @@ public final class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(BINARY_EXTENSION)) {
+			new EventsReaderBinary(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -75,7 +79,11 @@ public final class MatsimEventsReader implements MatsimReader {
 
 	@Override
 	public void readURL( final URL url ) {
-		new XmlEventsReader( this.events ).readURL( url );
+		if ( url.getFile().toLowerCase(Locale.ROOT).endsWith(BINARY_EXTENSION) ) {
+			new EventsReaderBinary( this.events ).readURL( url );
+		} else {
+			new XmlEventsReader( this.events ).readURL( url );
+		}
 	}
 
 	private static class XmlEventsReader extends MatsimXmlParser {
@@ -0,0 +1,500 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes events in a compact, columnar binary format. The file is a stream of LZ4-compressed blocks:
+ * <pre>
+ *   file    := int(MAGIC) int(VERSION) { block } varint(0)
+ *   block   := varint(numberOfEvents) column(types) column(times) column(refs) column(doubles) column(literals)
+ *   column  := varint(lengthInBytes) bytes
+ * </pre>
+ * Every block stores the values of its events column by column, the i-th value of a column belonging to
+ * the i-th event that uses that column:
+ * <ul>
+ * <li><code>types</code>: <code>varint(typeCode)</code> per event, one of the <code>TYPE_*</code> constants.</li>
+ * <li><code>times</code>: <code>varlong(zigzag(deltaSeconds) &lt;&lt; 1)</code> for whole seconds, stored as delta
+ * to the previous whole-second time, or <code>varlong(1) double</code> otherwise.</li>
+ * <li><code>refs</code>: one <code>varint</code> per id or string field, see below; for custom events also the
+ * number of attributes.</li>
+ * <li><code>doubles</code>: the 8 bytes of every double field, like positions, amounts or distances.</li>
+ * <li><code>literals</code>: <code>varint(length) utf8</code> of every string that is not yet in the dictionary.</li>
+ * </ul>
+ * A reference is <code>STRING_NULL</code>, <code>STRING_LITERAL</code> (the next literal, not added to the
+ * dictionary), <code>STRING_NEW</code> (the next literal, appended to the dictionary) or
+ * <code>STRING_DICTIONARY_OFFSET + dictionaryIndex</code>, so every distinct id is only written once per file.
+ * <p>
+ * The events of the standard types listed as <code>TYPE_*</code> constants are written field by field, with
+ * ids as dictionary references and doubles in binary, and are created directly by the reader. All other events,
+ * including subclasses of the standard types, are written as <code>TYPE_CUSTOM</code> with their type and
+ * their attributes as strings, the same strings {@link EventWriterXML} would write, and are read through the
+ * xml events reader, including its custom event mappers.
+ *
+ * @see org.matsim.core.events.EventsReaderBinary
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int MAGIC = 0x4d415645; // "MAVE", matsim events
+	public static final int VERSION = 1;
+
+	public static final int STRING_NULL = 0;
+	public static final int STRING_LITERAL = 1;
+	public static final int STRING_NEW = 2;
+	public static final int STRING_DICTIONARY_OFFSET = 3;
+
+	public static final int TYPE_CUSTOM = 0;
+	public static final int TYPE_ACTIVITY_END = 1;
+	public static final int TYPE_ACTIVITY_START = 2;
+	public static final int TYPE_LINK_ENTER = 3;
+	public static final int TYPE_LINK_LEAVE = 4;
+	public static final int TYPE_PERSON_ARRIVAL = 5;
+	public static final int TYPE_PERSON_DEPARTURE = 6;
+	public static final int TYPE_PERSON_ENTERS_VEHICLE = 7;
+	public static final int TYPE_PERSON_LEAVES_VEHICLE = 8;
+	public static final int TYPE_VEHICLE_ENTERS_TRAFFIC = 9;
+	public static final int TYPE_VEHICLE_LEAVES_TRAFFIC = 10;
+	public static final int TYPE_PERSON_STUCK = 11;
+	public static final int TYPE_VEHICLE_ABORTS = 12;
+	public static final int TYPE_PERSON_MONEY = 13;
+	public static final int TYPE_TELEPORTATION_ARRIVAL = 14;
+	public static final int TYPE_VEHICLE_ARRIVES_AT_FACILITY = 15;
+	public static final int TYPE_VEHICLE_DEPARTS_AT_FACILITY = 16;
+	public static final int TYPE_TRANSIT_DRIVER_STARTS = 17;
+	public static final int TYPE_BOARDING_DENIED = 18;
+	public static final int TYPE_AGENT_WAITING_FOR_PT = 19;
+
+	/** the number of events per block, i.e. the events the writer keeps before writing their columns. */
+	public static final int MAX_BLOCK_SIZE = 4096;
+
+	/** limits the memory used for the dictionary, both when writing and reading the file. */
+	private static final int MAX_DICTIONARY_SIZE = 1 << 25;
+
+	private static final Map<Class<?>, Integer> TYPES = new HashMap<>();
+	static {
+		TYPES.put(ActivityEndEvent.class, TYPE_ACTIVITY_END);
+		TYPES.put(ActivityStartEvent.class, TYPE_ACTIVITY_START);
+		TYPES.put(LinkEnterEvent.class, TYPE_LINK_ENTER);
+		TYPES.put(LinkLeaveEvent.class, TYPE_LINK_LEAVE);
+		TYPES.put(PersonArrivalEvent.class, TYPE_PERSON_ARRIVAL);
+		TYPES.put(PersonDepartureEvent.class, TYPE_PERSON_DEPARTURE);
+		TYPES.put(PersonEntersVehicleEvent.class, TYPE_PERSON_ENTERS_VEHICLE);
+		TYPES.put(PersonLeavesVehicleEvent.class, TYPE_PERSON_LEAVES_VEHICLE);
+		TYPES.put(VehicleEntersTrafficEvent.class, TYPE_VEHICLE_ENTERS_TRAFFIC);
+		TYPES.put(VehicleLeavesTrafficEvent.class, TYPE_VEHICLE_LEAVES_TRAFFIC);
+		TYPES.put(PersonStuckEvent.class, TYPE_PERSON_STUCK);
+		TYPES.put(VehicleAbortsEvent.class, TYPE_VEHICLE_ABORTS);
+		TYPES.put(PersonMoneyEvent.class, TYPE_PERSON_MONEY);
+		TYPES.put(TeleportationArrivalEvent.class, TYPE_TELEPORTATION_ARRIVAL);
+		TYPES.put(VehicleArrivesAtFacilityEvent.class, TYPE_VEHICLE_ARRIVES_AT_FACILITY);
+		TYPES.put(VehicleDepartsAtFacilityEvent.class, TYPE_VEHICLE_DEPARTS_AT_FACILITY);
+		TYPES.put(TransitDriverStartsEvent.class, TYPE_TRANSIT_DRIVER_STARTS);
+		TYPES.put(BoardingDeniedEvent.class, TYPE_BOARDING_DENIED);
+		TYPES.put(AgentWaitingForPtEvent.class, TYPE_AGENT_WAITING_FOR_PT);
+	}
+
+	private final OutputStream out;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final Column types = new Column();
+	private final Column times = new Column();
+	private final Column refs = new Column();
+	private final Column doubles = new Column();
+	private final Column literals = new Column();
+	private final Column[] columns = {this.types, this.times, this.refs, this.doubles, this.literals};
+	private final Column header = new Column();
+	private int blockSize = 0;
+	private long lastTime = 0;
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(outfilename));
+	}
+
+	/**
+	 * Writes the events to the given stream. The stream is closed when {@link #closeFile()} is called.
+	 */
+	public EventWriterBinary(final OutputStream stream) {
+		this.out = new LZ4BlockOutputStream(stream, 1 << 16);
+		this.header.writeInt(MAGIC);
+		this.header.writeInt(VERSION);
+		writeHeader();
+	}
+
+	@Override
+	public void closeFile() {
+		writeBlock();
+		this.header.writeVarLong(0);
+		writeHeader();
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		writeTime(event.getTime());
+		Integer type = TYPES.get(event.getClass());
+		if (type == null) {
+			this.types.writeVarLong(TYPE_CUSTOM);
+			writeCustomEvent(event);
+		} else {
+			this.types.writeVarLong(type);
+			writeStandardEvent(type, event);
+		}
+		if (++this.blockSize == MAX_BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	private void writeStandardEvent(final int type, final Event event) {
+		switch (type) {
+		case TYPE_ACTIVITY_END: {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getFacilityId());
+			writeString(e.getActType(), true);
+			break;
+		}
+		case TYPE_ACTIVITY_START: {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getFacilityId());
+			writeString(e.getActType(), true);
+			break;
+		}
+		case TYPE_LINK_ENTER: {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			writeId(e.getVehicleId());
+			writeId(e.getLinkId());
+			break;
+		}
+		case TYPE_LINK_LEAVE: {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			writeId(e.getVehicleId());
+			writeId(e.getLinkId());
+			break;
+		}
+		case TYPE_PERSON_ARRIVAL: {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeString(e.getLegMode(), true);
+			break;
+		}
+		case TYPE_PERSON_DEPARTURE: {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeString(e.getLegMode(), true);
+			break;
+		}
+		case TYPE_PERSON_ENTERS_VEHICLE: {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getVehicleId());
+			break;
+		}
+		case TYPE_PERSON_LEAVES_VEHICLE: {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getVehicleId());
+			break;
+		}
+		case TYPE_VEHICLE_ENTERS_TRAFFIC: {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getVehicleId());
+			writeString(e.getNetworkMode(), true);
+			this.doubles.writeDouble(e.getRelativePositionOnLink());
+			break;
+		}
+		case TYPE_VEHICLE_LEAVES_TRAFFIC: {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getVehicleId());
+			writeString(e.getNetworkMode(), true);
+			this.doubles.writeDouble(e.getRelativePositionOnLink());
+			break;
+		}
+		case TYPE_PERSON_STUCK: {
+			PersonStuckEvent e = (PersonStuckEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeString(e.getLegMode(), true);
+			break;
+		}
+		case TYPE_VEHICLE_ABORTS: {
+			VehicleAbortsEvent e = (VehicleAbortsEvent) event;
+			writeId(e.getVehicleId());
+			writeId(e.getLinkId());
+			break;
+		}
+		case TYPE_PERSON_MONEY: {
+			PersonMoneyEvent e = (PersonMoneyEvent) event;
+			writeId(e.getPersonId());
+			this.doubles.writeDouble(e.getAmount());
+			break;
+		}
+		case TYPE_TELEPORTATION_ARRIVAL: {
+			TeleportationArrivalEvent e = (TeleportationArrivalEvent) event;
+			writeId(e.getPersonId());
+			this.doubles.writeDouble(e.getDistance());
+			break;
+		}
+		case TYPE_VEHICLE_ARRIVES_AT_FACILITY: {
+			VehicleArrivesAtFacilityEvent e = (VehicleArrivesAtFacilityEvent) event;
+			writeId(e.getVehicleId());
+			writeId(e.getFacilityId());
+			this.doubles.writeDouble(e.getDelay());
+			break;
+		}
+		case TYPE_VEHICLE_DEPARTS_AT_FACILITY: {
+			VehicleDepartsAtFacilityEvent e = (VehicleDepartsAtFacilityEvent) event;
+			writeId(e.getVehicleId());
+			writeId(e.getFacilityId());
+			this.doubles.writeDouble(e.getDelay());
+			break;
+		}
+		case TYPE_TRANSIT_DRIVER_STARTS: {
+			TransitDriverStartsEvent e = (TransitDriverStartsEvent) event;
+			writeId(e.getDriverId());
+			writeId(e.getVehicleId());
+			writeId(e.getTransitLineId());
+			writeId(e.getTransitRouteId());
+			writeId(e.getDepartureId());
+			break;
+		}
+		case TYPE_BOARDING_DENIED: {
+			BoardingDeniedEvent e = (BoardingDeniedEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getVehicleId());
+			break;
+		}
+		case TYPE_AGENT_WAITING_FOR_PT: {
+			AgentWaitingForPtEvent e = (AgentWaitingForPtEvent) event;
+			writeId(e.getPersonId());
+			writeId(e.getWaitingAtStopId());
+			writeId(e.getDestinationStopId());
+			break;
+		}
+		default:
+			throw new IllegalArgumentException("Unknown event type code " + type);
+		}
+	}
+
+	private void writeCustomEvent(final Event event) {
+		Map<String, String> attr = event.getAttributes();
+		int count = attr.size();
+		if (attr.containsKey(Event.ATTRIBUTE_TIME)) {
+			count--;
+		}
+		if (attr.containsKey(Event.ATTRIBUTE_TYPE)) {
+			count--;
+		}
+		writeString(event.getEventType(), true);
+		this.refs.writeVarLong(count);
+		for (Map.Entry<String, String> entry : attr.entrySet()) {
+			String key = entry.getKey();
+			if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+				continue;
+			}
+			writeString(key, true);
+			String value = entry.getValue();
+			writeString(value, value == null || !isFractionalNumber(value));
+		}
+	}
+
+	private void writeBlock() {
+		if (this.blockSize == 0) {
+			return;
+		}
+		this.header.writeVarLong(this.blockSize);
+		writeHeader();
+		try {
+			for (Column column : this.columns) {
+				this.header.writeVarLong(column.size);
+				writeHeader();
+				this.out.write(column.data, 0, column.size);
+				column.size = 0;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.blockSize = 0;
+	}
+
+	private void writeHeader() {
+		try {
+			this.out.write(this.header.data, 0, this.header.size);
+			this.header.size = 0;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeTime(final double time) {
+		long seconds = (long) time;
+		if (seconds == time && Math.abs(seconds) < (1L << 52)) {
+			long delta = seconds - this.lastTime;
+			this.lastTime = seconds;
+			this.times.writeVarLong(((delta << 1) ^ (delta >> 63)) << 1);
+		} else {
+			this.times.writeVarLong(1);
+			this.times.writeDouble(time);
+		}
+	}
+
+	private void writeId(final Id<?> id) {
+		writeString(id == null ? null : id.toString(), true);
+	}
+
+	private void writeString(final String value, final boolean useDictionary) {
+		if (value == null) {
+			this.refs.writeVarLong(STRING_NULL);
+			return;
+		}
+		if (useDictionary) {
+			Integer index = this.dictionary.get(value);
+			if (index != null) {
+				this.refs.writeVarLong(STRING_DICTIONARY_OFFSET + (long) index);
+				return;
+			}
+			if (this.dictionary.size() < MAX_DICTIONARY_SIZE) {
+				this.dictionary.put(value, this.dictionary.size());
+				this.refs.writeVarLong(STRING_NEW);
+			} else {
+				this.refs.writeVarLong(STRING_LITERAL);
+			}
+		} else {
+			this.refs.writeVarLong(STRING_LITERAL);
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.literals.writeVarLong(bytes.length);
+		this.literals.write(bytes, bytes.length);
+	}
+
+	/**
+	 * Values like coordinates, distances or amounts are very rarely repeated and would only
+	 * bloat the dictionary. Ids can be numeric as well, but are hardly ever fractional.
+	 */
+	private static boolean isFractionalNumber(final String value) {
+		int len = value.length();
+		if (len == 0) {
+			return false;
+		}
+		boolean hasSeparator = false;
+		for (int pos = 0; pos < len; pos++) {
+			char ch = value.charAt(pos);
+			if (ch == '.' || ch == 'E') {
+				hasSeparator = true;
+			} else if ((ch < '0' || ch > '9') && ch != '-') {
+				return false;
+			}
+		}
+		return hasSeparator;
+	}
+
+	/**
+	 * A growable byte array holding the values of one column of the current block.
+	 */
+	private static final class Column {
+
+		private byte[] data = new byte[1024];
+		private int size = 0;
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.size + additional, 2 * this.data.length));
+			}
+		}
+
+		void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7fL) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeInt(final int value) {
+			ensureCapacity(4);
+			this.data[this.size++] = (byte) (value >>> 24);
+			this.data[this.size++] = (byte) (value >>> 16);
+			this.data[this.size++] = (byte) (value >>> 8);
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeDouble(final double value) {
+			long bits = Double.doubleToRawLongBits(value);
+			writeInt((int) (bits >>> 32));
+			writeInt((int) bits);
+		}
+
+		void write(final byte[] bytes, final int length) {
+			ensureCapacity(length);
+			System.arraycopy(bytes, 0, this.data, this.size, length);
+			this.size += length;
+		}
+	}
+
+}
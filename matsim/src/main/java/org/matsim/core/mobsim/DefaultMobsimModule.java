@@ -22,11 +22,14 @@
 
 package org.matsim.core.mobsim;
 
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.ExternalMobimConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.mobsim.external.ExternalMobsim;
+import org.matsim.core.mobsim.jdeqsim.JDEQSimConfigGroup;
 import org.matsim.core.mobsim.jdeqsim.JDEQSimulation;
+import org.matsim.core.mobsim.jdeqsim.ParallelJDEQSimulation;
 import org.matsim.core.mobsim.qsim.QSimModule;
 
 public class DefaultMobsimModule extends AbstractModule {
@@ -35,7 +38,12 @@ public class DefaultMobsimModule extends AbstractModule {
         if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.qsim.toString())) {
             install(new QSimModule());
         } else if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.JDEQSim.toString())) {
-            bindMobsim().to(JDEQSimulation.class);
+            JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(getConfig(), JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+            if (jdeqSimConfig.getNumberOfThreads() > 1) {
+                bindMobsim().to(ParallelJDEQSimulation.class);
+            } else {
+                bindMobsim().to(JDEQSimulation.class);
+            }
         } else if (getConfig().getModule(ExternalMobimConfigGroup.GROUP_NAME) != null &&
                 ((ExternalMobimConfigGroup) getConfig().getModule(ExternalMobimConfigGroup.GROUP_NAME)).getExternalExe() != null) {
             bindMobsim().to(ExternalMobsim.class);
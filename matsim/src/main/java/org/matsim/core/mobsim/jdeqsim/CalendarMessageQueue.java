@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+/**
+ * A calendar (time bucket) message queue of the micro-simulation.
+ * <p>
+ * The time axis is cut into buckets of <code>bucketWidth</code> seconds. The next
+ * <code>bucketCount</code> buckets (the "calendar year") are held in a ring, each bucket
+ * being a small binary heap; messages further in the future are kept in an overflow heap
+ * and moved into the ring as the current bucket advances. Most messages of the simulation
+ * (entering and leaving roads) are scheduled only a few seconds ahead, so they end up in
+ * small buckets and cost much less than a heap over all messages.
+ * <p>
+ * Every message knows its bucket and its position within that bucket, so
+ * {@link #removeMessage(Message)} takes the message out of the queue in place instead of
+ * leaving the dead message in the queue until it is polled.
+ * <p>
+ * Messages with the same time stamp are ordered by priority as in {@link MessageQueue},
+ * and by insertion order if the priority is also the same. A message must not be put into
+ * more than one queue at a time, and its time must not change while it is queued.
+ */
+public class CalendarMessageQueue implements SimulationMessageQueue {
+
+	private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+	private final double bucketWidth;
+	private final int mask;
+	private final int overflow;
+
+	// heaps of the calendar buckets; the last one holds the messages beyond the calendar year
+	private final Message[][] heaps;
+	private final int[] heapSizes;
+
+	private long currentBucket = 0;
+	private int calendarSize = 0;
+	private long sequence = 0;
+
+	public CalendarMessageQueue() {
+		this(1.0, 4096);
+	}
+
+	/**
+	 * @param bucketWidth the time span of one bucket, in seconds
+	 * @param bucketCount the number of buckets in the calendar, rounded up to the next power of two
+	 */
+	public CalendarMessageQueue(double bucketWidth, int bucketCount) {
+		if (bucketWidth <= 0) {
+			throw new IllegalArgumentException("bucket width must be positive, but is " + bucketWidth);
+		}
+		if (bucketCount <= 0 || bucketCount > (1 << 30)) {
+			throw new IllegalArgumentException("bucket count must be in (0, 2^30], but is " + bucketCount);
+		}
+		int count = Integer.highestOneBit(bucketCount);
+		if (count < bucketCount) {
+			count <<= 1;
+		}
+		this.bucketWidth = bucketWidth;
+		this.mask = count - 1;
+		this.overflow = count;
+		this.heaps = new Message[count + 1][];
+		this.heapSizes = new int[count + 1];
+	}
+
+	@Override
+	public void putMessage(Message m) {
+		m.queueSequence = this.sequence++;
+		insert(m, bucketOf(m));
+	}
+
+	@Override
+	public void removeMessage(Message m) {
+		m.killMessage();
+		if (m.queueIndex < 0) {
+			return;
+		}
+		int bucket = m.queueBucket;
+		removeAt(bucket, m.queueIndex);
+		if (bucket != this.overflow) {
+			this.calendarSize--;
+		}
+	}
+
+	@Override
+	public Message getNextMessage() {
+		while (true) {
+			if (this.calendarSize == 0) {
+				if (this.heapSizes[this.overflow] == 0) {
+					return null;
+				}
+				// nothing left in this calendar year, jump to the first message in the future
+				Message first = this.heaps[this.overflow][0];
+				this.currentBucket = (long) Math.floor(first.getMessageArrivalTime() / this.bucketWidth);
+				drainOverflow();
+				if (this.calendarSize == 0) {
+					// the time is beyond what the bucket index can represent
+					removeAt(this.overflow, 0);
+					if (first.isAlive()) {
+						return first;
+					}
+					continue;
+				}
+			}
+			int bucket = (int) (this.currentBucket & this.mask);
+			if (this.heapSizes[bucket] > 0) {
+				Message m = this.heaps[bucket][0];
+				removeAt(bucket, 0);
+				this.calendarSize--;
+				if (m.isAlive()) {
+					return m;
+				}
+				continue;
+			}
+			this.currentBucket++;
+			drainOverflow();
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.calendarSize == 0 && this.heapSizes[this.overflow] == 0;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return this.calendarSize + this.heapSizes[this.overflow];
+	}
+
+	private int bucketOf(Message m) {
+		double bucket = Math.floor(m.getMessageArrivalTime() / this.bucketWidth);
+		if (bucket >= this.currentBucket + (double) this.overflow) {
+			return this.overflow;
+		}
+		// messages from the past are treated as due in the current bucket
+		return (int) (Math.max((long) bucket, this.currentBucket) & this.mask);
+	}
+
+	private void drainOverflow() {
+		Message[] heap = this.heaps[this.overflow];
+		while (this.heapSizes[this.overflow] > 0) {
+			Message m = heap[0];
+			int bucket = bucketOf(m);
+			if (bucket == this.overflow) {
+				return;
+			}
+			removeAt(this.overflow, 0);
+			insert(m, bucket);
+		}
+	}
+
+	private void insert(Message m, int bucket) {
+		Message[] heap = this.heaps[bucket];
+		int size = this.heapSizes[bucket];
+		if (heap == null) {
+			heap = new Message[INITIAL_BUCKET_CAPACITY];
+			this.heaps[bucket] = heap;
+		} else if (size == heap.length) {
+			Message[] grown = new Message[size * 2];
+			System.arraycopy(heap, 0, grown, 0, size);
+			heap = grown;
+			this.heaps[bucket] = heap;
+		}
+		m.queueBucket = bucket;
+		this.heapSizes[bucket] = size + 1;
+		siftUp(heap, size, m);
+		if (bucket != this.overflow) {
+			this.calendarSize++;
+		}
+	}
+
+	private void removeAt(int bucket, int index) {
+		Message[] heap = this.heaps[bucket];
+		int last = --this.heapSizes[bucket];
+		Message removed = heap[index];
+		Message moved = heap[last];
+		heap[last] = null;
+		if (index != last) {
+			siftDown(heap, last, index, moved);
+			if (heap[index] == moved) {
+				siftUp(heap, index, moved);
+			}
+		}
+		removed.queueBucket = -1;
+		removed.queueIndex = -1;
+	}
+
+	private static void siftUp(Message[] heap, int index, Message m) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			Message p = heap[parent];
+			if (compare(m, p) >= 0) {
+				break;
+			}
+			heap[index] = p;
+			p.queueIndex = index;
+			index = parent;
+		}
+		heap[index] = m;
+		m.queueIndex = index;
+	}
+
+	private static void siftDown(Message[] heap, int size, int index, Message m) {
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			Message c = heap[child];
+			int right = child + 1;
+			if (right < size && compare(heap[right], c) < 0) {
+				child = right;
+				c = heap[child];
+			}
+			if (compare(m, c) <= 0) {
+				break;
+			}
+			heap[index] = c;
+			c.queueIndex = index;
+			index = child;
+		}
+		heap[index] = m;
+		m.queueIndex = index;
+	}
+
+	private static int compare(Message m1, Message m2) {
+		int c = m1.compareTo(m2);
+		if (c != 0) {
+			return c;
+		}
+		return Long.compare(m1.queueSequence, m2.queueSequence);
+	}
+
+}
@@ -19,6 +19,8 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.Map;
+
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.misc.Time;
 
@@ -57,6 +59,12 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	public final static String CAR_SIZE = "carSize";
 	public final static String GAP_TRAVEL_SPEED = "gapTravelSpeed";
 	public final static String END_TIME = "endTime";
+	public final static String MESSAGE_QUEUE = "messageQueue";
+	public final static String CALENDAR_BUCKET_WIDTH = "calendarBucketWidth";
+	public final static String CALENDAR_BUCKET_COUNT = "calendarBucketCount";
+	public final static String NUMBER_OF_THREADS = "numberOfThreads";
+
+	public enum MessageQueueType { priorityQueue, calendarQueue }
 
 	// INPUT
 	private double simulationEndTime = Double.MAX_VALUE; // in s
@@ -71,6 +79,10 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	 * 'stuckTime' for entering next road, it will enter the next. in seconds
 	 */
 	private double squeezeTime = 1800;
+	private MessageQueueType messageQueue = MessageQueueType.priorityQueue;
+	private double calendarBucketWidth = 1.0; // in s
+	private int calendarBucketCount = 4096;
+	private int numberOfThreads = 1;
 
 	public JDEQSimConfigGroup() {
 		super(NAME);
@@ -169,4 +181,77 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 		this.squeezeTime = squeezeTime;
 	}
 
+	@StringGetter(MESSAGE_QUEUE)
+	public MessageQueueType getMessageQueue() {
+		return messageQueue;
+	}
+
+	@StringSetter(MESSAGE_QUEUE)
+	public void setMessageQueue(MessageQueueType messageQueue) {
+		this.messageQueue = messageQueue;
+	}
+
+	@StringGetter(CALENDAR_BUCKET_WIDTH)
+	public double getCalendarBucketWidth() {
+		return calendarBucketWidth;
+	}
+
+	@StringSetter(CALENDAR_BUCKET_WIDTH)
+	public void setCalendarBucketWidth(double calendarBucketWidth) {
+		this.calendarBucketWidth = calendarBucketWidth;
+	}
+
+	@StringGetter(CALENDAR_BUCKET_COUNT)
+	public int getCalendarBucketCount() {
+		return calendarBucketCount;
+	}
+
+	@StringSetter(CALENDAR_BUCKET_COUNT)
+	public void setCalendarBucketCount(int calendarBucketCount) {
+		this.calendarBucketCount = calendarBucketCount;
+	}
+
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but is " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return a new, empty message queue of the configured type
+	 */
+	public SimulationMessageQueue createMessageQueue() {
+		switch (messageQueue) {
+		case calendarQueue:
+			return new CalendarMessageQueue(calendarBucketWidth, calendarBucketCount);
+		case priorityQueue:
+			return new MessageQueue();
+		default:
+			throw new RuntimeException("unknown message queue type: " + messageQueue);
+		}
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> comments = super.getComments();
+		comments.put(MESSAGE_QUEUE, "The message queue of the simulation: " + MessageQueueType.priorityQueue
+				+ " (a binary heap over all messages) or " + MessageQueueType.calendarQueue
+				+ " (time buckets, faster for large populations). "
+				+ "Both process messages in the same order, up to messages with equal time and priority.");
+		comments.put(CALENDAR_BUCKET_WIDTH, "Only used with the calendar queue: the time span of one bucket, in seconds.");
+		comments.put(CALENDAR_BUCKET_COUNT, "Only used with the calendar queue: the number of buckets, rounded up to a power of two. "
+				+ "Messages more than width times count seconds ahead are kept in a separate heap.");
+		comments.put(NUMBER_OF_THREADS, "The number of threads of the simulation. With more than one thread, the network is split "
+				+ "into one partition per thread and the " + ParallelJDEQSimulation.class.getSimpleName() + " is used. "
+				+ "Its events are the same as those of the sequential simulation, up to the order of events with equal time.");
+		return comments;
+	}
+
 }
@@ -0,0 +1,409 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+
+/**
+ * The scheduler of one partition of the {@link ParallelJDEQSimulation}, i.e. of all roads
+ * simulated by one thread.
+ * <p>
+ * Messages to roads of the own partition go into the message queue. Messages to roads of other
+ * partitions are collected per target partition and handed over between two windows of the
+ * simulation. For every queued message, the partition also keeps the earliest time at which the
+ * message or the messages caused by it may send a message to another partition (see
+ * {@link #lookahead(Message)}). The minimum of these times over all partitions is the end of the
+ * next window.
+ * <p>
+ * A message which may send a message to another partition at its own time is processed
+ * {@link #processAlone(Message) alone}, while all other partitions wait. It then acts on roads of
+ * other partitions directly, just as in the sequential simulation.
+ */
+final class JDEQSimPartition extends Scheduler {
+
+	/**
+	 * the partition simulated by the current thread, <code>null</code> while the simulation is set up
+	 */
+	static final ThreadLocal<JDEQSimPartition> CURRENT = new ThreadLocal<>();
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	final int index;
+	private JDEQSimPartition[] partitions;
+	private final List<List<Message>> outboxes = new ArrayList<>();
+
+	// pending messages, as a binary heap ordered by their lookahead time
+	private Message[] lookaheadHeap = new Message[INITIAL_CAPACITY];
+	private int lookaheadSize = 0;
+
+	// the first message of the queue which did not belong to the last window
+	private Message next = null;
+	private Message current = null;
+
+	// the current window: messages with time < windowEnd, or with time == windowEnd which come before bound
+	private double windowEnd = Double.NEGATIVE_INFINITY;
+	private Message bound = null;
+
+	// whether the current message is processed while all other partitions wait
+	private boolean alone = false;
+
+	// events of the current and of the previous window, with the messages which created them
+	private int buffer = 0;
+	private final Event[][] events = new Event[2][INITIAL_CAPACITY];
+	private final Message[][] eventMessages = new Message[2][INITIAL_CAPACITY];
+	private final int[] eventCounts = new int[2];
+
+	JDEQSimPartition(int index, SimulationMessageQueue queue) {
+		super(queue);
+		this.index = index;
+	}
+
+	void setPartitions(JDEQSimPartition[] partitions) {
+		this.partitions = partitions;
+		for (int i = 0; i < partitions.length; i++) {
+			this.outboxes.add(new ArrayList<Message>());
+		}
+	}
+
+	/**
+	 * Routes the message to the partition of its receiving road. Vehicles keep the scheduler of the
+	 * partition they started in, so this may be invoked on any partition.
+	 */
+	@Override
+	public void schedule(Message m) {
+		JDEQSimPartition target = ((ParallelRoad) m.getReceivingUnit()).partition;
+		JDEQSimPartition current = CURRENT.get();
+		if (current == null || current == target || current.alone) {
+			target.scheduleLocal(m);
+		} else {
+			current.post(target, m);
+		}
+	}
+
+	/**
+	 * Only deadlock prevention messages are unscheduled, always by the road they were sent to.
+	 */
+	@Override
+	public void unschedule(Message m) {
+		if (m == this.next) {
+			this.next = null;
+		} else {
+			this.queue.removeMessage(m);
+		}
+		removeLookahead(m);
+	}
+
+	private void scheduleLocal(Message m) {
+		this.queue.putMessage(m);
+		m.lookaheadTime = m.getMessageArrivalTime() + lookahead(m);
+		addLookahead(m);
+	}
+
+	private void post(JDEQSimPartition target, Message m) {
+		double messageTime = m.getMessageArrivalTime();
+		if (messageTime < this.windowEnd || (this.bound != null && messageTime == this.windowEnd)) {
+			throw new IllegalStateException("message at time " + messageTime + " to partition " + target.index
+					+ " lies within the current window ending at " + this.windowEnd + ". Are all routes connected?");
+		}
+		this.outboxes.get(target.index).add(m);
+	}
+
+	/**
+	 * @return a lower bound for the time between the message and any message to another partition
+	 *         caused by it
+	 */
+	private double lookahead(Message m) {
+		ParallelRoad road = (ParallelRoad) m.getReceivingUnit();
+		if (m instanceof EnterRoadMessage || m instanceof LeaveRoadMessage || m instanceof EndLegMessage) {
+			return road.lookahead;
+		}
+		if (m instanceof EndRoadMessage) {
+			// the vehicle will request to enter the next road right away
+			ParallelRoad nextRoad = getNextRoad(((EventMessage) m).vehicle);
+			return nextRoad.partition != this ? 0 : Math.min(road.lookahead, nextRoad.lookahead);
+		}
+		if (m instanceof DeadlockPreventionMessage) {
+			// the vehicle will leave its previous road right away
+			ParallelRoad previousRoad = getPreviousRoad(((EventMessage) m).vehicle);
+			if (previousRoad == null) {
+				return road.lookahead;
+			}
+			return previousRoad.partition != this ? 0 : Math.min(road.lookahead, previousRoad.lookahead);
+		}
+		if (m instanceof StartingLegMessage) {
+			Vehicle vehicle = ((EventMessage) m).vehicle;
+			Leg leg = vehicle.getCurrentLeg();
+			if (leg.getMode().equals(TransportMode.car)) {
+				Id<Link>[] route = vehicle.getCurrentLinkRoute();
+				return route != null && route.length > 0 ? road.lookahead : 0;
+			}
+			// the leg ends at the road of the next activity, which may be in another partition
+			return ParallelJDEQSimulation.getTeleportationTime(leg);
+		}
+		return 0;
+	}
+
+	private static ParallelRoad getNextRoad(Vehicle vehicle) {
+		Id<Link> linkId;
+		if (vehicle.isCurrentLegFinished()) {
+			linkId = getActivity(vehicle, vehicle.getLegIndex() + 1).getLinkId();
+		} else {
+			linkId = vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() + 1];
+		}
+		return (ParallelRoad) Road.getRoad(linkId);
+	}
+
+	// see Vehicle.scheduleLeavePreviousRoadMessage
+	private static ParallelRoad getPreviousRoad(Vehicle vehicle) {
+		if (vehicle.getLinkIndex() == 0) {
+			return (ParallelRoad) Road.getRoad(getActivity(vehicle, vehicle.getLegIndex() - 1).getLinkId());
+		} else if (vehicle.getLinkIndex() >= 1) {
+			return (ParallelRoad) Road.getRoad(vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() - 1]);
+		}
+		return null;
+	}
+
+	private static Activity getActivity(Vehicle vehicle, int index) {
+		List<? extends PlanElement> actsLegs = vehicle.getOwnerPerson().getSelectedPlan().getPlanElements();
+		return (Activity) actsLegs.get(index);
+	}
+
+	/**
+	 * @param bound if not <code>null</code>, the messages at <code>windowEnd</code> which come
+	 *        before it are part of the window, too
+	 */
+	void setWindow(double windowEnd, Message bound, int buffer) {
+		this.windowEnd = windowEnd;
+		this.bound = bound;
+		this.buffer = buffer;
+	}
+
+	boolean isAlone() {
+		return this.alone;
+	}
+
+	/**
+	 * Processes all messages of the current window.
+	 */
+	void processWindow() {
+		Message m = this.next;
+		this.next = null;
+		while (m != null && (m.getMessageArrivalTime() < this.windowEnd || (this.bound != null
+				&& m.getMessageArrivalTime() == this.windowEnd && m.compareTo(this.bound) < 0))) {
+			removeLookahead(m);
+			this.current = m;
+			m.processEvent();
+			m.handleMessage();
+			m = this.queue.getNextMessage();
+		}
+		this.next = m;
+		this.current = null;
+	}
+
+	/**
+	 * Processes the given message, which must be the next one of this partition, while all other
+	 * partitions wait. Messages to other partitions are put into their queues right away.
+	 */
+	void processAlone(Message m) {
+		if (m != this.next) {
+			throw new IllegalStateException("message at time " + m.getMessageArrivalTime() + " is not the next one of partition " + this.index);
+		}
+		this.next = null;
+		removeLookahead(m);
+		this.current = m;
+		this.alone = true;
+		try {
+			m.processEvent();
+			m.handleMessage();
+		} finally {
+			this.alone = false;
+			this.current = null;
+		}
+	}
+
+	/**
+	 * Takes over the messages which the other partitions sent to this one during the last window and
+	 * fetches the next message to process.
+	 */
+	void collectMessages() {
+		if (this.next != null) {
+			// messages from other partitions may come before it
+			this.queue.putMessage(this.next);
+			this.next = null;
+		}
+		for (JDEQSimPartition partition : this.partitions) {
+			List<Message> inbox = partition.outboxes.get(this.index);
+			for (Message m : inbox) {
+				scheduleLocal(m);
+			}
+			inbox.clear();
+		}
+		this.next = this.queue.getNextMessage();
+	}
+
+	/**
+	 * @return the time of the next message of this partition, infinity if there is none
+	 */
+	double getNextMessageTime() {
+		return this.next == null ? Double.POSITIVE_INFINITY : this.next.getMessageArrivalTime();
+	}
+
+	/**
+	 * @return the earliest time at which this partition may send a message to another partition
+	 */
+	double getLookaheadTime() {
+		return this.lookaheadSize == 0 ? Double.POSITIVE_INFINITY : this.lookaheadHeap[0].lookaheadTime;
+	}
+
+	/**
+	 * @return the first of the messages with the earliest lookahead time, <code>null</code> if there is none
+	 */
+	Message getFirstLookaheadMessage() {
+		return this.lookaheadSize == 0 ? null : this.lookaheadHeap[0];
+	}
+
+	void addEvent(Event event) {
+		int count = this.eventCounts[this.buffer];
+		if (count == this.events[this.buffer].length) {
+			this.events[this.buffer] = Arrays.copyOf(this.events[this.buffer], count * 2);
+			this.eventMessages[this.buffer] = Arrays.copyOf(this.eventMessages[this.buffer], count * 2);
+		}
+		this.events[this.buffer][count] = event;
+		this.eventMessages[this.buffer][count] = this.current;
+		this.eventCounts[this.buffer] = count + 1;
+	}
+
+	int getEventCount(int buffer) {
+		return this.eventCounts[buffer];
+	}
+
+	Event getEvent(int buffer, int i) {
+		return this.events[buffer][i];
+	}
+
+	Message getEventMessage(int buffer, int i) {
+		return this.eventMessages[buffer][i];
+	}
+
+	/**
+	 * Sorts the events of the buffer by the messages which created them. Messages created at the
+	 * same time with a higher priority are processed after their creator, but their events come
+	 * first, as they do for the vehicle in the sequential simulation.
+	 */
+	void sortEvents(int buffer) {
+		int count = this.eventCounts[buffer];
+		Event[] unsortedEvents = Arrays.copyOf(this.events[buffer], count);
+		Message[] messages = Arrays.copyOf(this.eventMessages[buffer], count);
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		// a stable sort, which keeps the order of the events of one message
+		Arrays.sort(order, (i, j) -> messages[i].compareTo(messages[j]));
+		for (int i = 0; i < count; i++) {
+			this.events[buffer][i] = unsortedEvents[order[i]];
+			this.eventMessages[buffer][i] = messages[order[i]];
+		}
+	}
+
+	void clearEvents(int buffer) {
+		Arrays.fill(this.events[buffer], 0, this.eventCounts[buffer], null);
+		Arrays.fill(this.eventMessages[buffer], 0, this.eventCounts[buffer], null);
+		this.eventCounts[buffer] = 0;
+	}
+
+	private void addLookahead(Message m) {
+		if (this.lookaheadSize == this.lookaheadHeap.length) {
+			this.lookaheadHeap = Arrays.copyOf(this.lookaheadHeap, this.lookaheadSize * 2);
+		}
+		siftUp(this.lookaheadSize++, m);
+	}
+
+	private void removeLookahead(Message m) {
+		int i = m.lookaheadIndex;
+		if (i < 0) {
+			return;
+		}
+		m.lookaheadIndex = -1;
+		int last = --this.lookaheadSize;
+		Message moved = this.lookaheadHeap[last];
+		this.lookaheadHeap[last] = null;
+		if (i != last) {
+			siftDown(i, moved);
+			if (this.lookaheadHeap[i] == moved) {
+				siftUp(i, moved);
+			}
+		}
+	}
+
+	private void siftUp(int i, Message m) {
+		Message[] heap = this.lookaheadHeap;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			Message p = heap[parent];
+			if (compareLookahead(m, p) >= 0) {
+				break;
+			}
+			heap[i] = p;
+			p.lookaheadIndex = i;
+			i = parent;
+		}
+		heap[i] = m;
+		m.lookaheadIndex = i;
+	}
+
+	private void siftDown(int i, Message m) {
+		Message[] heap = this.lookaheadHeap;
+		int half = this.lookaheadSize >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			Message c = heap[child];
+			int right = child + 1;
+			if (right < this.lookaheadSize && compareLookahead(heap[right], c) < 0) {
+				child = right;
+				c = heap[child];
+			}
+			if (compareLookahead(m, c) <= 0) {
+				break;
+			}
+			heap[i] = c;
+			c.lookaheadIndex = i;
+			i = child;
+		}
+		heap[i] = m;
+		m.lookaheadIndex = i;
+	}
+
+	private static int compareLookahead(Message m1, Message m2) {
+		int c = Double.compare(m1.lookaheadTime, m2.lookaheadTime);
+		return c != 0 ? c : m1.compareTo(m2);
+	}
+
+}
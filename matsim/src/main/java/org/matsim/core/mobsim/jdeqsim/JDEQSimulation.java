@@ -66,7 +66,7 @@ public class JDEQSimulation implements Mobsim {
 		Timer t = new Timer();
 		t.startTimer();
 
-		Scheduler scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime());
+		Scheduler scheduler = new Scheduler(config.createMessageQueue(), config.getSimulationEndTime());
 		Road.setAllRoads(new HashMap<Id<Link>, Road>());
 
 		// initialize network
@@ -40,6 +40,19 @@ public abstract class Message implements Comparable<Message> {
 	protected int priority = 0;
 	private boolean isAlive = true;
 
+	// bookkeeping of the CalendarMessageQueue: bucket and position within its heap (-1 if not queued there), insertion order
+	int queueBucket = -1;
+	int queueIndex = -1;
+	long queueSequence = 0;
+
+	// the vehicle which sent the message (by the index of the id of its owner, -1 if none) and the number of messages it sent before
+	int senderIndex = -1;
+	long senderSequence = 0;
+
+	// bookkeeping of the JDEQSimPartition: earliest time of a message to another partition caused by this one, position in its heap
+	double lookaheadTime = 0;
+	int lookaheadIndex = -1;
+
 	public Message() {
 	}
 
@@ -56,7 +69,10 @@ public abstract class Message implements Comparable<Message> {
 	/**
 	 * 
 	 * The comparison is done according to the message arrival Time. If the time
-	 * is equal of two messages, then the priority of the messages is compared
+	 * is equal of two messages, then the priority of the messages is compared.
+	 * Messages with the same time and priority are ordered by the vehicle which
+	 * sent them and then by the order in which it sent them, so that the order
+	 * does not depend on the message queue (see {@link ParallelJDEQSimulation}).
 	 */
 	@Override
 	public int compareTo(Message otherMessage) {
@@ -64,9 +80,13 @@ public abstract class Message implements Comparable<Message> {
 			return 1;
 		} else if (messageArrivalTime < otherMessage.messageArrivalTime) {
 			return -1;
-		} else {
+		} else if (priority != otherMessage.getPriority()) {
 			// higher priority means for a queue, that it comes first
 			return otherMessage.getPriority() - priority;
+		} else if (senderIndex != otherMessage.senderIndex) {
+			return senderIndex < otherMessage.senderIndex ? -1 : 1;
+		} else {
+			return Long.compare(senderSequence, otherMessage.senderSequence);
 		}
 	}
 
@@ -26,7 +26,7 @@ import java.util.PriorityQueue;
  *
  * @author rashid_waraich
  */
-public class MessageQueue {
+public class MessageQueue implements SimulationMessageQueue {
 	private PriorityQueue<Message> queue1 = new PriorityQueue<Message>();
 	private int queueSize = 0;
 
@@ -36,6 +36,7 @@ public class MessageQueue {
 	 *
 	 * @param m
 	 */
+	@Override
 	public void putMessage(Message m) {
 		queue1.add(m);
 		queueSize++;
@@ -53,6 +54,7 @@ public class MessageQueue {
 	 * 
 	 * @param m
 	 */
+	@Override
 	public void removeMessage(Message m) {
 		m.killMessage();
 		queueSize--;
@@ -64,6 +66,7 @@ public class MessageQueue {
 	 *
 	 * @return
 	 */
+	@Override
 	public Message getNextMessage() {
 		Message m = null;
 		if (queue1.peek() != null) {
@@ -80,10 +83,12 @@ public class MessageQueue {
 		return m;
 	}
 
+	@Override
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
 
+	@Override
 	public int getQueueSize() {
 		return queueSize;
 	}
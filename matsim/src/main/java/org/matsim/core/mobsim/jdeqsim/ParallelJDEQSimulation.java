@@ -0,0 +1,498 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.mobsim.framework.Mobsim;
+import org.matsim.core.mobsim.jdeqsim.util.Timer;
+import org.matsim.core.mobsim.qsim.qnetsimengine.SpaceFillingCurveQNetworkPartitioner;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * A parallel version of the {@link JDEQSimulation}, a conservative parallel discrete event simulation.
+ * <p>
+ * The roads are split into one partition per thread along a space filling curve, weighted by the
+ * number of routes using them (see {@link SpaceFillingCurveQNetworkPartitioner}). Every partition has
+ * its own {@link JDEQSimPartition scheduler}. Roads interact through messages, except for a
+ * vehicle at the end of a road, which requests to enter the next road directly.
+ * <p>
+ * The simulation proceeds in windows. Within a window, all partitions process their messages
+ * independently; at its end, messages between partitions are handed over. A window ends at the
+ * earliest time at which any partition may send a message to another one. This time is derived from
+ * a lookahead per road: the minimum time from a vehicle entering, leaving or being allowed to enter
+ * the road until the simulation reaches a road at the border of the partition. It is computed from
+ * the free speed travel times, the flow capacities and the gap travel times of the roads, and from
+ * the travel times of legs which are not simulated on the network.
+ * <p>
+ * When a message may affect another partition at its own time (e.g. a vehicle reaching the end of
+ * a road at the border), the window contains only the messages of this time which come before it in
+ * the order of {@link Message#compareTo(Message)}. The message itself is then processed alone,
+ * while all other partitions wait, so it requests to enter the next road exactly when the sequential
+ * simulation does. As messages with the same time and priority are ordered by their sending vehicle
+ * in both simulations, every road sees the same sequence of vehicles as in the sequential
+ * simulation.
+ * <p>
+ * The events are collected per partition and merged by the messages which created them after
+ * each window. The result is the same as the result of the sequential {@link JDEQSimulation}, up to
+ * the order of events with the same time. Within a time step, a vehicle still e.g. leaves a road
+ * before it enters the next one.
+ * <p>
+ * Routes of car legs must be connected in the network, and the free speed of links must not increase
+ * during the simulation.
+ *
+ * @see JDEQSimConfigGroup#getNumberOfThreads()
+ */
+public class ParallelJDEQSimulation implements Mobsim {
+
+	private final static Logger log = Logger.getLogger(ParallelJDEQSimulation.class);
+
+	private final JDEQSimConfigGroup config;
+	private final Scenario scenario;
+	private final EventsManager events;
+	private final PlansConfigGroup.ActivityDurationInterpretation activityDurationInterpretation;
+
+	private JDEQSimPartition[] partitions;
+	private volatile boolean finished;
+
+	@Inject
+	public ParallelJDEQSimulation(final JDEQSimConfigGroup config, final Scenario scenario, final EventsManager events) {
+		Road.setConfig(config);
+		this.config = config;
+		this.scenario = scenario;
+		this.events = events;
+		this.activityDurationInterpretation = this.scenario.getConfig().plans().getActivityDurationInterpretation();
+	}
+
+	@Override
+	public void run() {
+		events.initProcessing();
+		Timer t = new Timer();
+		t.startTimer();
+
+		/*
+		 * the message pools of the MessageFactory are not thread safe, so they are emptied and not
+		 * filled again during the simulation
+		 */
+		boolean gcMessages = JDEQSimConfigGroup.isGC_MESSAGES();
+		JDEQSimConfigGroup.setGC_MESSAGES(true);
+		MessageFactory.GC_ALL_MESSAGES();
+		Message.setEventsManager(new PartitionEventsCollector());
+		try {
+			initialize();
+			simulate();
+		} finally {
+			JDEQSimConfigGroup.setGC_MESSAGES(gcMessages);
+			Message.setEventsManager(events);
+		}
+
+		t.endTimer();
+		log.info("Time needed for one iteration (only ParallelJDEQSimulation part): " + t.getMeasuredTime() + "[ms]");
+		events.finishProcessing();
+	}
+
+	private void initialize() {
+		int numberOfThreads = config.getNumberOfThreads();
+		this.partitions = new JDEQSimPartition[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; i++) {
+			this.partitions[i] = new JDEQSimPartition(i, config.createMessageQueue());
+		}
+		for (JDEQSimPartition partition : this.partitions) {
+			partition.setPartitions(this.partitions);
+		}
+
+		// partition the nodes, every road is simulated by the partition of its from node
+		List<Node> nodes = new ArrayList<>(this.scenario.getNetwork().getNodes().values());
+		Map<Id<Node>, Integer> nodeIndices = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeIndices.put(nodes.get(i).getId(), i);
+		}
+		double[] weights = new double[nodes.size()];
+		for (Node node : nodes) {
+			weights[nodeIndices.get(node.getId())] += node.getOutLinks().size();
+		}
+		for (Person person : this.scenario.getPopulation().getPersons().values()) {
+			Plan plan = person.getSelectedPlan();
+			if (plan == null) {
+				continue;
+			}
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Leg && ((Leg) pe).getRoute() instanceof NetworkRoute) {
+					for (Id<Link> linkId : ((NetworkRoute) ((Leg) pe).getRoute()).getLinkIds()) {
+						Link link = this.scenario.getNetwork().getLinks().get(linkId);
+						if (link != null) {
+							weights[nodeIndices.get(link.getFromNode().getId())]++;
+						}
+					}
+				}
+			}
+		}
+		int[] nodePartitions = new SpaceFillingCurveQNetworkPartitioner().partition(nodes, weights, numberOfThreads);
+
+		HashMap<Id<Link>, Road> allRoads = new HashMap<>();
+		List<ParallelRoad> roads = new ArrayList<>();
+		for (Link link : this.scenario.getNetwork().getLinks().values()) {
+			JDEQSimPartition partition = this.partitions[nodePartitions[nodeIndices.get(link.getFromNode().getId())]];
+			ParallelRoad road = new ParallelRoad(partition, link, roads.size());
+			roads.add(road);
+			allRoads.put(link.getId(), road);
+		}
+		Road.setAllRoads(allRoads);
+		computeLookaheads(roads);
+
+		for (Person person : this.scenario.getPopulation().getPersons().values()) {
+			// the vehicle registers itself to the scheduler of the road it starts on
+			new Vehicle(this.partitions[0], person, activityDurationInterpretation);
+		}
+		for (JDEQSimPartition partition : this.partitions) {
+			partition.collectMessages();
+		}
+	}
+
+	/**
+	 * Computes the lookahead of every road as the shortest path to a road at the border of its
+	 * partition. A vehicle entering or leaving a road lets the next vehicle reach the end of the road
+	 * (and request to enter a downstream road) after the free speed travel time or the inverse flow
+	 * capacity. A vehicle leaving a road lets a waiting vehicle enter it (and leave its upstream road)
+	 * after the gap travel time.
+	 */
+	private void computeLookaheads(List<ParallelRoad> roads) {
+		int size = roads.size();
+		double[] downstreamDelays = new double[size];
+		double[] upstreamDelays = new double[size];
+		for (ParallelRoad road : roads) {
+			Link link = road.getLink();
+			downstreamDelays[road.index] = Math.min(link.getLength() / link.getFreespeed(), road.getInverseOutFlowCapacity());
+			upstreamDelays[road.index] = link.getLength() / config.getGapTravelSpeed();
+		}
+
+		for (ParallelRoad road : roads) {
+			Link link = road.getLink();
+			for (Link outLink : link.getToNode().getOutLinks().values()) {
+				if (((ParallelRoad) Road.getRoad(outLink.getId())).partition != road.partition) {
+					road.lookahead = Math.min(road.lookahead, downstreamDelays[road.index]);
+				}
+			}
+			for (Link inLink : link.getFromNode().getInLinks().values()) {
+				if (((ParallelRoad) Road.getRoad(inLink.getId())).partition != road.partition) {
+					road.lookahead = Math.min(road.lookahead, upstreamDelays[road.index]);
+				}
+			}
+		}
+		// legs which are not simulated on the network may end in any partition
+		for (Person person : this.scenario.getPopulation().getPersons().values()) {
+			Plan plan = person.getSelectedPlan();
+			if (plan == null) {
+				continue;
+			}
+			List<PlanElement> actsLegs = plan.getPlanElements();
+			for (int i = 1; i < actsLegs.size(); i += 2) {
+				Leg leg = (Leg) actsLegs.get(i);
+				if (!isSimulatedOnNetwork(leg)) {
+					ParallelRoad road = (ParallelRoad) Road.getRoad(((Activity) actsLegs.get(i - 1)).getLinkId());
+					double travelTime = leg.getMode().equals(TransportMode.car) ? 0 : getTeleportationTime(leg);
+					road.lookahead = Math.min(road.lookahead, travelTime);
+				}
+			}
+		}
+
+		PriorityQueue<LookaheadEntry> pending = new PriorityQueue<>();
+		for (ParallelRoad road : roads) {
+			if (road.lookahead < Double.POSITIVE_INFINITY) {
+				pending.add(new LookaheadEntry(road, road.lookahead));
+			}
+		}
+		boolean[] done = new boolean[size];
+		while (!pending.isEmpty()) {
+			ParallelRoad road = pending.poll().road;
+			if (done[road.index]) {
+				continue;
+			}
+			done[road.index] = true;
+			Link link = road.getLink();
+			// upstream roads reach this one when their vehicles get to the end
+			for (Link inLink : link.getFromNode().getInLinks().values()) {
+				ParallelRoad upstream = (ParallelRoad) Road.getRoad(inLink.getId());
+				relax(upstream, road, downstreamDelays[upstream.index], pending);
+			}
+			// downstream roads reach this one when they let in vehicles waiting on it
+			for (Link outLink : link.getToNode().getOutLinks().values()) {
+				ParallelRoad downstream = (ParallelRoad) Road.getRoad(outLink.getId());
+				relax(downstream, road, upstreamDelays[downstream.index], pending);
+			}
+		}
+	}
+
+	private static void relax(ParallelRoad road, ParallelRoad target, double delay, PriorityQueue<LookaheadEntry> pending) {
+		if (road.partition == target.partition && target.lookahead + delay < road.lookahead) {
+			road.lookahead = target.lookahead + delay;
+			pending.add(new LookaheadEntry(road, road.lookahead));
+		}
+	}
+
+	private static boolean isSimulatedOnNetwork(Leg leg) {
+		return leg.getMode().equals(TransportMode.car) && leg.getRoute() instanceof NetworkRoute
+				&& !((NetworkRoute) leg.getRoute()).getLinkIds().isEmpty();
+	}
+
+	/**
+	 * @return the travel time of a leg which is not simulated on the network, at least 0
+	 */
+	static double getTeleportationTime(Leg leg) {
+		double travelTime = leg.getTravelTime();
+		return Time.isUndefinedTime(travelTime) || travelTime < 0 ? 0 : travelTime;
+	}
+
+	private void simulate() {
+		int numberOfThreads = this.partitions.length;
+		Phaser startBarrier = new Phaser(numberOfThreads + 1);
+		Phaser separationBarrier = new Phaser(numberOfThreads);
+		Phaser endBarrier = new Phaser(numberOfThreads + 1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		this.finished = false;
+
+		for (JDEQSimPartition partition : this.partitions) {
+			Thread thread = new Thread(() -> {
+				JDEQSimPartition.CURRENT.set(partition);
+				while (true) {
+					startBarrier.arriveAndAwaitAdvance();
+					if (this.finished) {
+						return;
+					}
+					if (failure.get() == null) {
+						try {
+							partition.processWindow();
+						} catch (Throwable e) {
+							failure.compareAndSet(null, e);
+						}
+					}
+					separationBarrier.arriveAndAwaitAdvance();
+					if (failure.get() == null) {
+						try {
+							partition.collectMessages();
+						} catch (Throwable e) {
+							failure.compareAndSet(null, e);
+						}
+					}
+					endBarrier.arriveAndAwaitAdvance();
+				}
+			}, "ParallelJDEQSimulation_Thread_" + partition.index);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		double endTime = config.getSimulationEndTime();
+		int buffer = 0;
+		long windows = 0;
+		try {
+			while (failure.get() == null) {
+				double nextMessageTime = Double.POSITIVE_INFINITY;
+				double lookaheadTime = Double.POSITIVE_INFINITY;
+				for (JDEQSimPartition partition : this.partitions) {
+					nextMessageTime = Math.min(nextMessageTime, partition.getNextMessageTime());
+					lookaheadTime = Math.min(lookaheadTime, partition.getLookaheadTime());
+				}
+				if (nextMessageTime >= endTime || nextMessageTime == Double.POSITIVE_INFINITY) {
+					break;
+				}
+
+				/*
+				 * if a message may affect another partition at the time of the next message, only the messages of this
+				 * time which come before it can be simulated in parallel, and then the message itself alone
+				 */
+				double windowEnd = Math.min(lookaheadTime, endTime);
+				Message bound = null;
+				JDEQSimPartition boundPartition = null;
+				if (lookaheadTime <= nextMessageTime) {
+					windowEnd = nextMessageTime;
+					for (JDEQSimPartition partition : this.partitions) {
+						Message m = partition.getFirstLookaheadMessage();
+						if (m != null && m.lookaheadTime <= windowEnd && (bound == null || m.compareTo(bound) < 0)) {
+							bound = m;
+							boundPartition = partition;
+						}
+					}
+				}
+				for (JDEQSimPartition partition : this.partitions) {
+					partition.setWindow(windowEnd, bound, buffer);
+				}
+
+				startBarrier.arriveAndAwaitAdvance();
+				// the events of the previous window are passed on while the threads simulate the current one
+				if (windows > 0) {
+					try {
+						flushEvents(1 - buffer);
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+				endBarrier.arriveAndAwaitAdvance();
+				if (bound != null && failure.get() == null) {
+					try {
+						processAlone(boundPartition, bound);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+
+				buffer = 1 - buffer;
+				windows++;
+			}
+			if (windows > 0 && failure.get() == null) {
+				flushEvents(1 - buffer);
+			}
+		} finally {
+			this.finished = true;
+			startBarrier.arriveAndAwaitAdvance();
+		}
+
+		Throwable e = failure.get();
+		if (e != null) {
+			throw new RuntimeException("exception in a thread of the ParallelJDEQSimulation", e);
+		}
+		log.info("simulated " + windows + " windows with " + numberOfThreads + " threads");
+	}
+
+	/**
+	 * Processes the message in the current thread, while the threads of the partitions wait, and
+	 * lets all partitions take over the messages it sent them.
+	 */
+	private void processAlone(JDEQSimPartition partition, Message m) {
+		JDEQSimPartition.CURRENT.set(partition);
+		try {
+			partition.processAlone(m);
+		} finally {
+			JDEQSimPartition.CURRENT.remove();
+		}
+		for (JDEQSimPartition p : this.partitions) {
+			p.collectMessages();
+		}
+	}
+
+	/**
+	 * Passes the events of all partitions to the events manager, ordered by the messages which
+	 * created them.
+	 */
+	private void flushEvents(int buffer) {
+		for (JDEQSimPartition partition : this.partitions) {
+			partition.sortEvents(buffer);
+		}
+		int[] positions = new int[this.partitions.length];
+		while (true) {
+			int best = -1;
+			Message bestMessage = null;
+			for (int i = 0; i < this.partitions.length; i++) {
+				JDEQSimPartition partition = this.partitions[i];
+				if (positions[i] < partition.getEventCount(buffer)) {
+					Message message = partition.getEventMessage(buffer, positions[i]);
+					if (best < 0 || message.compareTo(bestMessage) < 0) {
+						best = i;
+						bestMessage = message;
+					}
+				}
+			}
+			if (best < 0) {
+				break;
+			}
+			this.events.processEvent(this.partitions[best].getEvent(buffer, positions[best]++));
+		}
+		for (JDEQSimPartition partition : this.partitions) {
+			partition.clearEvents(buffer);
+		}
+	}
+
+	private static final class LookaheadEntry implements Comparable<LookaheadEntry> {
+		final ParallelRoad road;
+		final double lookahead;
+
+		LookaheadEntry(ParallelRoad road, double lookahead) {
+			this.road = road;
+			this.lookahead = lookahead;
+		}
+
+		@Override
+		public int compareTo(LookaheadEntry o) {
+			return Double.compare(this.lookahead, o.lookahead);
+		}
+	}
+
+	/**
+	 * Collects the events of the messages in the partition of the current thread.
+	 */
+	private static final class PartitionEventsCollector implements EventsManager {
+
+		@Override
+		public void processEvent(Event event) {
+			JDEQSimPartition.CURRENT.get().addEvent(event);
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * A road of the {@link ParallelJDEQSimulation}, simulated by the thread of its partition.
+ */
+class ParallelRoad extends Road {
+
+	final JDEQSimPartition partition;
+	final int index;
+
+	/**
+	 * lower bound for the time from any activity on this road (a vehicle entering, leaving or being
+	 * allowed to enter it) to a message to another partition, see {@link ParallelJDEQSimulation}
+	 */
+	double lookahead = Double.POSITIVE_INFINITY;
+
+	ParallelRoad(JDEQSimPartition partition, Link link, int index) {
+		super(partition, link);
+		this.partition = partition;
+		this.index = index;
+	}
+
+	/**
+	 * A vehicle coming from a road of another partition may only request to enter this road while
+	 * its partition is {@link JDEQSimPartition#processAlone(Message) processed alone}.
+	 */
+	@Override
+	public void enterRequest(Vehicle vehicle, double simTime) {
+		JDEQSimPartition current = JDEQSimPartition.CURRENT.get();
+		if (current != null && current != this.partition && !current.isAlone()) {
+			throw new IllegalStateException("vehicle " + vehicle.getOwnerPerson().getId() + " requests to enter link " + this.link.getId()
+					+ " of partition " + this.partition.index + " at time " + simTime + " while partition " + current.index
+					+ " is simulated in parallel. Are all routes connected?");
+		}
+		super.enterRequest(vehicle, simTime);
+	}
+
+	double getInverseOutFlowCapacity() {
+		return this.inverseOutFlowCapacity;
+	}
+
+}
@@ -31,16 +31,16 @@ public class Scheduler {
 	
 	private static final Logger log = Logger.getLogger(Scheduler.class);
 	private double simTime = 0;
-	protected final MessageQueue queue;
+	protected final SimulationMessageQueue queue;
 	private double simulationStartTime = System.currentTimeMillis();
 	private final double simulationEndTime;
 	private double hourlyLogTime = 3600;
 
-	public Scheduler(MessageQueue queue) {
+	public Scheduler(SimulationMessageQueue queue) {
 		this(queue, Double.MAX_VALUE);
 	}
 
-	public Scheduler(MessageQueue messageQueue, double simulationEndTime) {
+	public Scheduler(SimulationMessageQueue messageQueue, double simulationEndTime) {
 		this.queue = messageQueue;
 		this.simulationEndTime = simulationEndTime;
 	}
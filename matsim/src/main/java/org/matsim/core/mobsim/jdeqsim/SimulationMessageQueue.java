@@ -0,0 +1,47 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+/**
+ * The queue of the messages scheduled in the micro-simulation, ordered by their arrival time and,
+ * for the same time, by their priority.
+ * <p>
+ * A message removed by {@link #removeMessage(Message)} is killed; dead messages are never returned
+ * by {@link #getNextMessage()}. To schedule such a message again, it must be revived first.
+ *
+ * @see MessageQueue
+ * @see CalendarMessageQueue
+ */
+public interface SimulationMessageQueue {
+
+	void putMessage(Message m);
+
+	void removeMessage(Message m);
+
+	/**
+	 * @return the next message (with the least time stamp), or <code>null</code> if there is none
+	 */
+	Message getNextMessage();
+
+	boolean isEmpty();
+
+	int getQueueSize();
+
+}
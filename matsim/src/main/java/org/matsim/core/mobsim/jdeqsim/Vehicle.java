@@ -48,6 +48,7 @@ public class Vehicle extends SimUnit {
 	private int linkIndex;
 	private Id<Link>[] currentLinkRoute = null;
 	private final PlansConfigGroup.ActivityDurationInterpretation activityEndTimeInterpretation;
+	private long sentMessages = 0;
 
 	public Vehicle(Scheduler scheduler, Person ownerPerson, PlansConfigGroup.ActivityDurationInterpretation activityDurationInterpretation) {
 		super(scheduler);
@@ -267,6 +268,17 @@ public class Vehicle extends SimUnit {
 		scheduleLeaveRoadMessage(scheduleTime, previousRoad);
 	}
 
+	/**
+	 * Numbers the messages sent by this vehicle, which orders messages with the same time and
+	 * priority (see {@link Message#compareTo(Message)}).
+	 */
+	@Override
+	public void sendMessage(Message m, SimUnit targetUnit, double messageArrivalTime) {
+		m.senderIndex = ownerPerson.getId().index();
+		m.senderSequence = sentMessages++;
+		super.sendMessage(m, targetUnit, messageArrivalTime);
+	}
+
 	protected void _scheduleEnterRoadMessage(double scheduleTime, Road road) {
 		sendMessage(MessageFactory.getEnterRoadMessage(road.scheduler, this), road, scheduleTime);
 	}
@@ -23,6 +23,7 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.DefaultQNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QLanesNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineModule;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkLoadStatistics;
 
 import com.google.inject.Key;
 import com.google.inject.TypeLiteral;
@@ -89,6 +90,10 @@ public class QSimModule extends AbstractModule {
 		// I don't know why this is here.  kai, nov'18
 
 		bind(Mobsim.class).toProvider(QSimProvider.class);
+
+		bind(QNetworkLoadStatistics.class).asEagerSingleton();
+		// bound here and not at QSim level since the loads measured in one iteration are used to partition the network
+		// in the next one.
 		
 		// yyyy the following will eventually be moved to QSim scope, and into QNetsimEngineModule:
 //		if ( config.qsim().isUseLanes() ) {
@@ -59,6 +59,13 @@ public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPers
 	 * by the entity that holds the plan. Better ideas are welcome.  kai, nov'14
 	 */
 	private int currentLinkIndex = 0;
+	/**
+	 * The link ids of the network route the agent is currently driving along, so that moving on to the next link neither copies nor
+	 * decompresses the route.  Checked against the route of the current leg on every access, and dropped by {@link #resetCaches()}
+	 * in case the route was changed in place.
+	 */
+	private NetworkRoute cachedRoute = null;
+	private List<Id<Link>> cachedRouteLinkIds = null;
 
 	public BasicPlanAgentImpl(Plan plan2, Scenario scenario, EventsManager events, MobsimTimer simTimer) {
 
@@ -182,6 +189,8 @@ public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPers
 	}
 	@Override 
 	public final void resetCaches() {
+		this.cachedRoute = null;
+		this.cachedRouteLinkIds = null;
 		if ( this.getCurrentPlanElement() instanceof Activity ) {
 			Activity act = (Activity) this.getCurrentPlanElement() ;
 			this.calculateAndSetDepartureTime(act);
@@ -374,6 +383,18 @@ public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPers
 		currentLinkIndex++ ;
 	}
 
+	/**
+	 * @return the link ids of the given route, which is expected to be the route of the current leg.  Together with
+	 * {@link #getCurrentLinkIndex()}, this is the cursor along the route: it is fetched once per route instead of once per link.
+	 */
+	final List<Id<Link>> getRouteLinkIds(NetworkRoute route) {
+		if (route != this.cachedRoute) {
+			this.cachedRoute = route;
+			this.cachedRouteLinkIds = route.getLinkIds();
+		}
+		return this.cachedRouteLinkIds;
+	}
+
 	@Override
 	public Facility getCurrentFacility() {
 		PlanElement pe = this.getCurrentPlanElement() ;
@@ -25,6 +25,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.DriverAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
@@ -91,11 +92,12 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 		}
 
 		// (2) routes that are not network routes cannot be interpreted
-		if ( ! ( this.basicPlanAgentDelegate.getCurrentLeg().getRoute() instanceof NetworkRoute ) ) {
+		final Route route = this.basicPlanAgentDelegate.getCurrentLeg().getRoute();
+		if ( ! ( route instanceof NetworkRoute ) ) {
 			return null ;
 		}
 
-		List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		List<Id<Link>> routeLinkIds = this.basicPlanAgentDelegate.getRouteLinkIds((NetworkRoute) route);
 		
 		// (3) if route has run dry, we return the destination link (except for one special case, which however may not be necessary any more):
 		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= routeLinkIds.size() ) {
@@ -127,12 +129,13 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 	@Override
 	public final boolean isWantingToArriveOnCurrentLink( ) {
 		
-		if ( ! ( this.basicPlanAgentDelegate.getCurrentLeg().getRoute() instanceof NetworkRoute ) ) {
+		final Route route = this.basicPlanAgentDelegate.getCurrentLeg().getRoute();
+		if ( ! ( route instanceof NetworkRoute ) ) {
 			// non-network links in the past have always returned true (i.e. "null" to the chooseNextLink question). kai, nov'14
 			return true ;
 		}
 
-		final List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		final List<Id<Link>> routeLinkIds = this.basicPlanAgentDelegate.getRouteLinkIds((NetworkRoute) route);
 		final int routeLinkIdsSize = routeLinkIds.size();
 		
 		// the standard condition used to be "route has run dry AND destination link not attached to current link":
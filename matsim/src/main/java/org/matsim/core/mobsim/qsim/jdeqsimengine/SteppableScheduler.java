@@ -2,7 +2,7 @@ package org.matsim.core.mobsim.qsim.jdeqsimengine;
 
 import org.matsim.core.mobsim.framework.Steppable;
 import org.matsim.core.mobsim.jdeqsim.Message;
-import org.matsim.core.mobsim.jdeqsim.MessageQueue;
+import org.matsim.core.mobsim.jdeqsim.SimulationMessageQueue;
 import org.matsim.core.mobsim.jdeqsim.Scheduler;
 
 import javax.inject.Inject;
@@ -13,7 +13,7 @@ public class SteppableScheduler extends Scheduler implements Steppable {
     private boolean finished = false;
 
     @Inject
-    public SteppableScheduler(MessageQueue queue) {
+    public SteppableScheduler(SimulationMessageQueue queue) {
         super(queue);
     }
 
@@ -1,6 +1,7 @@
 package org.matsim.core.mobsim.qsim.messagequeueengine;
 
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
+import org.matsim.core.mobsim.jdeqsim.SimulationMessageQueue;
 import org.matsim.core.mobsim.qsim.AbstractQSimModule;
 import org.matsim.core.mobsim.qsim.jdeqsimengine.SteppableScheduler;
 
@@ -10,6 +11,7 @@ public class MessageQueueModule extends AbstractQSimModule {
 	@Override
 	protected void configureQSim() {
 		bind(MessageQueue.class).asEagerSingleton();
+		bind(SimulationMessageQueue.class).to(MessageQueue.class);
 		bind(SteppableScheduler.class).asEagerSingleton();
 		bind(MessageQueueEngine.class).asEagerSingleton();
 		
@@ -78,6 +78,12 @@ abstract class AbstractQLink implements QLinkI {
 
 //	private final QNetwork qnetwork ;
 	private NetElementActivationRegistry netElementActivationRegistry;
+
+	/*
+	 * Number of time steps in which this link was simulated. Only written by the runner
+	 * that handles this link, see QNetworkLoadStatistics.
+	 */
+	private int activeTimeSteps = 0;
 	// (NOTE: via the qnetwork you reach the QNetsimEngine.  That is the "global" thing.  In contrast, via the netElementActivator,
 	// you reach the QNetsimEngineRunner.  That is the thread that runs the QLink.  Kai, mar'16
 
@@ -405,6 +411,14 @@ abstract class AbstractQLink implements QLinkI {
 		return customAttributes;
 	}
 
+	/*package*/ int getActiveTimeSteps() {
+		return this.activeTimeSteps;
+	}
+
+	/*package*/ void countActiveTimeStep() {
+		this.activeTimeSteps++;
+	}
+
 	/*package*/ void setNetElementActivationRegistry(NetElementActivationRegistry qSimEngineRunner) {
 		this.netElementActivationRegistry = qSimEngineRunner;
 	}
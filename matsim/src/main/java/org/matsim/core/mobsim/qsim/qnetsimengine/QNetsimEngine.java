@@ -25,11 +25,13 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
@@ -58,8 +60,11 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -93,6 +98,13 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private static final int INFO_PERIOD = 3600;
 
+	/*
+	 * With work stealing, the active elements are split into about CHUNKS_PER_THREAD chunks per thread, but not
+	 * into chunks smaller than MIN_CHUNK_SIZE, where the overhead of a task would exceed the work.
+	 */
+	private static final int CHUNKS_PER_THREAD = 8;
+	private static final int MIN_CHUNK_SIZE = 32;
+
 	private QNetwork network;
 
 	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
@@ -119,6 +131,16 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingWorkStealing;
+
+	private ForkJoinPool forkJoinPool;
+
+	private final NetsimPartitioning partitioning;
+
+	private QNetworkPartitioner partitioner = null;
+
+	private QNetworkLoadStatistics loadStatistics = new QNetworkLoadStatistics();
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -140,6 +162,8 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.usingWorkStealing = qsimConfigGroup.isUsingWorkStealing();
+		this.partitioning = qsimConfigGroup.getNetsimPartitioning();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -217,6 +241,24 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		}
 	}
 
+	/**
+	 * Replaces the partitioner selected by {@link QSimConfigGroup#getNetsimPartitioning()}.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setPartitioner(QNetworkPartitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+
+	/**
+	 * Sets the statistics used for {@link NetsimPartitioning#loadBalanced} partitioning. They are updated
+	 * at the end of every mobsim run, so passing the same instance to the next QNetsimEngine lets that one use
+	 * the load observed in this run.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setLoadStatistics(QNetworkLoadStatistics loadStatistics) {
+		this.loadStatistics = loadStatistics;
+	}
+
 	@Override
 	public void onPrepareSim() {
 		this.infoTime = 
@@ -240,7 +282,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.afterSim();
 		}
 
-		if (this.usingThreadpool) {
+		if (this.usingWorkStealing) {
+			this.forkJoinPool.shutdown();
+		} else if (this.usingThreadpool) {
 			this.pool.shutdown();
 		} else {
 			/*
@@ -251,6 +295,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 		}
 
+		printRunnerLoads();
+		if (this.partitioning == NetsimPartitioning.loadBalanced) {
+			updateLoadStatistics();
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -312,7 +361,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.setTime(time);
 		}
 
-		if (this.usingThreadpool) {
+		if (this.usingWorkStealing) {
+			moveInChunks(true);
+			moveInChunks(false);
+		} else if (this.usingThreadpool) {
 			try {
 				for (QNetsimEngineRunner engine : this.engines) {
 					engine.setMovingNodes(true);
@@ -338,6 +390,68 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	}
 
 
+	/*
+	 * Moves the active nodes or links of all runners as one range that is recursively split in halves. Idle threads of
+	 * the fork-join pool steal the unprocessed halves, so a runner with many active elements does not keep the other
+	 * threads waiting. The runners remain the registries for activated nodes and links, see QNetsimEngineRunner.
+	 */
+	private void moveInChunks(boolean movingNodes) {
+		int[] offsets = new int[this.engines.size() + 1];
+		for (int i = 0; i < this.engines.size(); i++) {
+			QNetsimEngineRunner engine = this.engines.get(i);
+			engine.setMovingNodes(movingNodes);
+			offsets[i + 1] = offsets[i] + engine.prepareChunks();
+		}
+		int size = offsets[this.engines.size()];
+		if (size > 0) {
+			int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (this.numOfThreads * CHUNKS_PER_THREAD));
+			this.forkJoinPool.invoke(new MoveChunksTask(this.engines, offsets, 0, size, chunkSize));
+		}
+		for (QNetsimEngineRunner engine : this.engines) {
+			engine.finishChunks();
+		}
+	}
+
+	private static final class MoveChunksTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<QNetsimEngineRunner> engines;
+		private final int[] offsets;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+
+		MoveChunksTask(List<QNetsimEngineRunner> engines, int[] offsets, int from, int to, int chunkSize) {
+			this.engines = engines;
+			this.offsets = offsets;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > this.chunkSize) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new MoveChunksTask(this.engines, this.offsets, this.from, middle, this.chunkSize),
+						new MoveChunksTask(this.engines, this.offsets, middle, this.to, this.chunkSize));
+				return;
+			}
+			// a chunk may span the elements of several runners
+			int runner = 0;
+			while (this.offsets[runner + 1] <= this.from) {
+				runner++;
+			}
+			int position = this.from;
+			while (position < this.to) {
+				int end = Math.min(this.to, this.offsets[runner + 1]);
+				this.engines.get(runner).moveChunk(position - this.offsets[runner], end - this.offsets[runner]);
+				position = end;
+				runner++;
+			}
+		}
+	}
+
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
 			this.infoTime += INFO_PERIOD;
@@ -426,7 +540,13 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.endBarrier = new Phaser(this.numOfThreads + 1);
 
 		numOfRunners = this.numOfThreads;
-		if (this.usingThreadpool) {
+		if (this.usingWorkStealing) {
+			this.forkJoinPool = new ForkJoinPool(this.numOfThreads, pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("QNetsimEngine_WorkStealingThread_" + thread.getPoolIndex());
+				return thread;
+			}, null, false);
+		} else if (this.usingThreadpool) {
 			// The number of runners should be larger than the number of threads, yes,
 			// but see MATSIM-404 - Simulation result still depends on the number of runners.
 //			numOfRunners *= 10 ;
@@ -438,7 +558,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		// setup threads
 		for (int i = 0; i < numOfRunners; i++) {
 			QNetsimEngineRunner engine ;
-			if (this.usingThreadpool) {
+			if (this.usingWorkStealing) {
+				engine = new QNetsimEngineRunner(true);
+			} else if (this.usingThreadpool) {
 				engine = new QNetsimEngineRunner();
 			} else {
 				engine = new QNetsimEngineRunner(this.startBarrier, separationBarrier, endBarrier);
@@ -465,13 +587,23 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	 */
 	private void assignNetElementActivators() {
 
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		List<Node> networkNodes = new ArrayList<>(qNodes.size());
+		for (QNodeI node : qNodes) {
+			networkNodes.add(node.getNode());
+		}
+		double[] weights = getNodeWeights(networkNodes);
+		int[] partition = getPartitioner().partition(networkNodes, weights, this.numOfRunners);
+
 		// only for statistics
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
+		double load[] = new double[numOfRunners];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = partition[n];
+			load[i] += weights[n];
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -497,18 +629,89 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
-			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links with an expected load of " + load[i] + " to QSimEngineRunner #" + i);
 		}
+		log.info("Expected load imbalance (max / mean) of the QSimEngineRunners with " + this.partitioning + " partitioning: " + imbalance(load));
 
 		this.linksToActivateInitially.clear();
 	}
 
+	private QNetworkPartitioner getPartitioner() {
+		if (this.partitioner != null) {
+			return this.partitioner;
+		}
+		switch (this.partitioning) {
+		case roundRobin:
+			return new RoundRobinQNetworkPartitioner();
+		case spaceFillingCurve:
+		case loadBalanced:
+			return new SpaceFillingCurveQNetworkPartitioner();
+		default:
+			throw new RuntimeException("Unknown netsim partitioning: " + this.partitioning);
+		}
+	}
+
+	/*
+	 * The structural weight of a node is the number of elements a runner has to simulate for it, i.e. the node
+	 * itself and its out-links. With load balancing, the number of time steps in which these elements were
+	 * active in the previous mobsim run is used instead, if available.
+	 */
+	private double[] getNodeWeights(List<Node> nodes) {
+		boolean useLoads = this.partitioning == NetsimPartitioning.loadBalanced && !this.loadStatistics.isEmpty();
+		if (this.partitioning == NetsimPartitioning.loadBalanced && !useLoads) {
+			log.info("No load statistics from a previous mobsim run available, partitioning by the number of links instead.");
+		}
+		double[] weights = new double[nodes.size()];
+		for (int n = 0; n < weights.length; n++) {
+			Node node = nodes.get(n);
+			double structuralWeight = 1 + node.getOutLinks().size();
+			// the structural weight is added to the load such that idle parts of the network are distributed as well
+			weights[n] = useLoads ? this.loadStatistics.getLoad(node.getId(), 0.0) + structuralWeight : structuralWeight;
+		}
+		return weights;
+	}
+
+	private void updateLoadStatistics() {
+		this.loadStatistics.clear();
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			if (!(node instanceof QNodeImpl)) {
+				continue;
+			}
+			double load = ((QNodeImpl) node).getActiveTimeSteps();
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				QLinkI qLink = network.getNetsimLink(outLink.getId());
+				if (qLink instanceof AbstractQLink) {
+					load += ((AbstractQLink) qLink).getActiveTimeSteps();
+				}
+			}
+			this.loadStatistics.setLoad(node.getNode().getId(), load);
+		}
+	}
+
+	private void printRunnerLoads() {
+		double[] steps = new double[this.engines.size()];
+		for (int i = 0; i < this.engines.size(); i++) {
+			QNetsimEngineRunner runner = this.engines.get(i);
+			steps[i] = runner.getNodeSteps() + runner.getLinkSteps();
+			log.info("QSimEngineRunner #" + i + " simulated " + runner.getNodeSteps() + " node steps and " + runner.getLinkSteps() + " link steps.");
+		}
+		log.info("Observed load imbalance (max / mean) of the QSimEngineRunners: " + imbalance(steps));
+	}
+
+	private static double imbalance(double[] loads) {
+		double max = 0.0;
+		double sum = 0.0;
+		for (double load : loads) {
+			max = Math.max(max, load);
+			sum += load;
+		}
+		return sum > 0 ? max * loads.length / sum : 1.0;
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -76,6 +76,26 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * With work stealing, the nodes and links of this runner are not moved by one thread, but in chunks by
+	 * any thread of a fork-join pool. Several threads may then activate links of this runner at the same time
+	 * while moving its nodes, so activated links are first collected in a thread-safe queue. Before each
+	 * phase, the newly activated elements are appended to the work lists, which are only modified between
+	 * the phases.
+	 */
+	private final boolean workStealing;
+	private final Queue<QLinkI> linksToActivate = new ConcurrentLinkedQueue<>();
+	private final List<QNodeImpl> workNodes = new ArrayList<>();
+	private final List<QLinkI> workLinks = new ArrayList<>();
+	private boolean[] remainsActive = new boolean[0];
+
+	/*
+	 * Number of node and link simulation steps done by this runner, used to report
+	 * how well the work was balanced among the runners.
+	 */
+	private long nodeSteps = 0;
+	private long linkSteps = 0;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -87,13 +107,19 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.startBarrier = startBarrier;
 		this.separationBarrier = separationBarrier;
 		this.endBarrier = endBarrier;
+		this.workStealing = false;
 	}
 	QNetsimEngineRunner() {
 		// this is the execution path with invokeAll and the threadpool; it does not need (and should not use) the barriers.
 		// kai, jan'14
+		this(false);
+	}
+	/*package*/ QNetsimEngineRunner(boolean workStealing) {
+		// with work stealing, the engine calls prepareChunks(), moveChunk(...) and finishChunks() instead of call().
 		this.startBarrier = null;
 		this.separationBarrier = null;
 		this.endBarrier = null;
+		this.workStealing = workStealing;
 	}
 
 	/*package*/ void setTime(final double t) {
@@ -172,6 +198,8 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
 			remainsActive = node.doSimStep(time);
+			node.countActiveTimeStep();
+			this.nodeSteps++;
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
@@ -185,12 +213,92 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			link = simLinks.next();
 
 			remainsActive = link.doSimStep();
+			if (link instanceof AbstractQLink) {
+				((AbstractQLink) link).countActiveTimeStep();
+			}
+			this.linkSteps++;
 
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
 	}
 
+	/**
+	 * Prepares moving the nodes or links of this runner in chunks, depending on {@link #setMovingNodes(boolean)}.
+	 *
+	 * @return the number of elements to move, which may be passed to {@link #moveChunk(int, int)} in arbitrary ranges
+	 */
+	/*package*/ int prepareChunks() {
+		int size;
+		if (this.movingNodes) {
+			this.lockNodes = true;
+			QNodeImpl node;
+			while ((node = this.nodesQueue.poll()) != null) {
+				this.workNodes.add(node);
+			}
+			size = this.workNodes.size();
+		} else {
+			this.lockLinks = true;
+			QLinkI link;
+			while ((link = this.linksToActivate.poll()) != null) {
+				this.workLinks.add(link);
+			}
+			size = this.workLinks.size();
+		}
+		if (this.remainsActive.length < size) {
+			this.remainsActive = new boolean[Math.max(size, 2 * this.remainsActive.length)];
+		}
+		return size;
+	}
+
+	/**
+	 * Moves the elements <code>[from, to)</code> prepared by {@link #prepareChunks()}. Different ranges may be moved
+	 * by different threads at the same time.
+	 */
+	/*package*/ void moveChunk(int from, int to) {
+		if (this.movingNodes) {
+			for (int i = from; i < to; i++) {
+				QNodeImpl node = this.workNodes.get(i);
+				this.remainsActive[i] = node.doSimStep(time);
+				node.countActiveTimeStep();
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				QLinkI link = this.workLinks.get(i);
+				this.remainsActive[i] = link.doSimStep();
+				if (link instanceof AbstractQLink) {
+					((AbstractQLink) link).countActiveTimeStep();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the elements that are no longer active after all chunks were moved.
+	 */
+	/*package*/ void finishChunks() {
+		if (this.movingNodes) {
+			this.nodeSteps += this.workNodes.size();
+			retainActive(this.workNodes);
+			this.lockNodes = false;
+		} else {
+			this.linkSteps += this.workLinks.size();
+			retainActive(this.workLinks);
+			this.lockLinks = false;
+		}
+	}
+
+	private <T> void retainActive(List<T> elements) {
+		int size = elements.size();
+		int retained = 0;
+		for (int i = 0; i < size; i++) {
+			if (this.remainsActive[i]) {
+				elements.set(retained++, elements.get(i));
+			}
+		}
+		elements.subList(retained, size).clear();
+	}
+
 	/*
 	 * This method is only called while links are NOT "moved", i.e. their
 	 * doStimStep(...) methods are called. To ensure that, we  use a boolean lock.
@@ -198,13 +306,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerLinkAsActive(QLinkI link) {
-		if (!lockLinks) linksList.add(link);
-		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (lockLinks) throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		else if (this.workStealing) this.linksToActivate.add(link);
+		else linksList.add(link);
 	}
 
 	@Override
 	public int getNumberOfSimulatedLinks() {
-		return this.linksList.size();
+		return this.linksList.size() + this.workLinks.size() + this.linksToActivate.size();
 	}
 
 	/*
@@ -226,7 +335,15 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	public int getNumberOfSimulatedNodes() {
-		return this.nodesQueue.size();
+		return this.nodesQueue.size() + this.workNodes.size();
+	}
+
+	/*package*/ long getNodeSteps() {
+		return this.nodeSteps;
+	}
+
+	/*package*/ long getLinkSteps() {
+		return this.linkSteps;
 	}
 
 	public void setMovingNodes(boolean movingNodes) {
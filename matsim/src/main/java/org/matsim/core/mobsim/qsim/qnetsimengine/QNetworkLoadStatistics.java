@@ -0,0 +1,56 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Remembers how many time steps every node and its out-links were simulated in the last mobsim run.
+ * The {@link QNetsimEngine} uses this as weights for {@link org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning#loadBalanced}
+ * partitioning. Bound as a singleton by the QSimModule so it survives from one iteration to the next.
+ */
+public final class QNetworkLoadStatistics {
+
+	private final Map<Id<Node>, Double> nodeLoads = new HashMap<>();
+
+	public boolean isEmpty() {
+		return this.nodeLoads.isEmpty();
+	}
+
+	/**
+	 * @return the number of time steps the node and its out-links were active, or <code>defaultLoad</code> if the node was never observed.
+	 */
+	public double getLoad(Id<Node> nodeId, double defaultLoad) {
+		Double load = this.nodeLoads.get(nodeId);
+		return load == null ? defaultLoad : load;
+	}
+
+	/*package*/ void setLoad(Id<Node> nodeId, double load) {
+		this.nodeLoads.put(nodeId, load);
+	}
+
+	/*package*/ void clear() {
+		this.nodeLoads.clear();
+	}
+
+}
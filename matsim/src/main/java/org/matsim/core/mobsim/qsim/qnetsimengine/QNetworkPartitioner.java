@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link QNetsimEngineRunner} simulates which node. Every runner also simulates the
+ * out-links of its nodes, so the partition of the nodes defines the partition of the whole network.
+ *
+ * @see org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning
+ */
+public interface QNetworkPartitioner {
+
+	/**
+	 * @param nodes the nodes of the network, in a fixed order
+	 * @param weights the expected work for simulating each node including its out-links, in the same order as the nodes
+	 * @param numberOfPartitions the number of runners
+	 * @return for every node the index of the runner (0 &lt;= index &lt; numberOfPartitions), in the same order as the nodes
+	 */
+	int[] partition(List<Node> nodes, double[] weights, int numberOfPartitions);
+
+}
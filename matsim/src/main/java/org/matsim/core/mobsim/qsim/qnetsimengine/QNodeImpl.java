@@ -77,6 +77,12 @@ final class QNodeImpl implements QNodeI {
 	
 	// necessary if Nodes are (de)activated
 	private NetElementActivationRegistry activator = null;
+
+	/*
+	 * Number of time steps in which this node was simulated. Only written by the runner
+	 * that handles this node, see QNetworkLoadStatistics.
+	 */
+	private int activeTimeSteps = 0;
 	
 	// for Customizable
 	private final Map<String, Object> customAttributes = new HashMap<>();
@@ -135,6 +141,14 @@ final class QNodeImpl implements QNodeI {
 		return this.node;
 	}
 	
+	/*package*/ int getActiveTimeSteps() {
+		return this.activeTimeSteps;
+	}
+
+	/*package*/ void countActiveTimeStep() {
+		this.activeTimeSteps++;
+	}
+
 	/**
 	 * The ParallelQSim replaces the activator with the QSimEngineRunner 
 	 * that handles this node.
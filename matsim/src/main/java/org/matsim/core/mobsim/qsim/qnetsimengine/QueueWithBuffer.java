@@ -30,6 +30,7 @@ import org.matsim.core.api.experimental.events.LaneLeaveEvent;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
 import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.VehicleQueueImplementation;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
@@ -42,6 +43,7 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.QLinkImpl.LaneFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.LinkSpeedCalculator;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.PassingVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.RingBufferVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.VehicleQ;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.lanes.Lane;
@@ -72,7 +74,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private static final Logger log = Logger.getLogger( QueueWithBuffer.class ) ;
 
 	static final class Builder implements LaneFactory {
-		private VehicleQ<QVehicle> vehicleQueue = new FIFOVehicleQ() ;
+		private VehicleQ<QVehicle> vehicleQueue ;
 		private Id<Lane> id = null ;
 		private Double length = null ;
 		private Double effectiveNumberOfLanes = null ;
@@ -83,6 +85,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 			if (context.qsimConfig.getLinkDynamics() == QSimConfigGroup.LinkDynamics.PassingQ ||
 						context.qsimConfig.getLinkDynamics() == QSimConfigGroup.LinkDynamics.SeepageQ) {
 				this.vehicleQueue = new PassingVehicleQ() ;
+			} else {
+				this.vehicleQueue = createFIFOVehicleQ( context.qsimConfig ) ;
 			}
 		}
 		void setVehicleQueue(VehicleQ<QVehicle> vehicleQueue) { this.vehicleQueue = vehicleQueue; }
@@ -142,7 +146,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double flowCapacityPerTimeStep;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Queue<QueueWithBuffer.Hole> holes ;
 
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
 	private double bufferLastMovedTime = Time.getUndefinedTime() ;
@@ -157,7 +161,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -198,6 +202,13 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		this.length = length;
 		this.unscaledFlowCapacity_s = flowCapacity_s ;
 		this.effectiveNumberOfLanes = effectiveNumberOfLanes;
+		if ( context.qsimConfig.getVehicleQueueImplementation()==VehicleQueueImplementation.ringBuffer ) {
+			this.holes = new ArrayDeque<>() ;
+			this.buffer = new ArrayDeque<>() ;
+		} else {
+			this.holes = new LinkedList<>() ;
+			this.buffer = new LinkedList<>() ;
+		}
 
 //		freespeedTravelTime = this.length / qlink.getLink().getFreespeed();
 //		if (Double.isNaN(freespeedTravelTime)) {
@@ -217,6 +228,13 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	}
 
+	static VehicleQ<QVehicle> createFIFOVehicleQ( QSimConfigGroup qsimConfig ) {
+		if ( qsimConfig.getVehicleQueueImplementation()==VehicleQueueImplementation.ringBuffer ) {
+			return new RingBufferVehicleQ() ;
+		}
+		return new FIFOVehicleQ() ;
+	}
+
 	@Override
 	public final void addFromWait(final QVehicle veh) {
 		//To protect against calling addToBuffer() without calling hasFlowCapacityLeft() first.
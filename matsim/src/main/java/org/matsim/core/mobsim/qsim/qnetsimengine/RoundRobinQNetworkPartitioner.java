@@ -0,0 +1,40 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Assigns the nodes to the runners one after the other, ignoring both their location and their weights.
+ */
+public final class RoundRobinQNetworkPartitioner implements QNetworkPartitioner {
+
+	@Override
+	public int[] partition(List<Node> nodes, double[] weights, int numberOfPartitions) {
+		int[] partition = new int[nodes.size()];
+		for (int i = 0; i < partition.length; i++) {
+			partition[i] = i % numberOfPartitions;
+		}
+		return partition;
+	}
+
+}
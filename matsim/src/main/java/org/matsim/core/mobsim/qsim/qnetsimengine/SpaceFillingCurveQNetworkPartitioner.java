@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Orders the nodes along a Hilbert curve and cuts this order into contiguous pieces of equal total weight.
+ * Neighbouring nodes thus mostly end up in the same runner, which reduces the number of vehicles that
+ * are handed over between runners, and the weights balance the expected work of the runners.
+ */
+public final class SpaceFillingCurveQNetworkPartitioner implements QNetworkPartitioner {
+
+	/** the Hilbert curve covers a grid of 2^ORDER x 2^ORDER cells */
+	private static final int ORDER = 15;
+	private static final int GRID_SIZE = 1 << ORDER;
+	private static final long INDEX_MASK = 0x7fffffffL;
+
+	@Override
+	public int[] partition(List<Node> nodes, double[] weights, int numberOfPartitions) {
+		int size = nodes.size();
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (Node node : nodes) {
+			Coord coord = node.getCoord();
+			minX = Math.min(minX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxX = Math.max(maxX, coord.getX());
+			maxY = Math.max(maxY, coord.getY());
+		}
+		double extent = Math.max(maxX - minX, maxY - minY);
+		double scale = extent > 0 ? (GRID_SIZE - 1) / extent : 0.0;
+
+		// the curve position goes into the upper bits, the index of the node into the lower 31 bits.
+		long[] keys = new long[size];
+		double totalWeight = 0.0;
+		for (int i = 0; i < size; i++) {
+			Coord coord = nodes.get(i).getCoord();
+			int x = (int) ((coord.getX() - minX) * scale);
+			int y = (int) ((coord.getY() - minY) * scale);
+			keys[i] = (hilbertIndex(x, y) << 31) | i;
+			totalWeight += weights[i];
+		}
+		Arrays.sort(keys);
+
+		int[] partition = new int[size];
+		double cumulatedWeight = 0.0;
+		int current = 0;
+		for (long key : keys) {
+			int i = (int) (key & INDEX_MASK);
+			while (current < numberOfPartitions - 1 && cumulatedWeight >= totalWeight * (current + 1) / numberOfPartitions) {
+				current++;
+			}
+			partition[i] = current;
+			cumulatedWeight += weights[i];
+		}
+		return partition;
+	}
+
+	/**
+	 * @return the position of the cell (x, y) along the Hilbert curve.
+	 */
+	/*package*/ static long hilbertIndex(int x, int y) {
+		long d = 0;
+		for (int s = GRID_SIZE / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = GRID_SIZE - 1 - x;
+					y = GRID_SIZE - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+}
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+
+/**
+ * {@link Activity} of the compact population.  Other than {@link ActivityImpl}, it only creates its attributes
+ * when they are asked for.
+ *
+ * @see CompactPopulationFactory
+ */
+/* deliberately package */ final class CompactActivity extends CompactAttributable implements Activity {
+
+	private double endTime = Time.UNDEFINED_TIME;
+	private double startTime = Time.UNDEFINED_TIME;
+	private double dur = Time.UNDEFINED_TIME;
+
+	private Coord coord = null;
+	private String type;
+	private Id<Link> linkId = null;
+	private Id<ActivityFacility> facilityId = null;
+
+	/* deliberately package */ CompactActivity(final String type) {
+		this.type = type.intern();
+	}
+
+	@Override
+	public double getEndTime() {
+		return this.endTime;
+	}
+
+	@Override
+	public void setEndTime(final double endTime) {
+		this.endTime = endTime;
+	}
+
+	/**
+	 * Used for reporting outcomes in the scoring. Not interpreted for the demand.
+	 */
+	@Override
+	public double getStartTime() {
+		return this.startTime;
+	}
+
+	/**
+	 * Used for reporting outcomes in the scoring. Not interpreted for the demand.
+	 */
+	@Override
+	public void setStartTime(final double startTime) {
+		this.startTime = startTime;
+	}
+
+	@Override
+	public double getMaximumDuration() {
+		return this.dur;
+	}
+
+	@Override
+	public void setMaximumDuration(final double dur) {
+		this.dur = dur;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type.intern();
+	}
+
+	@Override
+	public Coord getCoord() {
+		return this.coord;
+	}
+
+	@Override
+	public void setCoord(final Coord coord) {
+		this.coord = coord;
+	}
+
+	@Override
+	public Id<Link> getLinkId() {
+		return this.linkId;
+	}
+
+	@Override
+	public void setLinkId(final Id<Link> linkId) {
+		this.linkId = linkId;
+	}
+
+	@Override
+	public Id<ActivityFacility> getFacilityId() {
+		return this.facilityId;
+	}
+
+	@Override
+	public void setFacilityId(final Id<ActivityFacility> facilityId) {
+		this.facilityId = facilityId;
+	}
+
+	@Override
+	public String toString() {
+		return "[type=" + this.getType() + "]" +
+				"[coord=" + this.getCoord() + "]" +
+				"[linkId=" + this.linkId + "]" +
+				"[startTime=" + Time.writeTime(this.getStartTime()) + "]" +
+				"[endTime=" + Time.writeTime(this.getEndTime()) + "]" +
+				"[duration=" + Time.writeTime(this.getMaximumDuration()) + "]" +
+				"[facilityId=" + this.facilityId + "]" ;
+	}
+
+}
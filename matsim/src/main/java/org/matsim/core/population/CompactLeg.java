@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * {@link Leg} of the compact population.  Other than {@link LegImpl}, it only creates its attributes when
+ * they are asked for, and interns its mode so that all legs share the few mode strings.
+ *
+ * @see CompactPopulationFactory
+ */
+/* deliberately package */ final class CompactLeg extends CompactAttributable implements Leg {
+
+	private Route route = null;
+
+	private double depTime = Time.UNDEFINED_TIME;
+	private double travTime = Time.UNDEFINED_TIME;
+	private String mode;
+
+	/* deliberately package */ CompactLeg(final String transportMode) {
+		this.mode = intern(transportMode);
+	}
+
+	@Override
+	public String getMode() {
+		return this.mode;
+	}
+
+	@Override
+	public void setMode(final String transportMode) {
+		this.mode = intern(transportMode);
+	}
+
+	@Override
+	public double getDepartureTime() {
+		return this.depTime;
+	}
+
+	@Override
+	public void setDepartureTime(final double depTime) {
+		this.depTime = depTime;
+	}
+
+	@Override
+	public double getTravelTime() {
+		return this.travTime;
+	}
+
+	@Override
+	public void setTravelTime(final double travTime) {
+		this.travTime = travTime;
+	}
+
+	@Override
+	public Route getRoute() {
+		return this.route;
+	}
+
+	@Override
+	public void setRoute(final Route route) {
+		this.route = route;
+	}
+
+	@Override
+	public String toString() {
+		return "[mode=" + this.getMode() + "]" +
+				"[depTime=" + Time.writeTime(this.getDepartureTime()) + "]" +
+				"[travTime=" + Time.writeTime(this.getTravelTime()) + "]" +
+				"[arrTime=" + Time.writeTime(this.getDepartureTime() + this.getTravelTime()) + "]" +
+				"[route=" + this.route + "]";
+	}
+
+	private static String intern(final String mode) {
+		return mode == null ? null : mode.intern();
+	}
+
+}
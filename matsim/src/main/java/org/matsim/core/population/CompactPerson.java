@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.scenario.Lockable;
+
+/**
+ * {@link Person} of the compact population.  Behaves like {@link PersonImpl}, but only creates its attributes
+ * when they are asked for, and copies its selected plan into compact plan elements.
+ *
+ * @see CompactPopulationFactory
+ */
+/* deliberately package */ final class CompactPerson extends CompactAttributable implements Person, Lockable {
+
+	private final List<Plan> plans = new ArrayList<>(6);
+	private Id<Person> id;
+
+	private Plan selectedPlan = null;
+
+	private Customizable customizableDelegate;
+	private boolean locked;
+
+	/* deliberately package */ CompactPerson(final Id<Person> id) {
+		this.id = id;
+	}
+
+	@Override
+	public Plan getSelectedPlan() {
+		return this.selectedPlan;
+	}
+
+	@Override
+	public boolean addPlan(final Plan plan) {
+		plan.setPerson(this);
+		// Make sure there is a selected plan if there is at least one plan
+		if (this.selectedPlan == null) this.selectedPlan = plan;
+		return this.plans.add(plan);
+	}
+
+	@Override
+	public void setSelectedPlan(final Plan selectedPlan) {
+		if (selectedPlan != null && !plans.contains( selectedPlan )) {
+			throw new IllegalStateException("The plan to be set as selected is not null nor stored in the person's plans");
+		}
+		this.selectedPlan = selectedPlan;
+	}
+
+	@Override
+	public Plan createCopyOfSelectedPlanAndMakeSelected() {
+		Plan oldPlan = this.getSelectedPlan();
+		if (oldPlan == null) {
+			return null;
+		}
+		Plan newPlan = new CompactPlan();
+		newPlan.setPerson(oldPlan.getPerson());
+		CompactPopulationFactory.copyFromTo(oldPlan, newPlan);
+		this.getPlans().add(newPlan);
+		this.setSelectedPlan(newPlan);
+		return newPlan;
+	}
+
+	@Override
+	public Id<Person> getId() {
+		return this.id;
+	}
+
+	/* deliberately package */ void changeId(final Id<Person> newId) {
+		// see PersonImpl#changeId
+		try {
+			testForLocked() ;
+		} catch ( Exception ee ) {
+			Logger.getLogger(getClass()).warn("cannot change person id while in population.  remove the person, change Id, re-add.");
+			throw ee ;
+		}
+		this.id = newId;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("[id=").append(this.getId()).append("]");
+		b.append("[nof_plans=").append(this.getPlans().size()).append("]");
+		return b.toString();
+	}
+
+	@Override
+	public boolean removePlan(final Plan plan) {
+		boolean result = this.getPlans().remove(plan);
+		if ((this.getSelectedPlan() == plan) && result) {
+			this.setSelectedPlan(new RandomPlanSelector<Plan, Person>().selectPlan(this));
+		}
+		return result;
+	}
+
+	@Override
+	public List<Plan> getPlans() {
+		return this.plans;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public void setLocked() {
+		this.locked = true ;
+		// we are not locking anything in the plans
+	}
+
+	private void testForLocked() {
+		if ( this.locked ) {
+			throw new RuntimeException("too late to do this") ;
+		}
+	}
+
+}
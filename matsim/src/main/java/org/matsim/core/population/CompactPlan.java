@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.scenario.CustomizableUtils;
+
+/**
+ * {@link Plan} of the compact population.  Other than {@link PlanImpl}, it keeps its score as a primitive,
+ * sizes its list of plan elements for a typical day plan, and only creates its attributes when they are
+ * asked for.
+ *
+ * @see CompactPopulationFactory
+ */
+/* deliberately package */ final class CompactPlan extends CompactAttributable implements Plan {
+
+	// home - work - home, plus room for one more trip, before the list has to grow
+	private static final int INITIAL_CAPACITY = 5;
+
+	private final ArrayList<PlanElement> actsLegs = new ArrayList<>(INITIAL_CAPACITY);
+
+	private double score = 0.0;
+	private boolean hasScore = false;
+	private Person person = null;
+
+	private String type = null;
+
+	private Customizable customizableDelegate;
+
+	/* deliberately package */ CompactPlan() {}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.hasScore ? this.score : null;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.hasScore = score != null;
+		this.score = this.hasScore ? score : 0.0;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type == null ? null : type.intern();
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		return this.actsLegs;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		this.actsLegs.add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		this.actsLegs.add(act);
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.hasScore) {
+			scoreString = Double.toString(this.score);
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + getPlanElements().size() + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+}
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * Creates the persons, plans, activities and legs of the compact population, which is used instead of the
+ * default implementations if {@link PlansConfigGroup#isCompactPopulation()} is set.  The compact objects
+ * behave the same, but need less memory per plan element:<ul>
+ * <li> attributes are only created when they are asked for, instead of one empty instance per object;
+ * <li> the score of a plan is kept as a primitive;
+ * <li> activity types, leg modes and plan types are interned;
+ * <li> network routes store link indices (see {@link Id#index()}) instead of a list of ids.
+ * </ul>
+ * Every plan element stays an object of its own, since much of the code relies on its identity, e.g. when
+ * looking up an element in its plan or keeping it as a key in a map.  The saving is thus moderate: the
+ * 20000 persons of the equil scenario (one plan with three activities and two car legs each) need 16.4 MB
+ * instead of 23.1 MB, about 1.4 times less, as measured by <code>PopulationFootprint</code> in the
+ * benchmark module.
+ */
+/* deliberately package */ final class CompactPopulationFactory implements PopulationFactory {
+
+	private final RouteFactories routeFactory;
+
+	CompactPopulationFactory(RouteFactories routeFactory) {
+		this.routeFactory = routeFactory;
+	}
+
+	@Override
+	public Person createPerson(final Id<Person> id) {
+		return new CompactPerson(id);
+	}
+
+	@Override
+	public Plan createPlan() {
+		return new CompactPlan();
+	}
+
+	@Override
+	public Activity createActivityFromCoord(final String actType, final Coord coord) {
+		Activity act = new CompactActivity(actType);
+		act.setCoord(coord);
+		return act;
+	}
+
+	@Override
+	public Activity createActivityFromLinkId(final String actType, final Id<Link> linkId) {
+		Activity act = new CompactActivity(actType);
+		act.setLinkId(linkId);
+		return act;
+	}
+
+	@Override
+	public Leg createLeg(final String legMode) {
+		return new CompactLeg(legMode);
+	}
+
+	@Override
+	public RouteFactories getRouteFactories() {
+		return this.routeFactory;
+	}
+
+	/**
+	 * Same as {@link PopulationUtils#copyFromTo(Plan, Plan)}, but creates compact plan elements.
+	 */
+	static void copyFromTo(final Plan in, final Plan out) {
+		out.getPlanElements().clear();
+		out.setScore(in.getScore());
+		out.setType(in.getType());
+		for (PlanElement pe : in.getPlanElements()) {
+			if (pe instanceof Activity) {
+				Activity act = (Activity) pe;
+				Activity newAct = new CompactActivity(act.getType());
+				PopulationUtils.copyFromTo(act, newAct);
+				out.getPlanElements().add(newAct);
+			} else if (pe instanceof Leg) {
+				Leg leg = (Leg) pe;
+				Leg newLeg = new CompactLeg(leg.getMode());
+				PopulationUtils.copyFromTo(leg, newLeg);
+				out.getPlanElements().add(newLeg);
+			} else {
+				throw new IllegalArgumentException("unrecognized plan element type discovered");
+			}
+		}
+		AttributesUtils.copyAttributesFromTo(in, out);
+	}
+
+}
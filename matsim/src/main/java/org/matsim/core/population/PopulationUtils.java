@@ -57,6 +57,7 @@ import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.LinkIndexNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
@@ -82,6 +83,7 @@ public final class PopulationUtils {
 //	private static final PopulationFactory populationFactory = ScenarioUtils.createScenario( ConfigUtils.createConfig() ).getPopulation().getFactory() ;
 	private static final PopulationFactory populationFactory = createPopulation( new PlansConfigGroup(), null  ).getFactory() ;
 	// try to avoid misleading comment about config context.  kai, dec'18
+	private static final PopulationFactory compactPopulationFactory = new CompactPopulationFactory( populationFactory.getRouteFactories() ) ;
 
 	/**
 	 * Is a namespace, so don't instantiate:
@@ -120,13 +122,18 @@ public final class PopulationUtils {
 		String networkRouteType = plansConfigGroup.getNetworkRouteType();
 		RouteFactory factory;
 		if (PlansConfigGroup.NetworkRouteType.LinkNetworkRoute.equals(networkRouteType)) {
-			factory = new LinkNetworkRouteFactory();
+			factory = plansConfigGroup.isCompactPopulation() ? new LinkIndexNetworkRouteFactory() : new LinkNetworkRouteFactory();
+		} else if (PlansConfigGroup.NetworkRouteType.LinkIndexNetworkRoute.equals(networkRouteType)) {
+			factory = new LinkIndexNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new CompressedNetworkRouteFactory(network);
 		} else {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
+		if (plansConfigGroup.isCompactPopulation()) {
+			return new PopulationImpl(new CompactPopulationFactory(routeFactory));
+		}
 		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
 	}
 
@@ -736,10 +743,17 @@ public final class PopulationUtils {
 		return populationFactory ;
 	}
 
+	/**
+	 * The elements of a plan of the compact population (see {@link PlansConfigGroup#isCompactPopulation()}) are compact, too.
+	 */
+	private static PopulationFactory getFactory( Plan plan ) {
+		return plan instanceof CompactPlan ? compactPopulationFactory : populationFactory ;
+	}
+
 	// --- plain factories: 
 
 	public static Plan createPlan(Person person) {
-		Plan plan = getFactory().createPlan() ;
+		Plan plan = (person instanceof CompactPerson ? compactPopulationFactory : populationFactory).createPlan() ;
 		plan.setPerson(person);
 		return plan ;
 	}
@@ -769,13 +783,13 @@ public final class PopulationUtils {
 	// createAndAdd methods:
 
 	public static Activity createAndAddActivityFromCoord( Plan plan, String type, Coord coord ) {
-		Activity act = getFactory().createActivityFromCoord(type, coord) ;
+		Activity act = getFactory(plan).createActivityFromCoord(type, coord) ;
 		plan.addActivity(act);
 		act.setCoord(coord);
 		return act ;
 	}
 	public static Activity createAndAddActivityFromLinkId( Plan plan, String type, Id<Link> linkId ) {
-		Activity act = getFactory().createActivityFromLinkId(type, linkId) ;
+		Activity act = getFactory(plan).createActivityFromLinkId(type, linkId) ;
 		plan.addActivity(act);
 		act.setLinkId(linkId);
 		return act ;
@@ -783,7 +797,7 @@ public final class PopulationUtils {
 
 	public static Leg createAndAddLeg(Plan plan, String mode) {
 		verifyCreateLeg( plan ) ;
-		Leg leg = getFactory().createLeg(mode) ;
+		Leg leg = getFactory(plan).createLeg(mode) ;
 		plan.addLeg( leg );
 		return leg ;
 	}
@@ -794,7 +808,7 @@ public final class PopulationUtils {
 	}
 
 	public static Activity createAndAddActivity(Plan plan, String type) {
-		Activity act = new ActivityImpl( type ) ;
+		Activity act = plan instanceof CompactPlan ? new CompactActivity( type ) : new ActivityImpl( type ) ;
 		// (can't do this from the factory since factory method only exists with coord or with linkId. kai, jun'16)
 		plan.addActivity(act);
 		return act ;
@@ -809,6 +823,10 @@ public final class PopulationUtils {
 	 * @param out 
 	 **/
 	public static void copyFromTo(final Plan in, Plan out) {
+		if (out instanceof CompactPlan) {
+			CompactPopulationFactory.copyFromTo(in, out);
+			return;
+		}
 		out.getPlanElements().clear();
 		out.setScore(in.getScore());
 		out.setType(in.getType());
@@ -1007,6 +1025,8 @@ public final class PopulationUtils {
 	public static void changePersonId( Person person, Id<Person> id ) {
 		if ( person instanceof PersonImpl ) {
 			((PersonImpl) person).changeId(id);
+		} else if ( person instanceof CompactPerson ) {
+			((CompactPerson) person).changeId(id);
 		} else {
 			throw new RuntimeException("wrong implementation of interface Person") ;
 		}
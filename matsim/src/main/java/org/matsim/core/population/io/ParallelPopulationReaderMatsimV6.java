@@ -0,0 +1,266 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.google.inject.Inject;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread only parses
+ * the file and collects the xml data of the persons in batches. Worker threads create the
+ * persons from these batches, including their plans, routes and attributes. The main thread
+ * adds the finished persons to the population in the order of the file, so this reader can
+ * also be used with population streaming.
+ * 
+ * The number of batches in memory is limited, so the main thread waits for the workers if
+ * they fall behind.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+
+	private final static int DEFAULT_PERSONS_PER_BATCH = 256;
+	private final static int BATCHES_PER_THREAD = 4;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final int personsPerBatch;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ExecutorService executor = null;
+	private ThreadLocal<Runner> runners = null;
+	private final Deque<Future<List<Person>>> pendingBatches = new ArrayDeque<>();
+	private Batch currentBatch = null;
+	private boolean inPerson = false;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		this(inputCRS, targetCRS, scenario, DEFAULT_PERSONS_PER_BATCH);
+	}
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int personsPerBatch) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+		this.personsPerBatch = personsPerBatch;
+	}
+
+	@Override
+	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
+		super.putAttributeConverter( clazz , converter );
+		this.attributeConverters.put( clazz , converter );
+	}
+
+	@Inject
+	@Override
+	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		super.putAttributeConverters( converters );
+		this.attributeConverters.putAll( converters );
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (!this.inPerson && PERSON.equals(name)) {
+			if (this.currentBatch == null) {
+				this.currentBatch = new Batch(context);
+			}
+			this.inPerson = true;
+		}
+		if (this.inPerson) {
+			// the attributes are copied, as the parser re-uses them
+			this.currentBatch.tags.add(new Tag(true, name, new AttributesImpl(atts), null));
+		} else {
+			super.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.inPerson) {
+			this.currentBatch.tags.add(new Tag(false, name, null, content));
+			if (PERSON.equals(name) && context.peek().equals(POPULATION)) {
+				this.inPerson = false;
+				this.currentBatch.persons++;
+				if (this.currentBatch.persons == this.personsPerBatch) {
+					submitBatch();
+				}
+			}
+		} else {
+			if (POPULATION.equals(name)) {
+				finishBatches();
+			}
+			super.endTag(name, content, context);
+		}
+	}
+
+	private void startThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		this.executor = Executors.newFixedThreadPool(this.numThreads, runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6.class.getSimpleName() + "_Thread_" + threadCount.getAndIncrement());
+			return thread;
+		});
+		// the population attributes, which may define the coordinate system, have been read at this point
+		final CoordinateTransformation transformation = this.coordinateTransformation;
+		final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>(this.attributeConverters);
+		this.runners = ThreadLocal.withInitial(() -> new Runner(this.scenario, transformation, converters));
+	}
+
+	private void submitBatch() {
+		if (this.executor == null) {
+			startThreads();
+		}
+		final Batch batch = this.currentBatch;
+		final ThreadLocal<Runner> runners = this.runners;
+		this.currentBatch = null;
+		this.pendingBatches.add(this.executor.submit(() -> runners.get().read(batch)));
+
+		// add the persons of the finished batches, wait if too many batches are in memory
+		while (!this.pendingBatches.isEmpty()
+				&& (this.pendingBatches.size() > BATCHES_PER_THREAD * this.numThreads || this.pendingBatches.peek().isDone())) {
+			addPersons(this.pendingBatches.poll());
+		}
+	}
+
+	private void finishBatches() {
+		if (this.currentBatch != null) {
+			submitBatch();
+		}
+		try {
+			while (!this.pendingBatches.isEmpty()) {
+				addPersons(this.pendingBatches.poll());
+			}
+		} finally {
+			if (this.executor != null) {
+				this.executor.shutdown();
+				this.executor = null;
+				log.info("Finished parallel population reading...");
+			}
+		}
+	}
+
+	private void addPersons(final Future<List<Person>> batch) {
+		List<Person> persons;
+		try {
+			persons = batch.get();
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e.getCause());
+		}
+		for (Person person : persons) {
+			this.scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	/**
+	 * Creates the persons of a batch. Each worker thread has its own runner, as the reader keeps
+	 * the current person, plan, activity etc. as state.
+	 */
+	private static final class Runner extends PopulationReaderMatsimV6 {
+
+		Runner(final Scenario scenario, final CoordinateTransformation coordinateTransformation,
+				final Map<Class<?>, AttributeConverter<?>> converters) {
+			super(null, null, scenario);
+			this.coordinateTransformation = coordinateTransformation;
+			putAttributeConverters(converters);
+		}
+
+		List<Person> read(final Batch batch) {
+			List<Person> persons = new ArrayList<>(batch.persons);
+			Stack<String> context = new Stack<>();
+			context.addAll(batch.context);
+			for (Tag tag : batch.tags) {
+				if (tag.start) {
+					startTag(tag.name, tag.atts, context);
+					context.push(tag.name);
+				} else {
+					context.pop();
+					if (PERSON.equals(tag.name) && context.peek().equals(POPULATION)) {
+						// the main thread adds the person to the population
+						persons.add(this.currperson);
+						this.currperson = null;
+					} else {
+						endTag(tag.name, tag.content, context);
+					}
+				}
+			}
+			return persons;
+		}
+	}
+
+	private static final class Batch {
+		final List<String> context;
+		final List<Tag> tags = new ArrayList<>();
+		int persons = 0;
+
+		Batch(final Stack<String> context) {
+			this.context = new ArrayList<>(context);
+		}
+	}
+
+	private static final class Tag {
+		final boolean start;
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final boolean start, final String name, final Attributes atts, final String content) {
+			this.start = start;
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+}
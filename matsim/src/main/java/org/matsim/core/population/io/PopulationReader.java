@@ -114,13 +114,22 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-						        inputCRS,
-						        targetCRS,
-								this.scenario);
+				if (this.scenario.getConfig().global().getNumberOfThreads() > 1) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+							        inputCRS,
+							        targetCRS,
+									this.scenario);
+					log.info("using parallel population_v6-reader.");
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+							        inputCRS,
+							        targetCRS,
+									this.scenario);
+					log.info("using population_v6-reader.");
+				}
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
-				log.info("using population_v6-reader.");
 				break;
 			case POPULATION_V5:
 				this.delegate =
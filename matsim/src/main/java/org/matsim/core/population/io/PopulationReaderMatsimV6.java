@@ -100,7 +100,7 @@ import java.util.Stack;
 	private final Population plans;
 	private final String externalInputCRS;
 
-	private Person currperson = null;
+	/*package*/ Person currperson = null;
 	private Plan currplan = null;
 	private Activity curract = null;
 	private Leg currleg = null;
@@ -109,7 +109,7 @@ import java.util.Stack;
 	private org.matsim.utils.objectattributes.attributable.Attributes currAttributes = null;
 
 	private final String targetCRS;
-	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	/*package*/ CoordinateTransformation coordinateTransformation = new IdentityTransformation();
 
 	private Activity prevAct = null;
 
@@ -232,7 +232,7 @@ import java.util.Stack;
 	}
 
 	private void startPerson(final Attributes atts) {
-		this.currperson = PopulationUtils.getFactory().createPerson(Id.create(atts.getValue(ATTR_PERSON_ID), Person.class));
+		this.currperson = this.plans.getFactory().createPerson(Id.create(atts.getValue(ATTR_PERSON_ID), Person.class));
 	}
 
 	private void startPlan(final Attributes atts) {
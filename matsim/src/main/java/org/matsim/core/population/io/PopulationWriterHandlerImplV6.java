@@ -30,6 +30,7 @@ import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.io.MatsimXmlWriter;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
 import org.matsim.utils.objectattributes.attributable.AttributesXmlWriterDelegate;
 import org.matsim.vehicles.Vehicle;
 
@@ -117,7 +118,9 @@ import java.util.Map;
 		out.write(person.getId().toString());
 		out.write("\"");
 		out.write(">\n");
-		this.attributesWriter.writeAttributes( "\t\t" , out , person.getAttributes() );
+		if ( AttributesUtils.hasAttributes( person ) ) {
+			this.attributesWriter.writeAttributes( "\t\t" , out , person.getAttributes() );
+		}
 	}
 
 	private static void endPerson(final BufferedWriter out) throws IOException {
@@ -142,7 +145,9 @@ import java.util.Map;
 		}
 		out.write(">\n");
 		
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , plan.getAttributes() );
+		if ( AttributesUtils.hasAttributes( plan ) ) {
+			this.attributesWriter.writeAttributes( "\t\t\t\t" , out , plan.getAttributes() );
+		}
 
 	}
 
@@ -195,7 +200,9 @@ import java.util.Map;
 		}
 		out.write(" >\n");
 
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , act.getAttributes() );
+		if ( AttributesUtils.hasAttributes( act ) ) {
+			this.attributesWriter.writeAttributes( "\t\t\t\t" , out , act.getAttributes() );
+		}
 
 		out.write("\t\t\t</activity>\n");
 	}
@@ -226,7 +233,9 @@ import java.util.Map;
 
 		out.write(">\n");
 
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , leg.getAttributes() );
+		if ( AttributesUtils.hasAttributes( leg ) ) {
+			this.attributesWriter.writeAttributes( "\t\t\t\t" , out , leg.getAttributes() );
+		}
 	}
 
 	private static void endLeg(final BufferedWriter out) throws IOException {
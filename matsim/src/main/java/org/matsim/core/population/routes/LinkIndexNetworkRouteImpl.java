@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which stores the route as the {@link Id#index() indices}
+ * of its link ids in an <code>int[]</code>, i.e. with 4 bytes per link and without any list object.
+ * {@link #getLinkIds()} returns a read-only view which looks the ids up by their index.
+ * <p>
+ * The array is never changed in place, but replaced as a whole by {@link #setLinkIds(Id, List, Id)},
+ * so clones of a route share it.
+ */
+final class LinkIndexNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private static final int[] NO_LINKS = new int[0];
+
+	private int[] linkIndices = NO_LINKS;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	LinkIndexNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+	}
+
+	@Override
+	public LinkIndexNetworkRouteImpl clone() {
+		return (LinkIndexNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return new LinkIds();
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		List<Id<Link>> route = getLinkIds();
+		/**
+		 * the index where the link after fromLinkId can be found in the route:
+		 * fromIndex==0 --> fromLinkId == startLinkId,
+		 * fromIndex==1 --> fromLinkId == first link in the route, etc.
+		 */
+		int fromIndex = -1;
+		/**
+		 * the index where toLinkId can be found in the route
+		 */
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0, n = route.size(); (i < n) && (fromIndex < 0); i++) {
+				if (fromLinkId.equals(route.get(i))) {
+					fromIndex = i+1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = route.size();
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex, n = route.size(); (i < n) && (toIndex < 0); i++) {
+				if (fromLinkId.equals(route.get(i))) {
+					fromIndex = i+1; // in case of a loop, cut it short
+				}
+				if (toLinkId.equals(route.get(i))) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = route.size();
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		LinkIndexNetworkRouteImpl ret = new LinkIndexNetworkRouteImpl(fromLinkId, toLinkId);
+		if (toIndex > fromIndex) {
+			ret.linkIndices = Arrays.copyOfRange(this.linkIndices, fromIndex, toIndex);
+		}
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.linkIndices = NO_LINKS;
+			return;
+		}
+		int[] indices = new int[srcRoute.size()];
+		int i = 0;
+		for (Id<Link> linkId : srcRoute) {
+			indices[i++] = linkIndex(linkId);
+		}
+		this.linkIndices = indices;
+	}
+
+	/**
+	 * The index of an id is only meaningful among the ids of its type, so ids which were created for
+	 * another type but are used as link ids are looked up by their key.
+	 */
+	private static int linkIndex(final Id<Link> linkId) {
+		int index = linkId.index();
+		if (index < Id.getNumberOfIds(Link.class) && Id.get(index, Link.class) == linkId) {
+			return index;
+		}
+		return Id.createLinkId(linkId.toString()).index();
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (int index : this.linkIndices) {
+			desc.append(" ");
+			desc.append(Id.get(index, Link.class).toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip. 
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.linkIndices.length > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+	private final class LinkIds extends AbstractList<Id<Link>> implements RandomAccess {
+
+		@Override
+		public Id<Link> get(final int index) {
+			return Id.get(LinkIndexNetworkRouteImpl.this.linkIndices[index], Link.class);
+		}
+
+		@Override
+		public int size() {
+			return LinkIndexNetworkRouteImpl.this.linkIndices.length;
+		}
+	}
+
+}
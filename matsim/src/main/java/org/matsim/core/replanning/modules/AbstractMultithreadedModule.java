@@ -24,13 +24,18 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.PlanDistribution;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +55,13 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link PlanDistribution#workQueue}, the plans are instead collected in one common queue, sorted by their
+ * expected cost (number of plan elements, most expensive first), and every thread takes the next plan as soon as it
+ * is idle.  This avoids threads waiting for the slowest one when plans are very heterogeneous, at the price of
+ * reproducibility for plan algorithms that use random numbers.
+ * <p></p>
+ * In both cases, the time spent per plan is measured and summarized in the log after all threads are finished.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,8 +71,10 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final PlanDistribution planDistribution;
 
 	private PlanAlgoThread[] algothreads = null;
+	private final List<Plan> queuedPlans = new ArrayList<>();
 	private Thread[] threads = null;
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
@@ -83,11 +97,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningPlanDistribution());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, PlanDistribution.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final PlanDistribution planDistribution) {
 		this.numOfThreads = numOfThreads;
+		this.planDistribution = planDistribution;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -118,7 +137,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.planDistribution == PlanDistribution.workQueue) {
+				this.queuedPlans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -140,6 +163,23 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
+			if (this.planDistribution == PlanDistribution.workQueue) {
+				// most expensive plans first, so that no thread starts a long plan when the others are already done.
+				// The sort is stable, i.e. plans of the same size are handled in the order they were added.
+				Collections.sort(this.queuedPlans, new Comparator<Plan>() {
+					@Override
+					public int compare(Plan p1, Plan p2) {
+						return Integer.compare(p2.getPlanElements().size(), p1.getPlanElements().size());
+					}
+				});
+				Plan[] plans = this.queuedPlans.toArray(new Plan[this.queuedPlans.size()]);
+				AtomicInteger nextPlan = new AtomicInteger(0);
+				for (PlanAlgoThread algothread : this.algothreads) {
+					algothread.setSharedPlans(plans, nextPlan);
+				}
+				this.queuedPlans.clear();
+			}
+
 			// start threads
 			for (Thread thread : this.threads) {
 				thread.start();
@@ -154,6 +194,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				throw new RuntimeException(e);
 			}
 			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+			logStatistics();
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
@@ -163,6 +204,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.algothreads = null;
 		this.threads = null;
 		this.replanningContext = null;
+		this.queuedPlans.clear();
 		this.count = 0;
 		
 		this.afterFinishReplanningHook();
@@ -193,10 +235,37 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void logStatistics() {
+		long minBusy = Long.MAX_VALUE;
+		long maxBusy = 0;
+		long sumBusy = 0;
+		long maxPlan = 0;
+		int handled = 0;
+		for (PlanAlgoThread algothread : this.algothreads) {
+			minBusy = Math.min(minBusy, algothread.busyNanos);
+			maxBusy = Math.max(maxBusy, algothread.busyNanos);
+			sumBusy += algothread.busyNanos;
+			maxPlan = Math.max(maxPlan, algothread.maxPlanNanos);
+			handled += algothread.handledPlans;
+		}
+		if (handled == 0) {
+			return;
+		}
+		double meanBusy = (double) sumBusy / this.algothreads.length;
+		log.info("[" + this.name + "] plan distribution: " + this.planDistribution
+				+ "; busy time per thread [s]: min " + (minBusy / 1e9) + ", max " + (maxBusy / 1e9)
+				+ "; time per plan [ms]: mean " + (sumBusy / 1e6 / handled) + ", max " + (maxPlan / 1e6)
+				+ "; imbalance (max/mean busy time): " + (meanBusy > 0 ? maxBusy / meanBusy : 1.0));
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
 
+	/* package (for a test) */ final PlanDistribution getPlanDistribution() {
+		return planDistribution;
+	}
+
 	private final static class ExceptionHandler implements UncaughtExceptionHandler {
 
 		private final AtomicReference<Throwable> hadException;
@@ -219,6 +288,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
 
+		private Plan[] sharedPlans = null;
+		private AtomicInteger nextSharedPlan = null;
+
+		// only written by the thread itself, read after it was joined
+		private int handledPlans = 0;
+		private long busyNanos = 0;
+		private long maxPlanNanos = 0;
+
 		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
 			this.planAlgo = algo;
 			this.counter = counter;
@@ -228,12 +305,36 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			this.plans.add(plan);
 		}
 
+		/**
+		 * Lets this thread take its plans from the given array, shared with the other threads, instead of its own list.
+		 */
+		public void setSharedPlans(final Plan[] plans, final AtomicInteger nextPlan) {
+			this.sharedPlans = plans;
+			this.nextSharedPlan = nextPlan;
+		}
+
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			if (this.sharedPlans == null) {
+				for (Plan plan : this.plans) {
+					runPlan(plan);
+				}
+			} else {
+				int index;
+				while ((index = this.nextSharedPlan.getAndIncrement()) < this.sharedPlans.length) {
+					runPlan(this.sharedPlans[index]);
+				}
 			}
 		}
+
+		private void runPlan(final Plan plan) {
+			long start = System.nanoTime();
+			this.planAlgo.run(plan);
+			long duration = System.nanoTime() - start;
+			this.busyNanos += duration;
+			this.maxPlanNanos = Math.max(this.maxPlanNanos, duration);
+			this.handledPlans++;
+			this.counter.incCounter();
+		}
 	}
 }
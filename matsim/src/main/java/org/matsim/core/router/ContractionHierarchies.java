@@ -0,0 +1,217 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.IntDoubleMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on a customizable contraction hierarchy. A query is a bidirectional Dijkstra that only
+ * follows edges to higher ranked nodes, which settles a few hundred nodes instead of a large part of the network.
+ * <p>
+ * Other than {@link Dijkstra}, the path is optimal for the link costs at the start of the time bin of the departure, not
+ * for the time at which a link is actually entered, and the costs do not depend on the person or vehicle. The travel time
+ * and cost of the returned path are computed along the path with the actual times, person and vehicle.
+ * <p>
+ * Instances are not thread-safe; use {@link ContractionHierarchiesFactory} to create one per thread.
+ *
+ * @see ContractionHierarchy
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchy hierarchy;
+	private final ContractionHierarchiesCustomization customization;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final IntDoubleMinHeap forwardHeap = new IntDoubleMinHeap();
+	private final IntDoubleMinHeap backwardHeap = new IntDoubleMinHeap();
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardEdge;
+	private final int[] backwardEdge;
+	private final int[] forwardVisited;
+	private final int[] backwardVisited;
+	private int iteration = 0;
+
+	ContractionHierarchies(final ContractionHierarchy hierarchy, final ContractionHierarchiesCustomization customization,
+			final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.hierarchy = hierarchy;
+		this.customization = customization;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		int nodeCount = hierarchy.getNumberOfNodes();
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.forwardEdge = new int[nodeCount];
+		this.backwardEdge = new int[nodeCount];
+		this.forwardVisited = new int[nodeCount];
+		this.backwardVisited = new int[nodeCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int source = this.hierarchy.getRank(fromNode);
+		int target = this.hierarchy.getRank(toNode);
+		if (source < 0 || target < 0) {
+			throw new IllegalArgumentException("The nodes " + fromNode.getId() + " and " + toNode.getId() + " must both be part of the network.");
+		}
+		if (source == target) {
+			List<Node> nodes = new ArrayList<>();
+			nodes.add(fromNode);
+			return new Path(nodes, new ArrayList<Link>(), 0.0, 0.0);
+		}
+
+		ContractionHierarchy.Weights weights = this.customization.getWeights(starttime);
+		int meetingNode = search(source, target, weights);
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+
+		List<Link> links = new ArrayList<>();
+		List<Integer> forwardEdges = new ArrayList<>();
+		for (int node = meetingNode; node != source; node = this.hierarchy.getTail(this.forwardEdge[node])) {
+			forwardEdges.add(this.forwardEdge[node]);
+		}
+		for (int i = forwardEdges.size() - 1; i >= 0; i--) {
+			unpack(forwardEdges.get(i), true, weights, links);
+		}
+		for (int node = meetingNode; node != target; node = this.hierarchy.getTail(this.backwardEdge[node])) {
+			unpack(this.backwardEdge[node], false, weights, links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * @return the highest node of the least cost path, or -1 if there is no path.
+	 */
+	private int search(final int source, final int target, final ContractionHierarchy.Weights weights) {
+		this.iteration++;
+		if (this.iteration == Integer.MAX_VALUE) {
+			Arrays.fill(this.forwardVisited, 0);
+			Arrays.fill(this.backwardVisited, 0);
+			this.iteration = 1;
+		}
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+		this.forwardVisited[source] = this.iteration;
+		this.forwardCost[source] = 0.0;
+		this.forwardHeap.add(source, 0.0);
+		this.backwardVisited[target] = this.iteration;
+		this.backwardCost[target] = 0.0;
+		this.backwardHeap.add(target, 0.0);
+
+		double best = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		while (!this.forwardHeap.isEmpty() || !this.backwardHeap.isEmpty()) {
+			boolean forward = !this.forwardHeap.isEmpty()
+					&& (this.backwardHeap.isEmpty() || this.forwardHeap.peekCost() <= this.backwardHeap.peekCost());
+			IntDoubleMinHeap heap = forward ? this.forwardHeap : this.backwardHeap;
+			double nodeCost = heap.peekCost();
+			if (nodeCost >= best) {
+				// nothing cheaper can be found in this direction anymore
+				heap.clear();
+				continue;
+			}
+			int node = heap.poll();
+			double[] cost = forward ? this.forwardCost : this.backwardCost;
+			int[] edge = forward ? this.forwardEdge : this.backwardEdge;
+			int[] visited = forward ? this.forwardVisited : this.backwardVisited;
+			if (nodeCost > cost[node]) {
+				continue; // outdated entry, the node was added again with a lower cost
+			}
+
+			if ((forward ? this.backwardVisited : this.forwardVisited)[node] == this.iteration) {
+				double total = nodeCost + (forward ? this.backwardCost : this.forwardCost)[node];
+				if (total < best) {
+					best = total;
+					meetingNode = node;
+				}
+			}
+
+			for (int e = this.hierarchy.getFirstEdge(node), end = this.hierarchy.getEndEdge(node); e < end; e++) {
+				float edgeCost = forward ? weights.getUpCost(e) : weights.getDownCost(e);
+				if (edgeCost == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				int head = this.hierarchy.getHead(e);
+				double headCost = nodeCost + edgeCost;
+				if (visited[head] != this.iteration || headCost < cost[head]) {
+					visited[head] = this.iteration;
+					cost[head] = headCost;
+					edge[head] = e;
+					heap.add(head, headCost);
+				}
+			}
+		}
+		return meetingNode;
+	}
+
+	/**
+	 * Adds the links of the given edge to the list, in the direction from tail to head (<code>upward</code>) or from head to tail.
+	 */
+	private void unpack(final int edge, final boolean upward, final ContractionHierarchy.Weights weights, final List<Link> links) {
+		int via = upward ? weights.getUpVia(edge) : weights.getDownVia(edge);
+		if (via < 0) {
+			links.add(this.hierarchy.getLink(-via - 1));
+			return;
+		}
+		int toTail = this.hierarchy.findEdge(via, this.hierarchy.getTail(edge));
+		int toHead = this.hierarchy.findEdge(via, this.hierarchy.getHead(edge));
+		if (upward) {
+			unpack(toTail, false, weights, links);
+			unpack(toHead, true, weights, links);
+		} else {
+			unpack(toHead, false, weights, links);
+			unpack(toTail, true, weights, links);
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesCustomization.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The costs of a {@link ContractionHierarchy} for one travel disutility, per time bin. A time bin is only customized
+ * when it is needed for the first time. The link costs of the bin are then computed for all links, and if they are
+ * equal to those of an already customized bin (e.g. for freespeed travel times, or of another instance of the same
+ * travel disutility), the {@link SharedWeights} of that bin are re-used.
+ * <p>
+ * This class is thread-safe, different time bins can be customized concurrently.
+ */
+final class ContractionHierarchiesCustomization {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchiesCustomization.class);
+
+	private final ContractionHierarchy hierarchy;
+	private final SharedWeights sharedWeights;
+	private final TravelDisutility travelDisutility;
+	private final double timeBinSize;
+	private final AtomicReferenceArray<ContractionHierarchy.Weights> weights;
+	private final Object[] locks;
+
+	ContractionHierarchiesCustomization(final ContractionHierarchy hierarchy, final SharedWeights sharedWeights,
+			final TravelDisutility travelDisutility, final double timeBinSize, final double maxTime) {
+		this.hierarchy = hierarchy;
+		this.sharedWeights = sharedWeights;
+		this.travelDisutility = travelDisutility;
+		this.timeBinSize = timeBinSize;
+		int numberOfBins = (int) (maxTime / timeBinSize) + 1;
+		this.weights = new AtomicReferenceArray<>(numberOfBins);
+		this.locks = new Object[numberOfBins];
+		for (int i = 0; i < numberOfBins; i++) {
+			this.locks[i] = new Object();
+		}
+	}
+
+	ContractionHierarchy.Weights getWeights(final double time) {
+		int bin = Math.min(this.locks.length - 1, Math.max(0, (int) (time / this.timeBinSize)));
+		ContractionHierarchy.Weights w = this.weights.get(bin);
+		if (w != null) {
+			return w;
+		}
+		synchronized (this.locks[bin]) {
+			w = this.weights.get(bin);
+			if (w == null) {
+				w = customize(bin);
+				this.weights.set(bin, w);
+			}
+			return w;
+		}
+	}
+
+	private ContractionHierarchy.Weights customize(final int bin) {
+		double time = bin * this.timeBinSize;
+		double[] linkCosts = new double[this.hierarchy.getNumberOfLinks()];
+		for (int l = 0; l < linkCosts.length; l++) {
+			Link link = this.hierarchy.getLink(l);
+			if (link != null) {
+				linkCosts[l] = getLinkCost(this.travelDisutility, link, time);
+			}
+		}
+		return this.sharedWeights.getWeights(linkCosts, bin);
+	}
+
+	static double getLinkCost(final TravelDisutility travelDisutility, final Link link, final double time) {
+		try {
+			return travelDisutility.getLinkTravelDisutility(link, time, null, null);
+		} catch (RuntimeException e) {
+			throw new RuntimeException("Contraction hierarchies need a travel disutility that can be computed without a person. "
+					+ "If this is a randomizing travel disutility, set plansCalcRoute.routingRandomness to 0.", e);
+		}
+	}
+
+	/**
+	 * The customized weights of one hierarchy, by the complete vector of link costs they were customized for. Only
+	 * equal link costs share their weights, so different travel disutilities never get each other's paths.
+	 */
+	static final class SharedWeights {
+
+		private final ContractionHierarchy hierarchy;
+		private final Map<LinkCosts, LinkCosts> customized = new HashMap<>();
+
+		SharedWeights(final ContractionHierarchy hierarchy) {
+			this.hierarchy = hierarchy;
+		}
+
+		ContractionHierarchy.Weights getWeights(final double[] linkCosts, final int bin) {
+			LinkCosts key = new LinkCosts(linkCosts);
+			LinkCosts entry;
+			synchronized (this.customized) {
+				entry = this.customized.get(key);
+				if (entry == null) {
+					entry = key;
+					this.customized.put(key, key);
+				}
+			}
+			synchronized (entry) {
+				if (entry.weights == null) {
+					long start = System.currentTimeMillis();
+					entry.weights = this.hierarchy.customize(linkCosts);
+					log.info("customized contraction hierarchy for time bin " + bin + " in " + (System.currentTimeMillis() - start) + " ms.");
+				}
+				return entry.weights;
+			}
+		}
+
+		void clear() {
+			synchronized (this.customized) {
+				this.customized.clear();
+			}
+		}
+	}
+
+	private static final class LinkCosts {
+
+		private final double[] costs;
+		private final int hash;
+		private ContractionHierarchy.Weights weights = null;
+
+		LinkCosts(final double[] costs) {
+			this.costs = costs;
+			this.hash = Arrays.hashCode(costs);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof LinkCosts && this.hash == ((LinkCosts) obj).hash && Arrays.equals(this.costs, ((LinkCosts) obj).costs);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies} path calculators. The hierarchy is built once per network. Its costs are
+ * customized lazily per time bin. Every path calculator computes the costs of all links of a time bin with its own
+ * travel disutility; the customized weights are shared by all path calculators of the network that arrive at exactly
+ * the same link costs, since a new travel disutility instance is typically created for every path calculator.
+ * <p>
+ * As the travel times change between iterations, the customizations are discarded at the start of every iteration.
+ * When used outside of the controler, call {@link #clearCustomizations()} after the travel times have changed.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	public static final double DEFAULT_TIME_BIN_SIZE = 3600.0;
+
+	private final double timeBinSize;
+	private final double maxTime;
+	private final Map<Network, ContractionHierarchy> hierarchies = new HashMap<>();
+	private final Map<ContractionHierarchy, ContractionHierarchiesCustomization.SharedWeights> sharedWeights = new HashMap<>();
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(DEFAULT_TIME_BIN_SIZE, travelTimeCalculatorConfigGroup.getMaxTime());
+	}
+
+	public ContractionHierarchiesFactory() {
+		this(DEFAULT_TIME_BIN_SIZE, 30 * 3600.0);
+	}
+
+	/**
+	 * @param timeBinSize the travel disutility is evaluated once per time bin of this size
+	 * @param maxTime departures after this time use the costs of the last time bin
+	 */
+	public ContractionHierarchiesFactory(final double timeBinSize, final double maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchy hierarchy = this.hierarchies.get(network);
+		if (hierarchy == null) {
+			hierarchy = new ContractionHierarchy(network);
+			this.hierarchies.put(network, hierarchy);
+		}
+		ContractionHierarchiesCustomization.SharedWeights weights = this.sharedWeights.get(hierarchy);
+		if (weights == null) {
+			weights = new ContractionHierarchiesCustomization.SharedWeights(hierarchy);
+			this.sharedWeights.put(hierarchy, weights);
+		}
+		ContractionHierarchiesCustomization customization = new ContractionHierarchiesCustomization(hierarchy, weights, travelCosts, this.timeBinSize, this.maxTime);
+		return new ContractionHierarchies(hierarchy, customization, travelCosts, travelTimes);
+	}
+
+	/**
+	 * Discards all customized costs, so they are computed again with the current travel times.
+	 */
+	public synchronized void clearCustomizations() {
+		for (ContractionHierarchiesCustomization.SharedWeights weights : this.sharedWeights.values()) {
+			weights.clear();
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		clearCustomizations();
+	}
+
+}
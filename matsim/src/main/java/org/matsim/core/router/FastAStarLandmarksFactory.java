@@ -28,6 +28,7 @@ import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
@@ -51,9 +52,15 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 
 	private final int nThreads;
 
+	private final String cacheDirectory;
+
 	@Inject
+	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads(), controlerConfigGroup.getLandmarksCacheDirectory());
+	}
+
 	public FastAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
-		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads());
+		this(FastRouterType.ARRAY, globalConfigGroup.getNumberOfThreads(), null);
 	}
 
 	public FastAStarLandmarksFactory() {
@@ -64,11 +71,20 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	}
 
 	public FastAStarLandmarksFactory(int nThreads) {
-		this(FastRouterType.ARRAY, nThreads);
+		this(FastRouterType.ARRAY, nThreads, null);
+	}
+
+	/**
+	 * @param nThreads
+	 * @param cacheDirectory directory to cache the landmark travel times in, or <code>null</code> to not cache them
+	 * @see PreProcessLandmarks#setCacheDirectory(String)
+	 */
+	public FastAStarLandmarksFactory(int nThreads, String cacheDirectory) {
+		this(FastRouterType.ARRAY, nThreads, cacheDirectory);
 	}
 
 	// hide this constructor, as only one router type is allowed anyway...
-	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads) {
+	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads, String cacheDirectory) {
 		switch (fastRouterType) {
 		case ARRAY:
 			this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
@@ -80,6 +96,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 		}
 
 		this.nThreads = numberOfThreads;
+		this.cacheDirectory = cacheDirectory;
 	}
 
 	@Override
@@ -93,6 +110,7 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 			if (preProcessLandmarks == null) {
 				preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 				preProcessLandmarks.setNumberOfThreads(nThreads);
+				preProcessLandmarks.setCacheDirectory(cacheDirectory);
 				preProcessLandmarks.run(network);
 				this.preProcessData.put(network, preProcessLandmarks);
 				
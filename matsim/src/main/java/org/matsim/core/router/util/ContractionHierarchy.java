@@ -0,0 +1,483 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH).
+ * <p>
+ * The nodes are ordered by a geometric nested dissection: the network is recursively split at the median of its
+ * longer extent, and the nodes of the smaller boundary between both halves are ranked after all nodes of the halves.
+ * Contracting the nodes in this order without witness searches results in an undirected hierarchy that contains
+ * all shortcuts needed for <em>any</em> link costs. The costs themselves are only set by {@link #customize(double[])},
+ * which is fast enough to be repeated for every time bin and every iteration.
+ * <p>
+ * Nodes are referred to by their rank, links by the array index of the {@link ArrayRoutingNetwork}. Every edge of the
+ * hierarchy connects a lower ranked tail with a higher ranked head; the edges of a tail are stored consecutively,
+ * sorted by head.
+ *
+ * @see org.matsim.core.router.ContractionHierarchies
+ */
+public final class ContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/** parts with at most this number of nodes are not dissected any further. */
+	private static final int LEAF_SIZE = 16;
+
+	private final ArrayRoutingNetwork routingNetwork;
+	private final int[] rankOfIndex;
+	private final Link[] links;
+	private final int[] linkEdge;
+	private final boolean[] linkUpward;
+
+	private final int[] firstEdge;
+	private final int[] edgeHead;
+	private final int[] edgeTail;
+
+	// only used while ordering the nodes
+	private int[] nodeMark;
+	private int markCounter = 0;
+	private int nextRank = 0;
+
+	public ContractionHierarchy(final Network network) {
+		long start = System.currentTimeMillis();
+		this.routingNetwork = new ArrayRoutingNetworkFactory().createRoutingNetwork(network);
+		int nodeCount = this.routingNetwork.getNodes().size();
+
+		ArrayRoutingNetworkNode[] nodes = new ArrayRoutingNetworkNode[nodeCount];
+		int linkCount = 0;
+		for (RoutingNetworkNode node : this.routingNetwork.getNodes().values()) {
+			ArrayRoutingNetworkNode arrayNode = (ArrayRoutingNetworkNode) node;
+			nodes[arrayNode.getArrayIndex()] = arrayNode;
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				linkCount = Math.max(linkCount, ((ArrayRoutingNetworkLink) link).getArrayIndex() + 1);
+			}
+		}
+		this.links = new Link[linkCount];
+		int[] linkFrom = new int[linkCount];
+		int[] linkTo = new int[linkCount];
+		Arrays.fill(linkFrom, -1);
+		for (ArrayRoutingNetworkNode node : nodes) {
+			for (RoutingNetworkLink link : node.getOutLinksArray()) {
+				int index = ((ArrayRoutingNetworkLink) link).getArrayIndex();
+				this.links[index] = link.getLink();
+				linkFrom[index] = node.getArrayIndex();
+				linkTo[index] = ((ArrayRoutingNetworkNode) link.getToNode()).getArrayIndex();
+			}
+		}
+
+		// undirected adjacency, in array index space
+		int[] adjacencyFirst = new int[nodeCount + 1];
+		for (int l = 0; l < linkCount; l++) {
+			if (linkFrom[l] >= 0 && linkFrom[l] != linkTo[l]) {
+				adjacencyFirst[linkFrom[l] + 1]++;
+				adjacencyFirst[linkTo[l] + 1]++;
+			}
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			adjacencyFirst[i + 1] += adjacencyFirst[i];
+		}
+		int[] adjacency = new int[adjacencyFirst[nodeCount]];
+		int[] fill = Arrays.copyOf(adjacencyFirst, nodeCount);
+		for (int l = 0; l < linkCount; l++) {
+			if (linkFrom[l] >= 0 && linkFrom[l] != linkTo[l]) {
+				adjacency[fill[linkFrom[l]]++] = linkTo[l];
+				adjacency[fill[linkTo[l]]++] = linkFrom[l];
+			}
+		}
+
+		this.rankOfIndex = orderNodes(nodes, adjacencyFirst, adjacency);
+		long ordered = System.currentTimeMillis();
+
+		int[][] upper = contract(nodeCount, adjacencyFirst, adjacency);
+
+		this.firstEdge = new int[nodeCount + 1];
+		for (int r = 0; r < nodeCount; r++) {
+			this.firstEdge[r + 1] = this.firstEdge[r] + upper[r].length;
+		}
+		int edgeCount = this.firstEdge[nodeCount];
+		this.edgeHead = new int[edgeCount];
+		this.edgeTail = new int[edgeCount];
+		for (int r = 0; r < nodeCount; r++) {
+			System.arraycopy(upper[r], 0, this.edgeHead, this.firstEdge[r], upper[r].length);
+			Arrays.fill(this.edgeTail, this.firstEdge[r], this.firstEdge[r + 1], r);
+			upper[r] = null;
+		}
+
+		this.linkEdge = new int[linkCount];
+		this.linkUpward = new boolean[linkCount];
+		for (int l = 0; l < linkCount; l++) {
+			if (linkFrom[l] < 0 || linkFrom[l] == linkTo[l]) {
+				this.linkEdge[l] = -1;
+				continue;
+			}
+			int from = this.rankOfIndex[linkFrom[l]];
+			int to = this.rankOfIndex[linkTo[l]];
+			this.linkUpward[l] = from < to;
+			this.linkEdge[l] = from < to ? findEdge(from, to) : findEdge(to, from);
+		}
+
+		log.info("contraction hierarchy with " + nodeCount + " nodes, " + linkCount + " links and " + edgeCount + " edges built in "
+				+ (System.currentTimeMillis() - start) + " ms (ordering: " + (ordered - start) + " ms).");
+	}
+
+	/* ordering */
+
+	private int[] orderNodes(final ArrayRoutingNetworkNode[] nodes, final int[] adjacencyFirst, final int[] adjacency) {
+		final int nodeCount = nodes.length;
+		final double[] x = new double[nodeCount];
+		final double[] y = new double[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			Coord coord = nodes[i].getCoord();
+			x[i] = coord.getX();
+			y[i] = coord.getY();
+		}
+		int[] xRank = sortedRanks(x);
+		int[] yRank = sortedRanks(y);
+
+		int[] rank = new int[nodeCount];
+		int[] all = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			all[i] = i;
+		}
+		this.nodeMark = new int[nodeCount];
+		this.nextRank = 0;
+		dissect(all, x, y, xRank, yRank, adjacencyFirst, adjacency, rank);
+		this.nodeMark = null;
+		return rank;
+	}
+
+	private static int[] sortedRanks(final double[] values) {
+		Integer[] indices = new Integer[values.length];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+		Arrays.sort(indices, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(values[i1], values[i2]);
+			}
+		});
+		int[] ranks = new int[values.length];
+		for (int k = 0; k < indices.length; k++) {
+			ranks[indices[k]] = k;
+		}
+		return ranks;
+	}
+
+	private void dissect(final int[] part, final double[] x, final double[] y, final int[] xRank, final int[] yRank,
+			final int[] adjacencyFirst, final int[] adjacency, final int[] rank) {
+		if (part.length <= LEAF_SIZE) {
+			for (int v : part) {
+				rank[v] = this.nextRank++;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int v : part) {
+			minX = Math.min(minX, x[v]);
+			maxX = Math.max(maxX, x[v]);
+			minY = Math.min(minY, y[v]);
+			maxY = Math.max(maxY, y[v]);
+		}
+		int[] key = (maxX - minX) >= (maxY - minY) ? xRank : yRank;
+		long[] sorted = new long[part.length];
+		for (int k = 0; k < part.length; k++) {
+			sorted[k] = ((long) key[part[k]] << 32) | part[k];
+		}
+		Arrays.sort(sorted);
+		int half = part.length / 2;
+
+		int markA = ++this.markCounter;
+		int markB = ++this.markCounter;
+		for (int k = 0; k < part.length; k++) {
+			this.nodeMark[(int) sorted[k]] = k < half ? markA : markB;
+		}
+		int boundaryA = 0;
+		int boundaryB = 0;
+		boolean[] isBoundary = new boolean[part.length];
+		for (int k = 0; k < part.length; k++) {
+			int v = (int) sorted[k];
+			int other = k < half ? markB : markA;
+			for (int a = adjacencyFirst[v]; a < adjacencyFirst[v + 1]; a++) {
+				if (this.nodeMark[adjacency[a]] == other) {
+					isBoundary[k] = true;
+					if (k < half) {
+						boundaryA++;
+					} else {
+						boundaryB++;
+					}
+					break;
+				}
+			}
+		}
+		// the separator is the smaller of both boundaries, the other half keeps its boundary nodes
+		boolean separatorInA = boundaryA <= boundaryB;
+		int separatorSize = separatorInA ? boundaryA : boundaryB;
+		int[] partA = new int[half - (separatorInA ? separatorSize : 0)];
+		int[] partB = new int[part.length - half - (separatorInA ? 0 : separatorSize)];
+		int[] separator = new int[separatorSize];
+		int a = 0, b = 0, s = 0;
+		for (int k = 0; k < part.length; k++) {
+			int v = (int) sorted[k];
+			boolean inA = k < half;
+			if (isBoundary[k] && inA == separatorInA) {
+				separator[s++] = v;
+			} else if (inA) {
+				partA[a++] = v;
+			} else {
+				partB[b++] = v;
+			}
+		}
+		dissect(partA, x, y, xRank, yRank, adjacencyFirst, adjacency, rank);
+		dissect(partB, x, y, xRank, yRank, adjacencyFirst, adjacency, rank);
+		for (int v : separator) {
+			rank[v] = this.nextRank++;
+		}
+	}
+
+	/* contraction */
+
+	/**
+	 * Contracts the nodes in the order of their rank and returns the sorted higher ranked neighbors of every node, including
+	 * the shortcuts. Instead of connecting all higher neighbors of a node pairwise, they are only added to the lowest of them,
+	 * which is the parent of the node in the elimination tree; the remaining pairs are created when the parent is contracted.
+	 */
+	private int[][] contract(final int nodeCount, final int[] adjacencyFirst, final int[] adjacency) {
+		int[][] upper = new int[nodeCount][];
+		for (int i = 0; i < nodeCount; i++) {
+			int r = this.rankOfIndex[i];
+			int[] neighbors = new int[adjacencyFirst[i + 1] - adjacencyFirst[i]];
+			int count = 0;
+			for (int a = adjacencyFirst[i]; a < adjacencyFirst[i + 1]; a++) {
+				int neighbor = this.rankOfIndex[adjacency[a]];
+				if (neighbor > r) {
+					neighbors[count++] = neighbor;
+				}
+			}
+			upper[r] = unique(neighbors, count);
+		}
+		for (int r = 0; r < nodeCount; r++) {
+			int[] neighbors = upper[r];
+			if (neighbors.length > 1) {
+				int parent = neighbors[0];
+				upper[parent] = mergeSorted(upper[parent], neighbors, 1);
+			}
+		}
+		return upper;
+	}
+
+	private static int[] unique(final int[] values, final int count) {
+		Arrays.sort(values, 0, count);
+		int size = 0;
+		for (int k = 0; k < count; k++) {
+			if (size == 0 || values[size - 1] != values[k]) {
+				values[size++] = values[k];
+			}
+		}
+		return Arrays.copyOf(values, size);
+	}
+
+	private static int[] mergeSorted(final int[] a, final int[] b, final int bStart) {
+		int[] merged = new int[a.length + b.length - bStart];
+		int i = 0, j = bStart, size = 0;
+		while (i < a.length || j < b.length) {
+			int next;
+			if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+				next = a[i++];
+			} else {
+				next = b[j++];
+			}
+			if (size == 0 || merged[size - 1] != next) {
+				merged[size++] = next;
+			}
+		}
+		return size == merged.length ? merged : Arrays.copyOf(merged, size);
+	}
+
+	/* customization */
+
+	/**
+	 * Computes the costs of all edges of the hierarchy from the given link costs, indexed like {@link #getLink(int)}.
+	 * Every lower triangle is relaxed exactly once, in the order of the rank of its lowest node.
+	 */
+	public Weights customize(final double[] linkCosts) {
+		int edgeCount = this.edgeHead.length;
+		Weights w = new Weights(edgeCount);
+		for (int l = 0; l < this.links.length; l++) {
+			int e = this.linkEdge[l];
+			if (e < 0) {
+				continue;
+			}
+			float cost = (float) linkCosts[l];
+			if (this.linkUpward[l]) {
+				if (cost < w.up[e]) {
+					w.up[e] = cost;
+					w.upVia[e] = -l - 1;
+				}
+			} else if (cost < w.down[e]) {
+				w.down[e] = cost;
+				w.downVia[e] = -l - 1;
+			}
+		}
+		int nodeCount = this.firstEdge.length - 1;
+		for (int r = 0; r < nodeCount; r++) {
+			int last = this.firstEdge[r + 1];
+			for (int i = this.firstEdge[r]; i < last; i++) {
+				float toLower = w.down[i];
+				float fromLower = w.up[i];
+				if (toLower == Float.POSITIVE_INFINITY && fromLower == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				int u = this.edgeHead[i];
+				// the higher neighbors of r above u are all higher neighbors of u as well, so both lists can be merged
+				int k = this.firstEdge[u];
+				for (int j = i + 1; j < last; j++) {
+					int head = this.edgeHead[j];
+					while (this.edgeHead[k] != head) {
+						k++;
+					}
+					float up = toLower + w.up[j];
+					if (up < w.up[k]) {
+						w.up[k] = up;
+						w.upVia[k] = r;
+					}
+					float down = w.down[j] + fromLower;
+					if (down < w.down[k]) {
+						w.down[k] = down;
+						w.downVia[k] = r;
+					}
+				}
+			}
+		}
+		return w;
+	}
+
+	/* access */
+
+	/**
+	 * @return the rank of the given node, or -1 if the node is not part of the network of this hierarchy.
+	 */
+	public int getRank(final Node node) {
+		RoutingNetworkNode routingNode = this.routingNetwork.getNodes().get(node.getId());
+		if (routingNode == null) {
+			return -1;
+		}
+		return this.rankOfIndex[((ArrayRoutingNetworkNode) routingNode).getArrayIndex()];
+	}
+
+	public int getNumberOfNodes() {
+		return this.firstEdge.length - 1;
+	}
+
+	public int getNumberOfLinks() {
+		return this.links.length;
+	}
+
+	public int getNumberOfEdges() {
+		return this.edgeHead.length;
+	}
+
+	/**
+	 * @return the link with the given array index, or <code>null</code> if it is not used in the routing network.
+	 */
+	public Link getLink(final int index) {
+		return this.links[index];
+	}
+
+	/** @return the first edge with the given node as tail */
+	public int getFirstEdge(final int rank) {
+		return this.firstEdge[rank];
+	}
+
+	/** @return the edge after the last edge with the given node as tail */
+	public int getEndEdge(final int rank) {
+		return this.firstEdge[rank + 1];
+	}
+
+	public int getHead(final int edge) {
+		return this.edgeHead[edge];
+	}
+
+	public int getTail(final int edge) {
+		return this.edgeTail[edge];
+	}
+
+	/**
+	 * @return the edge between the given nodes, or -1 if there is none.
+	 */
+	public int findEdge(final int tail, final int head) {
+		int index = Arrays.binarySearch(this.edgeHead, this.firstEdge[tail], this.firstEdge[tail + 1], head);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * The costs of the edges of a hierarchy for one metric. For both directions of every edge, it stores the cost and how
+	 * it is realized: a non-negative value is the rank of the middle node of a shortcut, a negative value <code>v</code>
+	 * refers to the link with index <code>-v-1</code>. Unreachable directions have an infinite cost.
+	 */
+	public static final class Weights {
+
+		private final float[] up;
+		private final float[] down;
+		private final int[] upVia;
+		private final int[] downVia;
+
+		private Weights(final int edgeCount) {
+			this.up = new float[edgeCount];
+			this.down = new float[edgeCount];
+			this.upVia = new int[edgeCount];
+			this.downVia = new int[edgeCount];
+			Arrays.fill(this.up, Float.POSITIVE_INFINITY);
+			Arrays.fill(this.down, Float.POSITIVE_INFINITY);
+		}
+
+		/** @return the cost from the tail to the head of the edge */
+		public float getUpCost(final int edge) {
+			return this.up[edge];
+		}
+
+		/** @return the cost from the head to the tail of the edge */
+		public float getDownCost(final int edge) {
+			return this.down[edge];
+		}
+
+		public int getUpVia(final int edge) {
+			return this.upVia[edge];
+		}
+
+		public int getDownVia(final int edge) {
+			return this.downVia[edge];
+		}
+	}
+
+}
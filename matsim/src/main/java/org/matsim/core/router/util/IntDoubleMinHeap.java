@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntDoubleMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (index, cost) pairs on primitive arrays, for searches on graphs numbered by int indices.
+ * There is no decrease-key: an index whose cost improves is simply added again, and callers skip the outdated
+ * entries when they are polled, i.e. when the polled cost is higher than the one the caller has stored for the index.
+ */
+public final class IntDoubleMinHeap {
+
+	private int[] indices;
+	private double[] costs;
+	private int size = 0;
+
+	public IntDoubleMinHeap() {
+		this(64);
+	}
+
+	public IntDoubleMinHeap(final int initialCapacity) {
+		this.indices = new int[Math.max(initialCapacity, 1)];
+		this.costs = new double[this.indices.length];
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the cost of the entry that {@link #poll()} returns next; the heap must not be empty.
+	 */
+	public double peekCost() {
+		return this.costs[0];
+	}
+
+	public void add(final int index, final double cost) {
+		if (this.size == this.indices.length) {
+			this.indices = Arrays.copyOf(this.indices, 2 * this.size);
+			this.costs = Arrays.copyOf(this.costs, 2 * this.size);
+		}
+		int i = this.size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (this.costs[parent] <= cost) {
+				break;
+			}
+			this.indices[i] = this.indices[parent];
+			this.costs[i] = this.costs[parent];
+			i = parent;
+		}
+		this.indices[i] = index;
+		this.costs[i] = cost;
+	}
+
+	/**
+	 * Removes the entry with the lowest cost; the heap must not be empty.
+	 *
+	 * @return the index of the removed entry
+	 */
+	public int poll() {
+		int result = this.indices[0];
+		int lastIndex = this.indices[--this.size];
+		double lastCost = this.costs[this.size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && this.costs[child + 1] < this.costs[child]) {
+				child++;
+			}
+			if (lastCost <= this.costs[child]) {
+				break;
+			}
+			this.indices[i] = this.indices[child];
+			this.costs[i] = this.costs[child];
+			i = child;
+		}
+		this.indices[i] = lastIndex;
+		this.costs[i] = lastCost;
+		return result;
+	}
+
+}
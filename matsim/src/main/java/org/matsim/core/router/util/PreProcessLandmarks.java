@@ -24,12 +24,28 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -53,6 +69,10 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
+	private static final int CACHE_VERSION = 1;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -105,6 +125,18 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.landmarker = landmarker;
 	}
 
+	/**
+	 * Sets a directory in which the computed landmark travel times are cached. The cache entries are keyed by a hash
+	 * of the network, the minimum travel disutilities of its links and the chosen landmarks, so a later run on an
+	 * unchanged network with unchanged cost lower bounds reads the travel times instead of computing them again.
+	 * Default is <code>null</code>, i.e. no caching.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	@Override
 	public void run(final Network network) {
 		super.run(network);
@@ -115,10 +147,44 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		LandmarksData[] data = new LandmarksData[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			data[i] = new LandmarksData(this.landmarkCount);
+			this.nodeData.put(nodes[i], data[i]);
 		}
-		
+
+		now = System.currentTimeMillis();
+		File cacheFile = null;
+		if (this.cacheDirectory != null) {
+			cacheFile = new File(this.cacheDirectory, "landmarks_" + calcCacheKey(nodes) + ".bin");
+		}
+		if (cacheFile != null && readCache(cacheFile, data)) {
+			log.info("Read landmark travel times from " + cacheFile);
+		} else {
+			calcLandmarkTravelTimes(nodes, data);
+			if (cacheFile != null) {
+				writeCache(cacheFile, data);
+			}
+		}
+
+		for (LandmarksData r : data) {
+			r.updateMinMaxTravelTimes();
+		}
+
+		for (int n = 0; n < nodes.length; n++) {
+			LandmarksData r = data[n];
+			for (int i = 0; i < this.landmarks.length; i++) {
+				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
+					log.info("Min > max for node " + nodes[n].getId() + " and landmark " + i);
+				}
+			}
+		}
+
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	}
+
+	private void calcLandmarkTravelTimes(final Node[] nodes, final LandmarksData[] data) {
 		int nOfThreads = this.numberOfThreads;
 		if (nOfThreads > this.landmarks.length) {
 			nOfThreads = this.landmarks.length;
@@ -127,12 +193,11 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 			nOfThreads = 2; // always use at least two threads
 		}
  		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
 
-		
+		LandmarksGraph graph = new LandmarksGraph(nodes, this.costFunction);
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+			executor.execute(new Calculator(i, graph.getIndex(this.landmarks[i]), graph, data));
 		}
 		executor.shutdown();
 		while (!executor.isTerminated()) {
@@ -143,90 +208,216 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 				throw new RuntimeException(e);
 			}
 		}
+	}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			r.updateMinMaxTravelTimes();
+	/**
+	 * Hashes everything the landmark travel times depend on: the nodes in iteration order, their out-links with
+	 * their minimum travel disutility, and the landmarks.
+	 */
+	private String calcCacheKey(final Node[] nodes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+			out.writeInt(CACHE_VERSION);
+			out.writeInt(nodes.length);
+			for (Node node : nodes) {
+				out.writeUTF(node.getId().toString());
+				for (Link link : node.getOutLinks().values()) {
+					out.writeUTF(link.getId().toString());
+					out.writeUTF(link.getToNode().getId().toString());
+					out.writeDouble(this.costFunction.getLinkMinimumTravelDisutility(link));
+				}
+			}
+			out.writeInt(this.landmarks.length);
+			for (Node landmark : this.landmarks) {
+				out.writeUTF(landmark.getId().toString());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		StringBuilder key = new StringBuilder();
+		byte[] hash = digest.digest();
+		for (int i = 0; i < 16; i++) {
+			key.append(String.format("%02x", hash[i]));
 		}
+		return key.toString();
+	}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
+	private boolean readCache(final File file, final LandmarksData[] data) {
+		if (!file.isFile()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != CACHE_VERSION || in.readInt() != data.length || in.readInt() != this.landmarks.length) {
+				log.warn("Landmarks cache " + file + " does not match the network, ignoring it.");
+				return false;
+			}
+			for (LandmarksData r : data) {
+				for (int i = 0; i < this.landmarks.length; i++) {
+					r.setFromLandmarkTravelTime(i, in.readDouble());
+					r.setToLandmarkTravelTime(i, in.readDouble());
 				}
 			}
+			return true;
+		} catch (IOException e) {
+			log.warn("Could not read landmarks cache " + file + ", computing the landmarks again.", e);
+			return false;
 		}
+	}
 
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+	private void writeCache(final File file, final LandmarksData[] data) {
+		// write to a temporary file first, so concurrent runs never read a partially written cache
+		File tmpFile = new File(file.getPath() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16))) {
+				out.writeInt(CACHE_VERSION);
+				out.writeInt(data.length);
+				out.writeInt(this.landmarks.length);
+				for (LandmarksData r : data) {
+					for (int i = 0; i < this.landmarks.length; i++) {
+						out.writeDouble(r.getFromLandmarkTravelTime(i));
+						out.writeDouble(r.getToLandmarkTravelTime(i));
+					}
+				}
+			}
+			try {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			log.info("Wrote landmark travel times to " + file);
+		} catch (IOException e) {
+			log.warn("Could not write landmarks cache " + file + ".", e);
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * The network in compressed row storage with the minimum travel disutility of each link, in both directions,
+	 * such that the landmark trees can be expanded without any map lookups.
+	 */
+	private static final class LandmarksGraph {
+
+		private final Map<Node, Integer> index;
+		private final int[] outFirst;
+		private final int[] outHead;
+		private final double[] outCost;
+		private final int[] inFirst;
+		private final int[] inHead;
+		private final double[] inCost;
+
+		LandmarksGraph(final Node[] nodes, final TravelDisutility costFunction) {
+			this.index = new IdentityHashMap<>(nodes.length);
+			for (int i = 0; i < nodes.length; i++) {
+				this.index.put(nodes[i], i);
+			}
+			this.outFirst = new int[nodes.length + 1];
+			this.inFirst = new int[nodes.length + 1];
+			int nOfLinks = 0;
+			for (int i = 0; i < nodes.length; i++) {
+				for (Link l : nodes[i].getOutLinks().values()) {
+					if (this.index.containsKey(l.getToNode())) {
+						this.outFirst[i + 1]++;
+						this.inFirst[this.index.get(l.getToNode()) + 1]++;
+						nOfLinks++;
+					}
+				}
+			}
+			for (int i = 0; i < nodes.length; i++) {
+				this.outFirst[i + 1] += this.outFirst[i];
+				this.inFirst[i + 1] += this.inFirst[i];
+			}
+			this.outHead = new int[nOfLinks];
+			this.outCost = new double[nOfLinks];
+			this.inHead = new int[nOfLinks];
+			this.inCost = new double[nOfLinks];
+			int[] inNext = Arrays.copyOf(this.inFirst, nodes.length);
+			int outNext = 0;
+			for (int i = 0; i < nodes.length; i++) {
+				for (Link l : nodes[i].getOutLinks().values()) {
+					Integer to = this.index.get(l.getToNode());
+					if (to != null) {
+						double cost = costFunction.getLinkMinimumTravelDisutility(l);
+						this.outHead[outNext] = to;
+						this.outCost[outNext++] = cost;
+						this.inHead[inNext[to]] = i;
+						this.inCost[inNext[to]++] = cost;
+					}
+				}
+			}
+		}
+
+		int getIndex(final Node node) {
+			return this.index.get(node);
+		}
+
+		/**
+		 * Dijkstra from (or, if <code>forward</code> is false, to) the given node on the minimum travel disutilities.
+		 * Unreachable nodes keep {@link Double#POSITIVE_INFINITY}.
+		 */
+		double[] expand(final int source, final boolean forward) {
+			final int[] first = forward ? this.outFirst : this.inFirst;
+			final int[] head = forward ? this.outHead : this.inHead;
+			final double[] cost = forward ? this.outCost : this.inCost;
+			double[] dist = new double[first.length - 1];
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			dist[source] = 0.0;
+			IntDoubleMinHeap pending = new IntDoubleMinHeap();
+			pending.add(source, 0.0);
+			while (!pending.isEmpty()) {
+				double nodeDist = pending.peekCost();
+				int node = pending.poll();
+				if (nodeDist > dist[node]) {
+					continue; // already settled with a lower cost
+				}
+				for (int e = first[node]; e < first[node + 1]; e++) {
+					double totalCost = nodeDist + cost[e];
+					if (dist[head[e]] > totalCost) {
+						dist[head[e]] = totalCost;
+						pending.add(head[e], totalCost);
+					}
+				}
+			}
+			return dist;
+		}
+	}
+
+	private static final class NullOutputStream extends OutputStream {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
 	}
 
 	private static class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int landmark;
+		private final LandmarksGraph graph;
+		private final LandmarksData[] data;
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int landmark, final LandmarksGraph graph, final LandmarksData[] data) {
 			this.landmarkIdx = landmarkIdx;
 			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+			this.graph = graph;
+			this.data = data;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
-		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
-			}
-		}
-
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
+			double[] fromLandmark = this.graph.expand(this.landmark, true);
+			double[] toLandmark = this.graph.expand(this.landmark, false);
+			for (int i = 0; i < this.data.length; i++) {
+				this.data[i].setFromLandmarkTravelTime(this.landmarkIdx, fromLandmark[i]);
+				this.data[i].setToLandmarkTravelTime(this.landmarkIdx, toLandmark[i]);
 			}
 		}
 	
@@ -307,66 +498,4 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		}
 	}
 
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
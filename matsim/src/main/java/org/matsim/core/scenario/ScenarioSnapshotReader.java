@@ -0,0 +1,497 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import static org.matsim.core.scenario.ScenarioSnapshotWriter.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacilitiesFactory;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributable;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads a snapshot written by {@link ScenarioSnapshotWriter} into a scenario. Every section of the
+ * file is memory-mapped and decoded straight from the mapped buffer, so no xml parsing or string
+ * conversion of numbers is involved. The elements are created with the factories of the scenario's
+ * containers and added to them, so the containers should be empty before.
+ */
+public final class ScenarioSnapshotReader {
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotReader.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private String[] strings = null;
+	private Id<Link>[] linkIds = null;
+
+	private int sectionTag;
+	private ByteBuffer sectionBuffer;
+
+	public ScenarioSnapshotReader(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void readFile(final String filename) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			if (header.getLong() != MAGIC) {
+				throw new UncheckedIOException(filename + " is not a scenario snapshot.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new UncheckedIOException("Unsupported version " + version + " of scenario snapshot " + filename + ", expected version " + VERSION + ".");
+			}
+			long stringsPosition = header.getLong();
+
+			mapSection(channel, stringsPosition);
+			if (this.sectionTag != SECTION_STRINGS) {
+				throw new UncheckedIOException("No string table found in scenario snapshot " + filename + ".");
+			}
+			readStrings(this.sectionBuffer);
+			this.linkIds = new Id[this.strings.length];
+
+			long position = HEADER_SIZE;
+			while (position < stringsPosition) {
+				position = mapSection(channel, position);
+				switch (this.sectionTag) {
+					case SECTION_NETWORK:
+						readNetwork(this.sectionBuffer);
+						break;
+					case SECTION_FACILITIES:
+						readFacilities(this.sectionBuffer);
+						break;
+					case SECTION_TRANSIT_SCHEDULE:
+						readTransitSchedule(this.sectionBuffer);
+						break;
+					case SECTION_POPULATION:
+						readPopulation(this.sectionBuffer);
+						break;
+					case SECTION_PERSONS:
+						readPersons(this.sectionBuffer);
+						break;
+					default:
+						log.warn("Skipping unknown section " + this.sectionTag + " in scenario snapshot " + filename + ".");
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.strings = null;
+			this.linkIds = null;
+			this.sectionBuffer = null;
+		}
+	}
+
+	/**
+	 * Maps the section at the given position of the file and returns the position of the next section.
+	 */
+	private long mapSection(final FileChannel channel, final long position) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER_SIZE);
+		readFully(channel, header, position);
+		this.sectionTag = header.getInt();
+		long length = header.getLong();
+		this.sectionBuffer = channel.map(FileChannel.MapMode.READ_ONLY, position + SECTION_HEADER_SIZE, length);
+		return position + SECTION_HEADER_SIZE + length;
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+		long p = position;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, p);
+			if (read < 0) {
+				throw new UncheckedIOException("Unexpected end of scenario snapshot.");
+			}
+			p += read;
+		}
+		buffer.flip();
+	}
+
+	private void readStrings(final ByteBuffer buffer) {
+		this.strings = new String[buffer.getInt()];
+		for (int i = 1; i < this.strings.length; i++) {
+			this.strings[i] = readInlineString(buffer);
+		}
+	}
+
+	private void readNetwork(final ByteBuffer buffer) {
+		Network network = this.scenario.getNetwork();
+		NetworkFactory factory = network.getFactory();
+		network.setName(readString(buffer));
+		network.setCapacityPeriod(buffer.getDouble());
+		network.setEffectiveLaneWidth(buffer.getDouble());
+		network.setEffectiveCellSize(buffer.getDouble());
+		readAttributes(buffer, network);
+
+		Node[] nodes = new Node[buffer.getInt()];
+		for (int i = 0; i < nodes.length; i++) {
+			Id<Node> id = readId(buffer, Node.class);
+			Node node = factory.createNode(id, readCoord(buffer));
+			String type = readString(buffer);
+			if (type != null) {
+				NetworkUtils.setType(node, type);
+			}
+			String origId = readString(buffer);
+			if (origId != null) {
+				NetworkUtils.setOrigId(node, origId);
+			}
+			readAttributes(buffer, node);
+			network.addNode(node);
+			nodes[i] = node;
+		}
+
+		int linkCount = buffer.getInt();
+		for (int i = 0; i < linkCount; i++) {
+			Id<Link> id = readLinkId(buffer);
+			Node fromNode = nodes[buffer.getInt()];
+			Node toNode = nodes[buffer.getInt()];
+			Link link = factory.createLink(id, fromNode, toNode);
+			link.setLength(buffer.getDouble());
+			link.setFreespeed(buffer.getDouble());
+			link.setCapacity(buffer.getDouble());
+			link.setNumberOfLanes(buffer.getDouble());
+			int modeCount = buffer.getInt();
+			Set<String> modes = new HashSet<>();
+			for (int m = 0; m < modeCount; m++) {
+				modes.add(readString(buffer));
+			}
+			link.setAllowedModes(modes);
+			readAttributes(buffer, link);
+			network.addLink(link);
+		}
+	}
+
+	private void readFacilities(final ByteBuffer buffer) {
+		ActivityFacilities facilities = this.scenario.getActivityFacilities();
+		ActivityFacilitiesFactory factory = facilities.getFactory();
+		facilities.setName(readString(buffer));
+		readAttributes(buffer, facilities);
+
+		int facilityCount = buffer.getInt();
+		for (int i = 0; i < facilityCount; i++) {
+			Id<ActivityFacility> id = readId(buffer, ActivityFacility.class);
+			Coord coord = readCoord(buffer);
+			Id<Link> linkId = readLinkId(buffer);
+			String desc = readString(buffer);
+			ActivityFacility facility = factory.createActivityFacility(id, coord, linkId);
+			if (desc != null && facility instanceof ActivityFacilityImpl) {
+				((ActivityFacilityImpl) facility).setDesc(desc);
+			}
+			readAttributes(buffer, facility);
+			int optionCount = buffer.getInt();
+			for (int o = 0; o < optionCount; o++) {
+				ActivityOption option = factory.createActivityOption(readString(buffer));
+				option.setCapacity(buffer.getDouble());
+				int openingTimeCount = buffer.getInt();
+				for (int t = 0; t < openingTimeCount; t++) {
+					double startTime = buffer.getDouble();
+					double endTime = buffer.getDouble();
+					option.addOpeningTime(new OpeningTimeImpl(startTime, endTime));
+				}
+				facility.addActivityOption(option);
+			}
+			facilities.addActivityFacility(facility);
+		}
+	}
+
+	private void readTransitSchedule(final ByteBuffer buffer) {
+		TransitSchedule schedule = this.scenario.getTransitSchedule();
+		TransitScheduleFactory factory = schedule.getFactory();
+		readAttributes(buffer, schedule);
+
+		TransitStopFacility[] stops = new TransitStopFacility[buffer.getInt()];
+		for (int i = 0; i < stops.length; i++) {
+			Id<TransitStopFacility> id = readId(buffer, TransitStopFacility.class);
+			Coord coord = readCoord(buffer);
+			Id<Link> linkId = readLinkId(buffer);
+			String name = readString(buffer);
+			boolean isBlocking = buffer.get() != 0;
+			Id<TransitStopArea> stopAreaId = readId(buffer, TransitStopArea.class);
+			TransitStopFacility stop = factory.createTransitStopFacility(id, coord, isBlocking);
+			stop.setLinkId(linkId);
+			stop.setName(name);
+			stop.setStopAreaId(stopAreaId);
+			readAttributes(buffer, stop);
+			schedule.addStopFacility(stop);
+			stops[i] = stop;
+		}
+
+		int lineCount = buffer.getInt();
+		for (int i = 0; i < lineCount; i++) {
+			TransitLine line = factory.createTransitLine(readId(buffer, TransitLine.class));
+			line.setName(readString(buffer));
+			readAttributes(buffer, line);
+			int routeCount = buffer.getInt();
+			for (int r = 0; r < routeCount; r++) {
+				Id<TransitRoute> id = readId(buffer, TransitRoute.class);
+				String mode = readString(buffer);
+				String description = readString(buffer);
+				NetworkRoute networkRoute = null;
+				if (buffer.get() != 0) {
+					Id<Link> startLinkId = readLinkId(buffer);
+					List<Id<Link>> linkIds = readLinkIds(buffer);
+					Id<Link> endLinkId = readLinkId(buffer);
+					networkRoute = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+				}
+				List<TransitRouteStop> routeStops = new ArrayList<>();
+				int stopCount = buffer.getInt();
+				for (int s = 0; s < stopCount; s++) {
+					TransitStopFacility stop = stops[buffer.getInt()];
+					double arrivalOffset = buffer.getDouble();
+					double departureOffset = buffer.getDouble();
+					TransitRouteStop routeStop = factory.createTransitRouteStop(stop, arrivalOffset, departureOffset);
+					routeStop.setAwaitDepartureTime(buffer.get() != 0);
+					routeStops.add(routeStop);
+				}
+				TransitRoute route = factory.createTransitRoute(id, networkRoute, routeStops, mode);
+				route.setDescription(description);
+				int departureCount = buffer.getInt();
+				for (int d = 0; d < departureCount; d++) {
+					Id<Departure> departureId = readId(buffer, Departure.class);
+					Departure departure = factory.createDeparture(departureId, buffer.getDouble());
+					departure.setVehicleId(readId(buffer, Vehicle.class));
+					readAttributes(buffer, departure);
+					route.addDeparture(departure);
+				}
+				readAttributes(buffer, route);
+				line.addRoute(route);
+			}
+			schedule.addTransitLine(line);
+		}
+
+		int transferTimeCount = buffer.getInt();
+		for (int i = 0; i < transferTimeCount; i++) {
+			Id<TransitStopFacility> fromStopId = readId(buffer, TransitStopFacility.class);
+			Id<TransitStopFacility> toStopId = readId(buffer, TransitStopFacility.class);
+			schedule.getMinimalTransferTimes().set(fromStopId, toStopId, buffer.getDouble());
+		}
+	}
+
+	private void readPopulation(final ByteBuffer buffer) {
+		Population population = this.scenario.getPopulation();
+		population.setName(readString(buffer));
+		readAttributes(buffer, population);
+	}
+
+	private void readPersons(final ByteBuffer buffer) {
+		Population population = this.scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		while (buffer.hasRemaining()) {
+			Person person = factory.createPerson(readId(buffer, Person.class));
+			readAttributes(buffer, person);
+			int planCount = buffer.getInt();
+			int selectedPlan = buffer.getInt();
+			for (int p = 0; p < planCount; p++) {
+				Plan plan = factory.createPlan();
+				if (buffer.get() != 0) {
+					plan.setScore(buffer.getDouble());
+				}
+				plan.setType(readString(buffer));
+				readAttributes(buffer, plan);
+				int elementCount = buffer.getInt();
+				for (int e = 0; e < elementCount; e++) {
+					byte element = buffer.get();
+					if (element == ACTIVITY) {
+						plan.addActivity(readActivity(buffer, factory));
+					} else if (element == LEG) {
+						plan.addLeg(readLeg(buffer, factory));
+					} else {
+						throw new UncheckedIOException("Unknown plan element " + element + " in plan of person " + person.getId() + ".");
+					}
+				}
+				person.addPlan(plan);
+				if (p == selectedPlan) {
+					person.setSelectedPlan(plan);
+				}
+			}
+			population.addPerson(person);
+		}
+	}
+
+	private Activity readActivity(final ByteBuffer buffer, final PopulationFactory factory) {
+		String type = readString(buffer);
+		Coord coord = readCoord(buffer);
+		Id<Link> linkId = readLinkId(buffer);
+		Id<ActivityFacility> facilityId = readId(buffer, ActivityFacility.class);
+		Activity activity = coord != null ? factory.createActivityFromCoord(type, coord) : factory.createActivityFromLinkId(type, linkId);
+		activity.setLinkId(linkId);
+		activity.setFacilityId(facilityId);
+		activity.setStartTime(buffer.getDouble());
+		activity.setEndTime(buffer.getDouble());
+		activity.setMaximumDuration(buffer.getDouble());
+		readAttributes(buffer, activity);
+		return activity;
+	}
+
+	private Leg readLeg(final ByteBuffer buffer, final PopulationFactory factory) {
+		Leg leg = factory.createLeg(readString(buffer));
+		leg.setDepartureTime(buffer.getDouble());
+		leg.setTravelTime(buffer.getDouble());
+		readAttributes(buffer, leg);
+
+		byte routeKind = buffer.get();
+		if (routeKind == NO_ROUTE) {
+			return leg;
+		}
+		String routeType = readString(buffer);
+		Id<Link> startLinkId = readLinkId(buffer);
+		Id<Link> endLinkId = readLinkId(buffer);
+		RouteFactories routeFactories = factory.getRouteFactories();
+		Route route = routeFactories.createRoute(routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+		route.setTravelTime(buffer.getDouble());
+		route.setDistance(buffer.getDouble());
+		if (routeKind == NETWORK_ROUTE) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			networkRoute.setVehicleId(readId(buffer, Vehicle.class));
+			Id<Link> routeStartLinkId = readLinkId(buffer);
+			List<Id<Link>> linkIds = readLinkIds(buffer);
+			Id<Link> routeEndLinkId = readLinkId(buffer);
+			networkRoute.setLinkIds(routeStartLinkId, linkIds, routeEndLinkId);
+		} else {
+			route.setRouteDescription(readInlineString(buffer));
+		}
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private List<Id<Link>> readLinkIds(final ByteBuffer buffer) {
+		int count = buffer.getInt();
+		List<Id<Link>> linkIds = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			linkIds.add(readLinkId(buffer));
+		}
+		return linkIds;
+	}
+
+	private Coord readCoord(final ByteBuffer buffer) {
+		byte dimensions = buffer.get();
+		if (dimensions == 0) {
+			return null;
+		}
+		double x = buffer.getDouble();
+		double y = buffer.getDouble();
+		return dimensions == 3 ? new Coord(x, y, buffer.getDouble()) : new Coord(x, y);
+	}
+
+	private void readAttributes(final ByteBuffer buffer, final Attributable attributable) {
+		int count = buffer.getInt();
+		if (count == 0) {
+			// objects of the compact population only create their attributes when asked for
+			return;
+		}
+		Attributes attributes = attributable.getAttributes();
+		for (int i = 0; i < count; i++) {
+			String name = readString(buffer);
+			String className = readString(buffer);
+			Object value = this.attributesConverter.convert(className, readInlineString(buffer));
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+	/**
+	 * Link ids are referenced by most routes, so they are looked up only once per string.
+	 */
+	private Id<Link> readLinkId(final ByteBuffer buffer) {
+		int index = buffer.getInt();
+		if (index == 0) {
+			return null;
+		}
+		Id<Link> id = this.linkIds[index];
+		if (id == null) {
+			id = Id.createLinkId(this.strings[index]);
+			this.linkIds[index] = id;
+		}
+		return id;
+	}
+
+	private <T> Id<T> readId(final ByteBuffer buffer, final Class<T> type) {
+		String id = readString(buffer);
+		return id == null ? null : Id.create(id, type);
+	}
+
+	private String readString(final ByteBuffer buffer) {
+		return this.strings[buffer.getInt()];
+	}
+
+	private static String readInlineString(final ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,485 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes.MinimalTransferTimesIterator;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributable;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * Writes the network, population, facilities and transit schedule of a {@link Scenario} into a
+ * compact, versioned binary snapshot, which can be loaded much faster than the xml files with
+ * {@link ScenarioSnapshotReader}.
+ * <p>
+ * The file starts with a header (magic number, format version and the position of the string
+ * table), followed by sections, each of them being a tag, its length in bytes and its content.
+ * Every string (ids, types, modes, attribute names) is stored only once in the string table at the
+ * end of the file and referenced by its index; nodes and transit stops are referenced by their
+ * position in the node or stop table. The persons are spread over several sections of limited size,
+ * so that the reader can memory-map every section on its own.
+ * <p>
+ * Attributes are stored with the same {@link AttributeConverter}s as in the xml formats; attributes
+ * without a converter are dropped. The snapshot is meant as a fast cache of a scenario, e.g. to
+ * start several runs from the same input or from the output of another run. It does not replace the
+ * xml formats, and the format may change with its version number.
+ */
+public final class ScenarioSnapshotWriter implements MatsimWriter {
+
+	static final long MAGIC = 0x4d415453494d5353L; // "MATSIMSS"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 8 + 4 + 8;
+	static final int SECTION_HEADER_SIZE = 4 + 8;
+
+	static final int SECTION_STRINGS = 1;
+	static final int SECTION_NETWORK = 2;
+	static final int SECTION_FACILITIES = 3;
+	static final int SECTION_TRANSIT_SCHEDULE = 4;
+	static final int SECTION_POPULATION = 5;
+	static final int SECTION_PERSONS = 6;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte NO_ROUTE = 0;
+	static final byte NETWORK_ROUTE = 1;
+	static final byte GENERIC_ROUTE = 2;
+
+	// a new section of persons is started as soon as the current one has grown beyond this size
+	private static final int PERSONS_SECTION_SIZE = 1 << 26;
+
+	private static final Attributes EMPTY_ATTRIBUTES = new Attributes();
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final List<String> convertedAttributes = new ArrayList<>();
+
+	private final Section section = new Section();
+	private final DataOutputStream out = new DataOutputStream(this.section);
+	private FileChannel channel = null;
+
+	public ScenarioSnapshotWriter(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void write(final String filename) {
+		this.stringIndices.clear();
+		this.strings.clear();
+		this.strings.add(null); // index 0 stands for null
+		try (FileChannel channel = FileChannel.open(Paths.get(filename),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			this.channel = channel;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putLong(MAGIC).putInt(VERSION).putLong(0L).flip();
+			writeFully(header, 0);
+
+			writeNetwork(this.scenario.getNetwork());
+			writeFacilities(this.scenario.getActivityFacilities());
+			writeTransitSchedule(this.scenario.getTransitSchedule());
+			writePopulation(this.scenario.getPopulation());
+
+			long stringsPosition = channel.position();
+			writeStringTable();
+			ByteBuffer position = ByteBuffer.allocate(8);
+			position.putLong(stringsPosition).flip();
+			writeFully(position, 8 + 4);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.channel = null;
+			this.section.reset();
+		}
+	}
+
+	private void writeNetwork(final Network network) throws IOException {
+		writeString(network.getName());
+		this.out.writeDouble(network.getCapacityPeriod());
+		this.out.writeDouble(network.getEffectiveLaneWidth());
+		this.out.writeDouble(network.getEffectiveCellSize());
+		writeAttributes(network);
+
+		IdMap<Node, Integer> nodeIndices = new IdMap<>(Node.class);
+		this.out.writeInt(network.getNodes().size());
+		for (Node node : network.getNodes().values()) {
+			nodeIndices.put(node.getId(), nodeIndices.size());
+			writeId(node.getId());
+			writeCoord(node.getCoord());
+			writeString(NetworkUtils.getType(node));
+			writeString(NetworkUtils.getOrigId(node));
+			writeAttributes(node);
+		}
+
+		this.out.writeInt(network.getLinks().size());
+		for (Link link : network.getLinks().values()) {
+			writeId(link.getId());
+			this.out.writeInt(nodeIndices.get(link.getFromNode().getId()));
+			this.out.writeInt(nodeIndices.get(link.getToNode().getId()));
+			this.out.writeDouble(link.getLength());
+			this.out.writeDouble(link.getFreespeed());
+			this.out.writeDouble(link.getCapacity());
+			this.out.writeDouble(link.getNumberOfLanes());
+			writeStrings(link.getAllowedModes());
+			writeAttributes(link);
+		}
+		flushSection(SECTION_NETWORK);
+	}
+
+	private void writeFacilities(final ActivityFacilities facilities) throws IOException {
+		writeString(facilities.getName());
+		writeAttributes(facilities);
+
+		this.out.writeInt(facilities.getFacilities().size());
+		for (ActivityFacility facility : facilities.getFacilities().values()) {
+			writeId(facility.getId());
+			writeCoord(facility.getCoord());
+			writeId(facility.getLinkId());
+			writeString(facility instanceof ActivityFacilityImpl ? ((ActivityFacilityImpl) facility).getDesc() : null);
+			writeAttributes(facility);
+			this.out.writeInt(facility.getActivityOptions().size());
+			for (ActivityOption option : facility.getActivityOptions().values()) {
+				writeString(option.getType());
+				this.out.writeDouble(option.getCapacity());
+				this.out.writeInt(option.getOpeningTimes().size());
+				for (OpeningTime openingTime : option.getOpeningTimes()) {
+					this.out.writeDouble(openingTime.getStartTime());
+					this.out.writeDouble(openingTime.getEndTime());
+				}
+			}
+		}
+		flushSection(SECTION_FACILITIES);
+	}
+
+	private void writeTransitSchedule(final TransitSchedule schedule) throws IOException {
+		writeAttributes(schedule);
+
+		IdMap<TransitStopFacility, Integer> stopIndices = new IdMap<>(TransitStopFacility.class);
+		this.out.writeInt(schedule.getFacilities().size());
+		for (TransitStopFacility stop : schedule.getFacilities().values()) {
+			stopIndices.put(stop.getId(), stopIndices.size());
+			writeId(stop.getId());
+			writeCoord(stop.getCoord());
+			writeId(stop.getLinkId());
+			writeString(stop.getName());
+			this.out.writeBoolean(stop.getIsBlockingLane());
+			writeId(stop.getStopAreaId());
+			writeAttributes(stop);
+		}
+
+		this.out.writeInt(schedule.getTransitLines().size());
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			writeId(line.getId());
+			writeString(line.getName());
+			writeAttributes(line);
+			this.out.writeInt(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				writeId(route.getId());
+				writeString(route.getTransportMode());
+				writeString(route.getDescription());
+				NetworkRoute networkRoute = route.getRoute();
+				this.out.writeBoolean(networkRoute != null);
+				if (networkRoute != null) {
+					writeLinkIds(networkRoute);
+				}
+				this.out.writeInt(route.getStops().size());
+				for (TransitRouteStop stop : route.getStops()) {
+					this.out.writeInt(stopIndices.get(stop.getStopFacility().getId()));
+					this.out.writeDouble(stop.getArrivalOffset());
+					this.out.writeDouble(stop.getDepartureOffset());
+					this.out.writeBoolean(stop.isAwaitDepartureTime());
+				}
+				this.out.writeInt(route.getDepartures().size());
+				for (Departure departure : route.getDepartures().values()) {
+					writeId(departure.getId());
+					this.out.writeDouble(departure.getDepartureTime());
+					writeId(departure.getVehicleId());
+					writeAttributes(departure);
+				}
+				writeAttributes(route);
+			}
+		}
+
+		int transferTimes = 0;
+		for (MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator(); iter.hasNext(); iter.next()) {
+			transferTimes++;
+		}
+		this.out.writeInt(transferTimes);
+		MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			writeId(iter.getFromStopId());
+			writeId(iter.getToStopId());
+			this.out.writeDouble(iter.getSeconds());
+		}
+		flushSection(SECTION_TRANSIT_SCHEDULE);
+	}
+
+	private void writePopulation(final Population population) throws IOException {
+		writeString(population.getName());
+		writeAttributes(population);
+		flushSection(SECTION_POPULATION);
+
+		for (Person person : population.getPersons().values()) {
+			writePerson(person);
+			if (this.section.size() >= PERSONS_SECTION_SIZE) {
+				flushSection(SECTION_PERSONS);
+			}
+		}
+		if (this.section.size() > 0) {
+			flushSection(SECTION_PERSONS);
+		}
+	}
+
+	private void writePerson(final Person person) throws IOException {
+		writeId(person.getId());
+		writeAttributes(person);
+		this.out.writeInt(person.getPlans().size());
+		this.out.writeInt(person.getPlans().indexOf(person.getSelectedPlan()));
+		for (Plan plan : person.getPlans()) {
+			Double score = plan.getScore();
+			this.out.writeBoolean(score != null);
+			if (score != null) {
+				this.out.writeDouble(score);
+			}
+			writeString(plan.getType());
+			writeAttributes(plan);
+			this.out.writeInt(plan.getPlanElements().size());
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Activity) {
+					writeActivity((Activity) pe);
+				} else if (pe instanceof Leg) {
+					writeLeg((Leg) pe);
+				} else {
+					throw new IllegalArgumentException("unknown plan element " + pe + " in plan of person " + person.getId());
+				}
+			}
+		}
+	}
+
+	private void writeActivity(final Activity activity) throws IOException {
+		this.out.writeByte(ACTIVITY);
+		writeString(activity.getType());
+		writeCoord(activity.getCoord());
+		writeId(activity.getLinkId());
+		writeId(activity.getFacilityId());
+		this.out.writeDouble(activity.getStartTime());
+		this.out.writeDouble(activity.getEndTime());
+		this.out.writeDouble(activity.getMaximumDuration());
+		writeAttributes(activity);
+	}
+
+	private void writeLeg(final Leg leg) throws IOException {
+		this.out.writeByte(LEG);
+		writeString(leg.getMode());
+		this.out.writeDouble(leg.getDepartureTime());
+		this.out.writeDouble(leg.getTravelTime());
+		writeAttributes(leg);
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			this.out.writeByte(NO_ROUTE);
+			return;
+		}
+		this.out.writeByte(route instanceof NetworkRoute ? NETWORK_ROUTE : GENERIC_ROUTE);
+		writeString(route.getRouteType());
+		writeId(route.getStartLinkId());
+		writeId(route.getEndLinkId());
+		this.out.writeDouble(route.getTravelTime());
+		this.out.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			writeId(networkRoute.getVehicleId());
+			writeLinkIds(networkRoute);
+		} else {
+			writeInlineString(route.getRouteDescription());
+		}
+	}
+
+	private void writeLinkIds(final NetworkRoute route) throws IOException {
+		writeId(route.getStartLinkId());
+		List<Id<Link>> linkIds = route.getLinkIds();
+		this.out.writeInt(linkIds.size());
+		for (Id<Link> linkId : linkIds) {
+			writeId(linkId);
+		}
+		writeId(route.getEndLinkId());
+	}
+
+	private void writeCoord(final Coord coord) throws IOException {
+		if (coord == null) {
+			this.out.writeByte(0);
+		} else if (coord.hasZ()) {
+			this.out.writeByte(3);
+			this.out.writeDouble(coord.getX());
+			this.out.writeDouble(coord.getY());
+			this.out.writeDouble(coord.getZ());
+		} else {
+			this.out.writeByte(2);
+			this.out.writeDouble(coord.getX());
+			this.out.writeDouble(coord.getY());
+		}
+	}
+
+	private void writeAttributes(final Attributable attributable) throws IOException {
+		this.convertedAttributes.clear();
+		// objects of the compact population only create their attributes when asked for
+		Attributes attributes = AttributesUtils.hasAttributes(attributable) ? attributable.getAttributes() : EMPTY_ATTRIBUTES;
+		for (Map.Entry<String, Object> attribute : attributes.getAsMap().entrySet()) {
+			String converted = this.attributesConverter.convertToString(attribute.getValue());
+			if (converted != null) {
+				this.convertedAttributes.add(attribute.getKey());
+				this.convertedAttributes.add(attribute.getValue().getClass().getCanonicalName());
+				this.convertedAttributes.add(converted);
+			}
+		}
+		this.out.writeInt(this.convertedAttributes.size() / 3);
+		for (int i = 0; i < this.convertedAttributes.size(); i += 3) {
+			writeString(this.convertedAttributes.get(i));
+			writeString(this.convertedAttributes.get(i + 1));
+			// values are mostly unique, so they are not worth an entry in the string table
+			writeInlineString(this.convertedAttributes.get(i + 2));
+		}
+	}
+
+	private void writeStrings(final Collection<String> strings) throws IOException {
+		this.out.writeInt(strings.size());
+		for (String s : strings) {
+			writeString(s);
+		}
+	}
+
+	private void writeId(final Id<?> id) throws IOException {
+		writeString(id == null ? null : id.toString());
+	}
+
+	private void writeString(final String s) throws IOException {
+		if (s == null) {
+			this.out.writeInt(0);
+			return;
+		}
+		Integer index = this.stringIndices.get(s);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.add(s);
+			this.stringIndices.put(s, index);
+		}
+		this.out.writeInt(index);
+	}
+
+	private void writeInlineString(final String s) throws IOException {
+		if (s == null) {
+			this.out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		this.out.writeInt(bytes.length);
+		this.out.write(bytes);
+	}
+
+	private void writeStringTable() throws IOException {
+		this.out.writeInt(this.strings.size());
+		for (int i = 1; i < this.strings.size(); i++) {
+			writeInlineString(this.strings.get(i));
+		}
+		flushSection(SECTION_STRINGS);
+	}
+
+	private void flushSection(final int tag) throws IOException {
+		this.out.flush();
+		ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER_SIZE);
+		header.putInt(tag).putLong(this.section.size()).flip();
+		writeFully(header, this.channel.position());
+		writeFully(this.section.asByteBuffer(), this.channel.position());
+		this.section.reset();
+	}
+
+	private void writeFully(final ByteBuffer buffer, final long position) throws IOException {
+		long p = position;
+		while (buffer.hasRemaining()) {
+			p += this.channel.write(buffer, p);
+		}
+		if (p > this.channel.position()) {
+			this.channel.position(p);
+		}
+	}
+
+	private static final class Section extends ByteArrayOutputStream {
+		Section() {
+			super(1 << 16);
+		}
+
+		ByteBuffer asByteBuffer() {
+			return ByteBuffer.wrap(this.buf, 0, this.count);
+		}
+	}
+
+}
@@ -69,6 +69,28 @@ public final class ScenarioUtils {
 		ScenarioLoaderImpl scenarioLoader = new ScenarioLoaderImpl(scenario);
 		scenarioLoader.loadScenario();
 	}
+
+	/**
+	 *
+	 * Creates a scenario and populates its network, population, facilities and transit schedule from a binary snapshot
+	 * written by {@link #writeScenarioSnapshot(Scenario, String)}. The input files named in the config are not read.
+	 *
+	 */
+	public static Scenario loadScenarioSnapshot(final Config config, final String filename) {
+		Scenario scenario = createScenario(config);
+		new ScenarioSnapshotReader(scenario).readFile(filename);
+		return scenario;
+	}
+
+	/**
+	 *
+	 * Writes the network, population, facilities and transit schedule of the scenario into a binary snapshot,
+	 * see {@link ScenarioSnapshotWriter}.
+	 *
+	 */
+	public static void writeScenarioSnapshot(final Scenario scenario, final String filename) {
+		new ScenarioSnapshotWriter(scenario).write(filename);
+	}
 	
 	public final static class ScenarioBuilder {
 		private MutableScenario scenario;
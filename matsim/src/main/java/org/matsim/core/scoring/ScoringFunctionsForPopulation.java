@@ -22,16 +22,20 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
@@ -43,8 +47,11 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.events.EventsManagerImpl;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.utils.io.IOUtils;
@@ -60,6 +67,11 @@ import gnu.trove.list.array.TDoubleArrayList;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * With more than one scoring shard configured (see {@link org.matsim.core.config.groups.PlanCalcScoreConfigGroup#getNumberOfScoringShards()}),
+ * the persons are partitioned by their index in the population. Each partition is a separate event handler with its own
+ * {@link EventsToActivities} and {@link EventsToLegs}, and only touches the scoring functions of its own persons. The partitions
+ * thus need no common lock and are handled concurrently when parallel event handling is used.
  * 
  * @author michaz
  *
@@ -96,9 +108,28 @@ import gnu.trove.list.array.TDoubleArrayList;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
-	@Inject
+	/*
+	 * Only used with more than one scoring shard.  Like agentScorers and partialScores, shardOfPerson is filled in init()
+	 * and not modified while events are processed, so the shards can read these maps without synchronization.
+	 * The per-person partial scores are only appended to by the shard of that person.
+	 */
+	private final List<ScoringShard> shards = new ArrayList<>();
+	private final Map<Id<Person>, Integer> shardOfPerson = new HashMap<>();
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, null, 1);
+	}
+
+	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Scenario scenario, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, scenario.getPopulation(), scoringFunctionFactory,
+				scenario, scenario.getConfig().planCalcScore().getNumberOfScoringShards());
+	}
+
+	private ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, Scenario scenario, int numberOfShards) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -107,6 +138,23 @@ import gnu.trove.list.array.TDoubleArrayList;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		if (numberOfShards > 1) {
+			log.info("scoring persons in " + numberOfShards + " shards.");
+			for (int i = 0; i < numberOfShards; i++) {
+				ScoringShard shard = new ScoringShard(i, new EventsToLegs(scenario));
+				this.shards.add(shard);
+				eventsManager.addHandler(shard);
+			}
+			controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+				@Override
+				public void notifyAfterMobsim(AfterMobsimEvent event) {
+					for (ScoringShard shard : shards) {
+						shard.eventsToActivities.finish();
+					}
+				}
+			});
+			return;
+		}
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
@@ -116,15 +164,24 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	private void init() {
+		int index = 0;
 		for (Person person : population.getPersons().values()) {
 			ScoringFunction data = scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
+			if (!this.shards.isEmpty()) {
+				this.shardOfPerson.put(person.getId(), index % this.shards.size());
+			}
+			index++;
 		}
 	}
 
 	@Override
 	synchronized public void handleEvent(Event o) {
+		scoreEvent(o, this.vehicles2Drivers);
+	}
+
+	private void scoreEvent(Event o, Vehicle2DriverEventHandler vehicles2Drivers) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
@@ -176,6 +233,10 @@ import gnu.trove.list.array.TDoubleArrayList;
 
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		scoreLeg(o);
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -188,6 +249,10 @@ import gnu.trove.list.array.TDoubleArrayList;
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		scoreActivity(o);
+	}
+
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -251,6 +316,73 @@ import gnu.trove.list.array.TDoubleArrayList;
 
 	}
 
+	/**
+	 * Scores the persons of one partition.  Person events of other partitions are dropped right away; link events
+	 * are only passed on if the driver belongs to this partition, and all remaining events (e.g. transit vehicles
+	 * arriving at stops) are passed on to every partition.  The events are then handled by a private, single-threaded
+	 * events manager, so activities, legs and events reach the scoring functions in the same order as without partitioning.
+	 */
+	private final class ScoringShard implements BasicEventHandler {
+
+		private final int index;
+		private final EventsManagerImpl events = new EventsManagerImpl();
+		private final EventsToActivities eventsToActivities = new EventsToActivities();
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+		ScoringShard(int index, EventsToLegs eventsToLegs) {
+			this.index = index;
+			this.eventsToActivities.addActivityHandler(new EventsToActivities.ActivityHandler() {
+				@Override
+				public void handleActivity(PersonExperiencedActivity activity) {
+					scoreActivity(activity);
+				}
+			});
+			eventsToLegs.addLegHandler(new EventsToLegs.LegHandler() {
+				@Override
+				public void handleLeg(PersonExperiencedLeg leg) {
+					scoreLeg(leg);
+				}
+			});
+			this.events.addHandler(this.eventsToActivities);
+			this.events.addHandler(eventsToLegs);
+			this.events.addHandler(new BasicEventHandler() {
+				@Override
+				public void handleEvent(Event event) {
+					scoreEvent(event, vehicles2Drivers);
+				}
+
+				@Override
+				public void reset(int iteration) {
+					vehicles2Drivers.reset(iteration);
+				}
+			});
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			if (event instanceof HasPersonId) {
+				Integer shard = shardOfPerson.get(((HasPersonId) event).getPersonId());
+				if (shard == null || shard != this.index) {
+					return;
+				}
+			} else if (event instanceof LinkEnterEvent) {
+				if (this.vehicles2Drivers.getDriverOfVehicle(((LinkEnterEvent) event).getVehicleId()) == null) {
+					return;
+				}
+			} else if (event instanceof LinkLeaveEvent) {
+				if (this.vehicles2Drivers.getDriverOfVehicle(((LinkLeaveEvent) event).getVehicleId()) == null) {
+					return;
+				}
+			}
+			this.events.processEvent(event);
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.events.resetHandlers(iteration);
+		}
+	}
+
 //	public boolean isPassLinkEventsToPerson() {
 //		return passLinkEventsToPerson;
 //	}
@@ -23,6 +23,7 @@ package org.matsim.core.trafficmonitoring;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.priorityqueue.HasIndex;
@@ -42,21 +43,30 @@ import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
 public class ArrayBasedDataContainerProvider implements DataContainerProvider {
 
 	private final DataContainer[] arrayLinkData;
+	private final IdMap<Link, DataContainer> idLinkData;
 	private final DataContainerProvider delegate;
 	
 	public ArrayBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataFactory ttDataFactory,
 			Network network) {
 		this.arrayLinkData = new DataContainer[network.getLinks().size()];
+		this.idLinkData = new IdMap<>(Link.class);
 		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
 	}
 	
 	/*
 	 * This method is called from the EventHandler part of the TravelTimeCalculator.
-	 * There, only link ids are available. We cannot optimize this. 
+	 * There, only link ids are available, so the position is taken from the index of the id.
 	 */
 	@Override
 	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
-		return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		DataContainer data = this.idLinkData.get(linkId);
+		if (data == null) {
+			data = this.delegate.getTravelTimeData(linkId, createIfMissing);
+			if (data != null) {
+				this.idLinkData.put(linkId, data);
+			}
+		}
+		return data;
 	}
 	
 	/*
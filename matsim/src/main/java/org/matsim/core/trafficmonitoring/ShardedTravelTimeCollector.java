@@ -0,0 +1,295 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleAbortsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.vehicles.Vehicle;
+
+import com.google.inject.Inject;
+
+/**
+ * Collects link travel times like the {@link TravelTimeCalculator}, but with several independent event handlers
+ * ("shards"), each responsible for a part of the links. With parallel event handling, the shards are processed by
+ * different threads, so the collection of travel times is no longer limited to a single thread. Every shard keeps
+ * its own state, so no synchronization is needed while handling events:
+ * <ul>
+ * <li>links and vehicles are mapped to dense int indices once,</li>
+ * <li>link enter times are kept in primitive arrays per vehicle index,</li>
+ * <li>travel time sums and counts are kept in primitive arrays per link and time bin.</li>
+ * </ul>
+ * After each mobsim, the shards are merged into a {@link TravelTimeCalculator} (see {@link #getTravelTimeCalculator()}),
+ * which provides the travel times to the rest of MATSim as usual.
+ * <p></p>
+ * Only link travel times with the <code>optimistic</code> aggregator are supported: the other aggregator and
+ * link-to-link travel times need the complete route of a vehicle, which is spread over several shards.
+ *
+ * @see TravelTimeCalculatorConfigGroup#getNumberOfShards()
+ */
+public final class ShardedTravelTimeCollector implements AfterMobsimListener {
+
+	private final TravelTimeCalculator calculator;
+	private final List<Shard> shards = new ArrayList<>();
+
+	@Inject
+	public ShardedTravelTimeCollector(TravelTimeCalculatorConfigGroup config, EventsManager eventsManager, Network network) {
+		if (!config.isCalculateLinkTravelTimes() || config.isCalculateLinkToLinkTravelTimes()) {
+			throw new RuntimeException("sharded travel time collection is only implemented for link travel times, not for link-to-link travel times.");
+		}
+		if (!"optimistic".equals(config.getTravelTimeAggregatorType())) {
+			throw new RuntimeException("sharded travel time collection is only implemented for the optimistic travel time aggregator, not for "
+					+ config.getTravelTimeAggregatorType());
+		}
+		Set<String> analyzedModes = CollectionUtils.stringToSet(config.getAnalyzedModes());
+		// the calculator is not added to the events manager; it only gets the merged travel times
+		this.calculator = TravelTimeCalculator.configure(new TravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(),
+				true, false, config.isFilterModes(), analyzedModes), config, network);
+
+		int numberOfShards = Math.max(1, config.getNumberOfShards());
+		List<List<Id<Link>>> linksPerShard = new ArrayList<>();
+		for (int i = 0; i < numberOfShards; i++) {
+			linksPerShard.add(new ArrayList<>());
+		}
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			linksPerShard.get(getShardIndex(linkId, numberOfShards)).add(linkId);
+		}
+		for (int i = 0; i < numberOfShards; i++) {
+			Shard shard = new Shard(i, numberOfShards, linksPerShard.get(i), this.calculator.getTimeSlice(), this.calculator.getNumSlots(),
+					config.isFilterModes(), analyzedModes);
+			this.shards.add(shard);
+			eventsManager.addHandler(shard);
+		}
+	}
+
+	private static int getShardIndex(Id<Link> linkId, int numberOfShards) {
+		return Math.floorMod(linkId.hashCode(), numberOfShards);
+	}
+
+	/**
+	 * @return the calculator that contains the travel times of the last merged mobsim run.
+	 */
+	public TravelTimeCalculator getTravelTimeCalculator() {
+		return this.calculator;
+	}
+
+	@Override
+	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		merge();
+	}
+
+	/**
+	 * Replaces the travel times of the calculator by the ones collected by the shards since their last reset. Must only
+	 * be called when no events are being processed, which is the case after the mobsim.
+	 */
+	public void merge() {
+		this.calculator.reset(0);
+		for (Shard shard : this.shards) {
+			shard.mergeInto(this.calculator);
+		}
+	}
+
+	private static final class Shard implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+			VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, VehicleAbortsEventHandler {
+
+		private static final int NO_LINK = -1;
+
+		private final int shardIndex;
+		private final int numberOfShards;
+		private final int timeSlice;
+		private final int numSlots;
+		private final boolean filterModes;
+		private final Set<String> analyzedModes;
+
+		private final Map<Id<Link>, Integer> linkIndices = new HashMap<>();
+		private final List<Id<Link>> linkIds;
+		/* travel time sums and counts per link index and time slot, only allocated for links with traffic */
+		private final double[][] travelTimeSums;
+		private final int[][] travelTimeCounts;
+
+		private final Map<Id<Vehicle>, Integer> vehicleIndices = new HashMap<>();
+		private double[] enterTimes = new double[1024];
+		private int[] enterLinks = new int[1024];
+		private boolean[] ignoredVehicles = new boolean[1024];
+
+		Shard(int shardIndex, int numberOfShards, List<Id<Link>> linkIds, int timeSlice, int numSlots, boolean filterModes, Set<String> analyzedModes) {
+			this.shardIndex = shardIndex;
+			this.numberOfShards = numberOfShards;
+			this.timeSlice = timeSlice;
+			this.numSlots = numSlots;
+			this.filterModes = filterModes;
+			this.analyzedModes = analyzedModes;
+			this.linkIds = linkIds;
+			for (int i = 0; i < linkIds.size(); i++) {
+				this.linkIndices.put(linkIds.get(i), i);
+			}
+			this.travelTimeSums = new double[linkIds.size()][];
+			this.travelTimeCounts = new int[linkIds.size()][];
+			Arrays.fill(this.enterLinks, NO_LINK);
+		}
+
+		/**
+		 * @return the index of the link in this shard, or {@link #NO_LINK} if the link belongs to another shard.
+		 */
+		private int getLinkIndex(Id<Link> linkId) {
+			if (getShardIndex(linkId, this.numberOfShards) != this.shardIndex) {
+				return NO_LINK;
+			}
+			Integer index = this.linkIndices.get(linkId);
+			return index == null ? NO_LINK : index;
+		}
+
+		private int getVehicleIndex(Id<Vehicle> vehicleId) {
+			Integer index = this.vehicleIndices.get(vehicleId);
+			if (index == null) {
+				index = this.vehicleIndices.size();
+				this.vehicleIndices.put(vehicleId, index);
+				if (index == this.enterTimes.length) {
+					int oldLength = this.enterTimes.length;
+					this.enterTimes = Arrays.copyOf(this.enterTimes, 2 * oldLength);
+					this.enterLinks = Arrays.copyOf(this.enterLinks, 2 * oldLength);
+					Arrays.fill(this.enterLinks, oldLength, 2 * oldLength, NO_LINK);
+					this.ignoredVehicles = Arrays.copyOf(this.ignoredVehicles, 2 * oldLength);
+				}
+			}
+			return index;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			int linkIndex = getLinkIndex(event.getLinkId());
+			if (linkIndex == NO_LINK) {
+				return;
+			}
+			int vehicleIndex = getVehicleIndex(event.getVehicleId());
+			if (this.filterModes && this.ignoredVehicles[vehicleIndex]) {
+				return;
+			}
+			this.enterTimes[vehicleIndex] = event.getTime();
+			this.enterLinks[vehicleIndex] = linkIndex;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			int linkIndex = getLinkIndex(event.getLinkId());
+			if (linkIndex == NO_LINK) {
+				return;
+			}
+			Integer vehicleIndex = this.vehicleIndices.get(event.getVehicleId());
+			if (vehicleIndex == null || this.enterLinks[vehicleIndex] != linkIndex) {
+				return;
+			}
+			double enterTime = this.enterTimes[vehicleIndex];
+			int timeSlot = TimeBinUtils.getTimeBinIndex(enterTime, this.timeSlice, this.numSlots);
+			if (this.travelTimeSums[linkIndex] == null) {
+				this.travelTimeSums[linkIndex] = new double[this.numSlots];
+				this.travelTimeCounts[linkIndex] = new int[this.numSlots];
+			}
+			this.travelTimeSums[linkIndex][timeSlot] += event.getTime() - enterTime;
+			this.travelTimeCounts[linkIndex][timeSlot]++;
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			if (this.filterModes && !this.analyzedModes.contains(event.getNetworkMode())) {
+				this.ignoredVehicles[getVehicleIndex(event.getVehicleId())] = true;
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			removeVehicle(event.getVehicleId(), true);
+		}
+
+		@Override
+		public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+			// otherwise, the stop time would be counted as travel time
+			removeVehicle(event.getVehicleId(), false);
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			// the optimistic aggregator ignores the travel times of stuck vehicles
+			removeVehicle(event.getVehicleId(), true);
+		}
+
+		private void removeVehicle(Id<Vehicle> vehicleId, boolean endsLeg) {
+			Integer vehicleIndex = this.vehicleIndices.get(vehicleId);
+			if (vehicleIndex != null) {
+				this.enterLinks[vehicleIndex] = NO_LINK;
+				if (endsLeg) {
+					this.ignoredVehicles[vehicleIndex] = false;
+				}
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+			for (int i = 0; i < this.travelTimeSums.length; i++) {
+				if (this.travelTimeSums[i] != null) {
+					Arrays.fill(this.travelTimeSums[i], 0.0);
+					Arrays.fill(this.travelTimeCounts[i], 0);
+				}
+			}
+			Arrays.fill(this.enterLinks, NO_LINK);
+			Arrays.fill(this.ignoredVehicles, false);
+		}
+
+		void mergeInto(TravelTimeCalculator calculator) {
+			for (int linkIndex = 0; linkIndex < this.travelTimeSums.length; linkIndex++) {
+				double[] sums = this.travelTimeSums[linkIndex];
+				if (sums == null) {
+					continue;
+				}
+				int[] counts = this.travelTimeCounts[linkIndex];
+				for (int timeSlot = 0; timeSlot < this.numSlots; timeSlot++) {
+					if (counts[timeSlot] > 0) {
+						calculator.addTravelTimes(this.linkIds.get(linkIndex), timeSlot, sums[timeSlot], counts[timeSlot]);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -282,6 +282,15 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
 	}
 
+	/**
+	 * Adds travel times that were collected elsewhere, e.g. by a {@link ShardedTravelTimeCollector}.
+	 */
+	/*package*/ void addTravelTimes(final Id<Link> linkId, final int timeSlot, final double travelTimeSum, final int count) {
+		DataContainer data = this.dataContainerProvider.getTravelTimeData(linkId, true);
+		data.ttData.addTravelTimes(timeSlot, travelTimeSum, count);
+		data.needsConsolidation = true;
+	}
+
 	private DataContainer getLinkToLinkTravelTimeData(Tuple<Id<Link>, Id<Link>> fromLinkToLink, final boolean createIfMissing) {
 		DataContainer data = this.linkToLinkData.get(fromLinkToLink);
 		if ((null == data) && createIfMissing) {
@@ -51,6 +51,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 	@Override
 	public void install() {
 		if (getConfig().travelTimeCalculator().getSeparateModes()) {
+			if (getConfig().travelTimeCalculator().getNumberOfShards() > 1) {
+				throw new RuntimeException("separate modes together with sharded travel time collection is currently not implemented.") ;
+			}
 			if (getConfig().travelTimeCalculator().isCalculateLinkToLinkTravelTimes()) {
 				throw new RuntimeException("separate modes together with link2link routing currently not implemented. doesn't look difficult, "
 						+ "but I cannot say if it would be picked up correctly by downstream modules.  kai, nov'16") ;
@@ -73,7 +76,19 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			// (all analyzed modes are measured together, and the same result is returned to each mode)
 			
 			// bind the TravelTimeCalculator, which is the observer and aggregator:
-			bind(TravelTimeCalculator.class).in(Singleton.class);
+			if (getConfig().travelTimeCalculator().getNumberOfShards() > 1) {
+				// (the events are observed by the shards, which fill the TravelTimeCalculator after each mobsim)
+				bind(ShardedTravelTimeCollector.class).in(Singleton.class);
+				addControlerListenerBinding().to(ShardedTravelTimeCollector.class);
+				bind(TravelTimeCalculator.class).toProvider(new Provider<TravelTimeCalculator>() {
+					@Inject ShardedTravelTimeCollector collector;
+					@Override public TravelTimeCalculator get() {
+						return collector.getTravelTimeCalculator();
+					}
+				}).in(Singleton.class);
+			} else {
+				bind(TravelTimeCalculator.class).in(Singleton.class);
+			}
 			
 			// bind the TravelTime objects.  In this case, this just passes on the same information from TravelTimeCalculator to each individual mode:
 			if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
@@ -30,6 +30,11 @@ public interface TravelTimeData {
 //	public abstract void resetTravelTime( final int timeSlot ) ;
 
 	abstract void addTravelTime(final int timeSlot, final double traveltime);
+
+	/**
+	 * Adds <code>count</code> travel times at once, given by their sum. Used to merge partial results, see {@link ShardedTravelTimeCollector}.
+	 */
+	abstract void addTravelTimes(final int timeSlot, final double traveltimeSum, final int count);
 	
 	/**
 	 * A method to set the travel time directly, to handle some special cases.
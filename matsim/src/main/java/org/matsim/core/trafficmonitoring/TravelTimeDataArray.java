@@ -78,6 +78,13 @@ public class TravelTimeDataArray implements TravelTimeData {
 		this.travelTimes[timeSlot] = -1.0; // initialize with negative value
 	}
 
+	@Override
+	public void addTravelTimes(final int timeSlot, final double traveltimeSum, final int count) {
+		this.timeSum[timeSlot] += traveltimeSum;
+		this.timeCnt[timeSlot] += count;
+		this.travelTimes[timeSlot] = -1.0;
+	}
+
 	@Override
 	public double getTravelTime(final int timeSlot, final double now) {
 		double ttime = this.travelTimes[timeSlot];
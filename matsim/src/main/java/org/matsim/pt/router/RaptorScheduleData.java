@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorScheduleData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Immutable, array based representation of a {@link TransitSchedule} as required by the {@link RaptorTransitRouter}.
+ * Stops, routes, route stops and transfers are numbered consecutively and all relations between them are stored
+ * in flat arrays, so one instance can be shared by any number of router threads.
+ * <p></p>
+ * Only stops served by at least one route, and only routes with at least two stops and one departure are included.
+ * Transfers connect all stops within {@link TransitRouterConfig#getBeelineWalkConnectionDistance()} of each other,
+ * including each stop with itself; only their distances are stored, so the cost parameters may still change later.
+ */
+final class RaptorScheduleData {
+
+	private final static Logger log = Logger.getLogger(RaptorScheduleData.class);
+
+	// stops
+	final TransitStopFacility[] stops;
+	final Map<TransitStopFacility, Integer> stopIndex;
+	final QuadTree<Integer> stopsQT;
+	/** route stops serving stop s are stopRouteStops[stopFirstRouteStop[s] .. stopFirstRouteStop[s+1]-1] */
+	final int[] stopFirstRouteStop;
+	final int[] stopRouteStops;
+	/** transfers from stop s are transferToStop[stopFirstTransfer[s] .. stopFirstTransfer[s+1]-1] */
+	final int[] stopFirstTransfer;
+	final int[] transferToStop;
+	final double[] transferDistance;
+
+	// routes
+	final TransitLine[] routeLines;
+	final TransitRoute[] routes;
+	/** route stops of route r are routeFirstRouteStop[r] .. routeFirstRouteStop[r+1]-1, in their order along the route */
+	final int[] routeFirstRouteStop;
+	/** sorted departure times at the first stop of route r are departures[routeFirstDeparture[r] .. routeFirstDeparture[r+1]-1] */
+	final int[] routeFirstDeparture;
+	final double[] departures;
+
+	// route stops
+	final int[] routeStopRoute;
+	final int[] routeStopStop;
+	final double[] routeStopArrivalOffset;
+	final double[] routeStopDepartureOffset;
+	/** beeline distance from the first stop of the route, summed up over all stops in between */
+	final double[] routeStopDistance;
+
+	RaptorScheduleData(final TransitSchedule schedule, final double beelineWalkConnectionDistance) {
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> usedRoutes = new ArrayList<>();
+		this.stopIndex = new IdentityHashMap<>();
+		List<TransitStopFacility> usedStops = new ArrayList<>();
+		int nOfRouteStops = 0;
+		int nOfDepartures = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lines.add(line);
+				usedRoutes.add(route);
+				nOfRouteStops += route.getStops().size();
+				nOfDepartures += route.getDepartures().size();
+				for (TransitRouteStop routeStop : route.getStops()) {
+					if (!this.stopIndex.containsKey(routeStop.getStopFacility())) {
+						this.stopIndex.put(routeStop.getStopFacility(), usedStops.size());
+						usedStops.add(routeStop.getStopFacility());
+					}
+				}
+			}
+		}
+		this.stops = usedStops.toArray(new TransitStopFacility[usedStops.size()]);
+		this.routeLines = lines.toArray(new TransitLine[lines.size()]);
+		this.routes = usedRoutes.toArray(new TransitRoute[usedRoutes.size()]);
+
+		this.routeFirstRouteStop = new int[this.routes.length + 1];
+		this.routeFirstDeparture = new int[this.routes.length + 1];
+		this.departures = new double[nOfDepartures];
+		this.routeStopRoute = new int[nOfRouteStops];
+		this.routeStopStop = new int[nOfRouteStops];
+		this.routeStopArrivalOffset = new double[nOfRouteStops];
+		this.routeStopDepartureOffset = new double[nOfRouteStops];
+		this.routeStopDistance = new double[nOfRouteStops];
+		this.stopFirstRouteStop = new int[this.stops.length + 1];
+		int rs = 0;
+		int d = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			this.routeFirstRouteStop[r] = rs;
+			TransitStopFacility prevStop = null;
+			for (TransitRouteStop routeStop : this.routes[r].getStops()) {
+				double arrivalOffset = routeStop.getArrivalOffset();
+				double departureOffset = routeStop.getDepartureOffset();
+				if (arrivalOffset == Time.UNDEFINED_TIME) {
+					arrivalOffset = departureOffset;
+				}
+				if (departureOffset == Time.UNDEFINED_TIME) {
+					departureOffset = arrivalOffset;
+				}
+				int stop = this.stopIndex.get(routeStop.getStopFacility());
+				this.routeStopRoute[rs] = r;
+				this.routeStopStop[rs] = stop;
+				this.routeStopArrivalOffset[rs] = arrivalOffset;
+				this.routeStopDepartureOffset[rs] = departureOffset;
+				this.routeStopDistance[rs] = prevStop == null ? 0.0 : this.routeStopDistance[rs - 1]
+						+ CoordUtils.calcEuclideanDistance(prevStop.getCoord(), routeStop.getStopFacility().getCoord());
+				this.stopFirstRouteStop[stop + 1]++;
+				prevStop = routeStop.getStopFacility();
+				rs++;
+			}
+			this.routeFirstDeparture[r] = d;
+			for (Departure departure : this.routes[r].getDepartures().values()) {
+				this.departures[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.routeFirstDeparture[r], d);
+		}
+		this.routeFirstRouteStop[this.routes.length] = rs;
+		this.routeFirstDeparture[this.routes.length] = d;
+
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopFirstRouteStop[s + 1] += this.stopFirstRouteStop[s];
+		}
+		this.stopRouteStops = new int[nOfRouteStops];
+		int[] next = Arrays.copyOf(this.stopFirstRouteStop, this.stops.length);
+		for (rs = 0; rs < nOfRouteStops; rs++) {
+			this.stopRouteStops[next[this.routeStopStop[rs]]++] = rs;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : this.stops) {
+			minX = Math.min(minX, stop.getCoord().getX());
+			minY = Math.min(minY, stop.getCoord().getY());
+			maxX = Math.max(maxX, stop.getCoord().getX());
+			maxY = Math.max(maxY, stop.getCoord().getY());
+		}
+		if (this.stops.length == 0) {
+			minX = minY = maxX = maxY = 0.0;
+		}
+		this.stopsQT = new QuadTree<>(minX, minY, maxX, maxY);
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopsQT.put(this.stops[s].getCoord().getX(), this.stops[s].getCoord().getY(), s);
+		}
+
+		this.stopFirstTransfer = new int[this.stops.length + 1];
+		List<int[]> transfers = new ArrayList<>();
+		int nOfTransfers = 0;
+		for (int s = 0; s < this.stops.length; s++) {
+			Coord coord = this.stops[s].getCoord();
+			Collection<Integer> nearbyStops = this.stopsQT.getDisk(coord.getX(), coord.getY(), beelineWalkConnectionDistance);
+			int[] toStops = new int[nearbyStops.size() + 1];
+			int n = 0;
+			toStops[n++] = s;
+			for (Integer other : nearbyStops) {
+				if (other != s) {
+					toStops[n++] = other;
+				}
+			}
+			toStops = Arrays.copyOf(toStops, n);
+			transfers.add(toStops);
+			nOfTransfers += n;
+			this.stopFirstTransfer[s + 1] = nOfTransfers;
+		}
+		this.transferToStop = new int[nOfTransfers];
+		this.transferDistance = new double[nOfTransfers];
+		int t = 0;
+		for (int s = 0; s < this.stops.length; s++) {
+			for (int other : transfers.get(s)) {
+				this.transferToStop[t] = other;
+				this.transferDistance[t++] = CoordUtils.calcEuclideanDistance(this.stops[s].getCoord(), this.stops[other].getCoord());
+			}
+		}
+
+		log.info("raptor schedule data: " + this.stops.length + " stops, " + this.routes.length + " routes, "
+				+ nOfRouteStops + " route stops, " + nOfDepartures + " departures, " + nOfTransfers + " transfers.");
+	}
+
+	/**
+	 * Returns the departure time at the first stop of the earliest trip of the route that departs at the given
+	 * route stop not before <code>time</code>. Like {@link PreparedTransitSchedule#getNextDepartureTime}, the schedule
+	 * is assumed to repeat every day, so the result may be a departure of a later day.
+	 */
+	double getNextDepartureAtFirstStop(final int routeStop, final double time) {
+		final int route = this.routeStopRoute[routeStop];
+		final double departureOffset = this.routeStopDepartureOffset[routeStop];
+		final int first = this.routeFirstDeparture[route];
+		final int last = this.routeFirstDeparture[route + 1];
+
+		double earliestDepartureAtFirstStop = time - departureOffset;
+		if (earliestDepartureAtFirstStop >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			earliestDepartureAtFirstStop = earliestDepartureAtFirstStop % TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		if (earliestDepartureAtFirstStop < 0) {
+			earliestDepartureAtFirstStop += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int pos = Arrays.binarySearch(this.departures, first, last, earliestDepartureAtFirstStop);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= last) {
+			pos = first; // there is no later departure time, take the first in the morning
+		}
+		double departure = this.departures[pos];
+		while (departure + departureOffset < time) {
+			departure += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return departure;
+	}
+}
@@ -0,0 +1,576 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.IntDoubleMinHeap;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+/**
+ * Transit router based on the round-based public transit routing algorithm RAPTOR, as described by
+ * Delling, D., Pajor, T. and Werneck, R.F., "Round-Based Public Transit Routing", Transportation Science 49(3), 2015.
+ * Instead of building a least-cost path tree on the {@link TransitRouterNetwork} for every request, it scans the
+ * routes of the schedule directly, using the flat arrays of {@link RaptorScheduleData}.
+ * <p></p>
+ * Round <i>k</i> computes the journeys using <i>k</i> vehicles. In contrast to the original algorithm, the labels
+ * are not arrival times but the generalized costs of {@link TransitRouterNetworkTravelTimeAndDisutility}, i.e.
+ * waiting, in-vehicle time and distance, walk time and distance for transfers, the additional transfer time and
+ * the utility of line switches, all taken from the {@link TransitRouterConfig} at the time of the request.
+ * As all trips of a route share the same stop offsets, the trip that is cheaper when leaving a stop is also cheaper
+ * at every later stop of the route, which keeps the route scan linear. Like the tree based {@link TransitRouterImpl},
+ * only one label per stop and round is kept, so this is no full multi-criteria search.
+ * <p></p>
+ * Walking transfers may be chained, as in the transit router network. The schedule is assumed to repeat every
+ * day, see {@link PreparedTransitSchedule#getNextDepartureTime}.
+ * <p></p>
+ * This class is thread-safe: the schedule data is shared and read-only, the search state is kept per thread.
+ * So one instance can be used by all threads, see {@link RaptorTransitRouterFactory}.
+ */
+public class RaptorTransitRouter extends AbstractTransitRouter implements TransitRouter {
+
+	/**
+	 * Maximum number of line switches; round <code>MAX_TRANSFERS + 1</code> is the last one.
+	 */
+	public static final int MAX_TRANSFERS = 10;
+
+	private static final int ACCESS = -1;
+
+	private final RaptorScheduleData data;
+	private final ThreadLocal<Search> searches;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final TransitSchedule schedule) {
+		this(config, new RaptorScheduleData(schedule, config.getBeelineWalkConnectionDistance()));
+	}
+
+	RaptorTransitRouter(final TransitRouterConfig config, final RaptorScheduleData data) {
+		super(config, new TransitRouterNetworkTravelTimeAndDisutility(config));
+		this.data = data;
+		this.searches = ThreadLocal.withInitial(() -> new Search(MAX_TRANSFERS + 1));
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility fromFacility, final Facility toFacility, final double departureTime, final Person person) {
+		StopAccess fromStops = locateNearestStops(person, fromFacility.getCoord());
+		StopAccess toStops = locateNearestStops(person, toFacility.getCoord());
+		TransitPassengerRoute route = this.searches.get().calcLeastCostRoute(fromStops, toStops, departureTime);
+
+		if (route == null) {
+			return createDirectWalkLegList(null, fromFacility.getCoord(), toFacility.getCoord());
+		}
+		double directWalkCost = getWalkDisutility(person, fromFacility.getCoord(), toFacility.getCoord());
+		if (directWalkCost * getConfig().getDirectWalkFactor() < route.getTravelCost()) {
+			return createDirectWalkLegList(null, fromFacility.getCoord(), toFacility.getCoord());
+		}
+		return convertPassengerRouteToLegList(departureTime, route, fromFacility.getCoord(), toFacility.getCoord(), person);
+	}
+
+	/**
+	 * Range query: computes the least-cost route for every departure time within
+	 * <code>[earliestDepartureTime, latestDepartureTime]</code> at which a vehicle can be caught at one of the stops
+	 * near <code>fromFacility</code>. Routes that arrive no earlier than a route departing later are dropped.
+	 *
+	 * @return the remaining routes ordered by departure time, with the departure times of their legs set. Direct walks
+	 * are not considered, so the list is empty if no transit route is found.
+	 */
+	public List<List<Leg>> calcRoutes(final Facility fromFacility, final Facility toFacility,
+			final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		StopAccess fromStops = locateNearestStops(person, fromFacility.getCoord());
+		StopAccess toStops = locateNearestStops(person, toFacility.getCoord());
+		double[] departureTimes = getDepartureTimes(fromStops, earliestDepartureTime, latestDepartureTime);
+
+		Search search = this.searches.get();
+		List<List<Leg>> routes = new ArrayList<>();
+		double earliestArrival = Double.POSITIVE_INFINITY;
+		for (int i = departureTimes.length - 1; i >= 0; i--) {
+			TransitPassengerRoute route = search.calcLeastCostRoute(fromStops, toStops, departureTimes[i]);
+			if (route != null && search.arrivalTime < earliestArrival) {
+				earliestArrival = search.arrivalTime;
+				List<Leg> legs = convertPassengerRouteToLegList(departureTimes[i], route, fromFacility.getCoord(), toFacility.getCoord(), person);
+				double time = departureTimes[i];
+				for (Leg leg : legs) {
+					leg.setDepartureTime(time);
+					time += leg.getTravelTime();
+				}
+				routes.add(legs);
+			}
+		}
+		Collections.reverse(routes);
+		return routes;
+	}
+
+	/**
+	 * @return the sorted, distinct times at which one has to leave to catch a vehicle at one of the given stops
+	 */
+	private double[] getDepartureTimes(final StopAccess fromStops, final double earliestDepartureTime, final double latestDepartureTime) {
+		final double midnight = TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		double[] times = new double[16];
+		int n = 0;
+		for (int i = 0; i < fromStops.stops.length; i++) {
+			int stop = fromStops.stops[i];
+			double earliest = earliestDepartureTime + fromStops.times[i];
+			double latest = latestDepartureTime + fromStops.times[i];
+			for (int j = this.data.stopFirstRouteStop[stop]; j < this.data.stopFirstRouteStop[stop + 1]; j++) {
+				int routeStop = this.data.stopRouteStops[j];
+				int route = this.data.routeStopRoute[routeStop];
+				if (routeStop == this.data.routeFirstRouteStop[route + 1] - 1) {
+					continue; // one cannot board at the last stop of a route
+				}
+				for (int d = this.data.routeFirstDeparture[route]; d < this.data.routeFirstDeparture[route + 1]; d++) {
+					double time = this.data.departures[d] + this.data.routeStopDepartureOffset[routeStop];
+					if (time < earliest) {
+						time += Math.ceil((earliest - time) / midnight) * midnight;
+					}
+					for (; time <= latest; time += midnight) {
+						if (n == times.length) {
+							times = Arrays.copyOf(times, 2 * n);
+						}
+						double departureTime = time - fromStops.times[i];
+						if (departureTime + fromStops.times[i] > time) {
+							departureTime = Math.nextDown(departureTime); // make sure rounding does not miss the vehicle
+						}
+						times[n++] = departureTime;
+					}
+				}
+			}
+		}
+		Arrays.sort(times, 0, n);
+		int distinct = 0;
+		for (int i = 0; i < n; i++) {
+			if (distinct == 0 || times[i] != times[distinct - 1]) {
+				times[distinct++] = times[i];
+			}
+		}
+		return Arrays.copyOf(times, distinct);
+	}
+
+	private StopAccess locateNearestStops(final Person person, final Coord coord) {
+		Collection<Integer> nearestStops = this.data.stopsQT.getDisk(coord.getX(), coord.getY(), getConfig().getSearchRadius());
+		if (nearestStops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			Integer nearestStop = this.data.stopsQT.getClosest(coord.getX(), coord.getY());
+			if (nearestStop != null) { // transit schedule might be completely empty!
+				double distance = Math.hypot(coord.getX() - this.data.stops[nearestStop].getCoord().getX(),
+						coord.getY() - this.data.stops[nearestStop].getCoord().getY());
+				nearestStops = this.data.stopsQT.getDisk(coord.getX(), coord.getY(), distance + getConfig().getExtensionRadius());
+			}
+		}
+		StopAccess access = new StopAccess(nearestStops.size());
+		int i = 0;
+		for (Integer stop : nearestStops) {
+			Coord stopCoord = this.data.stops[stop].getCoord();
+			access.stops[i] = stop;
+			access.times[i] = getWalkTime(person, coord, stopCoord);
+			access.costs[i] = getWalkDisutility(person, coord, stopCoord);
+			i++;
+		}
+		return access;
+	}
+
+	/**
+	 * Stops near a coordinate, with the walk time and cost between them and the coordinate.
+	 */
+	private static final class StopAccess {
+		final int[] stops;
+		final double[] times;
+		final double[] costs;
+
+		StopAccess(final int size) {
+			this.stops = new int[size];
+			this.times = new double[size];
+			this.costs = new double[size];
+		}
+	}
+
+	/**
+	 * The search state of one thread. Labels are only valid if their stamp equals the stamp of the current query,
+	 * so nothing has to be reset between queries.
+	 */
+	private final class Search {
+
+		private final int maxRounds;
+
+		// labels of stops reached by vehicle in round k, indexed [k][stop]
+		private final double[][] vehicleTime;
+		private final double[][] vehicleCost;
+		private final int[][] vehicleBoardRouteStop;
+		private final int[][] vehicleStamp;
+
+		// labels of stops one may board a vehicle at in round k, indexed [k][stop]. The predecessor is either
+		// ACCESS, a stop p >= 0 from which one walked to here in the same round, or -v-2 if one walked from stop v
+		// after leaving a vehicle there in round k-1.
+		private final double[][] boardTime;
+		private final double[][] boardCost;
+		private final int[][] boardPredecessor;
+		private final int[][] boardStamp;
+
+		// cheapest labels over all rounds, for pruning
+		private final double[] bestVehicleTime;
+		private final double[] bestVehicleCost;
+		private final int[] bestVehicleStamp;
+		private final double[] bestBoardTime;
+		private final double[] bestBoardCost;
+		private final int[] bestBoardStamp;
+
+		// stops with a new board label, the routes to scan, the stops with a new vehicle label
+		private final int[] markedStops;
+		private final int[] markedStopStamp;
+		private int nOfMarkedStops;
+		private final int[] markedRoutes;
+		private final int[] markedRouteStamp;
+		private final int[] markedRouteFirstRouteStop;
+		private int nOfMarkedRoutes;
+		private final int[] improvedStops;
+		private final int[] improvedStopStamp;
+		private int nOfImprovedStops;
+		private final int[] settledStamp;
+		private final IntDoubleMinHeap heap = new IntDoubleMinHeap();
+
+		private int stamp = 0;
+		private int query;
+
+		// cost parameters of the current query
+		private double costPerPtSecond;
+		private double costPerWaitingSecond;
+		private double costPerPtMeter;
+		private double costPerWalkSecond;
+		private double costPerWalkMeter;
+		private double costOfLineSwitch;
+		private double walkSpeed;
+		private double additionalTransferTime;
+
+		private double bestTotalCost;
+		private int bestRound;
+		private int bestStop;
+		/** arrival time at the destination of the last route found */
+		double arrivalTime;
+
+		Search(final int maxRounds) {
+			int nOfStops = RaptorTransitRouter.this.data.stops.length;
+			int nOfRoutes = RaptorTransitRouter.this.data.routes.length;
+			this.maxRounds = maxRounds;
+			this.vehicleTime = new double[maxRounds + 1][];
+			this.vehicleCost = new double[maxRounds + 1][];
+			this.vehicleBoardRouteStop = new int[maxRounds + 1][];
+			this.vehicleStamp = new int[maxRounds + 1][];
+			this.boardTime = new double[maxRounds + 1][];
+			this.boardCost = new double[maxRounds + 1][];
+			this.boardPredecessor = new int[maxRounds + 1][];
+			this.boardStamp = new int[maxRounds + 1][];
+			this.bestVehicleTime = new double[nOfStops];
+			this.bestVehicleCost = new double[nOfStops];
+			this.bestVehicleStamp = new int[nOfStops];
+			this.bestBoardTime = new double[nOfStops];
+			this.bestBoardCost = new double[nOfStops];
+			this.bestBoardStamp = new int[nOfStops];
+			this.markedStops = new int[nOfStops];
+			this.markedStopStamp = new int[nOfStops];
+			this.markedRoutes = new int[nOfRoutes];
+			this.markedRouteStamp = new int[nOfRoutes];
+			this.markedRouteFirstRouteStop = new int[nOfRoutes];
+			this.improvedStops = new int[nOfStops];
+			this.improvedStopStamp = new int[nOfStops];
+			this.settledStamp = new int[nOfStops];
+		}
+
+		TransitPassengerRoute calcLeastCostRoute(final StopAccess fromStops, final StopAccess toStops, final double departureTime) {
+			initQuery();
+
+			int markStamp = ++this.stamp;
+			this.nOfMarkedStops = 0;
+			ensureRound(1);
+			for (int i = 0; i < fromStops.stops.length; i++) {
+				setBoardLabel(1, fromStops.stops[i], departureTime + fromStops.times[i], fromStops.costs[i], ACCESS, markStamp);
+			}
+
+			for (int k = 1; k <= this.maxRounds && this.nOfMarkedStops > 0; k++) {
+				int roundStamp = ++this.stamp;
+				collectRoutes(roundStamp);
+				this.nOfImprovedStops = 0;
+				for (int i = 0; i < this.nOfMarkedRoutes; i++) {
+					scanRoute(k, this.markedRoutes[i], roundStamp);
+				}
+
+				for (int i = 0; i < toStops.stops.length; i++) {
+					int stop = toStops.stops[i];
+					if (this.vehicleStamp[k][stop] == this.query && this.vehicleCost[k][stop] + toStops.costs[i] < this.bestTotalCost) {
+						this.bestTotalCost = this.vehicleCost[k][stop] + toStops.costs[i];
+						this.bestRound = k;
+						this.bestStop = stop;
+						this.arrivalTime = this.vehicleTime[k][stop] + toStops.times[i];
+					}
+				}
+
+				this.nOfMarkedStops = 0;
+				if (k < this.maxRounds) {
+					ensureRound(k + 1);
+					relaxTransfers(k, ++this.stamp);
+				}
+			}
+
+			if (this.bestRound < 0) {
+				return null;
+			}
+			return createRoute();
+		}
+
+		private void initQuery() {
+			if (this.stamp > Integer.MAX_VALUE - 4 * this.maxRounds - 16) {
+				this.stamp = 0;
+				for (int k = 0; k <= this.maxRounds; k++) {
+					if (this.vehicleStamp[k] != null) {
+						Arrays.fill(this.vehicleStamp[k], 0);
+						Arrays.fill(this.boardStamp[k], 0);
+					}
+				}
+				for (int[] stamps : new int[][] { this.bestVehicleStamp, this.bestBoardStamp, this.markedStopStamp,
+						this.markedRouteStamp, this.improvedStopStamp, this.settledStamp }) {
+					Arrays.fill(stamps, 0);
+				}
+			}
+			this.query = ++this.stamp;
+
+			TransitRouterConfig config = getConfig();
+			this.costPerPtSecond = -config.getMarginalUtilityOfTravelTimePt_utl_s();
+			this.costPerWaitingSecond = -config.getMarginalUtilityOfWaitingPt_utl_s();
+			this.costPerPtMeter = -config.getMarginalUtilityOfTravelDistancePt_utl_m();
+			this.costPerWalkSecond = -config.getMarginalUtilityOfTravelTimeWalk_utl_s();
+			this.costPerWalkMeter = -config.getMarginalUtilityOfTravelDistanceWalk_utl_m();
+			this.costOfLineSwitch = -config.getUtilityOfLineSwitch_utl();
+			this.walkSpeed = config.getBeelineWalkSpeed();
+			this.additionalTransferTime = config.getAdditionalTransferTime();
+
+			this.bestTotalCost = Double.POSITIVE_INFINITY;
+			this.bestRound = -1;
+			this.bestStop = -1;
+			this.arrivalTime = Double.NaN;
+		}
+
+		private void ensureRound(final int k) {
+			if (this.vehicleStamp[k] == null) {
+				int nOfStops = RaptorTransitRouter.this.data.stops.length;
+				this.vehicleTime[k] = new double[nOfStops];
+				this.vehicleCost[k] = new double[nOfStops];
+				this.vehicleBoardRouteStop[k] = new int[nOfStops];
+				this.vehicleStamp[k] = new int[nOfStops];
+				this.boardTime[k] = new double[nOfStops];
+				this.boardCost[k] = new double[nOfStops];
+				this.boardPredecessor[k] = new int[nOfStops];
+				this.boardStamp[k] = new int[nOfStops];
+			}
+		}
+
+		/**
+		 * Marks every route serving a marked stop, remembering the first marked stop along the route.
+		 */
+		private void collectRoutes(final int roundStamp) {
+			final RaptorScheduleData data = RaptorTransitRouter.this.data;
+			this.nOfMarkedRoutes = 0;
+			for (int i = 0; i < this.nOfMarkedStops; i++) {
+				int stop = this.markedStops[i];
+				for (int j = data.stopFirstRouteStop[stop]; j < data.stopFirstRouteStop[stop + 1]; j++) {
+					int routeStop = data.stopRouteStops[j];
+					int route = data.routeStopRoute[routeStop];
+					if (this.markedRouteStamp[route] != roundStamp) {
+						this.markedRouteStamp[route] = roundStamp;
+						this.markedRouteFirstRouteStop[route] = routeStop;
+						this.markedRoutes[this.nOfMarkedRoutes++] = route;
+					} else if (routeStop < this.markedRouteFirstRouteStop[route]) {
+						this.markedRouteFirstRouteStop[route] = routeStop;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Travels along the route, starting at its first marked stop. The cost of the current trip at a route stop is
+		 * <code>tripBaseCost + time * costPerPtSecond + distance * costPerPtMeter</code>, which allows to compare
+		 * trips boarded at different stops.
+		 */
+		private void scanRoute(final int k, final int route, final int roundStamp) {
+			final RaptorScheduleData data = RaptorTransitRouter.this.data;
+			final int lastRouteStop = data.routeFirstRouteStop[route + 1] - 1;
+			final double[] boardTimes = this.boardTime[k];
+			final double[] boardCosts = this.boardCost[k];
+			final int[] boardStamps = this.boardStamp[k];
+			boolean onTrip = false;
+			double tripDeparture = 0.0; // at the first stop of the route
+			double tripBaseCost = 0.0;
+			int tripBoardRouteStop = -1;
+			for (int routeStop = this.markedRouteFirstRouteStop[route]; routeStop <= lastRouteStop; routeStop++) {
+				int stop = data.routeStopStop[routeStop];
+				if (onTrip) {
+					double arrival = tripDeparture + data.routeStopArrivalOffset[routeStop];
+					double cost = tripBaseCost + arrival * this.costPerPtSecond + data.routeStopDistance[routeStop] * this.costPerPtMeter;
+					if (cost < this.bestTotalCost
+							&& (this.vehicleStamp[k][stop] != this.query || cost < this.vehicleCost[k][stop])
+							&& !isDominated(this.bestVehicleStamp[stop], this.bestVehicleTime[stop], this.bestVehicleCost[stop], arrival, cost)) {
+						if (this.bestVehicleStamp[stop] != this.query || cost < this.bestVehicleCost[stop]) {
+							this.bestVehicleStamp[stop] = this.query;
+							this.bestVehicleTime[stop] = arrival;
+							this.bestVehicleCost[stop] = cost;
+						}
+						this.vehicleStamp[k][stop] = this.query;
+						this.vehicleTime[k][stop] = arrival;
+						this.vehicleCost[k][stop] = cost;
+						this.vehicleBoardRouteStop[k][stop] = tripBoardRouteStop;
+						if (this.improvedStopStamp[stop] != roundStamp) {
+							this.improvedStopStamp[stop] = roundStamp;
+							this.improvedStops[this.nOfImprovedStops++] = stop;
+						}
+					}
+				}
+				if (routeStop == lastRouteStop || boardStamps[stop] != this.query) {
+					continue;
+				}
+				double readyTime = boardTimes[stop];
+				double departure = data.getNextDepartureAtFirstStop(routeStop, readyTime);
+				double vehicleArrival = departure + data.routeStopArrivalOffset[routeStop];
+				double inVehicleStart = Math.max(readyTime, vehicleArrival);
+				double baseCost = boardCosts[stop] + (inVehicleStart - readyTime) * this.costPerWaitingSecond
+						- inVehicleStart * this.costPerPtSecond - data.routeStopDistance[routeStop] * this.costPerPtMeter;
+				if (!onTrip || baseCost + departure * this.costPerPtSecond < tripBaseCost + tripDeparture * this.costPerPtSecond) {
+					onTrip = true;
+					tripDeparture = departure;
+					tripBaseCost = baseCost;
+					tripBoardRouteStop = routeStop;
+				}
+			}
+		}
+
+		/**
+		 * Computes the board labels of round k+1 from the stops reached by vehicle in round k, by a Dijkstra search
+		 * over the transfers. A transfer of a stop to itself is only allowed right after leaving the vehicle.
+		 */
+		private void relaxTransfers(final int k, final int markStamp) {
+			final RaptorScheduleData data = RaptorTransitRouter.this.data;
+			final int next = k + 1;
+			this.heap.clear();
+			for (int i = 0; i < this.nOfImprovedStops; i++) {
+				int stop = this.improvedStops[i];
+				double time = this.vehicleTime[k][stop];
+				double cost = this.vehicleCost[k][stop];
+				for (int t = data.stopFirstTransfer[stop]; t < data.stopFirstTransfer[stop + 1]; t++) {
+					relaxTransfer(next, data.transferToStop[t], data.transferDistance[t], time, cost, -stop - 2, markStamp);
+				}
+			}
+			while (!this.heap.isEmpty()) {
+				double cost = this.heap.peekCost();
+				int stop = this.heap.poll();
+				if (this.settledStamp[stop] == markStamp || cost > this.boardCost[next][stop]) {
+					continue;
+				}
+				this.settledStamp[stop] = markStamp;
+				if (this.boardPredecessor[next][stop] == -stop - 2) {
+					continue;
+				}
+				double time = this.boardTime[next][stop];
+				for (int t = data.stopFirstTransfer[stop]; t < data.stopFirstTransfer[stop + 1]; t++) {
+					int toStop = data.transferToStop[t];
+					if (toStop != stop) {
+						relaxTransfer(next, toStop, data.transferDistance[t], time, cost, stop, markStamp);
+					}
+				}
+			}
+		}
+
+		private void relaxTransfer(final int k, final int stop, final double distance, final double time, final double cost,
+				final int predecessor, final int markStamp) {
+			if (this.settledStamp[stop] == markStamp) {
+				return;
+			}
+			double walkTime = distance / this.walkSpeed;
+			double transferCost = cost + walkTime * this.costPerWalkSecond + distance * this.costPerWalkMeter
+					+ this.additionalTransferTime * this.costPerWaitingSecond + this.costOfLineSwitch;
+			if (setBoardLabel(k, stop, time + walkTime + this.additionalTransferTime, transferCost, predecessor, markStamp)) {
+				this.heap.add(stop, transferCost);
+			}
+		}
+
+		private boolean setBoardLabel(final int k, final int stop, final double time, final double cost, final int predecessor, final int markStamp) {
+			if (cost >= this.bestTotalCost || (this.boardStamp[k][stop] == this.query && cost >= this.boardCost[k][stop])
+					|| isDominated(this.bestBoardStamp[stop], this.bestBoardTime[stop], this.bestBoardCost[stop], time, cost)) {
+				return false;
+			}
+			if (this.bestBoardStamp[stop] != this.query || cost < this.bestBoardCost[stop]) {
+				this.bestBoardStamp[stop] = this.query;
+				this.bestBoardTime[stop] = time;
+				this.bestBoardCost[stop] = cost;
+			}
+			this.boardStamp[k][stop] = this.query;
+			this.boardTime[k][stop] = time;
+			this.boardCost[k][stop] = cost;
+			this.boardPredecessor[k][stop] = predecessor;
+			if (this.markedStopStamp[stop] != markStamp) {
+				this.markedStopStamp[stop] = markStamp;
+				this.markedStops[this.nOfMarkedStops++] = stop;
+			}
+			return true;
+		}
+
+		/**
+		 * A label is only useless if the cheapest label of an earlier round, or of the same round, could wait for it:
+		 * a later but more expensive label may still be better, as it saves waiting time.
+		 */
+		private boolean isDominated(final int bestStamp, final double bestTime, final double bestCost, final double time, final double cost) {
+			return bestStamp == this.query && bestTime <= time && bestCost + (time - bestTime) * this.costPerWaitingSecond <= cost;
+		}
+
+		private TransitPassengerRoute createRoute() {
+			final RaptorScheduleData data = RaptorTransitRouter.this.data;
+			List<RouteSegment> segments = new ArrayList<>();
+			int k = this.bestRound;
+			int stop = this.bestStop;
+			while (true) {
+				int boardRouteStop = this.vehicleBoardRouteStop[k][stop];
+				int boardStop = data.routeStopStop[boardRouteStop];
+				int route = data.routeStopRoute[boardRouteStop];
+				segments.add(new RouteSegment(data.stops[boardStop], data.stops[stop],
+						this.vehicleTime[k][stop] - this.boardTime[k][boardStop],
+						data.routeLines[route].getId(), data.routes[route].getId()));
+				int predecessor = this.boardPredecessor[k][boardStop];
+				if (predecessor == ACCESS) {
+					break;
+				}
+				while (predecessor >= 0) {
+					predecessor = this.boardPredecessor[k][predecessor];
+				}
+				int alightStop = -predecessor - 2;
+				// consecutive walks are merged into one transfer
+				segments.add(new RouteSegment(data.stops[alightStop], data.stops[boardStop],
+						this.boardTime[k][boardStop] - this.vehicleTime[k - 1][alightStop], null, null));
+				k--;
+				stop = alightStop;
+			}
+			Collections.reverse(segments);
+			return new TransitPassengerRoute(this.bestTotalCost, segments);
+		}
+	}
+}
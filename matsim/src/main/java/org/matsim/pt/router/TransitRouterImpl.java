@@ -26,11 +26,9 @@ import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.InitialNode;
 import org.matsim.core.router.util.TravelTime;
-import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
-import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +44,7 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
     private final TravelTime travelTime;
     private final TransitTravelDisutility travelDisutility;
     private final PreparedTransitSchedule preparedTransitSchedule;
+    private final TransitRouterNearestNodesCache nearestNodesCache;
     
     private boolean cacheTree;
     private TransitLeastCostPathTree tree;
@@ -63,6 +62,8 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
         this.travelDisutility = transitRouterNetworkTravelTimeAndDisutility;
         this.travelTime = transitRouterNetworkTravelTimeAndDisutility;
         setTransitTravelDisutility(this.travelDisutility);
+        this.nearestNodesCache = new TransitRouterNearestNodesCache(this.transitNetwork,
+                trConfig.getSearchRadius(), trConfig.getExtensionRadius());
         
         this.cacheTree = trConfig.isCacheTree();
     }
@@ -73,6 +74,20 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
             final TransitRouterNetwork routerNetwork,
             final TravelTime travelTime,
             final TransitTravelDisutility travelDisutility) {
+        this(trConfig, preparedTransitSchedule, routerNetwork, travelTime, travelDisutility, null);
+    }
+
+    /**
+     * @param nearestNodesCache access and egress stop candidates of <code>routerNetwork</code>, may be shared with other
+     * routers using the same network. May be <code>null</code>.
+     */
+    public TransitRouterImpl(
+            final TransitRouterConfig trConfig,
+            final PreparedTransitSchedule preparedTransitSchedule,
+            final TransitRouterNetwork routerNetwork,
+            final TravelTime travelTime,
+            final TransitTravelDisutility travelDisutility,
+            final TransitRouterNearestNodesCache nearestNodesCache) {
 
         super(trConfig, travelDisutility);
 
@@ -80,26 +95,20 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
         this.preparedTransitSchedule = preparedTransitSchedule;
         this.travelDisutility = travelDisutility;
         this.travelTime = travelTime;
+        this.nearestNodesCache = nearestNodesCache;
         
         this.cacheTree = trConfig.isCacheTree();
     }
 
     private Map<Node, InitialNode> locateWrappedNearestTransitNodes(Person person, Coord coord, double departureTime) {
-        Collection<TransitRouterNetwork.TransitRouterNetworkNode> nearestNodes = getTransitRouterNetwork().getNearestNodes(
-                coord,
-                this.getConfig().getSearchRadius());
-        if (nearestNodes.size() < 2) {
-            // also enlarge search area if only one stop found, maybe a second one is near the border of the search area
-            TransitRouterNetwork.TransitRouterNetworkNode nearestNode = this.getTransitRouterNetwork()
-                                                                            .getNearestNode(coord);
-            if (nearestNode != null) { // transit schedule might be completely empty!
-                double distance = CoordUtils.calcEuclideanDistance(coord,
-                        nearestNode.stop.getStopFacility().getCoord());
-                nearestNodes = this.getTransitRouterNetwork()
-                                   .getNearestNodes(coord, distance + this.getConfig().getExtensionRadius());
-            }
+        TransitRouterNetwork.TransitRouterNetworkNode[] nearestNodes;
+        if (this.nearestNodesCache != null && this.nearestNodesCache.isValidFor(this.getConfig())) {
+            nearestNodes = this.nearestNodesCache.getNearestNodes(coord);
+        } else {
+            nearestNodes = TransitRouterNearestNodesCache.findNearestNodes(this.getTransitRouterNetwork(), coord,
+                    this.getConfig().getSearchRadius(), this.getConfig().getExtensionRadius());
         }
-        Map<Node, InitialNode> wrappedNearestNodes = new LinkedHashMap<>();
+        Map<Node, InitialNode> wrappedNearestNodes = new LinkedHashMap<>(2 * nearestNodes.length);
         for (TransitRouterNetwork.TransitRouterNetworkNode node : nearestNodes) {
             Coord toCoord = node.stop.getStopFacility().getCoord();
             double initialTime = getWalkTime(person, coord, toCoord);
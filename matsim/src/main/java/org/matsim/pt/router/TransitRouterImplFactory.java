@@ -38,6 +38,7 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 	private final TransitSchedule transitSchedule;
 	private TransitRouterNetwork routerNetwork;
 	private PreparedTransitSchedule preparedTransitSchedule;
+	private TransitRouterNearestNodesCache nearestNodesCache;
 
 	@Inject
 	TransitRouterImplFactory(final TransitSchedule schedule, final EventsManager events, final Config config) {
@@ -49,6 +50,7 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 		events.addHandler((TransitScheduleChangedEventHandler) event -> {
 			routerNetwork = null;
 			preparedTransitSchedule = null;
+			nearestNodesCache = null;
 		});
 	}
 
@@ -61,13 +63,24 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 	public TransitRouter get() {
 		if (this.routerNetwork == null) {
 			this.routerNetwork = TransitRouterNetwork.createFromSchedule(transitSchedule, this.config.getBeelineWalkConnectionDistance());
+			this.nearestNodesCache = null;
+		}
+		if (this.nearestNodesCache == null) {
+			this.nearestNodesCache = new TransitRouterNearestNodesCache(this.routerNetwork, this.config.getSearchRadius(), this.config.getExtensionRadius());
 		}
 		if (this.preparedTransitSchedule == null) {
 			this.preparedTransitSchedule = new PreparedTransitSchedule(transitSchedule);
 		}
 
 		TransitRouterNetworkTravelTimeAndDisutility ttCalculator = new TransitRouterNetworkTravelTimeAndDisutility(this.config, this.preparedTransitSchedule);
-		return new TransitRouterImpl(this.config, this.preparedTransitSchedule, this.routerNetwork, ttCalculator, ttCalculator);
+		return new TransitRouterImpl(this.config, this.preparedTransitSchedule, this.routerNetwork, ttCalculator, ttCalculator, this.nearestNodesCache);
+	}
+
+	/**
+	 * @return the access and egress stop cache shared by the routers of the current schedule, e.g. for its hit rate
+	 */
+	public TransitRouterNearestNodesCache getNearestNodesCache() {
+		return this.nearestNodesCache;
 	}
 	
 }
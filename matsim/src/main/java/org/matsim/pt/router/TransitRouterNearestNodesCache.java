@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterNearestNodesCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkNode;
+
+/**
+ * Caches the nodes of a {@link TransitRouterNetwork} that {@link TransitRouterImpl} considers as access or egress
+ * stops for a coordinate. Activity locations repeat over many agents and iterations, so most requests can skip the
+ * quad tree searches.
+ * <p></p>
+ * The cache is thread-safe, so one instance can be shared by all routers using the same network, see
+ * {@link TransitRouterImplFactory}. It is bounded: once it holds <code>maxSize</code> coordinates, it is cleared.
+ */
+public final class TransitRouterNearestNodesCache {
+
+	public static final int DEFAULT_MAX_SIZE = 100000;
+
+	private final TransitRouterNetwork network;
+	private final double searchRadius;
+	private final double extensionRadius;
+	private final int maxSize;
+	private final ConcurrentHashMap<Coord, TransitRouterNetworkNode[]> nodesByCoord = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder clears = new LongAdder();
+
+	public TransitRouterNearestNodesCache(final TransitRouterNetwork network, final double searchRadius, final double extensionRadius) {
+		this(network, searchRadius, extensionRadius, DEFAULT_MAX_SIZE);
+	}
+
+	public TransitRouterNearestNodesCache(final TransitRouterNetwork network, final double searchRadius, final double extensionRadius, final int maxSize) {
+		this.network = network;
+		this.searchRadius = searchRadius;
+		this.extensionRadius = extensionRadius;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the nodes within the search radius of <code>coord</code>; if there are fewer than two, the nodes within
+	 * the extension radius around the nearest one. The returned array must not be modified.
+	 */
+	public TransitRouterNetworkNode[] getNearestNodes(final Coord coord) {
+		TransitRouterNetworkNode[] nodes = this.nodesByCoord.get(coord);
+		if (nodes != null) {
+			this.hits.increment();
+			return nodes;
+		}
+		this.misses.increment();
+		nodes = findNearestNodes(this.network, coord, this.searchRadius, this.extensionRadius);
+		if (this.nodesByCoord.size() >= this.maxSize) {
+			this.nodesByCoord.clear();
+			this.clears.increment();
+		}
+		this.nodesByCoord.put(coord, nodes);
+		return nodes;
+	}
+
+	/**
+	 * @return <code>true</code> if the cached nodes were searched with the radii of the given config
+	 */
+	boolean isValidFor(final TransitRouterConfig config) {
+		return this.searchRadius == config.getSearchRadius() && this.extensionRadius == config.getExtensionRadius();
+	}
+
+	static TransitRouterNetworkNode[] findNearestNodes(final TransitRouterNetwork network, final Coord coord,
+			final double searchRadius, final double extensionRadius) {
+		Collection<TransitRouterNetworkNode> nearestNodes = network.getNearestNodes(coord, searchRadius);
+		if (nearestNodes.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			TransitRouterNetworkNode nearestNode = network.getNearestNode(coord);
+			if (nearestNode != null) { // transit schedule might be completely empty!
+				double distance = CoordUtils.calcEuclideanDistance(coord, nearestNode.stop.getStopFacility().getCoord());
+				nearestNodes = network.getNearestNodes(coord, distance + extensionRadius);
+			}
+		}
+		return nearestNodes.toArray(new TransitRouterNetworkNode[nearestNodes.size()]);
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return how often the cache was full and had to be cleared
+	 */
+	public long getClears() {
+		return this.clears.sum();
+	}
+
+	public double getHitRate() {
+		long hits = getHits();
+		long requests = hits + getMisses();
+		return requests == 0 ? 0.0 : (double) hits / requests;
+	}
+
+	public int size() {
+		return this.nodesByCoord.size();
+	}
+
+	@Override
+	public String toString() {
+		return "[hits=" + getHits() + "][misses=" + getMisses() + "][hitRate=" + getHitRate() + "][clears=" + getClears() + "][size=" + size() + "]";
+	}
+}
@@ -21,6 +21,7 @@
 package org.matsim.pt.router;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,6 +45,7 @@ import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 /**
@@ -428,10 +430,14 @@ public final class TransitRouterNetwork implements Network {
 		log.info("add transfer links");
 
 		List<Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>> toBeAdded = new LinkedList<Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>>();
+		// all nodes of a stop facility have the same neighbors, so search them only once per facility
+		Map<TransitStopFacility, Collection<TransitRouterNetworkNode>> nearbyNodes = new IdentityHashMap<>();
 		// connect all stops with walking links if they're located less than beelineWalkConnectionDistance from each other
 		for (TransitRouterNetworkNode node : network.getNodes().values()) {
 			if (node.getInLinks().size() > 0) { // only add links from this node to other nodes if agents actually can arrive here
-				for (TransitRouterNetworkNode node2 : network.getNearestNodes(node.stop.getStopFacility().getCoord(), maxBeelineWalkConnectionDistance)) {
+				Collection<TransitRouterNetworkNode> nodes2 = nearbyNodes.computeIfAbsent(node.stop.getStopFacility(),
+						facility -> network.getNearestNodes(facility.getCoord(), maxBeelineWalkConnectionDistance));
+				for (TransitRouterNetworkNode node2 : nodes2) {
 					if ((node != node2) && (node2.getOutLinks().size() > 0)) { // only add links to other nodes when agents can depart there
 						if ((node.line != node2.line) || (node.stop.getStopFacility() != node2.stop.getStopFacility())) {
 							// do not yet add them to the network, as this would change in/out-links
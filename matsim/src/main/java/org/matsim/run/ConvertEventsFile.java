@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConvertEventsFile.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Locale;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+
+/**
+ * Converts an events file between the xml and the binary format. The format of both files
+ * is derived from the filename: files ending with <code>.bin</code> are binary, all others xml.
+ */
+public class ConvertEventsFile {
+
+	public static void convert(final String inputFilename, final String outputFilename) {
+		EventWriter writer;
+		if (outputFilename.toLowerCase(Locale.ROOT).endsWith(".bin")) {
+			writer = new EventWriterBinary(outputFilename);
+		} else {
+			writer = new EventWriterXML(outputFilename);
+		}
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(writer);
+		new MatsimEventsReader(events).readFile(inputFilename);
+		writer.closeFile();
+	}
+
+	public static void main(final String[] args) {
+		if (args.length != 2) {
+			System.out.println("Usage: ConvertEventsFile inputEventsFile outputEventsFile");
+			System.out.println("       Files ending with .bin are read and written as binary events, all others as xml.");
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+}
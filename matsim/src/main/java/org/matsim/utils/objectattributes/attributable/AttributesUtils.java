@@ -23,7 +23,20 @@ public class AttributesUtils {
 	 * which should be fine for 99.9% of the usecases of Attributes (value objects)
 	 */
 	public static <T extends Attributable> void copyAttributesFromTo( T from , T to ) {
-		copyTo( from.getAttributes() , to.getAttributes() );
+		if ( hasAttributes( from ) ) {
+			copyTo( from.getAttributes() , to.getAttributes() );
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the object has at least one attribute. Other than <code>getAttributes().isEmpty()</code>,
+	 * this does not create the attributes of a {@link LazilyAttributable} which does not have any.
+	 */
+	public static boolean hasAttributes( Attributable attributable ) {
+		if ( attributable instanceof LazilyAttributable ) {
+			return ((LazilyAttributable) attributable).hasAttributes();
+		}
+		return !attributable.getAttributes().isEmpty();
 	}
 
 	/**
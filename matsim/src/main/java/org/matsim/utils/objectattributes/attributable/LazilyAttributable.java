@@ -0,0 +1,15 @@
+package org.matsim.utils.objectattributes.attributable;
+
+/**
+ * An {@link Attributable} which creates its {@link Attributes} only when they are first asked for, so that
+ * the many objects without any attributes do not carry an empty instance each.
+ * {@link AttributesUtils#hasAttributes(Attributable)} checks for attributes without creating them.
+ */
+public interface LazilyAttributable extends Attributable {
+
+	/**
+	 * @return <code>true</code> if the attributes were created and contain at least one attribute
+	 */
+	boolean hasAttributes();
+
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Id<TA> id1 = Id.create("1", TA.class);
+		Id<TA> id2 = Id.create("2", TA.class);
+		Id<TA> id3 = Id.create("3", TA.class);
+		IdMap<TA, String> map = new IdMap<>(TA.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3.index()));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertFalse(map.containsKey("1"));
+
+		Assert.assertEquals("one", map.put(id1, "ONE"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("ONE", map.get(id1));
+
+		Assert.assertEquals("ONE", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertNull(map.get(id1));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(id3));
+	}
+
+	@Test
+	public void testGrowBeyondInitialCapacity() {
+		IdMap<TB, Integer> map = new IdMap<>(TB.class, 0);
+		for (int i = 0; i < 100; i++) {
+			map.put(Id.create(i, TB.class), i);
+		}
+		Assert.assertEquals(100, map.size());
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(Integer.valueOf(i), map.get(Id.create(i, TB.class)));
+		}
+	}
+
+	@Test
+	public void testIdsOfOtherType() {
+		Id<TA> id = Id.create("other", TA.class);
+		Id<TB> otherId = Id.create("other", TB.class);
+		IdMap<TA, String> map = new IdMap<>(TA.class);
+		map.put(id, "a");
+
+		// like in a hash map, since the ids are equal
+		Assert.assertEquals("a", map.get(otherId));
+		Assert.assertNull(map.get(Id.create("otherUnknown", TB.class)));
+	}
+
+	@Test
+	public void testIterationOrderAndEquality() {
+		Id<TC> id1 = Id.create("1", TC.class);
+		Id<TC> id2 = Id.create("2", TC.class);
+		Id<TC> id3 = Id.create("3", TC.class);
+		IdMap<TC, String> map = new IdMap<>(TC.class);
+		map.put(id3, "three");
+		map.put(id1, "one");
+		map.put(id2, "two");
+
+		// in the order of creation of the ids
+		Assert.assertEquals(Arrays.asList(id1, id2, id3), new ArrayList<>(map.keySet()));
+		Assert.assertEquals(Arrays.asList("one", "two", "three"), new ArrayList<>(map.values()));
+
+		Map<Id<TC>, String> hashMap = new HashMap<>(map);
+		Assert.assertEquals(hashMap, map);
+		Assert.assertEquals(map, hashMap);
+		Assert.assertEquals(hashMap.hashCode(), map.hashCode());
+
+		Iterator<Map.Entry<Id<TC>, String>> iter = map.entrySet().iterator();
+		iter.next();
+		iter.remove();
+		List<Id<TC>> keys = new ArrayList<>(map.keySet());
+		Assert.assertEquals(Arrays.asList(id2, id3), keys);
+		Assert.assertEquals(2, map.size());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testPutNull() {
+		new IdMap<>(TA.class).put(Id.create("1", TA.class), null);
+	}
+
+	private static class TA {}
+	private static class TB {}
+	private static class TC {}
+
+}
@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		Id<TA> id1 = Id.create("1", TA.class);
+		Id<TA> id2 = Id.create("2", TA.class);
+		IdSet<TA> set = new IdSet<>(TA.class);
+
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(1, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertTrue(set.contains(id1.index()));
+		Assert.assertFalse(set.contains(id2));
+		Assert.assertFalse(set.contains("1"));
+
+		Assert.assertTrue(set.add(id2));
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.remove(id1));
+		Assert.assertEquals(1, set.size());
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.contains(id2));
+	}
+
+	@Test
+	public void testIdsOfOtherType() {
+		IdSet<TA> set = new IdSet<>(TA.class);
+		set.add(Id.create("other", TA.class));
+
+		Assert.assertTrue(set.contains(Id.create("other", TB.class)));
+		Assert.assertFalse(set.contains(Id.create("otherUnknown", TB.class)));
+	}
+
+	@Test
+	public void testIterationOrderAndEquality() {
+		Id<TB> id1 = Id.create("1", TB.class);
+		Id<TB> id2 = Id.create("2", TB.class);
+		Id<TB> id3 = Id.create("3", TB.class);
+		IdSet<TB> set = new IdSet<>(TB.class);
+		set.add(id3);
+		set.add(id1);
+		set.add(id2);
+
+		Assert.assertEquals(Arrays.asList(id1, id2, id3), new ArrayList<>(set));
+		Assert.assertEquals(new HashSet<>(set), set);
+		Assert.assertEquals(set, new HashSet<>(set));
+
+		Iterator<Id<TB>> iter = set.iterator();
+		iter.next();
+		iter.remove();
+		Assert.assertEquals(Arrays.asList(id2, id3), new ArrayList<>(set));
+	}
+
+	private static class TA {}
+	private static class TB {}
+
+}
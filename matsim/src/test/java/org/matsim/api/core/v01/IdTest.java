@@ -67,6 +67,41 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+		Id<TNode> nodeId = Id.create("index", TNode.class);
+
+		Assert.assertEquals(id1.index() + 1, id2.index());
+		Assert.assertEquals(id1.index(), id1again.index());
+		Assert.assertTrue(Id.getNumberOfIds(TIndexed.class) > id2.index());
+		Assert.assertSame(id1, Id.get(id1.index(), TIndexed.class));
+		Assert.assertSame(id2, Id.get(id2.index(), TIndexed.class));
+		Assert.assertSame(nodeId, Id.get(nodeId.index(), TNode.class));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGet_unknownIndex() {
+		Id.get(Id.getNumberOfIds(TIndexed.class), TIndexed.class);
+	}
+
+	@Test
+	public void testEquals() {
+		Id<TLink> linkId1 = Id.create("1", TLink.class);
+		Id<TLink> linkId2 = Id.create("2", TLink.class);
+		Id<TNode> nodeId1 = Id.create("1", TNode.class);
+
+		Assert.assertTrue(linkId1.equals(linkId1));
+		Assert.assertFalse(linkId1.equals(linkId2));
+		Assert.assertFalse(linkId1.equals("1"));
+		// ids of different types with the same key are still equal, see equals()
+		Assert.assertTrue(linkId1.equals(nodeId1));
+		Assert.assertEquals(linkId1.hashCode(), nodeId1.hashCode());
+	}
+
+	private static class TIndexed {}
 	private static class TLink {}
 	private static class TNode {}
 	
@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.pt.PtConstants;
 import org.matsim.testcases.utils.LogCounter;
@@ -151,4 +152,21 @@ public class ConfigConsistencyCheckerImplTest {
 	}
 
 
+	@Test
+	public void testCheckTravelTimeCalculationRoutingConfiguration_ContractionHierarchies() {
+		Config config = new Config();
+		config.addCoreModules();
+		config.controler().setRoutingAlgorithmType(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchies);
+
+		try {
+			ConfigConsistencyCheckerImpl.checkTravelTimeCalculationRoutingConfiguration(config);
+			Assert.fail("expected exception, contraction hierarchies cannot be customized with a randomizing travel disutility.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		config.plansCalcRoute().setRoutingRandomness(0.);
+		ConfigConsistencyCheckerImpl.checkTravelTimeCalculationRoutingConfiguration(config);
+	}
+
 }
@@ -22,9 +22,15 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -63,6 +69,24 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_DispatchModes() {
+		for (EventsManagerImpl.DispatchMode mode : EventsManagerImpl.DispatchMode.values()) {
+			EventsManager manager = new EventsManagerImpl(mode);
+			CountingMyEventHandler handler = new CountingMyEventHandler();
+			CountingLinkEnterEventHandler linkHandler = new CountingLinkEnterEventHandler();
+			EventsCollector collector = new EventsCollector();
+			manager.addHandler(handler);
+			manager.addHandler(linkHandler);
+			manager.addHandler(collector);
+			manager.processEvent(new MyEvent(123.45));
+			manager.processEvent(new LinkEnterEvent(124.0, Id.create("1", Vehicle.class), Id.create("2", Link.class)));
+			Assert.assertEquals("custom EventHandler was not called with " + mode, 1, handler.counter);
+			Assert.assertEquals("LinkEnterEventHandler was not called with " + mode, 1, linkHandler.counter);
+			Assert.assertEquals("BasicEventHandler was not called with " + mode, 2, collector.getEvents().size());
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -89,6 +113,18 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingLinkEnterEventHandler implements LinkEnterEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.counter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
@@ -0,0 +1,222 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.run.ConvertEventsFile;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.utils.eventsfilecomparison.EventsFileComparator;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteReadRoundtrip() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+
+		Event[] written = {
+				new ActivityEndEvent(21600.0, Id.create("1", Person.class), Id.create("2", Link.class), null, "home"),
+				new LinkLeaveEvent(21610.0, Id.create("1", Vehicle.class), Id.create("2", Link.class)),
+				new LinkEnterEvent(21610.0, Id.create("1", Vehicle.class), Id.create("3", Link.class)),
+				new LinkLeaveEvent(21580.5, Id.create("2", Vehicle.class), Id.create("3", Link.class)),
+				new PersonMoneyEvent(21700.0, Id.create("1", Person.class), -1.25),
+				new LinkEnterEvent(3.0, Id.create("vehicle\"4", Vehicle.class), Id.create("link<2", Link.class))
+		};
+		for (Event event : written) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+		Assert.assertTrue(new File(filename).exists());
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals("wrong number of events.", written.length, collector.getEvents().size());
+		for (int i = 0; i < written.length; i++) {
+			Assert.assertEquals("event " + i + " differs.", written[i], collector.getEvents().get(i));
+		}
+	}
+
+	@Test
+	public void testStandardEventTypes() {
+		Id<Person> person = Id.create("p1", Person.class);
+		Id<Link> link = Id.create("l1", Link.class);
+		Id<Vehicle> vehicle = Id.create("v1", Vehicle.class);
+		Id<TransitStopFacility> stop = Id.create("s1", TransitStopFacility.class);
+		Event[] written = {
+				new ActivityEndEvent(1.0, person, link, Id.create("f1", ActivityFacility.class), "home"),
+				new PersonDepartureEvent(1.0, person, link, "car"),
+				new PersonEntersVehicleEvent(1.0, person, vehicle),
+				new VehicleEntersTrafficEvent(1.0, person, link, vehicle, "car", 0.75),
+				new LinkLeaveEvent(2.0, vehicle, link),
+				new LinkEnterEvent(2.0, vehicle, Id.create("l2", Link.class)),
+				new VehicleLeavesTrafficEvent(3.0, person, link, null, "car", 1.0),
+				new PersonLeavesVehicleEvent(3.0, person, vehicle),
+				new PersonArrivalEvent(3.0, person, link, "car"),
+				new ActivityStartEvent(3.0, person, link, null, "work"),
+				new PersonStuckEvent(4.0, person, null, "car"),
+				new VehicleAbortsEvent(4.0, vehicle, link),
+				new PersonMoneyEvent(4.0, person, 0.1 + 0.2),
+				new TeleportationArrivalEvent(4.25, person, 1234.5678),
+				new TransitDriverStartsEvent(5.0, Id.create("driver", Person.class), vehicle, Id.create("line", TransitLine.class),
+						Id.create("route", TransitRoute.class), Id.create("dep", Departure.class)),
+				new VehicleArrivesAtFacilityEvent(5.0, vehicle, stop, -1.5),
+				new VehicleDepartsAtFacilityEvent(6.0, vehicle, stop, 0.0),
+				new AgentWaitingForPtEvent(6.0, person, stop, Id.create("s2", TransitStopFacility.class)),
+				new BoardingDeniedEvent(6.0, person, vehicle),
+				new LinkEnterEvent(7.0, vehicle, link) {
+					@Override
+					public String getEventType() {
+						return "customLinkEnter";
+					}
+				}
+		};
+		List<Event> read = writeAndRead(written);
+
+		Assert.assertEquals("wrong number of events.", written.length, read.size());
+		for (int i = 0; i < written.length - 1; i++) {
+			Assert.assertEquals("event " + i + " has the wrong class.", written[i].getClass(), read.get(i).getClass());
+			Assert.assertEquals("event " + i + " differs.", written[i], read.get(i));
+		}
+		Assert.assertEquals(0.1 + 0.2, ((PersonMoneyEvent) read.get(12)).getAmount(), 0.0);
+		Assert.assertSame("leg modes must be interned.", "car", ((PersonDepartureEvent) read.get(1)).getLegMode());
+		Assert.assertSame(person, ((ActivityEndEvent) read.get(0)).getPersonId());
+		Event custom = read.get(written.length - 1);
+		Assert.assertEquals("subclasses must be written with their attributes.", GenericEvent.class, custom.getClass());
+		Assert.assertEquals(written[written.length - 1].getAttributes(), custom.getAttributes());
+	}
+
+	@Test
+	public void testManyBlocks() {
+		Event[] written = new Event[3 * EventWriterBinary.MAX_BLOCK_SIZE + 17];
+		for (int i = 0; i < written.length; i++) {
+			Id<Vehicle> vehicle = Id.create(i % 1000, Vehicle.class);
+			Id<Link> link = Id.create(i % 77, Link.class);
+			written[i] = (i % 3 == 0) ? new LinkLeaveEvent(i / 10, vehicle, link) : new LinkEnterEvent(i / 10 + 0.5, vehicle, link);
+		}
+		List<Event> read = writeAndRead(written);
+		Assert.assertEquals("wrong number of events.", written.length, read.size());
+		for (int i = 0; i < written.length; i++) {
+			Assert.assertEquals("event " + i + " differs.", written[i], read.get(i));
+		}
+	}
+
+	private List<Event> writeAndRead(final Event[] written) {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : written) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		return collector.getEvents();
+	}
+
+	@Test
+	public void testGenericEvent() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		event.getAttributes().put("x", "1234.5678");
+		event.getAttributes().put("name", "some name");
+		writer.handleEvent(event);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
+		GenericEvent read = (GenericEvent) collector.getEvents().get(0);
+		Assert.assertEquals("TEST", read.getEventType());
+		Assert.assertEquals(3600.0, read.getTime(), 0.0);
+		Assert.assertNull(read.getAttributes().get("dummy"));
+		Assert.assertEquals("1234.5678", read.getAttributes().get("x"));
+		Assert.assertEquals("some name", read.getAttributes().get("name"));
+	}
+
+	@Test
+	public void testConvertFromAndToXml() {
+		String xmlFilename = this.utils.getOutputDirectory() + "testEvents.xml";
+		String binFilename = this.utils.getOutputDirectory() + "testEvents.bin";
+		String xmlFilename2 = this.utils.getOutputDirectory() + "testEvents2.xml";
+
+		EventWriterXML writer = new EventWriterXML(xmlFilename);
+		writer.handleEvent(new LinkLeaveEvent(3600.0, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		writer.handleEvent(new LinkEnterEvent(3601.0, Id.create("vehicle>3", Vehicle.class), Id.create("link'3", Link.class)));
+		writer.closeFile();
+
+		ConvertEventsFile.convert(xmlFilename, binFilename);
+		ConvertEventsFile.convert(binFilename, xmlFilename2);
+
+		Assert.assertEquals(EventsFileComparator.Result.FILES_ARE_EQUAL, EventsUtils.compareEventsFiles(xmlFilename, xmlFilename2));
+	}
+}
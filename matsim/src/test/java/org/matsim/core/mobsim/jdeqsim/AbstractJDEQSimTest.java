@@ -76,7 +76,12 @@ public abstract class AbstractJDEQSimTest {
 		EventsManagerImpl events = new EventsManagerImpl();
 		events.addHandler(new PersonEventCollector());
 		events.initProcessing();
-		new JDEQSimulation(ConfigUtils.addOrGetModule(scenario.getConfig(), JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class), scenario, events).run();
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(scenario.getConfig(), JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+		if (jdeqSimConfig.getNumberOfThreads() > 1) {
+			new ParallelJDEQSimulation(jdeqSimConfig, scenario, events).run();
+		} else {
+			new JDEQSimulation(jdeqSimConfig, scenario, events).run();
+		}
 		events.finishProcessing();
 	}
 
@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelJDEQSimulationTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@After
+	public void tearDown() {
+		Road.getAllRoads().clear();
+	}
+
+	@Test
+	public void testDeterministicEvents() {
+		List<Event> first = runSimulation(3, Integer.MAX_VALUE);
+		List<Event> second = runSimulation(3, Integer.MAX_VALUE);
+		Assert.assertEquals(toStrings(first), toStrings(second));
+	}
+
+	/**
+	 * The parallel simulation produces the same events in every time step as the sequential one, only
+	 * possibly in another order within the time step.
+	 */
+	@Test
+	public void testSameEventsPerTimeAsSequential() {
+		List<Event> sequential = runSimulation(1, Integer.MAX_VALUE);
+		Assert.assertFalse(sequential.isEmpty());
+		for (int numberOfThreads : new int[] { 2, 3, 4 }) {
+			List<Event> parallel = runSimulation(numberOfThreads, Integer.MAX_VALUE);
+			for (int i = 1; i < parallel.size(); i++) {
+				Assert.assertTrue(parallel.get(i - 1).getTime() <= parallel.get(i).getTime());
+			}
+			Assert.assertEquals("events of " + numberOfThreads + " threads", eventsPerTime(sequential), eventsPerTime(parallel));
+		}
+	}
+
+	/**
+	 * Many vehicles, starting at the same times, compete for the same roads.
+	 */
+	@Test
+	public void testSameEventsPerTimeAsSequentialWithCongestion() {
+		List<Event> sequential = runSimulation(1, Integer.MAX_VALUE, 10);
+		List<Event> parallel = runSimulation(3, Integer.MAX_VALUE, 10);
+		Assert.assertEquals(eventsPerTime(sequential), eventsPerTime(parallel));
+	}
+
+	private static List<Event> runSimulation(int numberOfThreads, int numberOfPersons) {
+		return runSimulation(numberOfThreads, numberOfPersons, 1);
+	}
+
+	/**
+	 * @param copies the number of persons with the same plan as each person of the scenario
+	 */
+	private static List<Event> runSimulation(int numberOfThreads, int numberOfPersons, int copies) {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		MatsimRandom.reset(config.global().getRandomSeed());
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+		jdeqSimConfig.setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		List<Id<Person>> personIds = new ArrayList<>(scenario.getPopulation().getPersons().keySet());
+		for (Id<Person> personId : personIds.subList(Math.min(numberOfPersons, personIds.size()), personIds.size())) {
+			scenario.getPopulation().removePerson(personId);
+		}
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		for (Person person : new ArrayList<>(scenario.getPopulation().getPersons().values())) {
+			for (int i = 1; i < copies; i++) {
+				Person copy = factory.createPerson(Id.createPersonId(person.getId() + "_" + i));
+				Plan plan = factory.createPlan();
+				PopulationUtils.copyFromTo(person.getSelectedPlan(), plan);
+				copy.addPlan(plan);
+				scenario.getPopulation().addPerson(copy);
+			}
+		}
+
+		final List<Event> events = new ArrayList<>();
+		EventsManagerImpl eventsManager = new EventsManagerImpl();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		if (numberOfThreads > 1) {
+			new ParallelJDEQSimulation(jdeqSimConfig, scenario, eventsManager).run();
+		} else {
+			new JDEQSimulation(jdeqSimConfig, scenario, eventsManager).run();
+		}
+		return events;
+	}
+
+	private static List<String> toStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>(events.size());
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		return strings;
+	}
+
+	/**
+	 * @return the events of every time step, sorted by their string representation
+	 */
+	private static Map<Double, List<String>> eventsPerTime(List<Event> events) {
+		Map<Double, List<String>> eventsPerTime = new TreeMap<>();
+		for (Event event : events) {
+			eventsPerTime.computeIfAbsent(event.getTime(), time -> new ArrayList<>()).add(event.toString());
+		}
+		for (List<String> strings : eventsPerTime.values()) {
+			Collections.sort(strings);
+		}
+		return eventsPerTime;
+	}
+
+}
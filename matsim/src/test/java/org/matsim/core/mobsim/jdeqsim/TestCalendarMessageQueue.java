@@ -0,0 +1,146 @@
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
+
+public class TestCalendarMessageQueue {
+
+	@Test
+	public void testPutMessage() {
+		SimulationMessageQueue mq = new CalendarMessageQueue();
+		Message m1 = new DummyMessage();
+		m1.setMessageArrivalTime(2);
+
+		Message m2 = new DummyMessage();
+		m2.setMessageArrivalTime(1);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		Assert.assertEquals(2, mq.getQueueSize());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertSame(m1, mq.getNextMessage());
+		Assert.assertNull(mq.getNextMessage());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	// a removed message is killed and taken out of the queue right away
+	@Test
+	public void testRemoveMessage() {
+		SimulationMessageQueue mq = new CalendarMessageQueue();
+		Message m1 = new DummyMessage();
+		m1.setMessageArrivalTime(1);
+
+		Message m2 = new DummyMessage();
+		m2.setMessageArrivalTime(1);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.removeMessage(m1);
+		Assert.assertFalse(m1.isAlive());
+		Assert.assertEquals(1, mq.getQueueSize());
+		Assert.assertFalse(mq.isEmpty());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertEquals(0, mq.getQueueSize());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	// messages with the same time are ordered by priority, then by insertion order
+	@Test
+	public void testMessagePriority() {
+		SimulationMessageQueue mq = new CalendarMessageQueue();
+		Message m1 = new DummyMessage();
+		m1.setMessageArrivalTime(1);
+		m1.setPriority(10);
+
+		Message m2 = new DummyMessage();
+		m2.setMessageArrivalTime(1);
+		m2.setPriority(5);
+
+		Message m3 = new DummyMessage();
+		m3.setMessageArrivalTime(1);
+		m3.setPriority(20);
+
+		Message m4 = new DummyMessage();
+		m4.setMessageArrivalTime(1);
+		m4.setPriority(10);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.putMessage(m4);
+
+		Assert.assertSame(m3, mq.getNextMessage());
+		Assert.assertSame(m1, mq.getNextMessage());
+		Assert.assertSame(m4, mq.getNextMessage());
+		Assert.assertSame(m2, mq.getNextMessage());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	// messages beyond the calendar year, including one which cannot be represented by a bucket index
+	@Test
+	public void testFarFutureMessages() {
+		SimulationMessageQueue mq = new CalendarMessageQueue(1.0, 8);
+		Message m1 = new DummyMessage();
+		m1.setMessageArrivalTime(Double.MAX_VALUE);
+		Message m2 = new DummyMessage();
+		m2.setMessageArrivalTime(1000);
+		Message m3 = new DummyMessage();
+		m3.setMessageArrivalTime(3);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		Assert.assertEquals(3, mq.getQueueSize());
+		Assert.assertSame(m3, mq.getNextMessage());
+
+		// a message scheduled in the past of the current bucket still comes first
+		Message m4 = new DummyMessage();
+		m4.setMessageArrivalTime(2);
+		mq.putMessage(m4);
+		Assert.assertSame(m4, mq.getNextMessage());
+
+		mq.removeMessage(m2);
+		Assert.assertSame(m1, mq.getNextMessage());
+		Assert.assertTrue(mq.isEmpty());
+	}
+
+	// the calendar queue returns the messages in the same order as the priority queue
+	@Test
+	public void testSameOrderAsMessageQueue() {
+		Random random = new Random(4711);
+		SimulationMessageQueue heap = new MessageQueue();
+		SimulationMessageQueue calendar = new CalendarMessageQueue(2.0, 16);
+		List<Message> queued = new ArrayList<>();
+		double now = 0;
+		for (int i = 0; i < 10000; i++) {
+			int action = random.nextInt(10);
+			if (action < 5) {
+				Message m = new DummyMessage();
+				// distinct times, as the priority queue does not define an order for equal messages
+				m.setMessageArrivalTime(now + random.nextInt(200) + random.nextDouble());
+				m.setPriority(random.nextInt(3));
+				heap.putMessage(m);
+				calendar.putMessage(m);
+				queued.add(m);
+			} else if (action < 6 && !queued.isEmpty()) {
+				Message m = queued.remove(random.nextInt(queued.size()));
+				calendar.removeMessage(m);
+				heap.removeMessage(m);
+			} else {
+				Message expected = heap.getNextMessage();
+				Assert.assertSame(expected, calendar.getNextMessage());
+				if (expected != null) {
+					queued.remove(expected);
+					now = expected.getMessageArrivalTime();
+				}
+			}
+			Assert.assertEquals(heap.getQueueSize(), calendar.getQueueSize());
+		}
+	}
+
+}
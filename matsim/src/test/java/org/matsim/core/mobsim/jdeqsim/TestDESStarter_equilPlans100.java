@@ -25,6 +25,39 @@ public class TestDESStarter_equilPlans100 extends AbstractJDEQSimTest {
 		super.checkEventsCorrespondToPlans(scenario.getPopulation());
 	}
 	
+	@Test
+	public void test_equilPlans100_CalendarMessageQueue() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		MatsimRandom.reset(config.global().getRandomSeed());
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+		jdeqSimConfig.setMessageQueue(JDEQSimConfigGroup.MessageQueueType.calendarQueue);
+		// a short calendar year, so that many messages pass through the overflow heap
+		jdeqSimConfig.setCalendarBucketCount(64);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+
+		this.runJDEQSim(scenario);
+
+		assertEquals(scenario.getPopulation().getPersons().size(), super.eventsByPerson.size());
+		super.checkAscendingTimeStamps();
+		super.checkEventsCorrespondToPlans(scenario.getPopulation());
+	}
+
+	@Test
+	public void test_equilPlans100_ParallelJDEQSimulation() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		MatsimRandom.reset(config.global().getRandomSeed());
+		ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class).setNumberOfThreads(2);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+
+		this.runJDEQSim(scenario);
+
+		assertEquals(scenario.getPopulation().getPersons().size(), super.eventsByPerson.size());
+		super.checkAscendingTimeStamps();
+		super.checkEventsCorrespondToPlans(scenario.getPopulation());
+	}
+
 	/* 
 	 * This test is turned off, because it cannot pass.
 	 * Reason: Different priorities possible at junctions, which (almost) always result in different event order.
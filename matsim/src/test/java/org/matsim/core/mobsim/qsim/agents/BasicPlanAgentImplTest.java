@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.agents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Tests that the agent follows a network route which is changed while it drives along it, although it caches the
+ * link ids of the route.  The routes are compressed, so that their link ids are a copy.
+ */
+public class BasicPlanAgentImplTest {
+
+	@Test
+	public void testReplacedRouteIsFollowed() {
+		Fixture f = new Fixture();
+		f.driveToSecondLink();
+
+		Leg leg = WithinDayAgentUtils.getModifiableCurrentLeg(f.agent);
+		leg.setRoute(f.createRoute("1", "2", "4", "5"));
+
+		f.assertDrivesAlong("4", "5");
+	}
+
+	@Test
+	public void testRouteChangedInPlaceIsFollowedAfterResetCaches() {
+		Fixture f = new Fixture();
+		f.driveToSecondLink();
+
+		NetworkRoute route = (NetworkRoute) WithinDayAgentUtils.getModifiableCurrentLeg(f.agent).getRoute();
+		// the modifiable plan is a copy, so let the agent cache the link ids of the copied route
+		Assert.assertFalse(f.driver.isWantingToArriveOnCurrentLink());
+		route.setLinkIds(Id.createLinkId("1"), Arrays.asList(Id.createLinkId("2"), Id.createLinkId("4")), Id.createLinkId("5"));
+		f.driver.resetCaches();
+
+		f.assertDrivesAlong("4", "5");
+	}
+
+	/**
+	 * Links 3 and 4 both lead from node 3 to node 4; the agent starts on link 1, takes link 2 and 3, and arrives on link 5.
+	 */
+	private static class Fixture {
+
+		private final RouteFactory routeFactory;
+		private final BasicPlanAgentImpl agent;
+		private final PlanBasedDriverAgentImpl driver;
+
+		Fixture() {
+			Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			Network network = scenario.getNetwork();
+			NetworkFactory nf = network.getFactory();
+			Node[] nodes = new Node[6];
+			for (int i = 1; i <= 5; i++) {
+				nodes[i] = nf.createNode(Id.createNodeId(i), new Coord(i * 1000, 0));
+				network.addNode(nodes[i]);
+			}
+			addLink(network, "1", nodes[1], nodes[2]);
+			addLink(network, "2", nodes[2], nodes[3]);
+			addLink(network, "3", nodes[3], nodes[4]);
+			addLink(network, "4", nodes[3], nodes[4]);
+			addLink(network, "5", nodes[4], nodes[5]);
+			this.routeFactory = new CompressedNetworkRouteFactory(network);
+
+			PopulationFactory pf = scenario.getPopulation().getFactory();
+			Person person = pf.createPerson(Id.createPersonId("1"));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", Id.createLinkId("1"));
+			home.setEndTime(0);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(createRoute("1", "2", "3", "5"));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", Id.createLinkId("5")));
+			person.addPlan(plan);
+
+			this.agent = new BasicPlanAgentImpl(plan, scenario, EventsUtils.createEventsManager(), new MobsimTimer());
+			this.driver = new PlanBasedDriverAgentImpl(this.agent);
+			this.agent.endActivityAndComputeNextState(0);
+			Assert.assertEquals(MobsimAgent.State.LEG, this.agent.getState());
+		}
+
+		NetworkRoute createRoute(String startLinkId, String... linkIds) {
+			NetworkRoute route = (NetworkRoute) this.routeFactory.createRoute(Id.createLinkId(startLinkId), Id.createLinkId(linkIds[linkIds.length - 1]));
+			List<Id<Link>> links = new ArrayList<>();
+			for (int i = 0; i < linkIds.length - 1; i++) {
+				links.add(Id.createLinkId(linkIds[i]));
+			}
+			route.setLinkIds(route.getStartLinkId(), links, route.getEndLinkId());
+			return route;
+		}
+
+		/**
+		 * Moves the agent from link 1 to link 2, which lets it cache the link ids of its route.
+		 */
+		void driveToSecondLink() {
+			Assert.assertEquals(Id.createLinkId("2"), this.driver.chooseNextLinkId());
+			this.driver.notifyMoveOverNode(Id.createLinkId("2"));
+			Assert.assertFalse(this.driver.isWantingToArriveOnCurrentLink());
+		}
+
+		void assertDrivesAlong(String... linkIds) {
+			for (String linkId : linkIds) {
+				Assert.assertFalse(this.driver.isWantingToArriveOnCurrentLink());
+				Assert.assertEquals(Id.createLinkId(linkId), this.driver.chooseNextLinkId());
+				this.driver.notifyMoveOverNode(Id.createLinkId(linkId));
+			}
+			Assert.assertTrue(this.driver.isWantingToArriveOnCurrentLink());
+			Assert.assertNull(this.driver.chooseNextLinkId());
+		}
+
+		private static void addLink(Network network, String id, Node from, Node to) {
+			Link link = network.getFactory().createLink(Id.createLinkId(id), from, to);
+			link.setLength(1000);
+			link.setFreespeed(10);
+			link.setCapacity(3600);
+			link.setNumberOfLanes(1);
+			network.addLink(link);
+		}
+	}
+
+}
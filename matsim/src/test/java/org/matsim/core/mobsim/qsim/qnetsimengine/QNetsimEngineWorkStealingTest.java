@@ -0,0 +1,79 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.eventsfilecomparison.EventsFileComparator;
+
+public class QNetsimEngineWorkStealingTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * Moving the nodes and links in chunks must not change the simulation, only which thread moves what.
+	 */
+	@Test
+	public void testSameEventsAsThreadpool() {
+		String threadpoolEvents = this.utils.getOutputDirectory() + "threadpool_events.xml.gz";
+		String workStealingEvents = this.utils.getOutputDirectory() + "workStealing_events.xml.gz";
+
+		runEquil(false, threadpoolEvents);
+		runEquil(true, workStealingEvents);
+
+		Assert.assertEquals("different event files.", EventsFileComparator.Result.FILES_ARE_EQUAL,
+				EventsFileComparator.compare(threadpoolEvents, workStealingEvents));
+	}
+
+	private static void runEquil(boolean usingWorkStealing, String eventsFilename) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(2);
+		config.qsim().setUsingWorkStealing(usingWorkStealing);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		new PopulationReader(scenario).readFile("test/scenarios/equil/plans100.xml");
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventWriterXML writer = new EventWriterXML(eventsFilename);
+		events.addHandler(writer);
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(config)
+				.useDefaults()
+				.build(scenario, events)
+				.run();
+		writer.closeFile();
+	}
+
+}
@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class SpaceFillingCurveQNetworkPartitionerTest {
+
+	@Test
+	public void testHilbertIndexVisitsNeighbouringCells() {
+		Assert.assertEquals(0, SpaceFillingCurveQNetworkPartitioner.hilbertIndex(0, 0));
+		// consecutive positions on the curve must always be adjacent cells
+		long[] cells = new long[16];
+		for (int x = 0; x < 4; x++) {
+			for (int y = 0; y < 4; y++) {
+				long d = SpaceFillingCurveQNetworkPartitioner.hilbertIndex(x, y);
+				Assert.assertTrue(d < 16);
+				cells[(int) d] = x * 4 + y + 1;
+			}
+		}
+		for (int d = 1; d < 16; d++) {
+			long a = cells[d - 1] - 1;
+			long b = cells[d] - 1;
+			Assert.assertEquals("cells " + (d - 1) + " and " + d + " are not adjacent.", 1, Math.abs(a / 4 - b / 4) + Math.abs(a % 4 - b % 4));
+		}
+	}
+
+	@Test
+	public void testBalancedContiguousPartitions() {
+		List<Node> nodes = new ArrayList<>();
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 20; y++) {
+				nodes.add(NetworkUtils.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 100.0, y * 100.0)));
+			}
+		}
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+		// one heavy node should get a partition mostly on its own
+		weights[0] = 100.0;
+
+		int[] partition = new SpaceFillingCurveQNetworkPartitioner().partition(nodes, weights, 4);
+
+		Assert.assertEquals(nodes.size(), partition.length);
+		double[] load = new double[4];
+		for (int i = 0; i < partition.length; i++) {
+			Assert.assertTrue(partition[i] >= 0 && partition[i] < 4);
+			load[partition[i]] += weights[i];
+		}
+		double mean = (400 - 1 + 100) / 4.0;
+		for (double l : load) {
+			Assert.assertEquals(mean, l, 0.1 * mean);
+		}
+		// neighbours on the grid mostly belong to the same partition
+		int cut = 0;
+		for (int x = 0; x < 19; x++) {
+			for (int y = 0; y < 20; y++) {
+				if (partition[x * 20 + y] != partition[(x + 1) * 20 + y]) {
+					cut++;
+				}
+			}
+		}
+		Assert.assertTrue("too many neighbours in different partitions: " + cut, cut < 60);
+	}
+
+	@Test
+	public void testMorePartitionsThanNodes() {
+		List<Node> nodes = new ArrayList<>();
+		nodes.add(NetworkUtils.createNode(Id.createNodeId("1"), new Coord(0.0, 0.0)));
+		nodes.add(NetworkUtils.createNode(Id.createNodeId("2"), new Coord(0.0, 0.0)));
+		int[] partition = new SpaceFillingCurveQNetworkPartitioner().partition(nodes, new double[] {1.0, 1.0}, 8);
+		for (int p : partition) {
+			Assert.assertTrue(p >= 0 && p < 8);
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleUtils;
+
+public class RingBufferVehicleQTest {
+
+	@Test
+	public void testSameOrderAsFIFOVehicleQ() {
+		VehicleQ<QVehicle> fifo = new FIFOVehicleQ();
+		VehicleQ<QVehicle> ringBuffer = new RingBufferVehicleQ();
+
+		// more vehicles than the initial capacity, so the buffer has to grow while wrapped around
+		int id = 0;
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 7; i++) {
+				QVehicle vehicle = createVehicle(id++);
+				fifo.add(vehicle);
+				ringBuffer.add(vehicle);
+			}
+			Assert.assertSame(fifo.poll(), ringBuffer.poll());
+			Assert.assertSame(fifo.poll(), ringBuffer.poll());
+		}
+		QVehicle transitVehicle = createVehicle(id++);
+		fifo.addFirst(transitVehicle);
+		ringBuffer.addFirst(transitVehicle);
+
+		Assert.assertEquals(fifo.size(), ringBuffer.size());
+		Assert.assertSame(transitVehicle, ringBuffer.peek());
+		Iterator<QVehicle> expected = fifo.iterator();
+		for (QVehicle vehicle : ringBuffer) {
+			Assert.assertSame(expected.next(), vehicle);
+		}
+		while (!fifo.isEmpty()) {
+			Assert.assertSame(fifo.poll(), ringBuffer.poll());
+		}
+		Assert.assertTrue(ringBuffer.isEmpty());
+		Assert.assertNull(ringBuffer.poll());
+	}
+
+	@Test
+	public void testRemove() {
+		VehicleQ<QVehicle> ringBuffer = new RingBufferVehicleQ();
+		QVehicle first = createVehicle(1);
+		QVehicle second = createVehicle(2);
+		QVehicle third = createVehicle(3);
+		ringBuffer.add(first);
+		ringBuffer.add(second);
+		ringBuffer.add(third);
+
+		Assert.assertTrue(ringBuffer.remove(second));
+		Assert.assertFalse(ringBuffer.remove(second));
+		Assert.assertEquals(2, ringBuffer.size());
+		Assert.assertSame(first, ringBuffer.poll());
+		Assert.assertSame(third, ringBuffer.poll());
+
+		ringBuffer.add(first);
+		ringBuffer.clear();
+		Assert.assertTrue(ringBuffer.isEmpty());
+	}
+
+	private static QVehicle createVehicle(int id) {
+		return new QVehicleImpl(VehicleUtils.getFactory().createVehicle(Id.create(id, Vehicle.class), VehicleUtils.getDefaultVehicleType()));
+	}
+
+}
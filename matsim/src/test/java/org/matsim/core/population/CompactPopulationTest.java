@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+public class CompactPopulationTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testReadEquilPlans() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		Config compactConfig = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		compactConfig.plans().setCompactPopulation(true);
+		Scenario compactScenario = ScenarioUtils.loadScenario(compactConfig);
+
+		Population compact = compactScenario.getPopulation();
+		Assert.assertTrue(compact.getFactory() instanceof CompactPopulationFactory);
+		Assert.assertTrue("populations differ", PopulationUtils.equalPopulation(scenario.getPopulation(), compact));
+
+		for (Person person : compact.getPersons().values()) {
+			Assert.assertTrue(person instanceof CompactPerson);
+			Assert.assertFalse(AttributesUtils.hasAttributes(person));
+			for (Plan plan : person.getPlans()) {
+				Assert.assertTrue(plan instanceof CompactPlan);
+				Assert.assertFalse(AttributesUtils.hasAttributes(plan));
+				for (PlanElement pe : plan.getPlanElements()) {
+					Assert.assertTrue(pe instanceof CompactActivity || pe instanceof CompactLeg);
+					Assert.assertFalse(AttributesUtils.hasAttributes(pe));
+					if (pe instanceof Leg && ((Leg) pe).getRoute() instanceof NetworkRoute) {
+						Assert.assertEquals("LinkIndexNetworkRouteImpl", ((Leg) pe).getRoute().getClass().getSimpleName());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		config.plans().setCompactPopulation(true);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		Person person = scenario.getPopulation().getPersons().values().iterator().next();
+		person.getSelectedPlan().getPlanElements().get(0).getAttributes().putAttribute("parking", "street");
+
+		String snapshot = this.utils.getOutputDirectory() + "scenario.snapshot";
+		ScenarioUtils.writeScenarioSnapshot(scenario, snapshot);
+		Config loadedConfig = ConfigUtils.createConfig();
+		loadedConfig.plans().setCompactPopulation(true);
+		Scenario loaded = ScenarioUtils.loadScenarioSnapshot(loadedConfig, snapshot);
+
+		Assert.assertTrue("populations differ", PopulationUtils.equalPopulation(scenario.getPopulation(), loaded.getPopulation()));
+		Person loadedPerson = loaded.getPopulation().getPersons().get(person.getId());
+		Assert.assertEquals("street", loadedPerson.getSelectedPlan().getPlanElements().get(0).getAttributes().getAttribute("parking"));
+		Assert.assertFalse(AttributesUtils.hasAttributes(loadedPerson.getSelectedPlan().getPlanElements().get(1)));
+	}
+
+	@Test
+	public void testActivityCoord() {
+		Population population = PopulationUtils.createPopulation(createCompactConfig());
+		Coord coord = new Coord(1.0, 2.0);
+		Activity act = population.getFactory().createActivityFromCoord("home", coord);
+		Assert.assertSame(coord, act.getCoord());
+		Assert.assertFalse(act.getCoord().hasZ());
+
+		act.setCoord(new Coord(1.0, 2.0, 3.0));
+		Assert.assertEquals(new Coord(1.0, 2.0, 3.0), act.getCoord());
+
+		act.setCoord(null);
+		Assert.assertNull(act.getCoord());
+	}
+
+	@Test
+	public void testPlanScore() {
+		Population population = PopulationUtils.createPopulation(createCompactConfig());
+		Plan plan = population.getFactory().createPlan();
+		Assert.assertNull(plan.getScore());
+		plan.setScore(0.0);
+		Assert.assertEquals(0.0, plan.getScore(), 0.0);
+		plan.setScore(-12.5);
+		Assert.assertEquals(-12.5, plan.getScore(), 0.0);
+		plan.setScore(null);
+		Assert.assertNull(plan.getScore());
+	}
+
+	@Test
+	public void testCreateCopyOfSelectedPlan() {
+		Population population = PopulationUtils.createPopulation(createCompactConfig());
+		Person person = population.getFactory().createPerson(Id.createPersonId("1"));
+		Plan plan = population.getFactory().createPlan();
+		person.addPlan(plan);
+		Activity home = population.getFactory().createActivityFromLinkId("home", Id.createLinkId("1"));
+		home.setEndTime(8 * 3600);
+		home.getAttributes().putAttribute("parking", "street");
+		plan.addActivity(home);
+		plan.addLeg(population.getFactory().createLeg("car"));
+		plan.addActivity(population.getFactory().createActivityFromLinkId("work", Id.createLinkId("2")));
+		plan.setScore(10.0);
+
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+
+		Assert.assertSame(copy, person.getSelectedPlan());
+		Assert.assertSame(person, copy.getPerson());
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertTrue(copy instanceof CompactPlan);
+		Assert.assertEquals(10.0, copy.getScore(), 0.0);
+		Assert.assertEquals(3, copy.getPlanElements().size());
+		Activity homeCopy = (Activity) copy.getPlanElements().get(0);
+		Assert.assertTrue(homeCopy instanceof CompactActivity);
+		Assert.assertNotSame(home, homeCopy);
+		Assert.assertEquals(8 * 3600, homeCopy.getEndTime(), 0.0);
+		Assert.assertEquals("street", homeCopy.getAttributes().getAttribute("parking"));
+		Assert.assertTrue(copy.getPlanElements().get(1) instanceof CompactLeg);
+		Assert.assertFalse(AttributesUtils.hasAttributes(copy.getPlanElements().get(1)));
+	}
+
+	private static Config createCompactConfig() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setCompactPopulation(true);
+		return config;
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.matsim.core.population.io;
 
+import java.util.ArrayList;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -7,7 +9,9 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.*;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
@@ -208,4 +212,31 @@ public class PopulationV6IOTest {
 				population.getAttributes().getAttribute( "type" ) ,
 				readScenario.getPopulation().getAttributes().getAttribute( "type" ) );
 	}
+
+	@Test
+	public void testParallelReader() {
+		final Scenario scenario = ScenarioUtils.loadScenario( ConfigUtils.loadConfig( "test/scenarios/equil/config.xml" ) );
+		final String file = utils.getOutputDirectory()+"/population.xml";
+		new PopulationWriter( scenario.getPopulation() ).writeV6( file );
+
+		final Scenario sequentialScenario = createScenarioWithNetwork( 1 );
+		new PopulationReader( sequentialScenario ).readFile( file );
+		// small batches, so that the persons are spread over several threads
+		final Scenario parallelScenario = createScenarioWithNetwork( 4 );
+		new ParallelPopulationReaderMatsimV6( null , null , parallelScenario , 3 ).readFile( file );
+
+		Assert.assertEquals( "unexpected order of persons" ,
+				new ArrayList<>( sequentialScenario.getPopulation().getPersons().keySet() ) ,
+				new ArrayList<>( parallelScenario.getPopulation().getPersons().keySet() ) );
+		Assert.assertTrue( "populations differ" ,
+				PopulationUtils.equalPopulation( sequentialScenario.getPopulation() , parallelScenario.getPopulation() ) );
+	}
+
+	private static Scenario createScenarioWithNetwork( final int numberOfThreads ) {
+		final Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads( numberOfThreads );
+		final Scenario scenario = ScenarioUtils.createScenario( config );
+		new MatsimNetworkReader( scenario.getNetwork() ).readFile( "test/scenarios/equil/network.xml" );
+		return scenario;
+	}
 }
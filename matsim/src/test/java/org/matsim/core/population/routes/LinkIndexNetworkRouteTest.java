@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+
+public class LinkIndexNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return (NetworkRoute) new LinkIndexNetworkRouteFactory().createRoute(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		Id<Link> id3 = Id.create(3, Link.class);
+		Id<Link> id4 = Id.create(4, Link.class);
+		Id<Link> id5 = Id.create(5, Link.class);
+		NetworkRoute route1 = getNetworkRouteInstance(id1, id2, null);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(id3);
+		srcRoute.add(id4);
+		route1.setLinkIds(id1, srcRoute, id2);
+		Assert.assertEquals(2, route1.getLinkIds().size());
+
+		NetworkRoute route2 = (NetworkRoute) route1.clone();
+
+		srcRoute.add(id5);
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+	}
+
+	@Test
+	public void testLinkIdsAreTheSameInstances() {
+		Id<Link> id1 = Id.create("idx1", Link.class);
+		Id<Link> id2 = Id.create("idx2", Link.class);
+		Id<Link> id3 = Id.create("idx3", Link.class);
+		NetworkRoute route = getNetworkRouteInstance(id1, id3, null);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(id2);
+		route.setLinkIds(id1, srcRoute, id3);
+
+		Assert.assertSame(id2, route.getLinkIds().get(0));
+		Assert.assertEquals("idx1 idx2 idx3", route.getRouteDescription());
+	}
+
+	@Test
+	public void testLinkIdsOfOtherTypes() {
+		Id<Link> startLinkId = Id.create("idxStart", Link.class);
+		Id<Link> endLinkId = Id.create("idxEnd", Link.class);
+		@SuppressWarnings("unchecked")
+		Id<Link> nodeIdAsLinkId = (Id<Link>) (Id<?>) Id.create("idxNode", Node.class);
+		NetworkRoute route = getNetworkRouteInstance(startLinkId, endLinkId, null);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(nodeIdAsLinkId);
+		route.setLinkIds(startLinkId, srcRoute, endLinkId);
+
+		Assert.assertEquals(Id.createLinkId("idxNode"), route.getLinkIds().get(0));
+	}
+
+	@Test
+	public void testNetworkRouteType() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNetworkRouteType(PlansConfigGroup.NetworkRouteType.LinkIndexNetworkRoute);
+		Population population = PopulationUtils.createPopulation(config);
+		Route route = population.getFactory().getRouteFactories().createRoute(NetworkRoute.class, Id.createLinkId("1"), Id.createLinkId("2"));
+		Assert.assertTrue(route instanceof LinkIndexNetworkRouteImpl);
+		Assert.assertEquals(NetworkRoute.class, population.getFactory().getRouteFactories().getRouteClassForType(route.getRouteType()));
+	}
+
+}
@@ -20,12 +20,21 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.PlanDistribution;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -42,6 +51,47 @@ public class AbstractMultithreadedModuleTest {
 		config.global().setNumberOfThreads(3);
 		DummyAbstractMultithreadedModule testee = new DummyAbstractMultithreadedModule(config.global());
 		Assert.assertEquals(3, testee.getNumOfThreads());
+		Assert.assertEquals(PlanDistribution.roundRobin, testee.getPlanDistribution());
+
+		config.global().setReplanningPlanDistribution(PlanDistribution.workQueue);
+		testee = new DummyAbstractMultithreadedModule(config.global());
+		Assert.assertEquals(PlanDistribution.workQueue, testee.getPlanDistribution());
+	}
+
+	@Test
+	public void testRoundRobin() {
+		runAllPlansHandledOnce(PlanDistribution.roundRobin);
+	}
+
+	@Test
+	public void testWorkQueue() {
+		runAllPlansHandledOnce(PlanDistribution.workQueue);
+	}
+
+	private static void runAllPlansHandledOnce(PlanDistribution planDistribution) {
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Plan plan = PopulationUtils.createPlan();
+			for (int j = 0; j <= i % 7; j++) {
+				PopulationUtils.createAndAddActivityFromLinkId(plan, "act", Id.createLinkId(j));
+			}
+			plans.add(plan);
+		}
+		final Map<Plan, Integer> handled = Collections.synchronizedMap(new IdentityHashMap<Plan, Integer>());
+		CountingModule testee = new CountingModule(3, planDistribution, handled);
+		// twice, to make sure the module can be re-used
+		for (int iteration = 1; iteration <= 2; iteration++) {
+			testee.prepareReplanning(null);
+			for (Plan plan : plans) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+
+			Assert.assertEquals(plans.size(), handled.size());
+			for (Plan plan : plans) {
+				Assert.assertEquals(Integer.valueOf(iteration), handled.get(plan));
+			}
+		}
 	}
 
 	@Test
@@ -80,6 +130,26 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final Map<Plan, Integer> handled;
+		public CountingModule(final int nOfThreads, final PlanDistribution planDistribution, final Map<Plan, Integer> handled) {
+			super(nOfThreads, planDistribution);
+			this.handled = handled;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					synchronized (handled) {
+						Integer count = handled.get(plan);
+						handled.put(plan, count == null ? 1 : count + 1);
+					}
+				}
+			};
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
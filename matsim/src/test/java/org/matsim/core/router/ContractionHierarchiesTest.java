@@ -0,0 +1,200 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createRandomGridNetwork(40, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600.0, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, 8 * 3600.0, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals("wrong cost from " + from.getId() + " to " + to.getId(), expected.travelCost, actual.travelCost, 1e-6 * expected.travelCost);
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			assertEquals(actual.links.size() + 1, actual.nodes.size());
+			for (int k = 0; k < actual.links.size(); k++) {
+				assertEquals(actual.nodes.get(k), actual.links.get(k).getFromNode());
+				assertEquals(actual.nodes.get(k + 1), actual.links.get(k).getToNode());
+			}
+		}
+	}
+
+	public void testTimeDependentCosts() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 1000));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(1000, -1000));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId(4), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("north1"), n1, n2, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("north2"), n2, n4, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("south1"), n1, n3, 1200, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("south2"), n3, n4, 1200, 10, 3600, 1);
+
+		final FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		// the northern route is congested in the morning peak
+		TravelDisutility disutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				double factor = (link.getId().toString().startsWith("north") && time >= 7 * 3600 && time < 9 * 3600) ? 3.0 : 1.0;
+				return factor * link.getLength();
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength();
+			}
+		};
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory().createPathCalculator(network, disutility, freespeed);
+
+		Path night = ch.calcLeastCostPath(n1, n4, 3 * 3600.0, null, null);
+		assertEquals(Id.createLinkId("north1"), night.links.get(0).getId());
+		assertEquals(2000.0, night.travelCost, 1e-9);
+
+		Path peak = ch.calcLeastCostPath(n1, n4, 8 * 3600.0, null, null);
+		assertEquals(Id.createLinkId("south1"), peak.links.get(0).getId());
+		assertEquals(2400.0, peak.travelCost, 1e-9);
+	}
+
+	public void testDisutilitiesOfSameClassAreNotShared() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 1000));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(1000, -1000));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId(4), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("north1"), n1, n2, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("north2"), n2, n4, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("south1"), n1, n3, 1200, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("south2"), n3, n4, 1200, 10, 3600, 1);
+
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		LeastCostPathCalculator untolled = factory.createPathCalculator(network, new TollDisutility(null, 0.0), freespeed);
+		LeastCostPathCalculator tolled = factory.createPathCalculator(network, new TollDisutility(Id.createLinkId("north2"), 1000.0), freespeed);
+		LeastCostPathCalculator untolled2 = factory.createPathCalculator(network, new TollDisutility(null, 0.0), freespeed);
+
+		assertEquals(Id.createLinkId("north1"), untolled.calcLeastCostPath(n1, n4, 8 * 3600.0, null, null).links.get(0).getId());
+		assertEquals(Id.createLinkId("south1"), tolled.calcLeastCostPath(n1, n4, 8 * 3600.0, null, null).links.get(0).getId());
+		assertEquals(Id.createLinkId("north1"), untolled2.calcLeastCostPath(n1, n4, 8 * 3600.0, null, null).links.get(0).getId());
+	}
+
+	public void testNoRoute() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(1), n1, n2, 1000, 10, 3600, 1);
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+
+		assertNotNull(ch.calcLeastCostPath(n1, n2, 0.0, null, null));
+		assertNull(ch.calcLeastCostPath(n2, n1, 0.0, null, null));
+	}
+
+	private static final class TollDisutility implements TravelDisutility {
+
+		private final Id<Link> tolledLinkId;
+		private final double toll;
+
+		TollDisutility(final Id<Link> tolledLinkId, final double toll) {
+			this.tolledLinkId = tolledLinkId;
+			this.toll = toll;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			// a peak toll, so the costs at midnight are the same for all instances
+			return link.getId().equals(this.tolledLinkId) && time >= 7 * 3600 ? link.getLength() + this.toll : link.getLength();
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength();
+		}
+	}
+
+	private static Network createRandomGridNetwork(final int size, final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] grid = new Node[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				grid[i][j] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + "_" + j),
+						new Coord(i * 100 + random.nextDouble() * 50, j * 100 + random.nextDouble() * 50));
+			}
+		}
+		int linkId = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				Node node = grid[i][j];
+				Node[] neighbors = { i + 1 < size ? grid[i + 1][j] : null, j + 1 < size ? grid[i][j + 1] : null };
+				for (Node neighbor : neighbors) {
+					if (neighbor == null) {
+						continue;
+					}
+					double length = NetworkUtils.getEuclideanDistance(node.getCoord(), neighbor.getCoord()) * (1.0 + random.nextDouble());
+					// some one-way streets
+					if (random.nextDouble() < 0.9) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), node, neighbor, length, 10 + 20 * random.nextDouble(), 1000, 1);
+					}
+					if (random.nextDouble() < 0.9) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), neighbor, node, length, 10 + 20 * random.nextDouble(), 1000, 1);
+					}
+				}
+			}
+		}
+		return network;
+	}
+
+}
@@ -0,0 +1,70 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntDoubleMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntDoubleMinHeapTest {
+
+	@Test
+	public void testPollsInOrderOfCost() {
+		Random random = new Random(4711);
+		double[] costs = new double[1000];
+		IntDoubleMinHeap heap = new IntDoubleMinHeap(1); // forces the arrays to grow
+		for (int i = 0; i < costs.length; i++) {
+			costs[i] = Math.floor(random.nextDouble() * 100.0); // with equal costs
+			heap.add(i, costs[i]);
+		}
+		Assert.assertEquals(costs.length, heap.size());
+
+		double[] polled = new double[costs.length];
+		boolean[] seen = new boolean[costs.length];
+		for (int i = 0; i < costs.length; i++) {
+			double cost = heap.peekCost();
+			int index = heap.poll();
+			Assert.assertEquals(costs[index], cost, 0.0);
+			Assert.assertFalse(seen[index]);
+			seen[index] = true;
+			polled[i] = cost;
+		}
+		Assert.assertTrue(heap.isEmpty());
+		Arrays.sort(costs);
+		Assert.assertArrayEquals(costs, polled, 0.0);
+	}
+
+	@Test
+	public void testClear() {
+		IntDoubleMinHeap heap = new IntDoubleMinHeap();
+		heap.add(1, 3.0);
+		heap.add(2, 1.0);
+		heap.clear();
+		Assert.assertTrue(heap.isEmpty());
+		heap.add(3, 2.0);
+		Assert.assertEquals(2.0, heap.peekCost(), 0.0);
+		Assert.assertEquals(3, heap.poll());
+		Assert.assertTrue(heap.isEmpty());
+	}
+
+}
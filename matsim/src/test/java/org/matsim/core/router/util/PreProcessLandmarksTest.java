@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.util;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PreProcessLandmarksTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testLandmarkTravelTimesAreLeastCosts() {
+		Network network = createRandomGridNetwork(12, 4711);
+		FreespeedTravelTimeAndDisutility costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(costFunction, 4);
+		preProcessData.setNumberOfThreads(3);
+		preProcessData.run(network);
+
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, costFunction, costFunction);
+		Node[] landmarks = preProcessData.getLandmarks();
+		Assert.assertEquals(4, landmarks.length);
+		for (Node node : network.getNodes().values()) {
+			PreProcessLandmarks.LandmarksData data = preProcessData.getNodeData(node);
+			for (int i = 0; i < landmarks.length; i++) {
+				double fromLandmark = getCost(dijkstra.calcLeastCostPath(landmarks[i], node, 0.0, null, null));
+				double toLandmark = getCost(dijkstra.calcLeastCostPath(node, landmarks[i], 0.0, null, null));
+				Assert.assertEquals(Math.min(fromLandmark, toLandmark), data.getMinLandmarkTravelTime(i), 1e-6);
+				Assert.assertEquals(Math.max(fromLandmark, toLandmark), data.getMaxLandmarkTravelTime(i), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testCache() {
+		Network network = createRandomGridNetwork(12, 4711);
+		FreespeedTravelTimeAndDisutility costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = this.utils.getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks computed = new PreProcessLandmarks(costFunction, 4);
+		computed.setCacheDirectory(cacheDirectory);
+		computed.run(network);
+		File[] cacheFiles = new File(cacheDirectory).listFiles();
+		Assert.assertEquals(1, cacheFiles.length);
+
+		// a second run on the same network reads the cached travel times
+		PreProcessLandmarks cached = new PreProcessLandmarks(costFunction, 4);
+		cached.setCacheDirectory(cacheDirectory);
+		cached.run(network);
+		Assert.assertEquals(1, new File(cacheDirectory).listFiles().length);
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 4; i++) {
+				Assert.assertEquals(computed.getNodeData(node).getMinLandmarkTravelTime(i), cached.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				Assert.assertEquals(computed.getNodeData(node).getMaxLandmarkTravelTime(i), cached.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+
+		// a different network must not use the existing cache entry
+		Link link = network.getLinks().values().iterator().next();
+		link.setFreespeed(link.getFreespeed() / 2);
+		PreProcessLandmarks changed = new PreProcessLandmarks(costFunction, 4);
+		changed.setCacheDirectory(cacheDirectory);
+		changed.run(network);
+		Assert.assertEquals(2, new File(cacheDirectory).listFiles().length);
+	}
+
+	private static double getCost(final Path path) {
+		return path == null ? Double.POSITIVE_INFINITY : path.travelCost;
+	}
+
+	private static Network createRandomGridNetwork(final int size, final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] grid = new Node[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				grid[i][j] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + "_" + j),
+						new Coord(i * 100 + random.nextDouble() * 50, j * 100 + random.nextDouble() * 50));
+			}
+		}
+		int linkId = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				Node[] neighbors = { i + 1 < size ? grid[i + 1][j] : null, j + 1 < size ? grid[i][j + 1] : null };
+				for (Node neighbor : neighbors) {
+					if (neighbor == null) {
+						continue;
+					}
+					double length = 150 * (1 + random.nextDouble());
+					// some one-way streets, so the travel times to and from the landmarks differ
+					if (random.nextDouble() < 0.9) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), grid[i][j], neighbor, length, 5 + 20 * random.nextDouble(), 1000, 1);
+					}
+					if (random.nextDouble() < 0.9) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), neighbor, grid[i][j], length, 5 + 20 * random.nextDouble(), 1000, 1);
+					}
+				}
+			}
+		}
+		return network;
+	}
+}
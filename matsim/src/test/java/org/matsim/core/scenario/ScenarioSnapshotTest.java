@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.CRCChecksum;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesWriter;
+import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ScenarioSnapshotTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testNetworkPopulationAndFacilities() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		Link link = scenario.getNetwork().getLinks().get(Id.createLinkId("1"));
+		NetworkUtils.setType(link, "motorway");
+		link.getAttributes().putAttribute("toll", 1.5);
+		NetworkUtils.setOrigId(scenario.getNetwork().getNodes().get(Id.createNodeId("1")), "n1");
+		Person person = scenario.getPopulation().getPersons().values().iterator().next();
+		person.getAttributes().putAttribute("age", 42);
+		person.getSelectedPlan().setScore(12.5);
+		person.getSelectedPlan().getAttributes().putAttribute("source", "snapshot test");
+		person.getSelectedPlan().getPlanElements().get(0).getAttributes().putAttribute("parking", "street");
+		person.getSelectedPlan().getPlanElements().get(1).getAttributes().putAttribute("stops", 2);
+		ActivityFacility facility = scenario.getActivityFacilities().getFacilities().values().iterator().next();
+		facility.getAttributes().putAttribute("open", true);
+		facility.setCoord(new Coord(1.0, 2.0, 3.0));
+
+		String snapshot = this.utils.getOutputDirectory() + "scenario.snapshot";
+		ScenarioUtils.writeScenarioSnapshot(scenario, snapshot);
+		Scenario loaded = ScenarioUtils.loadScenarioSnapshot(ConfigUtils.createConfig(), snapshot);
+
+		Assert.assertEquals(scenario.getNetwork().getLinks().keySet(), loaded.getNetwork().getLinks().keySet());
+		Assert.assertEquals("motorway", NetworkUtils.getType(loaded.getNetwork().getLinks().get(Id.createLinkId("1"))));
+		Assert.assertEquals("n1", NetworkUtils.getOrigId(loaded.getNetwork().getNodes().get(Id.createNodeId("1"))));
+		assertSameFile("network", this.utils.getOutputDirectory() + "network",
+				file -> new NetworkWriter(scenario.getNetwork()).write(file),
+				file -> new NetworkWriter(loaded.getNetwork()).write(file));
+
+		Assert.assertTrue("populations differ", PopulationUtils.equalPopulation(scenario.getPopulation(), loaded.getPopulation()));
+		Person loadedPerson = loaded.getPopulation().getPersons().get(person.getId());
+		Assert.assertEquals(42, loadedPerson.getAttributes().getAttribute("age"));
+		Assert.assertEquals(12.5, loadedPerson.getSelectedPlan().getScore(), 0.0);
+		Assert.assertEquals("street", loadedPerson.getSelectedPlan().getPlanElements().get(0).getAttributes().getAttribute("parking"));
+		Assert.assertEquals(2, loadedPerson.getSelectedPlan().getPlanElements().get(1).getAttributes().getAttribute("stops"));
+		Assert.assertEquals(person.getPlans().indexOf(person.getSelectedPlan()), loadedPerson.getPlans().indexOf(loadedPerson.getSelectedPlan()));
+		assertSameFile("population", this.utils.getOutputDirectory() + "population",
+				file -> new PopulationWriter(scenario.getPopulation()).write(file),
+				file -> new PopulationWriter(loaded.getPopulation()).write(file));
+
+		Assert.assertEquals(scenario.getActivityFacilities().getFacilities().size(), loaded.getActivityFacilities().getFacilities().size());
+		ActivityFacility loadedFacility = loaded.getActivityFacilities().getFacilities().get(facility.getId());
+		Assert.assertEquals(true, loadedFacility.getAttributes().getAttribute("open"));
+		Assert.assertEquals(facility.getCoord(), loadedFacility.getCoord());
+		assertSameFile("facilities", this.utils.getOutputDirectory() + "facilities",
+				file -> new FacilitiesWriter(scenario.getActivityFacilities()).write(file),
+				file -> new FacilitiesWriter(loaded.getActivityFacilities()).write(file));
+	}
+
+	@Test
+	public void testTransitSchedule() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		String snapshot = this.utils.getOutputDirectory() + "scenario.snapshot";
+		ScenarioUtils.writeScenarioSnapshot(scenario, snapshot);
+		Scenario loaded = ScenarioUtils.loadScenarioSnapshot(ConfigUtils.createConfig(), snapshot);
+
+		Assert.assertEquals(scenario.getTransitSchedule().getTransitLines().keySet(), loaded.getTransitSchedule().getTransitLines().keySet());
+		assertSameFile("transit schedule", this.utils.getOutputDirectory() + "transitSchedule",
+				file -> new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(file),
+				file -> new TransitScheduleWriter(loaded.getTransitSchedule()).writeFile(file));
+		Assert.assertTrue("populations differ", PopulationUtils.equalPopulation(scenario.getPopulation(), loaded.getPopulation()));
+	}
+
+	@Test
+	public void testNotASnapshot() {
+		try {
+			ScenarioUtils.loadScenarioSnapshot(ConfigUtils.createConfig(), "test/scenarios/equil/network.xml");
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("not a scenario snapshot"));
+		}
+	}
+
+	private static void assertSameFile(final String message, final String prefix, final Consumer<String> original, final Consumer<String> loaded) {
+		original.accept(prefix + "_original.xml");
+		loaded.accept(prefix + "_loaded.xml");
+		Assert.assertEquals(message + " differs after loading the snapshot",
+				CRCChecksum.getCRCFromFile(prefix + "_original.xml"), CRCChecksum.getCRCFromFile(prefix + "_loaded.xml"));
+	}
+
+}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.scoring;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.vehicles.Vehicle;
+
+public class ScoringFunctionsForPopulationShardsTest {
+
+	private static final int NUMBER_OF_PERSONS = 50;
+
+	@Test
+	public void testShardedScoresEqualUnshardedScores() {
+		Map<Id<Person>, Double> expected = computeScores(1, 1);
+		Map<Id<Person>, Double> sharded = computeScores(4, 4);
+
+		Assert.assertEquals(NUMBER_OF_PERSONS, expected.size());
+		Assert.assertEquals(expected.keySet(), sharded.keySet());
+		for (Map.Entry<Id<Person>, Double> e : expected.entrySet()) {
+			Assert.assertEquals("different score for person " + e.getKey(), e.getValue(), sharded.get(e.getKey()), 1e-9);
+		}
+	}
+
+	@Test
+	public void testMoreShardsThanPersons() {
+		Map<Id<Person>, Double> expected = computeScores(1, 1);
+		Map<Id<Person>, Double> sharded = computeScores(2 * NUMBER_OF_PERSONS, 2);
+
+		for (Map.Entry<Id<Person>, Double> e : expected.entrySet()) {
+			Assert.assertEquals("different score for person " + e.getKey(), e.getValue(), sharded.get(e.getKey()), 1e-9);
+		}
+	}
+
+	private static Map<Id<Person>, Double> computeScores(int numberOfShards, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setNumberOfThreads(numberOfThreads);
+		config.planCalcScore().setNumberOfScoringShards(numberOfShards);
+		PlanCalcScoreConfigGroup.ActivityParams home = new PlanCalcScoreConfigGroup.ActivityParams("home");
+		home.setTypicalDuration(12 * 3600.0);
+		config.planCalcScore().addActivityParams(home);
+		PlanCalcScoreConfigGroup.ActivityParams work = new PlanCalcScoreConfigGroup.ActivityParams("work");
+		work.setTypicalDuration(8 * 3600.0);
+		config.planCalcScore().addActivityParams(work);
+		PlanCalcScoreConfigGroup.ModeParams car = new PlanCalcScoreConfigGroup.ModeParams("car");
+		car.setMarginalUtilityOfDistance(-0.001);
+		car.setConstant(-1.0);
+		config.planCalcScore().addModeParams(car);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(3000, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId(4), new Coord(6000, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(1), n1, n2, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(2), n2, n3, 2000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(3), n3, n4, 3000, 10, 3600, 1);
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(Id.createPersonId(i)));
+		}
+
+		EventsManager events = EventsUtils.createEventsManager(config);
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events,
+				new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario,
+				new CharyparNagelScoringFunctionFactory(scenario));
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		events.initProcessing();
+		Id<Link> link1 = Id.createLinkId(1);
+		Id<Link> link2 = Id.createLinkId(2);
+		Id<Link> link3 = Id.createLinkId(3);
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Id<Person> personId = Id.createPersonId(i);
+			Id<Vehicle> vehicleId = Id.createVehicleId(i);
+			double time = 6 * 3600.0 + i * 60;
+			events.processEvent(new ActivityEndEvent(time, personId, link1, null, "home"));
+			events.processEvent(new PersonDepartureEvent(time, personId, link1, "car"));
+			events.processEvent(new VehicleEntersTrafficEvent(time, personId, link1, vehicleId, "car", 1.0));
+			events.processEvent(new LinkLeaveEvent(time + 100, vehicleId, link1));
+			events.processEvent(new LinkEnterEvent(time + 100, vehicleId, link2));
+			events.processEvent(new LinkLeaveEvent(time + 300 + i, vehicleId, link2));
+			events.processEvent(new LinkEnterEvent(time + 300 + i, vehicleId, link3));
+			events.processEvent(new VehicleLeavesTrafficEvent(time + 600 + i, personId, link3, vehicleId, "car", 1.0));
+			events.processEvent(new PersonArrivalEvent(time + 600 + i, personId, link3, "car"));
+			events.processEvent(new ActivityStartEvent(time + 600 + i, personId, link3, null, "work"));
+			if (i % 3 == 0) {
+				events.processEvent(new PersonMoneyEvent(time + 3600, personId, -2.5));
+			}
+		}
+		events.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		scoringFunctionsForPopulation.finishScoringFunctions();
+
+		Map<Id<Person>, Double> scores = new HashMap<>();
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			scores.put(person.getId(), scoringFunctionsForPopulation.getScoringFunctionForAgent(person.getId()).getScore());
+		}
+		return scores;
+	}
+
+}
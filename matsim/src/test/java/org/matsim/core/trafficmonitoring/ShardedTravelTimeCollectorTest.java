@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class ShardedTravelTimeCollectorTest {
+
+	@Test
+	public void testSameTravelTimesAsTravelTimeCalculator() {
+		Network network = NetworkUtils.createNetwork();
+		Node[] nodes = new Node[11];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.create(i, Node.class), new Coord(i * 1000.0, 0));
+		}
+		Link[] links = new Link[10];
+		for (int i = 0; i < links.length; i++) {
+			links[i] = NetworkUtils.createAndAddLink(network, Id.create(i, Link.class), nodes[i], nodes[i + 1], 1000.0, 10.0, 3600.0, 1.0);
+		}
+
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setTraveltimeBinSize(900);
+		config.setFilterModes(true);
+		config.setNumberOfShards(3);
+
+		TravelTimeCalculator reference = TravelTimeCalculator.create(network, config);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(reference);
+		ShardedTravelTimeCollector collector = new ShardedTravelTimeCollector(config, events, network);
+
+		// cars drive along all links with different speeds, walkers are ignored
+		for (int v = 0; v < 20; v++) {
+			Id<Vehicle> vehicleId = Id.create(v, Vehicle.class);
+			String mode = v % 5 == 0 ? TransportMode.walk : TransportMode.car;
+			double time = v * 300.0;
+			events.processEvent(new VehicleEntersTrafficEvent(time, Id.create(v, Person.class), links[0].getId(), vehicleId, mode, 1.0));
+			events.processEvent(new LinkLeaveEvent(time, vehicleId, links[0].getId()));
+			for (int l = 1; l < links.length; l++) {
+				events.processEvent(new LinkEnterEvent(time, vehicleId, links[l].getId()));
+				time += 100.0 + v * 10 + l;
+				events.processEvent(new LinkLeaveEvent(time, vehicleId, links[l].getId()));
+			}
+			events.processEvent(new VehicleLeavesTrafficEvent(time, Id.create(v, Person.class), links[links.length - 1].getId(), vehicleId, mode, 1.0));
+		}
+		collector.merge();
+
+		TravelTimeCalculator merged = collector.getTravelTimeCalculator();
+		for (Link link : links) {
+			for (double time = 0; time < 4 * 3600; time += 900) {
+				Assert.assertEquals("different travel time on link " + link.getId() + " at " + time,
+						reference.getLinkTravelTime(link, time), merged.getLinkTravelTime(link, time), 1e-8);
+			}
+		}
+		Assert.assertEquals(110.0 + 1 * 10 + 5, merged.getLinkTravelTime(links[5], 300.0), 1e-8);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testLinkToLinkNotSupported() {
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setCalculateLinkToLinkTravelTimes(true);
+		new ShardedTravelTimeCollector(config, EventsUtils.createEventsManager(), NetworkUtils.createNetwork());
+	}
+
+}
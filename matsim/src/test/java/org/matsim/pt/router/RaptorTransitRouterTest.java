@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Tests the parts of {@link RaptorTransitRouter} not covered by {@link TransitRouterImplTest}.
+ */
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testRangeQuery() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(16100, 5050);
+		List<List<Leg>> routes = router.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600, 6.0*3600, null);
+		// the blue line departs at *:06, *:26 and *:46
+		double[] expectedDepartures = new double[] { 5.0*3600 + 6.0*60, 5.0*3600 + 26.0*60, 5.0*3600 + 46.0*60 };
+		Assert.assertEquals(expectedDepartures.length, routes.size());
+		for (int i = 0; i < routes.size(); i++) {
+			List<Leg> legs = routes.get(i);
+			Assert.assertEquals(3, legs.size());
+			Assert.assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+			Assert.assertEquals(TransportMode.pt, legs.get(1).getMode());
+			Assert.assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+			ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+			Assert.assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+			Assert.assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+			Assert.assertEquals(legs.get(0).getDepartureTime() + legs.get(0).getTravelTime(), legs.get(1).getDepartureTime(), 1e-6);
+			Assert.assertEquals("no waiting expected", expectedDepartures[i], legs.get(1).getDepartureTime(), 1e-6);
+		}
+	}
+
+	@Test
+	public void testRangeQuery_noRoute() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		// there is no departure at stop A between 5:47 and 6:05
+		List<List<Leg>> routes = router.calcRoutes(new FakeFacility(new Coord(3800, 5100)), new FakeFacility(new Coord(16100, 5050)),
+				5.0*3600 + 47.0*60, 6.0*3600, null);
+		Assert.assertTrue(routes.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		final RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		final Coord fromCoord = new Coord(3800, 5100);
+		final Coord toCoord = new Coord(28100, 4950);
+
+		List<Double> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			expected.add(calcTravelTime(router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600 + i*60.0, null)));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Double>> results = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				final double departureTime = 5.0*3600 + i*60.0;
+				results.add(executor.submit(() -> calcTravelTime(router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), departureTime, null))));
+			}
+			for (int i = 0; i < 100; i++) {
+				Assert.assertEquals(expected.get(i), results.get(i).get(), 1e-6);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static double calcTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+}
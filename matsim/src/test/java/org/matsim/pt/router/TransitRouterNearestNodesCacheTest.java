@@ -0,0 +1,91 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterNearestNodesCacheTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkNode;
+
+public class TransitRouterNearestNodesCacheTest {
+
+	@Test
+	public void testGetNearestNodes() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterNetwork network = TransitRouterNetwork.createFromSchedule(f.schedule, 100.0);
+		TransitRouterNearestNodesCache cache = new TransitRouterNearestNodesCache(network, 1000.0, 200.0);
+
+		Coord[] coords = new Coord[] { new Coord(3800, 5100), new Coord(16100, 5050), new Coord(-2000, 0), new Coord(12000, 7500) };
+		for (Coord coord : coords) {
+			TransitRouterNetworkNode[] expected = TransitRouterNearestNodesCache.findNearestNodes(network, coord, 1000.0, 200.0);
+			Assert.assertTrue(expected.length > 0);
+			Assert.assertEquals(new HashSet<>(Arrays.asList(expected)), new HashSet<>(Arrays.asList(cache.getNearestNodes(coord))));
+		}
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertEquals(coords.length, cache.getMisses());
+
+		// equal coordinates hit the cache, even if they are different objects
+		TransitRouterNetworkNode[] nodes = cache.getNearestNodes(new Coord(3800, 5100));
+		Assert.assertSame(nodes, cache.getNearestNodes(new Coord(3800, 5100)));
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(2.0 / (2 + coords.length), cache.getHitRate(), 1e-10);
+	}
+
+	@Test
+	public void testMaxSize() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterNetwork network = TransitRouterNetwork.createFromSchedule(f.schedule, 100.0);
+		TransitRouterNearestNodesCache cache = new TransitRouterNearestNodesCache(network, 1000.0, 200.0, 2);
+		cache.getNearestNodes(new Coord(3800, 5100));
+		cache.getNearestNodes(new Coord(16100, 5050));
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(0, cache.getClears());
+		cache.getNearestNodes(new Coord(12000, 7500));
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(1, cache.getClears());
+		cache.getNearestNodes(new Coord(3800, 5100));
+		Assert.assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testRouterUsesCache() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		TransitRouterImplFactory factory = new TransitRouterImplFactory(f.schedule, trConfig);
+		TransitRouter router1 = factory.get();
+		TransitRouter router2 = factory.get();
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(16100, 5050);
+		router1.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600, null);
+		Assert.assertEquals(2, factory.getNearestNodesCache().getMisses());
+		router2.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6.0*3600, null);
+		Assert.assertEquals(2, factory.getNearestNodesCache().getMisses());
+		Assert.assertEquals(2, factory.getNearestNodesCache().getHits());
+	}
+
+}